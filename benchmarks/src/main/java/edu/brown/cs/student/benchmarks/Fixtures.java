@@ -0,0 +1,110 @@
+package edu.brown.cs.student.benchmarks;
+
+import edu.brown.cs.student.main.server.classes.Listing;
+import edu.brown.cs.student.main.server.classes.User;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generated data shaped like the marketplace's: a few categories and conditions, a small tag
+ * vocabulary, and prices and titles spread so the benchmark filters match a realistic fraction of
+ * listings. The same seed always gives the same data, so runs are comparable.
+ */
+final class Fixtures {
+  static final String[] CATEGORIES = {
+    "Furniture", "Books", "Electronics", "Clothing", "Kitchen", "Decor", "Sports", "Other"
+  };
+  static final String[] CONDITIONS = {"New", "Like new", "Used", "Worn"};
+  static final String[] TAGS = {
+    "vintage",
+    "dorm",
+    "textbook",
+    "desk",
+    "lamp",
+    "winter",
+    "bike",
+    "storage",
+    "mini-fridge",
+    "rug",
+    "poster",
+    "chair",
+    "shelf",
+    "mirror",
+    "speaker",
+    "jacket",
+    "boots",
+    "mug",
+    "plant",
+    "free-pickup"
+  };
+  private static final String[] NOUNS = {
+    "lamp", "desk", "chair", "textbook", "jacket", "rug", "monitor", "kettle", "bike", "shelf"
+  };
+  private static final String[] ADJECTIVES = {
+    "Vintage", "Compact", "Sturdy", "Barely used", "Cozy", "Large", "Minimal", "Classic"
+  };
+  private static final String[] DESCRIPTIONS = {
+    "Picked up from Thayer Street last fall, works perfectly.",
+    "Moving out of the dorm, need this gone by the end of finals.",
+    "Some scratches on the side but otherwise in great shape.",
+    "Comes from a smoke-free, pet-free apartment near the Main Green."
+  };
+
+  private Fixtures() {}
+
+  /**
+   * @param count how many listings
+   * @return listings without ids, as they would be handed to createListings
+   */
+  static List<Listing> listings(int count) {
+    Random random = new Random(42);
+    List<Listing> listings = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      listings.add(listing(random, i));
+    }
+    return listings;
+  }
+
+  static Listing listing(Random random, int i) {
+    List<String> tags = new ArrayList<>(3);
+    int tagCount = random.nextInt(4);
+    for (int t = 0; t < tagCount; t++) {
+      String tag = TAGS[random.nextInt(TAGS.length)];
+      if (!tags.contains(tag)) {
+        tags.add(tag);
+      }
+    }
+    return new Listing(
+        null,
+        sellerId(random.nextInt(1000)),
+        ADJECTIVES[random.nextInt(ADJECTIVES.length)]
+            + " "
+            + NOUNS[random.nextInt(NOUNS.length)]
+            + " #"
+            + i,
+        DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)],
+        // cents, like real prices
+        (1 + random.nextInt(50_000)) / 100f,
+        CATEGORIES[random.nextInt(CATEGORIES.length)],
+        CONDITIONS[random.nextInt(CONDITIONS.length)],
+        "https://images.bearlyused.app/listings/" + i + ".jpg",
+        tags,
+        random.nextInt(10) != 0);
+  }
+
+  static String sellerId(int i) {
+    return "user_" + i;
+  }
+
+  static User user(int i) {
+    return new User(
+        (long) i + 1,
+        sellerId(i),
+        "student" + i + "@brown.edu",
+        "Student " + i,
+        "401-555-" + String.format("%04d", i % 10_000),
+        i % 5 == 0 ? "RISD" : "Brown",
+        List.of("books", "furniture"));
+  }
+}
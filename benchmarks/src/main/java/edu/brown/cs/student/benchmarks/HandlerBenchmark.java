@@ -0,0 +1,244 @@
+package edu.brown.cs.student.benchmarks;
+
+import com.squareup.moshi.Types;
+import edu.brown.cs.student.main.server.classes.Listing;
+import edu.brown.cs.student.main.server.handlers.AddListingHandler;
+import edu.brown.cs.student.main.server.handlers.AddListingsHandler;
+import edu.brown.cs.student.main.server.handlers.AddUserHandler;
+import edu.brown.cs.student.main.server.handlers.DefaultHandler;
+import edu.brown.cs.student.main.server.handlers.DeleteListingHandler;
+import edu.brown.cs.student.main.server.handlers.GetFacetsHandler;
+import edu.brown.cs.student.main.server.handlers.GetListingsByIdHandler;
+import edu.brown.cs.student.main.server.handlers.GetListingsByIdsHandler;
+import edu.brown.cs.student.main.server.handlers.GetListingsHandler;
+import edu.brown.cs.student.main.server.handlers.GetStatsHandler;
+import edu.brown.cs.student.main.server.handlers.GetUserHandler;
+import edu.brown.cs.student.main.server.handlers.GetUserListingsHandler;
+import edu.brown.cs.student.main.server.handlers.Json;
+import edu.brown.cs.student.main.server.handlers.UpdateListingHandler;
+import edu.brown.cs.student.main.server.handlers.UpdateUserHandler;
+import edu.brown.cs.student.main.server.storage.MockStorage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import spark.Request;
+
+/**
+ * Every handler's handle, called directly with stubbed requests against a MockStorage of 10,000
+ * listings and 1,000 users. This measures parameter validation, the storage call and serialization
+ * together, without Spark or the network.
+ *
+ * <p>The handlers that add listings get a fresh storage every iteration, so it does not grow
+ * without bound over a run. Each deleteListing call first inserts the listing it deletes, straight
+ * into MockStorage, so the storage stays the same size there too.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(
+    value = 1,
+    jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class HandlerBenchmark {
+  private static final int LISTINGS = 10_000;
+  private static final int USERS = 1_000;
+
+  private static final Request GET_LISTINGS =
+      new StubRequest(Map.of("title", "lamp", "sorter", "PRICE_ASC", "limit", "20"));
+  private static final Request GET_LISTING_BY_ID = new StubRequest(Map.of("listing_id", "42"));
+  private static final Request GET_LISTINGS_BY_IDS =
+      new StubRequest(
+          Map.of("listing_ids", "3,14,15,92,65,358,979,323,846,2643", "fields", "card"));
+  private static final Request GET_USER = new StubRequest(Map.of("clerk_id", "user_7"));
+  private static final Request GET_USER_LISTINGS = new StubRequest(Map.of("seller_id", "user_7"));
+  private static final Request GET_FACETS =
+      new StubRequest(Map.of("category", "Furniture", "price_buckets", "25,50,100,250"));
+  private static final Request NO_PARAMS = new StubRequest(Map.of());
+  private static final Request ADD_LISTING =
+      new StubRequest(
+          Map.of(
+              "seller_id", "user_7",
+              "title", "Desk lamp",
+              "available", "true",
+              "description", "Warm light, barely used",
+              "price", "15.0",
+              "category", "Decor",
+              "condition", "Like new",
+              "image_url", "https://images.bearlyused.app/listings/lamp.jpg",
+              "tags", "lamp,dorm"));
+  private static final Request UPDATE_LISTING =
+      new StubRequest(Map.of("listing_id", "42", "title", "Desk lamp", "price", "12.5"));
+  private static final Request ADD_USER =
+      new StubRequest(
+          Map.of(
+              "clerk_id", "user_new",
+              "email", "new@brown.edu",
+              "name", "New Student",
+              "phone_number", "401-555-0199",
+              "school", "Brown"));
+  private static final Request UPDATE_USER =
+      new StubRequest(Map.of("clerk_id", "user_7", "name", "Renamed", "school", "RISD"));
+
+  /** Storage and handlers shared by the read benchmarks and the writes that do not grow it. */
+  @State(Scope.Benchmark)
+  public static class Backend {
+    MockStorage storage;
+    GetListingsHandler getListings;
+    GetListingsByIdHandler getListingById;
+    GetListingsByIdsHandler getListingsByIds;
+    GetUserHandler getUser;
+    GetUserListingsHandler getUserListings;
+    GetFacetsHandler getFacets;
+    GetStatsHandler getStats;
+    UpdateListingHandler updateListing;
+    AddUserHandler addUser;
+    UpdateUserHandler updateUser;
+    DeleteListingHandler deleteListing;
+    DefaultHandler defaultHandler;
+
+    @Setup
+    public void setUp() {
+      this.storage = seededStorage(LISTINGS);
+      this.getListings = new GetListingsHandler(this.storage);
+      this.getListingById = new GetListingsByIdHandler(this.storage);
+      this.getListingsByIds = new GetListingsByIdsHandler(this.storage);
+      this.getUser = new GetUserHandler(this.storage);
+      this.getUserListings = new GetUserListingsHandler(this.storage);
+      this.getFacets = new GetFacetsHandler(this.storage);
+      this.getStats = new GetStatsHandler(this.storage);
+      this.updateListing = new UpdateListingHandler(this.storage);
+      this.addUser = new AddUserHandler(this.storage);
+      this.updateUser = new UpdateUserHandler(this.storage);
+      this.deleteListing = new DeleteListingHandler(this.storage);
+      this.defaultHandler = new DefaultHandler();
+    }
+  }
+
+  /** A storage started over every iteration, for the handlers that add listings. */
+  @State(Scope.Benchmark)
+  public static class GrowingBackend {
+    AddListingHandler addListing;
+    AddListingsHandler addListings;
+    Request addListingsRequest;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+      MockStorage storage = seededStorage(1_000);
+      this.addListing = new AddListingHandler(storage);
+      this.addListings = new AddListingsHandler(storage);
+
+      Random random = new Random(7);
+      List<Listing> batch = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+        batch.add(Fixtures.listing(random, i));
+      }
+      String body =
+          Json.MOSHI
+              .<List<Listing>>adapter(Types.newParameterizedType(List.class, Listing.class))
+              .toJson(batch);
+      this.addListingsRequest = new StubRequest(Map.of(), Map.of(), body);
+    }
+  }
+
+  private static MockStorage seededStorage(int listings) {
+    MockStorage storage = new MockStorage();
+    storage.createListings(Fixtures.listings(listings));
+    for (int i = 0; i < USERS; i++) {
+      storage.createUser(
+          Fixtures.sellerId(i),
+          "student" + i + "@brown.edu",
+          "Student " + i,
+          "401-555-0100",
+          "Brown");
+    }
+    return storage;
+  }
+
+  @Benchmark
+  public Object getListings(Backend backend) throws Exception {
+    return backend.getListings.handle(GET_LISTINGS, new StubResponse());
+  }
+
+  @Benchmark
+  public Object getListingById(Backend backend) throws Exception {
+    return backend.getListingById.handle(GET_LISTING_BY_ID, new StubResponse());
+  }
+
+  @Benchmark
+  public Object getListingsByIds(Backend backend) throws Exception {
+    return backend.getListingsByIds.handle(GET_LISTINGS_BY_IDS, new StubResponse());
+  }
+
+  @Benchmark
+  public Object getUser(Backend backend) throws Exception {
+    return backend.getUser.handle(GET_USER, new StubResponse());
+  }
+
+  @Benchmark
+  public Object getUserListings(Backend backend) throws Exception {
+    return backend.getUserListings.handle(GET_USER_LISTINGS, new StubResponse());
+  }
+
+  @Benchmark
+  public Object getFacets(Backend backend) throws Exception {
+    return backend.getFacets.handle(GET_FACETS, new StubResponse());
+  }
+
+  @Benchmark
+  public Object getStats(Backend backend) throws Exception {
+    return backend.getStats.handle(NO_PARAMS, new StubResponse());
+  }
+
+  @Benchmark
+  public Object updateListing(Backend backend) throws Exception {
+    return backend.updateListing.handle(UPDATE_LISTING, new StubResponse());
+  }
+
+  @Benchmark
+  public Object addUser(Backend backend) throws Exception {
+    // MockStorage replaces a user with the same clerk id, so this does not grow the storage
+    return backend.addUser.handle(ADD_USER, new StubResponse());
+  }
+
+  @Benchmark
+  public Object updateUser(Backend backend) throws Exception {
+    return backend.updateUser.handle(UPDATE_USER, new StubResponse());
+  }
+
+  @Benchmark
+  public Object deleteListing(Backend backend) throws Exception {
+    Long listingId =
+        backend.storage.createListing(
+            "user_7", "Doomed lamp", true, null, 5f, "Decor", "Used", "lamp.jpg", List.of());
+    Request request = new StubRequest(Map.of("listing_id", listingId.toString()));
+    return backend.deleteListing.handle(request, new StubResponse());
+  }
+
+  @Benchmark
+  public Object defaultRoute(Backend backend) throws Exception {
+    return backend.defaultHandler.handle(NO_PARAMS, new StubResponse());
+  }
+
+  @Benchmark
+  public Object addListing(GrowingBackend backend) throws Exception {
+    return backend.addListing.handle(ADD_LISTING, new StubResponse());
+  }
+
+  @Benchmark
+  public Object addListings(GrowingBackend backend) throws Exception {
+    return backend.addListings.handle(backend.addListingsRequest, new StubResponse());
+  }
+}
@@ -0,0 +1,88 @@
+package edu.brown.cs.student.benchmarks;
+
+import edu.brown.cs.student.main.server.classes.Listing;
+import edu.brown.cs.student.main.server.storage.MockStorage;
+import edu.brown.cs.student.main.server.storage.Sorter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * MockStorage.getListings over every combination of the four filters (title, category, price range
+ * and tags) and every sort order. The 1M-listing runs take a while to set up; narrow them down with
+ * e.g. {@code -p size=1000,100000}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(
+    value = 1,
+    jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class MockStorageBenchmark {
+  @Param({"1000", "100000", "1000000"})
+  public int size;
+
+  // the filters applied, joined by "+"
+  @Param({
+    "none",
+    "title",
+    "category",
+    "price",
+    "tags",
+    "title+category",
+    "title+price",
+    "title+tags",
+    "category+price",
+    "category+tags",
+    "price+tags",
+    "title+category+price",
+    "title+category+tags",
+    "title+price+tags",
+    "category+price+tags",
+    "title+category+price+tags"
+  })
+  public String filters;
+
+  @Param({"NONE", "PRICE_ASC", "PRICE_DESC"})
+  public String sorter;
+
+  private MockStorage storage;
+  private String title;
+  private String category;
+  private Float minPrice;
+  private Float maxPrice;
+  private List<String> tags;
+  private Sorter order;
+
+  @Setup
+  public void setUp() {
+    this.storage = new MockStorage();
+    this.storage.createListings(Fixtures.listings(this.size));
+
+    List<String> applied = List.of(this.filters.split("\\+"));
+    this.title = applied.contains("title") ? "lamp" : null;
+    this.category = applied.contains("category") ? "Furniture" : null;
+    this.minPrice = applied.contains("price") ? 20f : null;
+    this.maxPrice = applied.contains("price") ? 100f : null;
+    this.tags = applied.contains("tags") ? List.of("vintage", "dorm") : null;
+    this.order = this.sorter.equals("NONE") ? null : Sorter.valueOf(this.sorter);
+  }
+
+  @Benchmark
+  public List<Listing> getListings() {
+    return this.storage.getListings(
+        this.title, this.category, this.minPrice, this.maxPrice, this.tags, this.order);
+  }
+}
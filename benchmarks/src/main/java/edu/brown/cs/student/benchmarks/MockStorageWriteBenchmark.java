@@ -0,0 +1,64 @@
+package edu.brown.cs.student.benchmarks;
+
+import edu.brown.cs.student.main.server.classes.Listing;
+import edu.brown.cs.student.main.server.storage.MockStorage;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * MockStorage under concurrent load: writer threads update random listings while one thread runs
+ * unfiltered searches over the same storage. Compare writer counts, e.g. {@code -tg 1,1} against
+ * {@code -tg 8,1}, to see whether writes scale with threads.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(
+    value = 1,
+    jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class MockStorageWriteBenchmark {
+  @Param({"1000", "100000"})
+  public int size;
+
+  private MockStorage storage;
+  private List<Long> ids;
+  private Listing update;
+
+  @Setup
+  public void setUp() {
+    this.storage = new MockStorage();
+    this.ids = this.storage.createListings(Fixtures.listings(this.size));
+    this.update = new Listing(null, null, null, null, 12.5f, null, null, null, null, false);
+  }
+
+  @Benchmark
+  @Group("mixed")
+  @GroupThreads(8)
+  public boolean updateListing() {
+    Long id = this.ids.get(ThreadLocalRandom.current().nextInt(this.ids.size()));
+    return this.storage.updateListing(id, this.update);
+  }
+
+  @Benchmark
+  @Group("mixed")
+  @GroupThreads(1)
+  public List<Listing> getListings() {
+    return this.storage.getListings(null, null, null, null, null, null);
+  }
+}
@@ -0,0 +1,159 @@
+package edu.brown.cs.student.benchmarks;
+
+import edu.brown.cs.student.main.server.classes.Listing;
+import edu.brown.cs.student.main.server.classes.User;
+import edu.brown.cs.student.main.server.storage.ListingFields;
+import edu.brown.cs.student.main.server.storage.RowMapper;
+import java.lang.reflect.Proxy;
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * RealStorage's row mapping: turning 1,000 rows of a listings or users query into objects through
+ * {@link RowMapper}, for full listings, card projections and users.
+ *
+ * <p>The rows come from an in-memory ResultSet built with a dynamic proxy rather than from
+ * Postgres, so no database is needed. The proxy's own dispatch is part of every column read, which
+ * makes the absolute numbers pessimistic; compare them between runs rather than with the driver.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowMappingBenchmark {
+  private static final int ROWS = 1_000;
+
+  private final RowMapper<Listing> fullListing = RowMapper.listing(ListingFields.ALL);
+  private final RowMapper<Listing> cardListing = RowMapper.listing(ListingFields.CARD);
+  private final RowMapper<User> user = RowMapper.user();
+  private List<Map<String, Object>> listingRows;
+  private List<Map<String, Object>> userRows;
+
+  @Setup
+  public void setUp() {
+    this.listingRows = new ArrayList<>(ROWS);
+    List<Listing> listings = Fixtures.listings(ROWS);
+    for (int i = 0; i < ROWS; i++) {
+      Listing listing = listings.get(i);
+      Map<String, Object> row = new HashMap<>();
+      row.put("id", (long) i + 1);
+      row.put("seller_id", listing.getSellerId());
+      row.put("title", listing.getTitle());
+      row.put("description", listing.getDescription());
+      row.put("price", listing.getPrice());
+      // new Strings, as the driver would hand out, so interning has work to do
+      row.put("category", new String(listing.getCategory()));
+      row.put("condition", new String(listing.getCondition()));
+      row.put("image_url", listing.getImageUrl());
+      row.put("tags", listing.getTags().stream().map(String::new).toArray(String[]::new));
+      row.put("available", listing.getAvailable());
+      this.listingRows.add(row);
+    }
+
+    this.userRows = new ArrayList<>(ROWS);
+    for (int i = 0; i < ROWS; i++) {
+      User fixture = Fixtures.user(i);
+      Map<String, Object> row = new HashMap<>();
+      row.put("id", fixture.getId());
+      row.put("clerk_id", fixture.getClerkId());
+      row.put("email", fixture.getEmail());
+      row.put("name", fixture.getName());
+      row.put("phone_number", fixture.getPhoneNumber());
+      row.put("school", fixture.getSchool());
+      row.put("interests", fixture.getInterests().toArray(String[]::new));
+      this.userRows.add(row);
+    }
+  }
+
+  @Benchmark
+  public List<Listing> fullListings() throws SQLException {
+    return mapAll(this.listingRows, this.fullListing);
+  }
+
+  @Benchmark
+  public List<Listing> cardListings() throws SQLException {
+    return mapAll(this.listingRows, this.cardListing);
+  }
+
+  @Benchmark
+  public List<User> users() throws SQLException {
+    return mapAll(this.userRows, this.user);
+  }
+
+  // what RealStorage does with a query's result set
+  private static <T> List<T> mapAll(List<Map<String, Object>> rows, RowMapper<T> mapper)
+      throws SQLException {
+    ResultSet resultSet = resultSet(rows);
+    List<T> mapped = new ArrayList<>(rows.size());
+    while (resultSet.next()) {
+      mapped.add(mapper.map(resultSet));
+    }
+    return mapped;
+  }
+
+  /** A forward-only ResultSet over rows, supporting what the mappers call. */
+  private static ResultSet resultSet(List<Map<String, Object>> rows) {
+    int[] cursor = {-1};
+    return (ResultSet)
+        Proxy.newProxyInstance(
+            RowMappingBenchmark.class.getClassLoader(),
+            new Class<?>[] {ResultSet.class},
+            (proxy, method, args) -> {
+              String name = method.getName();
+              if (name.equals("next")) {
+                return ++cursor[0] < rows.size();
+              }
+              Object value = rows.get(cursor[0]).get((String) args[0]);
+              switch (name) {
+                case "getLong":
+                  return value == null ? 0L : (Long) value;
+                case "getFloat":
+                  return value == null ? 0f : (Float) value;
+                case "getBoolean":
+                  return value != null && (Boolean) value;
+                case "getString":
+                  return value;
+                case "getArray":
+                  return value == null ? null : array((String[]) value);
+                default:
+                  throw new UnsupportedOperationException(name);
+              }
+            });
+  }
+
+  private static Array array(String[] elements) {
+    return (Array)
+        Proxy.newProxyInstance(
+            RowMappingBenchmark.class.getClassLoader(),
+            new Class<?>[] {Array.class},
+            (proxy, method, args) -> {
+              switch (method.getName()) {
+                case "getArray":
+                  // a fresh array per call, like the driver's
+                  return elements.clone();
+                case "free":
+                  return null;
+                default:
+                  throw new UnsupportedOperationException(method.getName());
+              }
+            });
+  }
+}
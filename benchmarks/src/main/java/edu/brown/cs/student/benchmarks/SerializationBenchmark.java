@@ -0,0 +1,95 @@
+package edu.brown.cs.student.benchmarks;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import com.squareup.moshi.Types;
+import edu.brown.cs.student.main.server.classes.Listing;
+import edu.brown.cs.student.main.server.handlers.Cbor;
+import edu.brown.cs.student.main.server.handlers.Utils;
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serializing the envelopes the handlers return: a page of listings as get-listings sends it, and a
+ * user as get-user sends it. {@code reflectivePerCall} is how Utils.toMoshiJson used to work (a new
+ * Moshi, and so new reflective adapters, for every response), kept as the baseline the shared
+ * adapters are measured against.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+  private static final Type MAP_STRING_OBJECT =
+      Types.newParameterizedType(Map.class, String.class, Object.class);
+
+  // listings in the page
+  @Param({"1", "20", "500"})
+  public int listings;
+
+  private Map<String, Object> listingsEnvelope;
+  private Map<String, Object> userEnvelope;
+
+  @Setup
+  public void setUp() {
+    List<Listing> page = Fixtures.listings(this.listings);
+    for (int i = 0; i < page.size(); i++) {
+      page.get(i).id = (long) i + 1;
+    }
+    this.listingsEnvelope = new HashMap<>();
+    this.listingsEnvelope.put("response_type", "success");
+    this.listingsEnvelope.put("listings", page);
+    this.listingsEnvelope.put("next_cursor", "eyJwIjoxMi41LCJpIjo0Mn0");
+
+    this.userEnvelope = new HashMap<>();
+    this.userEnvelope.put("response_type", "success");
+    this.userEnvelope.put("user_data", Fixtures.user(7));
+  }
+
+  @Benchmark
+  public String listingsJson() {
+    return Utils.toMoshiJson(this.listingsEnvelope);
+  }
+
+  @Benchmark
+  public byte[] listingsCbor() {
+    return Cbor.encode(this.listingsEnvelope);
+  }
+
+  @Benchmark
+  public String listingsReflectivePerCall() {
+    return reflectivePerCall(this.listingsEnvelope);
+  }
+
+  @Benchmark
+  public String userJson() {
+    return Utils.toMoshiJson(this.userEnvelope);
+  }
+
+  @Benchmark
+  public String userReflectivePerCall() {
+    return reflectivePerCall(this.userEnvelope);
+  }
+
+  private static String reflectivePerCall(Map<String, Object> map) {
+    Moshi moshi = new Moshi.Builder().build();
+    JsonAdapter<Map<String, Object>> adapter = moshi.adapter(MAP_STRING_OBJECT);
+    return adapter.toJson(map);
+  }
+}
@@ -0,0 +1,39 @@
+package edu.brown.cs.student.benchmarks;
+
+import java.util.Map;
+import spark.Request;
+
+/**
+ * A Spark request with fixed query parameters, headers and body, so a handler can be called without
+ * a server or servlet container.
+ */
+class StubRequest extends Request {
+  private final Map<String, String> queryParams;
+  private final Map<String, String> headers;
+  private final String body;
+
+  StubRequest(Map<String, String> queryParams) {
+    this(queryParams, Map.of(), null);
+  }
+
+  StubRequest(Map<String, String> queryParams, Map<String, String> headers, String body) {
+    this.queryParams = queryParams;
+    this.headers = headers;
+    this.body = body;
+  }
+
+  @Override
+  public String queryParams(String name) {
+    return this.queryParams.get(name);
+  }
+
+  @Override
+  public String headers(String name) {
+    return this.headers.get(name);
+  }
+
+  @Override
+  public String body() {
+    return this.body;
+  }
+}
@@ -0,0 +1,57 @@
+package edu.brown.cs.student.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import javax.servlet.http.HttpServletResponse;
+import spark.Response;
+
+/**
+ * A Spark response that only records what a handler sets on it. It has no servlet response behind
+ * it, so streamed responses (stream=true) cannot be benchmarked with it.
+ */
+class StubResponse extends Response {
+  private final Map<String, String> headers = new HashMap<>();
+  private int status = 200;
+  private String type;
+  private String body;
+
+  @Override
+  public void status(int statusCode) {
+    this.status = statusCode;
+  }
+
+  @Override
+  public int status() {
+    return this.status;
+  }
+
+  @Override
+  public void type(String contentType) {
+    this.type = contentType;
+  }
+
+  @Override
+  public String type() {
+    return this.type;
+  }
+
+  @Override
+  public void body(String body) {
+    this.body = body;
+  }
+
+  @Override
+  public String body() {
+    return this.body;
+  }
+
+  @Override
+  public void header(String header, String value) {
+    this.headers.put(header, value);
+  }
+
+  @Override
+  public HttpServletResponse raw() {
+    throw new UnsupportedOperationException("StubResponse has no servlet response");
+  }
+}
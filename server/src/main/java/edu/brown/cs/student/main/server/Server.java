@@ -1,19 +1,38 @@
 package edu.brown.cs.student.main.server;
 
 import static spark.Spark.after;
+import static spark.Spark.before;
 
 import edu.brown.cs.student.main.server.handlers.AddListingHandler;
+import edu.brown.cs.student.main.server.handlers.AddListingsHandler;
 import edu.brown.cs.student.main.server.handlers.AddUserHandler;
+import edu.brown.cs.student.main.server.handlers.CompressionFilter;
 import edu.brown.cs.student.main.server.handlers.DefaultHandler;
 import edu.brown.cs.student.main.server.handlers.DeleteListingHandler;
+import edu.brown.cs.student.main.server.handlers.GetFacetsHandler;
 import edu.brown.cs.student.main.server.handlers.GetListingsByIdHandler;
+import edu.brown.cs.student.main.server.handlers.GetListingsByIdsHandler;
 import edu.brown.cs.student.main.server.handlers.GetListingsHandler;
+import edu.brown.cs.student.main.server.handlers.GetStatsHandler;
 import edu.brown.cs.student.main.server.handlers.GetUserHandler;
 import edu.brown.cs.student.main.server.handlers.GetUserListingsHandler;
 import edu.brown.cs.student.main.server.handlers.UpdateListingHandler;
 import edu.brown.cs.student.main.server.handlers.UpdateUserHandler;
+import edu.brown.cs.student.main.server.storage.CachingStorage;
+import edu.brown.cs.student.main.server.storage.ChangeBus;
+import edu.brown.cs.student.main.server.storage.ColumnarStorage;
+import edu.brown.cs.student.main.server.storage.FileStorage;
+import edu.brown.cs.student.main.server.storage.IndexedStorage;
+import edu.brown.cs.student.main.server.storage.PostgresChangeBus;
 import edu.brown.cs.student.main.server.storage.RealStorage;
+import edu.brown.cs.student.main.server.storage.ResourceVersions;
+import edu.brown.cs.student.main.server.storage.ShardedStorage;
 import edu.brown.cs.student.main.server.storage.StorageInterface;
+import edu.brown.cs.student.main.server.storage.VersionedStorage;
+import io.github.cdimascio.dotenv.Dotenv;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import spark.Filter;
 import spark.Spark;
 
@@ -25,28 +44,60 @@ public class Server {
     int port = 3232;
     Spark.port(port);
 
-    after(
+    // set before the route runs, since streaming responses are committed by the route itself
+    before(
         (Filter)
             (request, response) -> {
               response.header("Access-Control-Allow-Origin", "*");
               response.header("Access-Control-Allow-Methods", "*");
               response.header("Access-Control-Allow-Headers", "*");
             });
+    // gzip or deflate for clients that accept it, once a route has produced its body
+    after(new CompressionFilter());
 
     StorageInterface dbHandler;
 
     try {
-      dbHandler = new RealStorage();
+      Dotenv dotenv = Dotenv.configure().ignoreIfMissing().load();
+      ChangeBus changes =
+          Boolean.parseBoolean(dotenv.get("CHANGE_NOTIFICATIONS", "false"))
+              ? new PostgresChangeBus(dotenv.get("JDBC"))
+              : null;
+      // versions for the ETags of the read endpoints, bumped by every write through dbHandler;
+      // untagged while a replica may still be missing the write. Writes made by other instances
+      // sharing the database only reach them over the change bus, so without it the read
+      // endpoints go untagged rather than answer 304 with stale data; file storage is not shared.
+      ResourceVersions versions =
+          changes != null || "file".equals(dotenv.get("STORAGE", "postgres"))
+              ? ResourceVersions.withSettleWindow(RealStorage.replicaLagMillis(dotenv))
+              : null;
+      StorageInterface storage = createStorage(dotenv, changes);
+      if (versions == null) {
+        System.out.println("ETags are off; set CHANGE_NOTIFICATIONS=true to turn them on");
+        dbHandler = storage;
+      } else {
+        dbHandler = new VersionedStorage(storage, versions);
+        if (changes != null) {
+          // last, so a version is only bumped once the storage has followed the write
+          versions.listenTo(changes);
+        }
+      }
       Spark.get("add-user", new AddUserHandler(dbHandler));
       Spark.get("update-user", new UpdateUserHandler(dbHandler));
       Spark.get("add-listing", new AddListingHandler(dbHandler));
+      Spark.post("add-listings", new AddListingsHandler(dbHandler));
       Spark.get("update-listing", new UpdateListingHandler(dbHandler));
       Spark.get("delete-listing", new DeleteListingHandler(dbHandler));
-      Spark.get("get-user", new GetUserHandler(dbHandler));
-      Spark.get("get-user-listings", new GetUserListingsHandler(dbHandler));
-      Spark.get("get-listings", new GetListingsHandler(dbHandler));
-      Spark.get("get-listing-by-id", new GetListingsByIdHandler(dbHandler));
+      Spark.get("get-user", new GetUserHandler(dbHandler, versions));
+      Spark.get("get-user-listings", new GetUserListingsHandler(dbHandler, versions));
+      Spark.get("get-listings", new GetListingsHandler(dbHandler, versions));
+      Spark.get("get-listing-by-id", new GetListingsByIdHandler(dbHandler, versions));
+      Spark.get("get-listings-by-ids", new GetListingsByIdsHandler(dbHandler));
+      Spark.get("get-facets", new GetFacetsHandler(dbHandler));
+      Spark.get("get-stats", new GetStatsHandler(dbHandler));
       Spark.get("*", new DefaultHandler());
+      // CORS preflight for the POST endpoints; the headers come from the before filter
+      Spark.options("*", (request, response) -> "");
 
       Spark.notFound(
           (request, response) -> {
@@ -64,6 +115,72 @@ public class Server {
     }
   }
 
+  /**
+   * Builds the storage backend selected by the STORAGE entry of .env: "indexed" serves listing
+   * reads from in-memory indexes loaded from Postgres, "columnar" from off-heap columns loaded from
+   * Postgres, "file" keeps everything in local files instead of Postgres, "sharded" splits listings
+   * over several databases, and anything else (the default) queries Postgres through a listing
+   * cache. With CHANGE_NOTIFICATIONS=true, instances sharing one Postgres database tell each other
+   * about their writes, so their caches and indexes follow writes made elsewhere.
+   *
+   * <p>The storage subscribes to the bus before the caches built on it, so they see its read
+   * routing already updated.
+   *
+   * @param dotenv the .env settings
+   * @param changes the bus shared with the other instances, or null if CHANGE_NOTIFICATIONS is off
+   * @return the storage backend
+   * @throws Exception if the backend could not be set up
+   */
+  private static StorageInterface createStorage(Dotenv dotenv, ChangeBus changes) throws Exception {
+    String mode = dotenv.get("STORAGE", "postgres");
+
+    switch (mode) {
+      case "indexed":
+        RealStorage realStorage = RealStorage.fromEnv(dotenv);
+        IndexedStorage indexed = new IndexedStorage(realStorage, realStorage::forEachStoredListing);
+        if (changes != null) {
+          realStorage.useChangeBus(changes);
+          indexed.listenTo(changes);
+        }
+        return indexed;
+      case "columnar":
+        // like "indexed", but the listings are kept in off-heap columns for large catalogs
+        RealStorage columnBacking = RealStorage.fromEnv(dotenv);
+        ColumnarStorage columnar =
+            new ColumnarStorage(columnBacking, columnBacking::forEachStoredListing);
+        if (changes != null) {
+          columnBacking.useChangeBus(changes);
+          columnar.listenTo(changes);
+        }
+        return columnar;
+      case "file":
+        // no database: everything lives in STORAGE_DIR, indexed in memory for searches
+        FileStorage fileStorage = new FileStorage(Path.of(dotenv.get("STORAGE_DIR", "data")));
+        return new IndexedStorage(fileStorage, fileStorage::forEachStoredListing);
+      case "sharded":
+        // SHARD_JDBC_URLS lists one database per shard; each database remembers its place in the
+        // list, and startup fails if the list has changed since
+        List<RealStorage> shardDatabases = new ArrayList<>();
+        for (String url : dotenv.get("SHARD_JDBC_URLS", "").split(",")) {
+          if (!url.isBlank()) {
+            shardDatabases.add(new RealStorage(url.trim(), "", dotenv));
+          }
+        }
+        for (int i = 0; i < shardDatabases.size(); i++) {
+          shardDatabases.get(i).checkShardLayout(i, shardDatabases.size());
+        }
+        return new CachingStorage(new ShardedStorage(new ArrayList<>(shardDatabases)));
+      default:
+        RealStorage storage = RealStorage.fromEnv(dotenv);
+        CachingStorage cached = new CachingStorage(storage);
+        if (changes != null) {
+          storage.useChangeBus(changes);
+          cached.listenTo(changes);
+        }
+        return cached;
+    }
+  }
+
   /**
    * Runs Server.
    *
@@ -16,7 +16,8 @@ public class Listing {
   public String condition;
   public String image_url;
   public List<String> tags;
-  public boolean available;
+  // null when the listing was loaded without this field (see ListingFields)
+  public Boolean available;
 
   public Listing(
       Long id,
@@ -28,7 +29,7 @@ public class Listing {
       String condition,
       String img,
       List<String> tags,
-      boolean avail) {
+      Boolean avail) {
     this.id = id;
     this.seller_id = seller_id;
     this.title = title;
@@ -0,0 +1,68 @@
+package edu.brown.cs.student.main.server.classes;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A class representing the facet counts of a listing search: how many matching listings there are
+ * in total, per category, per tag and per price range. Categories and tags are ordered from the
+ * most to the least common.
+ */
+public class ListingFacets {
+  public long total;
+  public Map<String, Long> categories;
+  public Map<String, Long> tags;
+  public List<PriceBucket> price_histogram;
+
+  public ListingFacets(
+      long total,
+      Map<String, Long> categories,
+      Map<String, Long> tags,
+      List<PriceBucket> priceHistogram) {
+    this.total = total;
+    this.categories = categories;
+    this.tags = tags;
+    this.price_histogram = priceHistogram;
+  }
+
+  public long getTotal() {
+    return this.total;
+  }
+
+  public Map<String, Long> getCategories() {
+    return this.categories;
+  }
+
+  public Map<String, Long> getTags() {
+    return this.tags;
+  }
+
+  public List<PriceBucket> getPriceHistogram() {
+    return this.price_histogram;
+  }
+
+  /** The number of listings priced from min (inclusive) to max (exclusive, null if unbounded). */
+  public static class PriceBucket {
+    public float min;
+    public Float max;
+    public long count;
+
+    public PriceBucket(float min, Float max, long count) {
+      this.min = min;
+      this.max = max;
+      this.count = count;
+    }
+
+    public float getMin() {
+      return this.min;
+    }
+
+    public Float getMax() {
+      return this.max;
+    }
+
+    public long getCount() {
+      return this.count;
+    }
+  }
+}
@@ -0,0 +1,25 @@
+package edu.brown.cs.student.main.server.classes;
+
+import java.util.List;
+
+/**
+ * A class representing one page of Listing objects. Contains the listings on the page and the
+ * opaque cursor that fetches the page after it, which is null on the last page.
+ */
+public class ListingPage {
+  public List<Listing> listings;
+  public String nextCursor;
+
+  public ListingPage(List<Listing> listings, String nextCursor) {
+    this.listings = listings;
+    this.nextCursor = nextCursor;
+  }
+
+  public List<Listing> getListings() {
+    return this.listings;
+  }
+
+  public String getNextCursor() {
+    return this.nextCursor;
+  }
+}
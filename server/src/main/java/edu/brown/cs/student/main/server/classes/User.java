@@ -1,27 +1,64 @@
 package edu.brown.cs.student.main.server.classes;
 
+import com.squareup.moshi.Json;
+import java.util.List;
+
 /**
  * A class representing an User object. Contains accessor methods to access the data stored in an
  * User object.
  */
 public class User {
 
+  // null for users that were not loaded from storage, e.g. an update
+  public Long id;
+
+  @Json(name = "clerk_id")
   public String clerkId;
+
+  public String email;
   public String name;
+
+  @Json(name = "phone_number")
   public String phoneNumber;
+
   public String school;
 
+  @Json(name = "tags")
+  public List<String> interests;
+
   public User(String clerkId, String name, String phoneNumber, String school) {
+    this(null, clerkId, null, name, phoneNumber, school, null);
+  }
+
+  public User(
+      Long id,
+      String clerkId,
+      String email,
+      String name,
+      String phoneNumber,
+      String school,
+      List<String> interests) {
+    this.id = id;
     this.clerkId = clerkId;
+    this.email = email;
     this.name = name;
     this.phoneNumber = phoneNumber;
     this.school = school;
+    this.interests = interests;
+  }
+
+  public Long getId() {
+    return this.id;
   }
 
   public String getClerkId() {
     return this.clerkId;
   }
 
+  public String getEmail() {
+    return this.email;
+  }
+
   public String getName() {
     return this.name;
   }
@@ -45,4 +82,8 @@ public class User {
   public void setSchool(String school) {
     this.school = school;
   }
+
+  public List<String> getInterests() {
+    return this.interests;
+  }
 }
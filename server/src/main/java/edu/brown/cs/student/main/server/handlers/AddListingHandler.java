@@ -75,33 +75,33 @@ public class AddListingHandler implements Route {
       responseMap.put("error", "Unexpected error: " + e.getMessage());
     }
 
-    return Utils.toMoshiJson(responseMap);
+    return Utils.serialize(request, response, responseMap);
   }
 
-  // validation methods for user input
+  // validation methods for user input, shared with AddListingsHandler
 
-  private String validateSellerId(String sellerIdStr) {
+  static String validateSellerId(String sellerIdStr) {
     if (sellerIdStr == null || sellerIdStr.isEmpty()) {
       throw new IllegalArgumentException("Seller ID is required");
     }
     return sellerIdStr;
   }
 
-  private String validateTitle(String title) {
+  static String validateTitle(String title) {
     if (title == null || title.trim().isEmpty()) {
       throw new IllegalArgumentException("Title is required");
     }
     return title.trim();
   }
 
-  private String validateDescription(String description) {
+  static String validateDescription(String description) {
     if (description == null || description.trim().isEmpty()) {
       throw new IllegalArgumentException("Description is required");
     }
     return description.trim();
   }
 
-  private float validatePrice(String priceStr) {
+  static float validatePrice(String priceStr) {
     if (priceStr == null || priceStr.isEmpty()) {
       throw new IllegalArgumentException("Price is required");
     }
@@ -112,28 +112,28 @@ public class AddListingHandler implements Route {
     return price;
   }
 
-  private String validateCategory(String category) {
+  static String validateCategory(String category) {
     if (category == null || category.trim().isEmpty()) {
       throw new IllegalArgumentException("Category is required");
     }
     return category.trim();
   }
 
-  private String validateCondition(String condition) {
+  static String validateCondition(String condition) {
     if (condition == null || condition.trim().isEmpty()) {
       throw new IllegalArgumentException("Condition is required");
     }
     return condition.trim();
   }
 
-  private String validateImageUrl(String imageUrl) {
+  static String validateImageUrl(String imageUrl) {
     if (imageUrl == null || imageUrl.trim().isEmpty()) {
       throw new IllegalArgumentException("Image URL is required");
     }
     return imageUrl.trim();
   }
 
-  private List<String> parseTags(String tagsParam) {
+  static List<String> parseTags(String tagsParam) {
     if (tagsParam == null || tagsParam.trim().isEmpty()) {
       return List.of();
     }
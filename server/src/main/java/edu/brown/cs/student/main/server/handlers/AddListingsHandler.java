@@ -0,0 +1,144 @@
+package edu.brown.cs.student.main.server.handlers;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonDataException;
+import com.squareup.moshi.Types;
+import edu.brown.cs.student.main.server.classes.Listing;
+import edu.brown.cs.student.main.server.storage.StorageInterface;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+/**
+ * A class representing a AddListingsHandler object.
+ *
+ * <p>Handles add-listings request to our server, which adds many listings at once. The POST body is
+ * a JSON array of objects with the same fields as the add-listing query parameters (seller_id,
+ * title, available, description, price, category, condition, image_url, tags), validated by the
+ * same rules. Either every listing is added or none is. Implements Route: Route is the SparkJava
+ * interface for request handlers.
+ */
+public class AddListingsHandler implements Route {
+  // keeps one request from holding a connection and a transaction open indefinitely
+  private static final int MAX_LISTINGS = 10_000;
+
+  private final StorageInterface dbHandler;
+  private final JsonAdapter<List<Map<String, Object>>> bodyAdapter;
+
+  public AddListingsHandler(StorageInterface dbHandler) {
+    this.dbHandler = dbHandler;
+    Type listOfMaps =
+        Types.newParameterizedType(
+            List.class, Types.newParameterizedType(Map.class, String.class, Object.class));
+    this.bodyAdapter = Json.MOSHI.adapter(listOfMaps);
+  }
+
+  /**
+   * Method that handles add-listings request
+   *
+   * @param request - request from user
+   * @param response - the response
+   * @return the response map, represented as a Map from String to Object
+   */
+  @Override
+  public Object handle(Request request, Response response) {
+    Map<String, Object> responseMap = new HashMap<>();
+
+    try {
+      List<Listing> listings = this.parseListings(request.body());
+      List<Long> listingIds = this.dbHandler.createListings(listings);
+
+      responseMap.put("response_type", "success");
+      responseMap.put("listing_ids", listingIds);
+      responseMap.put("number of listings added", listingIds.size());
+    } catch (IllegalArgumentException e) {
+      responseMap.put("response_type", "failure");
+      responseMap.put("error", "Invalid input: " + e.getMessage());
+    } catch (Exception e) {
+      responseMap.put("response_type", "failure");
+      responseMap.put("error", "Unexpected error: " + e.getMessage());
+    }
+
+    return Utils.serialize(request, response, responseMap);
+  }
+
+  private List<Listing> parseListings(String body) {
+    List<Map<String, Object>> items;
+    try {
+      items = body == null || body.isBlank() ? null : this.bodyAdapter.fromJson(body);
+    } catch (IOException | JsonDataException e) {
+      items = null;
+    }
+    if (items == null) {
+      throw new IllegalArgumentException("Request body must be a JSON array of listings");
+    }
+    if (items.isEmpty()) {
+      throw new IllegalArgumentException("At least one listing is required");
+    }
+    if (items.size() > MAX_LISTINGS) {
+      throw new IllegalArgumentException(
+          "At most " + MAX_LISTINGS + " listings can be added at once");
+    }
+
+    List<Listing> listings = new ArrayList<>(items.size());
+    for (int i = 0; i < items.size(); i++) {
+      try {
+        listings.add(toListing(items.get(i)));
+      } catch (IllegalArgumentException e) {
+        // NumberFormatException is an IllegalArgumentException, so bad prices land here too
+        throw new IllegalArgumentException("listing " + i + ": " + e.getMessage());
+      }
+    }
+    return listings;
+  }
+
+  private static Listing toListing(Map<String, Object> item) {
+    if (item == null) {
+      throw new IllegalArgumentException("Listing must be a JSON object");
+    }
+    return new Listing(
+        null,
+        AddListingHandler.validateSellerId(field(item, "seller_id")),
+        AddListingHandler.validateTitle(field(item, "title")),
+        AddListingHandler.validateDescription(field(item, "description")),
+        AddListingHandler.validatePrice(field(item, "price")),
+        AddListingHandler.validateCategory(field(item, "category")),
+        AddListingHandler.validateCondition(field(item, "condition")),
+        AddListingHandler.validateImageUrl(field(item, "image_url")),
+        tags(item.get("tags")),
+        Boolean.parseBoolean(field(item, "available")));
+  }
+
+  // JSON numbers and booleans are read as their string form, so the query-string rules apply as is
+  private static String field(Map<String, Object> item, String key) {
+    Object value = item.get(key);
+    if (value == null) {
+      return null;
+    }
+    if (value instanceof Double && (Double) value == Math.rint((Double) value)) {
+      // Moshi reads every number as a double; keep seller ids like 12 from becoming "12.0"
+      return String.valueOf(((Double) value).longValue());
+    }
+    return String.valueOf(value);
+  }
+
+  // tags may be a JSON array or the same comma-separated string add-listing takes
+  private static List<String> tags(Object value) {
+    if (value instanceof List) {
+      List<String> tags = new ArrayList<>();
+      for (Object tag : (List<?>) value) {
+        if (tag != null && !tag.toString().trim().isEmpty()) {
+          tags.add(tag.toString().trim());
+        }
+      }
+      return tags;
+    }
+    return AddListingHandler.parseTags(value == null ? null : value.toString());
+  }
+}
@@ -61,7 +61,7 @@ public class AddUserHandler implements Route {
       responseMap.put("error", "Unexpected error: " + e.getMessage());
     }
 
-    return Utils.toMoshiJson(responseMap);
+    return Utils.serialize(request, response, responseMap);
   }
 
   // validation methods for user input
@@ -0,0 +1,206 @@
+package edu.brown.cs.student.main.server.handlers;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The binary alternative to JSON responses: CBOR (RFC 8949), served as application/cbor to clients
+ * that ask for it in their Accept header (see {@link Utils#serialize}).
+ *
+ * <p>A response goes through the same {@link Json#MOSHI} adapters as its JSON form, which turn it
+ * into maps, lists, strings, numbers and booleans; this class only encodes that tree. So a listing
+ * or user has the same keys, in the same order, in both formats, and a field added to one shows up
+ * in the other. Keys stay strings rather than numbered fields, which keeps old clients reading new
+ * responses, and CBOR already saves the quoting, escaping and number parsing that dominate reading
+ * JSON. Integers take the fewest bytes that hold them, and prices go out as 4-byte floats.
+ */
+public final class Cbor {
+  /** The media type of CBOR responses. */
+  public static final String MEDIA_TYPE = "application/cbor";
+
+  private static final int UNSIGNED = 0;
+  private static final int NEGATIVE = 1;
+  private static final int TEXT = 3;
+  private static final int ARRAY = 4;
+  private static final int MAP = 5;
+  private static final int SIMPLE = 7;
+
+  private static final int FALSE = 0xf4;
+  private static final int TRUE = 0xf5;
+  private static final int NULL = 0xf6;
+  private static final int FLOAT32 = 0xfa;
+  private static final int FLOAT64 = 0xfb;
+
+  private Cbor() {}
+
+  /**
+   * @param response a response map, as handed to {@link Utils#serialize}
+   * @return the response as CBOR
+   */
+  public static byte[] encode(Map<String, Object> response) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+    write(out, Json.toValue(response));
+    return out.toByteArray();
+  }
+
+  /**
+   * Decodes a CBOR item of the kinds {@link #encode} produces. Maps keep their key order, integers
+   * come back as Long and floats as Double.
+   *
+   * @param bytes the encoded item
+   * @return the item
+   * @throws IllegalArgumentException if the bytes are not such an item
+   */
+  public static Object decode(byte[] bytes) {
+    ByteBuffer in = ByteBuffer.wrap(bytes);
+    try {
+      Object value = read(in);
+      if (in.hasRemaining()) {
+        throw new IllegalArgumentException("Trailing bytes after CBOR item");
+      }
+      return value;
+    } catch (BufferUnderflowException e) {
+      throw new IllegalArgumentException("Truncated CBOR item");
+    }
+  }
+
+  private static void write(ByteArrayOutputStream out, Object value) {
+    if (value == null) {
+      out.write(NULL);
+    } else if (value instanceof Boolean bool) {
+      out.write(bool ? TRUE : FALSE);
+    } else if (value instanceof String string) {
+      byte[] utf8 = string.getBytes(StandardCharsets.UTF_8);
+      writeHead(out, TEXT, utf8.length);
+      out.write(utf8, 0, utf8.length);
+    } else if (value instanceof Long || value instanceof Integer) {
+      long number = ((Number) value).longValue();
+      if (number >= 0) {
+        writeHead(out, UNSIGNED, number);
+      } else {
+        writeHead(out, NEGATIVE, -1 - number);
+      }
+    } else if (value instanceof Number number) {
+      double real = number.doubleValue();
+      if ((double) (float) real == real || Double.isNaN(real)) {
+        out.write(FLOAT32);
+        writeBytes(out, Float.floatToIntBits((float) real), 4);
+      } else {
+        out.write(FLOAT64);
+        writeBytes(out, Double.doubleToLongBits(real), 8);
+      }
+    } else if (value instanceof List<?> list) {
+      writeHead(out, ARRAY, list.size());
+      for (Object item : list) {
+        write(out, item);
+      }
+    } else if (value instanceof Map<?, ?> map) {
+      writeHead(out, MAP, map.size());
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        write(out, String.valueOf(entry.getKey()));
+        write(out, entry.getValue());
+      }
+    } else {
+      throw new IllegalArgumentException(
+          "Cannot encode " + value.getClass().getName() + " as CBOR");
+    }
+  }
+
+  // the major type and argument of an item, in the shortest form that holds the argument
+  private static void writeHead(ByteArrayOutputStream out, int majorType, long argument) {
+    int type = majorType << 5;
+    if (argument < 24) {
+      out.write(type | (int) argument);
+    } else if (argument < 0x100) {
+      out.write(type | 24);
+      writeBytes(out, argument, 1);
+    } else if (argument < 0x10000) {
+      out.write(type | 25);
+      writeBytes(out, argument, 2);
+    } else if (argument < 0x100000000L) {
+      out.write(type | 26);
+      writeBytes(out, argument, 4);
+    } else {
+      out.write(type | 27);
+      writeBytes(out, argument, 8);
+    }
+  }
+
+  private static void writeBytes(ByteArrayOutputStream out, long value, int count) {
+    for (int shift = (count - 1) * 8; shift >= 0; shift -= 8) {
+      out.write((int) (value >>> shift));
+    }
+  }
+
+  private static Object read(ByteBuffer in) {
+    int initial = in.get() & 0xff;
+    int majorType = initial >>> 5;
+    if (majorType == SIMPLE) {
+      return switch (initial) {
+        case FALSE -> false;
+        case TRUE -> true;
+        case NULL -> null;
+        case FLOAT32 -> (double) in.getFloat();
+        case FLOAT64 -> in.getDouble();
+        default -> throw new IllegalArgumentException("Unsupported CBOR item " + initial);
+      };
+    }
+    long argument = readArgument(in, initial & 0x1f);
+    switch (majorType) {
+      case UNSIGNED:
+        return argument;
+      case NEGATIVE:
+        return -1 - argument;
+      case TEXT:
+        byte[] utf8 = new byte[length(argument)];
+        in.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+      case ARRAY:
+        List<Object> list = new ArrayList<>(Math.min(length(argument), in.remaining()));
+        for (long i = 0; i < argument; i++) {
+          list.add(read(in));
+        }
+        return list;
+      case MAP:
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (long i = 0; i < argument; i++) {
+          Object key = read(in);
+          if (!(key instanceof String)) {
+            throw new IllegalArgumentException("CBOR map keys must be strings");
+          }
+          map.put((String) key, read(in));
+        }
+        return map;
+      default:
+        throw new IllegalArgumentException("Unsupported CBOR major type " + majorType);
+    }
+  }
+
+  private static long readArgument(ByteBuffer in, int info) {
+    return switch (info) {
+      case 24 -> in.get() & 0xffL;
+      case 25 -> in.getShort() & 0xffffL;
+      case 26 -> in.getInt() & 0xffffffffL;
+      case 27 -> in.getLong();
+      default -> {
+        if (info >= 24) {
+          throw new IllegalArgumentException("Indefinite-length CBOR items are not supported");
+        }
+        yield info;
+      }
+    };
+  }
+
+  private static int length(long argument) {
+    if (argument < 0 || argument > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("CBOR item too long");
+    }
+    return (int) argument;
+  }
+}
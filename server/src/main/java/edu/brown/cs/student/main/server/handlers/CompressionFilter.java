@@ -0,0 +1,277 @@
+package edu.brown.cs.student.main.server.handlers;
+
+import edu.brown.cs.student.main.server.storage.FrequencyCache;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import javax.servlet.http.HttpServletResponse;
+import spark.Filter;
+import spark.Request;
+import spark.Response;
+
+/**
+ * Compresses response bodies for clients that accept it. Registered as an after filter, so it sees
+ * the JSON string a route returned before Spark writes it out.
+ *
+ * <p>The encoding is negotiated from Accept-Encoding: gzip or deflate, whichever the client weighs
+ * higher, with gzip winning ties since some clients mishandle deflate. Brotli would compress JSON
+ * somewhat better, but the JDK has no encoder for it. Bodies under the threshold go out as they
+ * are, as the headers and CPU would cost more than compression saves. Streamed responses are left
+ * alone too: the route has already written and committed them.
+ *
+ * <p>Deflaters hold native zlib state that is slow to set up, so they are pooled and reset between
+ * responses rather than made per request. Responses carrying an ETag are the same bytes until their
+ * tag changes, so their compressed form is cached by URL, tag and encoding, and a popular search is
+ * only compressed once per write instead of once per request. The compressed body is sent with the
+ * coding added to its tag, so each coding has its own strong tag; {@link ETags} still recognizes
+ * them in If-None-Match.
+ */
+public class CompressionFilter implements Filter {
+  /** A content coding this filter can produce. */
+  public enum Encoding {
+    GZIP("gzip"),
+    DEFLATE("deflate");
+
+    private final String token;
+
+    Encoding(String token) {
+      this.token = token;
+    }
+
+    /**
+     * @return the name of the coding in Accept-Encoding and Content-Encoding
+     */
+    public String getToken() {
+      return this.token;
+    }
+  }
+
+  private static final int DEFAULT_THRESHOLD = 1024;
+  private static final int POOL_SIZE = 16;
+  private static final int CACHE_SIZE = 256;
+  private static final long CACHE_TTL_MILLIS = 10 * 60 * 1000;
+  // larger bodies are compressed every time, so a few huge searches cannot fill the heap
+  private static final int MAX_CACHED_BYTES = 128 * 1024;
+  private static final byte[] GZIP_HEADER = {
+    0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff
+  };
+
+  private final int threshold;
+  // nowrap deflaters produce the raw stream gzip frames itself; the others add the zlib wrapper
+  private final BlockingQueue<Deflater> rawDeflaters = new ArrayBlockingQueue<>(POOL_SIZE);
+  private final BlockingQueue<Deflater> zlibDeflaters = new ArrayBlockingQueue<>(POOL_SIZE);
+  private final FrequencyCache<String, byte[]> compressed =
+      new FrequencyCache<>(CACHE_SIZE, CACHE_TTL_MILLIS);
+
+  private final LongAdder responses = new LongAdder();
+  private final LongAdder bytesIn = new LongAdder();
+  private final LongAdder bytesOut = new LongAdder();
+  private final LongAdder deflatersCreated = new LongAdder();
+
+  public CompressionFilter() {
+    this(DEFAULT_THRESHOLD);
+  }
+
+  /**
+   * @param threshold the smallest body, in bytes, worth compressing
+   */
+  public CompressionFilter(int threshold) {
+    if (threshold < 0) {
+      throw new IllegalArgumentException("Compression threshold must not be negative");
+    }
+    this.threshold = threshold;
+  }
+
+  @Override
+  public void handle(Request request, Response response) throws IOException {
+    HttpServletResponse raw = response.raw();
+    String body = response.body();
+    if (raw.isCommitted() || body == null || raw.getHeader("Content-Encoding") != null) {
+      return;
+    }
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length < this.threshold) {
+      return;
+    }
+    // the body depends on Accept-Encoding from here on, whichever encoding is picked
+    response.header("Vary", "Accept-Encoding");
+    Encoding encoding = negotiate(request.headers("Accept-Encoding"));
+    if (encoding == null) {
+      return;
+    }
+
+    String etag = raw.getHeader("ETag");
+    byte[] out;
+    if (etag == null) {
+      out = this.compress(bytes, encoding);
+    } else {
+      String query = request.queryString();
+      String key =
+          request.pathInfo() + (query == null ? "" : "?" + query) + " " + etag + " " + encoding;
+      out = this.compressCached(key, bytes, encoding);
+    }
+
+    response.header("Content-Encoding", encoding.getToken());
+    if (etag != null) {
+      // a strong tag names exact bytes, so the compressed body gets its own, e.g. "a-1-gzip"
+      raw.setHeader("ETag", ETags.withSuffix(etag, encoding.getToken()));
+    }
+    if (raw.getContentType() == null) {
+      // what Spark would have set had it written the body itself
+      raw.setContentType("text/html; charset=utf-8");
+    }
+    raw.setContentLength(out.length);
+    // written and committed here, so Spark skips writing (and gzipping) the body again
+    OutputStream stream = raw.getOutputStream();
+    stream.write(out);
+    stream.flush();
+  }
+
+  /**
+   * Picks the encoding for a response from the request's Accept-Encoding header.
+   *
+   * @param acceptEncoding the header, or null if the request had none
+   * @return the supported encoding the client prefers, or null to send the body as it is
+   */
+  public static Encoding negotiate(String acceptEncoding) {
+    if (acceptEncoding == null || acceptEncoding.isBlank()) {
+      return null;
+    }
+    double gzip = -1;
+    double deflate = -1;
+    double any = -1;
+    for (String part : acceptEncoding.split(",")) {
+      String[] params = part.split(";");
+      String coding = params[0].trim().toLowerCase();
+      double quality = 1;
+      for (int i = 1; i < params.length; i++) {
+        String param = params[i].trim();
+        if (param.startsWith("q=")) {
+          try {
+            quality = Double.parseDouble(param.substring(2).trim());
+          } catch (NumberFormatException e) {
+            quality = 0;
+          }
+        }
+      }
+      switch (coding) {
+        case "gzip", "x-gzip" -> gzip = Math.max(gzip, quality);
+        case "deflate" -> deflate = Math.max(deflate, quality);
+        case "*" -> any = Math.max(any, quality);
+        default -> {}
+      }
+    }
+    // a wildcard only covers the codings the client did not name
+    if (gzip < 0) {
+      gzip = any;
+    }
+    if (deflate < 0) {
+      deflate = any;
+    }
+    if (gzip <= 0 && deflate <= 0) {
+      return null;
+    }
+    return gzip >= deflate ? Encoding.GZIP : Encoding.DEFLATE;
+  }
+
+  /**
+   * Compresses a body, reusing the cached result if the same key was compressed before.
+   *
+   * @param key identifies the body; must change whenever the body does
+   * @param body the uncompressed body
+   * @param encoding the encoding to use
+   * @return the compressed body
+   */
+  public byte[] compressCached(String key, byte[] body, Encoding encoding) throws IOException {
+    byte[] out = this.compressed.get(key);
+    if (out != null) {
+      this.count(body, out);
+      return out;
+    }
+    long ticket = this.compressed.ticket();
+    out = this.compress(body, encoding);
+    if (out.length <= MAX_CACHED_BYTES) {
+      this.compressed.put(key, out, ticket);
+    }
+    return out;
+  }
+
+  /**
+   * @param body the uncompressed body
+   * @param encoding the encoding to use
+   * @return the compressed body
+   */
+  public byte[] compress(byte[] body, Encoding encoding) throws IOException {
+    boolean gzip = encoding == Encoding.GZIP;
+    BlockingQueue<Deflater> pool = gzip ? this.rawDeflaters : this.zlibDeflaters;
+    Deflater deflater = pool.poll();
+    if (deflater == null) {
+      deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, gzip);
+      this.deflatersCreated.increment();
+    }
+
+    // JSON this repetitive usually shrinks by well over half
+    ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 32);
+    try {
+      if (gzip) {
+        out.write(GZIP_HEADER);
+      }
+      deflater.setInput(body);
+      deflater.finish();
+      byte[] buffer = new byte[8192];
+      while (!deflater.finished()) {
+        out.write(buffer, 0, deflater.deflate(buffer));
+      }
+      if (gzip) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        writeIntLE(out, (int) crc.getValue());
+        writeIntLE(out, body.length);
+      }
+    } finally {
+      deflater.reset();
+      if (!pool.offer(deflater)) {
+        deflater.end();
+      }
+    }
+
+    byte[] result = out.toByteArray();
+    this.count(body, result);
+    return result;
+  }
+
+  private static void writeIntLE(ByteArrayOutputStream out, int value) {
+    out.write(value);
+    out.write(value >>> 8);
+    out.write(value >>> 16);
+    out.write(value >>> 24);
+  }
+
+  private void count(byte[] body, byte[] out) {
+    this.responses.increment();
+    this.bytesIn.add(body.length);
+    this.bytesOut.add(out.length);
+  }
+
+  /**
+   * @return how many responses were compressed and by how much, the deflaters made so far, and the
+   *     compressed response cache's counters
+   */
+  public Map<String, Object> getStats() {
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("responses", this.responses.sum());
+    stats.put("bytes_in", this.bytesIn.sum());
+    stats.put("bytes_out", this.bytesOut.sum());
+    stats.put("deflaters_created", this.deflatersCreated.sum());
+    stats.put("cache", this.compressed.getStats());
+    return stats;
+  }
+}
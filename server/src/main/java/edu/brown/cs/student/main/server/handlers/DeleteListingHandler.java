@@ -57,7 +57,7 @@ public class DeleteListingHandler implements Route {
       responseMap.put("error", "Unexpected error: " + e.getMessage());
     }
 
-    return Utils.toMoshiJson(responseMap);
+    return Utils.serialize(request, response, responseMap);
   }
 
   // validation method for user input
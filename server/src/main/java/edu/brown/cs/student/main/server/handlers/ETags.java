@@ -0,0 +1,101 @@
+package edu.brown.cs.student.main.server.handlers;
+
+import edu.brown.cs.student.main.server.storage.ResourceVersions;
+import spark.Request;
+import spark.Response;
+
+/**
+ * Conditional GET support for the read handlers. A handler computes its tag from {@link
+ * ResourceVersions} before reading anything, answers 304 Not Modified if the client already holds
+ * that tag, and otherwise attaches the tag to a successful response. Streamed responses are never
+ * tagged: they are committed before the query finishes, so one that fails part-way could not take
+ * its tag back.
+ */
+final class ETags {
+  private ETags() {}
+
+  /**
+   * @param request the request, whose Accept header picks the representation being tagged
+   * @param versions the versions to read, or null if the handler has none
+   * @param keys the keys the response depends on
+   * @return the tag, or null without versions, for a streamed response, or while a key is settling
+   *     (see {@link ResourceVersions})
+   */
+  static String of(Request request, ResourceVersions versions, String... keys) {
+    if (versions == null || "true".equals(request.queryParams("stream"))) {
+      return null;
+    }
+    String etag = versions.etag(keys);
+    // the JSON and CBOR bodies are different bytes, so they need different strong tags
+    if (etag != null && Utils.prefersCbor(request.headers("Accept"))) {
+      etag = withSuffix(etag, "cbor");
+    }
+    return etag;
+  }
+
+  /**
+   * @param etag a quoted tag
+   * @param suffix what tells the variant apart
+   * @return the tag of a variant of the tagged representation, e.g. "abc-1-cbor"
+   */
+  static String withSuffix(String etag, String suffix) {
+    return etag.substring(0, etag.length() - 1) + "-" + suffix + "\"";
+  }
+
+  /**
+   * @param request the request
+   * @param etag the current tag, or null
+   * @return whether the request's If-None-Match names the current tag, or a compressed variant of
+   *     it (see {@link CompressionFilter})
+   */
+  static boolean isCurrent(Request request, String etag) {
+    return matching(request, etag) != null;
+  }
+
+  // The If-None-Match entry naming the current representation, or null
+  private static String matching(Request request, String etag) {
+    String header = request.headers("If-None-Match");
+    if (etag == null || header == null) {
+      return null;
+    }
+    for (String candidate : header.split(",")) {
+      String tag = candidate.trim();
+      // a weak comparison is what If-None-Match calls for
+      if (tag.startsWith("W/")) {
+        tag = tag.substring(2);
+      }
+      if (tag.equals("*") || tag.equals(etag)) {
+        return etag;
+      }
+      for (CompressionFilter.Encoding encoding : CompressionFilter.Encoding.values()) {
+        if (tag.equals(withSuffix(etag, encoding.getToken()))) {
+          return tag;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return the empty body of a 304 response, after setting its status and the tag of the
+   *     representation the client holds
+   */
+  static String notModified(Request request, Response response, String etag) {
+    response.status(304);
+    String matched = matching(request, etag);
+    tag(response, matched != null ? matched : etag);
+    // as on the full response, since the tag depends on the Accept and Accept-Encoding headers
+    response.header("Vary", "Accept");
+    response.header("Vary", "Accept-Encoding");
+    return "";
+  }
+
+  /** Attaches the tag, if there is one, to a response. */
+  static void tag(Response response, String etag) {
+    if (etag != null) {
+      response.header("ETag", etag);
+      // browsers may keep the response, but must check the tag before reusing it
+      response.header("Cache-Control", "no-cache");
+    }
+  }
+}
@@ -0,0 +1,109 @@
+package edu.brown.cs.student.main.server.handlers;
+
+import edu.brown.cs.student.main.server.classes.ListingFacets;
+import edu.brown.cs.student.main.server.storage.StorageInterface;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+/**
+ * A class representing a GetFacetsHandler object.
+ *
+ * <p>Handles get-facets request to our server, which counts the listings matching the get-listings
+ * filters per category, per tag and per price range, for the filter sidebar. Implements Route:
+ * Route is the SparkJava interface for request handlers.
+ */
+public class GetFacetsHandler implements Route {
+  // tags returned when top_tags is not given, and the most a client may ask for
+  private static final int DEFAULT_TOP_TAGS = 10;
+  private static final int MAX_TOP_TAGS = 100;
+  // price histogram boundaries when price_buckets is not given
+  private static final List<Float> DEFAULT_PRICE_BUCKETS = List.of(10f, 25f, 50f, 100f, 250f);
+  private static final int MAX_PRICE_BUCKETS = 50;
+
+  public StorageInterface dbHandler;
+
+  public GetFacetsHandler(StorageInterface dbHandler) {
+    this.dbHandler = dbHandler;
+  }
+
+  /**
+   * Method that handles get-facets request
+   *
+   * @param request - request from user
+   * @param response - the response
+   * @return the response map, represented as a Map from String to Object
+   */
+  @Override
+  public Object handle(Request request, Response response) {
+    Map<String, Object> responseMap = new HashMap<>();
+
+    try {
+      // EXAMPLE QUERY to count the furniture listings under $100 in $25 steps
+      // "http://localhost:3232/get-facets?category=Furniture&maxPrice=100&price_buckets=25,50,75"
+
+      String title = request.queryParams("title");
+      String category = request.queryParams("category");
+      String minPrice = request.queryParams("minPrice");
+      String maxPrice = request.queryParams("maxPrice");
+
+      GetListingsHandler.validatePrice(minPrice);
+      GetListingsHandler.validatePrice(maxPrice);
+
+      List<String> tagsList = GetListingsHandler.parseTags(request.queryParams("tags"));
+      int topTags = validateTopTags(request.queryParams("top_tags"));
+      List<Float> priceBuckets = parsePriceBuckets(request.queryParams("price_buckets"));
+
+      Float min = (minPrice == null ? null : Float.valueOf(minPrice));
+      Float max = (maxPrice == null ? null : Float.valueOf(maxPrice));
+
+      ListingFacets facets =
+          this.dbHandler.getFacets(title, category, min, max, tagsList, priceBuckets, topTags);
+
+      responseMap.put("response_type", "success");
+      responseMap.put("result", facets);
+    } catch (IllegalArgumentException e) {
+      responseMap.put("response_type", "failure");
+      responseMap.put("error", "Invalid input: " + e.getMessage());
+    } catch (Exception e) {
+      responseMap.put("response_type", "failure");
+      responseMap.put("error", "Unexpected error: " + e.getMessage());
+    }
+
+    return Utils.serialize(request, response, responseMap);
+  }
+
+  // validation methods for user input
+
+  private int validateTopTags(String topTagsStr) {
+    if (topTagsStr == null || topTagsStr.isEmpty()) {
+      return DEFAULT_TOP_TAGS;
+    }
+    int topTags = Integer.parseInt(topTagsStr);
+    if (topTags < 0 || topTags > MAX_TOP_TAGS) {
+      throw new IllegalArgumentException("top_tags must be between 0 and " + MAX_TOP_TAGS);
+    }
+    return topTags;
+  }
+
+  private List<Float> parsePriceBuckets(String bucketsParam) {
+    if (bucketsParam == null || bucketsParam.trim().isEmpty()) {
+      return DEFAULT_PRICE_BUCKETS;
+    }
+    List<Float> boundaries = new ArrayList<>();
+    for (String boundary : bucketsParam.split(",")) {
+      if (!boundary.trim().isEmpty()) {
+        boundaries.add(Float.valueOf(boundary.trim()));
+      }
+    }
+    if (boundaries.size() > MAX_PRICE_BUCKETS) {
+      throw new IllegalArgumentException(
+          "At most " + MAX_PRICE_BUCKETS + " price bucket boundaries are allowed");
+    }
+    return boundaries;
+  }
+}
@@ -1,7 +1,7 @@
 package edu.brown.cs.student.main.server.handlers;
 
-import com.google.gson.Gson;
 import edu.brown.cs.student.main.server.classes.Listing;
+import edu.brown.cs.student.main.server.storage.ResourceVersions;
 import edu.brown.cs.student.main.server.storage.StorageInterface;
 import java.util.HashMap;
 import java.util.Map;
@@ -14,15 +14,20 @@ import spark.Route;
  *
  * <p>Handles get-listing-by-id request to our server, which is the request used to get a specific
  * Listing object via its unique id from the database. Implements Route: Route is the SparkJava
- * interface for request handlers.
+ * interface for request handlers. With {@link ResourceVersions}, responses carry an ETag and a
+ * request whose If-None-Match is current gets a 304 without a lookup.
  */
 public class GetListingsByIdHandler implements Route {
   public StorageInterface dbHandler;
-  private Gson gson;
+  private final ResourceVersions versions;
 
   public GetListingsByIdHandler(StorageInterface dbHandler) {
+    this(dbHandler, null);
+  }
+
+  public GetListingsByIdHandler(StorageInterface dbHandler, ResourceVersions versions) {
     this.dbHandler = dbHandler;
-    this.gson = new Gson();
+    this.versions = versions;
   }
 
   /**
@@ -42,26 +47,30 @@ public class GetListingsByIdHandler implements Route {
       // EXAMPLE QUERY:
       // http://localhost:3232/get-listing-by-id?listing_id=2
 
+      String etag = ETags.of(request, this.versions, ResourceVersions.listingKey(listingId));
+      if (ETags.isCurrent(request, etag)) {
+        return ETags.notModified(request, response, etag);
+      }
+
       Listing listing = this.dbHandler.obtainListing(listingId);
 
       if (listing != null) {
         responseMap.put("response_type", "success");
         responseMap.put("listing", listing);
 
-        // Manual serialization to JSON
-        String jsonResponse = gson.toJson(responseMap);
         response.status(200); // Set the HTTP status code
+        ETags.tag(response, etag);
         response.type("application/json"); // Set the response type to JSON
-        return jsonResponse; // Return the serialized JSON string
+        return Utils.serialize(request, response, responseMap);
       } else {
         responseMap.put("response_type", "failure");
         responseMap.put("error", "Listing not found");
-        return gson.toJson(responseMap);
+        return Utils.serialize(request, response, responseMap);
       }
     } catch (Exception e) {
       responseMap.put("response_type", "failure");
       responseMap.put("error", "Invalid input: " + e.getMessage());
-      return gson.toJson(responseMap);
+      return Utils.serialize(request, response, responseMap);
     }
   }
 
@@ -0,0 +1,98 @@
+package edu.brown.cs.student.main.server.handlers;
+
+import edu.brown.cs.student.main.server.classes.Listing;
+import edu.brown.cs.student.main.server.storage.ListingFields;
+import edu.brown.cs.student.main.server.storage.StorageInterface;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+/**
+ * A class representing a GetListingsByIdsHandler object.
+ *
+ * <p>Handles get-listings-by-ids request to our server, which gets many Listing objects by id in
+ * one request (favourites, recently viewed, ...) instead of one get-listing-by-id call per listing.
+ * Listings come back in the order the ids were given, and ids with no listing are reported under
+ * missing_ids. Implements Route: Route is the SparkJava interface for request handlers.
+ */
+public class GetListingsByIdsHandler implements Route {
+  private static final int MAX_IDS = 100;
+
+  private final StorageInterface dbHandler;
+
+  public GetListingsByIdsHandler(StorageInterface dbHandler) {
+    this.dbHandler = dbHandler;
+  }
+
+  /**
+   * Method that handles get-listings-by-ids request
+   *
+   * @param request - request from user
+   * @param response - the response
+   * @return the response map, represented as a Map from String to Object
+   */
+  @Override
+  public Object handle(Request request, Response response) {
+    Map<String, Object> responseMap = new HashMap<>();
+
+    try {
+      Set<Long> listingIds = validateListingIds(request.queryParams("listing_ids"));
+      ListingFields fields = ListingFields.parse(request.queryParams("fields"));
+
+      // EXAMPLE QUERY:
+      // http://localhost:3232/get-listings-by-ids?listing_ids=2,7,5&fields=card
+
+      Map<Long, Listing> found = this.dbHandler.obtainListings(listingIds, fields);
+
+      List<Listing> listings = new ArrayList<>();
+      List<Long> missingIds = new ArrayList<>();
+      for (Long listingId : listingIds) {
+        Listing listing = found.get(listingId);
+        if (listing != null) {
+          listings.add(listing);
+        } else {
+          missingIds.add(listingId);
+        }
+      }
+
+      responseMap.put("response_type", "success");
+      responseMap.put("listings", listings);
+      responseMap.put("missing_ids", missingIds);
+    } catch (IllegalArgumentException e) {
+      responseMap.put("response_type", "failure");
+      responseMap.put("error", "Invalid input: " + e.getMessage());
+    } catch (Exception e) {
+      responseMap.put("response_type", "failure");
+      responseMap.put("error", "Unexpected error: " + e.getMessage());
+    }
+
+    response.type("application/json");
+    return Utils.serialize(request, response, responseMap);
+  }
+
+  // validation method for user input; repeated ids are only looked up (and returned) once
+  private Set<Long> validateListingIds(String listingIdsStr) {
+    if (listingIdsStr == null || listingIdsStr.trim().isEmpty()) {
+      throw new IllegalArgumentException("Listing IDs are required");
+    }
+    Set<Long> listingIds = new LinkedHashSet<>();
+    for (String id : listingIdsStr.split(",")) {
+      if (!id.trim().isEmpty()) {
+        listingIds.add(Long.parseLong(id.trim()));
+      }
+    }
+    if (listingIds.isEmpty()) {
+      throw new IllegalArgumentException("Listing IDs are required");
+    }
+    if (listingIds.size() > MAX_IDS) {
+      throw new IllegalArgumentException("At most " + MAX_IDS + " listing IDs can be requested");
+    }
+    return listingIds;
+  }
+}
@@ -1,6 +1,9 @@
 package edu.brown.cs.student.main.server.handlers;
 
 import edu.brown.cs.student.main.server.classes.Listing;
+import edu.brown.cs.student.main.server.classes.ListingPage;
+import edu.brown.cs.student.main.server.storage.ListingFields;
+import edu.brown.cs.student.main.server.storage.ResourceVersions;
 import edu.brown.cs.student.main.server.storage.Sorter;
 import edu.brown.cs.student.main.server.storage.StorageInterface;
 import java.util.Arrays;
@@ -16,14 +19,23 @@ import spark.Route;
  *
  * <p>Handles get-listings request to our server, which is the request used to get all Listing
  * object from the database. Implements Route: Route is the SparkJava interface for request
- * handlers.
+ * handlers. With {@link ResourceVersions}, responses carry an ETag that changes with any listing
+ * write, and a request whose If-None-Match is current gets a 304 without a query.
  */
 public class GetListingsHandler implements Route {
+  // largest page a client may ask for with the limit parameter
+  private static final int MAX_PAGE_SIZE = 100;
 
   public StorageInterface dbHandler;
+  private final ResourceVersions versions;
 
   public GetListingsHandler(StorageInterface dbHandler) {
+    this(dbHandler, null);
+  }
+
+  public GetListingsHandler(StorageInterface dbHandler, ResourceVersions versions) {
     this.dbHandler = dbHandler;
+    this.versions = versions;
   }
 
   /**
@@ -47,6 +59,11 @@ public class GetListingsHandler implements Route {
       String maxPrice = request.queryParams("maxPrice");
       String tagsParam = request.queryParams("tags");
       String sorterStr = request.queryParams("sorter");
+      String limitStr = request.queryParams("limit");
+      String cursor = request.queryParams("cursor");
+      // EXAMPLE QUERY to load only what a listing card shows (or e.g. fields=title,price)
+      // "http://localhost:3232/get-listings?fields=card"
+      ListingFields fields = ListingFields.parse(request.queryParams("fields"));
 
       validatePrice(minPrice);
       validatePrice(maxPrice);
@@ -66,18 +83,57 @@ public class GetListingsHandler implements Route {
         }
       }
 
-      List<Listing> res =
-          this.dbHandler.getListings(
-              title,
-              category,
-              (minPrice == null ? null : Float.valueOf(minPrice)),
-              (maxPrice == null ? null : Float.valueOf(maxPrice)),
-              tagsList,
-              sorter);
+      Float min = (minPrice == null ? null : Float.valueOf(minPrice));
+      Float max = (maxPrice == null ? null : Float.valueOf(maxPrice));
+
+      String etag = ETags.of(request, this.versions, ResourceVersions.LISTINGS);
+      if (ETags.isCurrent(request, etag)) {
+        return ETags.notModified(request, response, etag);
+      }
 
-      responseMap.put("response_type", "success");
-      responseMap.put("result", res);
-      responseMap.put("number of listings obtained", res.size());
+      // EXAMPLE QUERY to stream every listing without buffering the result on the server
+      // "http://localhost:3232/get-listings?stream=true"
+      if ("true".equals(request.queryParams("stream"))) {
+        Sorter streamSorter = sorter;
+        return ListingStreamWriter.stream(
+            response,
+            "result",
+            "number of listings obtained",
+            null,
+            visitor ->
+                this.dbHandler.forEachListing(
+                    title, category, min, max, tagsList, streamSorter, fields, visitor));
+      }
+
+      // EXAMPLE QUERY to page through listings, passing back next_cursor for the following page
+      // "http://localhost:3232/get-listings?sorter=PRICE_ASC&limit=20"
+      if (limitStr != null || cursor != null) {
+        ListingPage page =
+            this.dbHandler.getListingsPage(
+                title,
+                category,
+                min,
+                max,
+                tagsList,
+                sorter,
+                validateLimit(limitStr),
+                cursor,
+                fields);
+
+        responseMap.put("response_type", "success");
+        responseMap.put("result", page.getListings());
+        responseMap.put("number of listings obtained", page.getListings().size());
+        responseMap.put("next_cursor", page.getNextCursor());
+        ETags.tag(response, etag);
+      } else {
+        List<Listing> res =
+            this.dbHandler.getListings(title, category, min, max, tagsList, sorter, fields);
+
+        responseMap.put("response_type", "success");
+        responseMap.put("result", res);
+        responseMap.put("number of listings obtained", res.size());
+        ETags.tag(response, etag);
+      }
 
     } catch (IllegalArgumentException e) {
       responseMap.put("response_type", "failure");
@@ -87,7 +143,7 @@ public class GetListingsHandler implements Route {
       responseMap.put("error", "Unexpected error: " + e.getMessage());
     }
 
-    return Utils.toMoshiJson(responseMap);
+    return Utils.serialize(request, response, responseMap);
   }
 
   // validation methods for user input
@@ -99,14 +155,25 @@ public class GetListingsHandler implements Route {
     return Long.parseLong(listingIdStr);
   }
 
-  private void validatePrice(String priceStr) {
+  private int validateLimit(String limitStr) {
+    if (limitStr == null || limitStr.isEmpty()) {
+      return MAX_PAGE_SIZE;
+    }
+    int limit = Integer.parseInt(limitStr);
+    if (limit < 1 || limit > MAX_PAGE_SIZE) {
+      throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+    }
+    return limit;
+  }
+
+  static void validatePrice(String priceStr) {
     float price = (priceStr == null ? 0 : Float.parseFloat(priceStr));
     if (price < 0) {
       throw new IllegalArgumentException("Price cannot be negative");
     }
   }
 
-  private List<String> parseTags(String tagsParam) {
+  static List<String> parseTags(String tagsParam) {
     if (tagsParam == null || tagsParam.trim().isEmpty()) {
       return List.of();
     }
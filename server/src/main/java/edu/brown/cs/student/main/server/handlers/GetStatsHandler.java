@@ -0,0 +1,49 @@
+package edu.brown.cs.student.main.server.handlers;
+
+import edu.brown.cs.student.main.server.storage.StorageInterface;
+import java.util.HashMap;
+import java.util.Map;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+/**
+ * A class representing a GetStatsHandler object.
+ *
+ * <p>Handles get-stats request to our server, which reports the storage layer's runtime counters
+ * (connection pool usage, cache hit rates, ...). Implements Route: Route is the SparkJava interface
+ * for request handlers.
+ */
+public class GetStatsHandler implements Route {
+
+  private final StorageInterface dbHandler;
+
+  public GetStatsHandler(StorageInterface dbHandler) {
+    this.dbHandler = dbHandler;
+  }
+
+  /**
+   * Method that handles get-stats request
+   *
+   * @param request - request from user
+   * @param response - the response
+   * @return the response map, represented as a Map from String to Object
+   */
+  @Override
+  public Object handle(Request request, Response response) {
+    Map<String, Object> responseMap = new HashMap<>();
+
+    // EXAMPLE QUERY:
+    // http://localhost:3232/get-stats
+
+    try {
+      responseMap.put("response_type", "success");
+      responseMap.put("stats", this.dbHandler.getStats());
+    } catch (Exception e) {
+      responseMap.put("response_type", "failure");
+      responseMap.put("error", "Unexpected error: " + e.getMessage());
+    }
+
+    return Utils.serialize(request, response, responseMap);
+  }
+}
@@ -1,5 +1,7 @@
 package edu.brown.cs.student.main.server.handlers;
 
+import edu.brown.cs.student.main.server.classes.User;
+import edu.brown.cs.student.main.server.storage.ResourceVersions;
 import edu.brown.cs.student.main.server.storage.StorageInterface;
 import java.util.HashMap;
 import java.util.Map;
@@ -12,14 +14,21 @@ import spark.Route;
  *
  * <p>Handles get-user request to our server, which is the request used to get a specifc User object
  * via the user's Clerk id from the database. Implements Route: Route is the SparkJava interface for
- * request handlers.
+ * request handlers. With {@link ResourceVersions}, responses carry an ETag and a request whose
+ * If-None-Match is current gets a 304 without a lookup.
  */
 public class GetUserHandler implements Route {
 
   private StorageInterface dbHandler;
+  private final ResourceVersions versions;
 
   public GetUserHandler(StorageInterface dbHandler) {
+    this(dbHandler, null);
+  }
+
+  public GetUserHandler(StorageInterface dbHandler, ResourceVersions versions) {
     this.dbHandler = dbHandler;
+    this.versions = versions;
   }
 
   /**
@@ -40,14 +49,20 @@ public class GetUserHandler implements Route {
         throw new IllegalArgumentException("Clerk ID is required");
       }
 
-      Map<String, Object> userData = this.dbHandler.getUser(userIdParam);
+      String etag = ETags.of(request, this.versions, ResourceVersions.userKey(userIdParam));
+      if (ETags.isCurrent(request, etag)) {
+        return ETags.notModified(request, response, etag);
+      }
+
+      User userData = this.dbHandler.getUser(userIdParam);
 
-      if (userData == null || userData.isEmpty()) {
+      if (userData == null) {
         responseMap.put("response_type", "failure");
         responseMap.put("error", "User not found");
       } else {
         responseMap.put("response_type", "success");
         responseMap.put("user_data", userData);
+        ETags.tag(response, etag);
       }
     } catch (IllegalArgumentException e) {
       responseMap.put("response_type", "failure");
@@ -57,6 +72,6 @@ public class GetUserHandler implements Route {
       responseMap.put("error", "Unexpected error: " + e.getMessage());
     }
 
-    return Utils.toMoshiJson(responseMap);
+    return Utils.serialize(request, response, responseMap);
   }
 }
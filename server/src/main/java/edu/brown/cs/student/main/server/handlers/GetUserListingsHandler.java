@@ -1,6 +1,10 @@
 package edu.brown.cs.student.main.server.handlers;
 
+import edu.brown.cs.student.main.server.classes.Listing;
+import edu.brown.cs.student.main.server.storage.ListingFields;
+import edu.brown.cs.student.main.server.storage.ResourceVersions;
 import edu.brown.cs.student.main.server.storage.StorageInterface;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -13,14 +17,22 @@ import spark.Route;
  *
  * <p>Handles get-user-listings request to our server, which is the request used to get the Listing
  * objects made by a specifc User object via the user's Clerk id from the database. Implements
- * Route: Route is the SparkJava interface for request handlers.
+ * Route: Route is the SparkJava interface for request handlers. With {@link ResourceVersions},
+ * responses carry an ETag that changes with any listing write, and a request whose If-None-Match is
+ * current gets a 304 without a query.
  */
 public class GetUserListingsHandler implements Route {
 
   private final StorageInterface dbHandler;
+  private final ResourceVersions versions;
 
   public GetUserListingsHandler(StorageInterface dbHandler) {
+    this(dbHandler, null);
+  }
+
+  public GetUserListingsHandler(StorageInterface dbHandler, ResourceVersions versions) {
     this.dbHandler = dbHandler;
+    this.versions = versions;
   }
 
   /**
@@ -40,9 +52,44 @@ public class GetUserListingsHandler implements Route {
       if (sellerIdParam == null || sellerIdParam.trim().isEmpty()) {
         throw new IllegalArgumentException("Seller ID is required");
       }
+      String fieldsParam = request.queryParams("fields");
+      ListingFields fields = ListingFields.parse(fieldsParam);
+
+      // an update or delete names only the listing, so any listing write may change these results
+      String etag = ETags.of(request, this.versions, ResourceVersions.LISTINGS);
+      if (ETags.isCurrent(request, etag)) {
+        return ETags.notModified(request, response, etag);
+      }
+
+      // EXAMPLE QUERY to stream the listings without buffering them on the server:
+      // http://localhost:3232/get-user-listings?seller_id=1&stream=true
+      if ("true".equals(request.queryParams("stream"))) {
+        return ListingStreamWriter.stream(
+            response,
+            "listings",
+            null,
+            "No listings found for the given seller ID",
+            visitor -> this.dbHandler.forEachListingBySellerId(sellerIdParam, fields, visitor));
+      }
+
+      // EXAMPLE QUERY to load only some fields of each listing:
+      // http://localhost:3232/get-user-listings?seller_id=1&fields=card
+      if (fieldsParam != null) {
+        List<Listing> listings = new ArrayList<>();
+        this.dbHandler.forEachListingBySellerId(sellerIdParam, fields, listings::add);
+        if (listings.isEmpty()) {
+          responseMap.put("response_type", "failure");
+          responseMap.put("error", "No listings found for the given seller ID");
+        } else {
+          responseMap.put("response_type", "success");
+          responseMap.put("listings", listings);
+          ETags.tag(response, etag);
+        }
+        return Utils.serialize(request, response, responseMap);
+      }
 
       // Fetch listings from the database for specified seller_id
-      List<Map<String, Object>> listings = this.dbHandler.getListingsBySellerId(sellerIdParam);
+      List<Listing> listings = this.dbHandler.getListingsBySellerId(sellerIdParam);
 
       if (listings == null || listings.isEmpty()) {
         responseMap.put("response_type", "failure");
@@ -50,6 +97,7 @@ public class GetUserListingsHandler implements Route {
       } else {
         responseMap.put("response_type", "success");
         responseMap.put("listings", listings);
+        ETags.tag(response, etag);
       }
     } catch (NumberFormatException e) {
       responseMap.put("response_type", "failure");
@@ -62,6 +110,6 @@ public class GetUserListingsHandler implements Route {
       responseMap.put("error", "Unexpected error: " + e.getMessage());
     }
 
-    return Utils.toMoshiJson(responseMap);
+    return Utils.serialize(request, response, responseMap);
   }
 }
@@ -0,0 +1,226 @@
+package edu.brown.cs.student.main.server.handlers;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonReader;
+import com.squareup.moshi.JsonWriter;
+import com.squareup.moshi.Moshi;
+import com.squareup.moshi.Types;
+import edu.brown.cs.student.main.server.classes.Listing;
+import edu.brown.cs.student.main.server.classes.User;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import okio.Buffer;
+
+/**
+ * The one JSON serializer every handler writes its responses with.
+ *
+ * <p>Building a Moshi instance means building its adapters, which for model classes means
+ * reflecting over their fields; doing that per response cost more than writing the JSON. Here a
+ * single instance lives for the whole server, and {@link Listing} and {@link User}, which make up
+ * nearly every response, have hand-written adapters so no reflection is involved at all. Both write
+ * the fields Moshi's reflective adapters would, under the same {@code @Json} names and with nulls
+ * left out, though in declaration order rather than alphabetical.
+ *
+ * <p>Responses are written into a per-thread buffer, whose segments okio recycles, rather than
+ * through a fresh string builder each time.
+ */
+public final class Json {
+  private Json() {}
+
+  /** Reads and writes a listing without reflection. */
+  public static final JsonAdapter<Listing> LISTING =
+      new JsonAdapter<>() {
+        private final JsonReader.Options names =
+            JsonReader.Options.of(
+                "id",
+                "seller_id",
+                "title",
+                "description",
+                "price",
+                "category",
+                "condition",
+                "image_url",
+                "tags",
+                "available");
+
+        @Override
+        public Listing fromJson(JsonReader reader) throws IOException {
+          Listing listing = new Listing(null, null, null, null, null, null, null, null, null, null);
+          reader.beginObject();
+          while (reader.hasNext()) {
+            int name = reader.selectName(this.names);
+            if (name != -1 && reader.peek() == JsonReader.Token.NULL) {
+              reader.nextNull();
+              continue;
+            }
+            switch (name) {
+              case 0 -> listing.id = reader.nextLong();
+              case 1 -> listing.seller_id = reader.nextString();
+              case 2 -> listing.title = reader.nextString();
+              case 3 -> listing.description = reader.nextString();
+              case 4 -> listing.price = (float) reader.nextDouble();
+              case 5 -> listing.category = reader.nextString();
+              case 6 -> listing.condition = reader.nextString();
+              case 7 -> listing.image_url = reader.nextString();
+              case 8 -> listing.tags = readStrings(reader);
+              case 9 -> listing.available = reader.nextBoolean();
+              default -> {
+                reader.skipName();
+                reader.skipValue();
+              }
+            }
+          }
+          reader.endObject();
+          return listing;
+        }
+
+        @Override
+        public void toJson(JsonWriter writer, Listing listing) throws IOException {
+          if (listing == null) {
+            writer.nullValue();
+            return;
+          }
+          // null values drop their names, as serializeNulls is off
+          writer.beginObject();
+          writer.name("id").value(listing.id);
+          writer.name("seller_id").value(listing.seller_id);
+          writer.name("title").value(listing.title);
+          writer.name("description").value(listing.description);
+          writer.name("price").value(listing.price);
+          writer.name("category").value(listing.category);
+          writer.name("condition").value(listing.condition);
+          writer.name("image_url").value(listing.image_url);
+          writer.name("tags");
+          writeStrings(writer, listing.tags);
+          writer.name("available").value(listing.available);
+          writer.endObject();
+        }
+
+        @Override
+        public String toString() {
+          return "JsonAdapter(Listing)";
+        }
+      };
+
+  /** Reads and writes a user without reflection. */
+  public static final JsonAdapter<User> USER =
+      new JsonAdapter<>() {
+        private final JsonReader.Options names =
+            JsonReader.Options.of(
+                "id", "clerk_id", "email", "name", "phone_number", "school", "tags");
+
+        @Override
+        public User fromJson(JsonReader reader) throws IOException {
+          User user = new User(null, null, null, null, null, null, null);
+          reader.beginObject();
+          while (reader.hasNext()) {
+            int name = reader.selectName(this.names);
+            if (name != -1 && reader.peek() == JsonReader.Token.NULL) {
+              reader.nextNull();
+              continue;
+            }
+            switch (name) {
+              case 0 -> user.id = reader.nextLong();
+              case 1 -> user.clerkId = reader.nextString();
+              case 2 -> user.email = reader.nextString();
+              case 3 -> user.name = reader.nextString();
+              case 4 -> user.phoneNumber = reader.nextString();
+              case 5 -> user.school = reader.nextString();
+              case 6 -> user.interests = readStrings(reader);
+              default -> {
+                reader.skipName();
+                reader.skipValue();
+              }
+            }
+          }
+          reader.endObject();
+          return user;
+        }
+
+        @Override
+        public void toJson(JsonWriter writer, User user) throws IOException {
+          if (user == null) {
+            writer.nullValue();
+            return;
+          }
+          writer.beginObject();
+          writer.name("id").value(user.id);
+          writer.name("clerk_id").value(user.clerkId);
+          writer.name("email").value(user.email);
+          writer.name("name").value(user.name);
+          writer.name("phone_number").value(user.phoneNumber);
+          writer.name("school").value(user.school);
+          writer.name("tags");
+          writeStrings(writer, user.interests);
+          writer.endObject();
+        }
+
+        @Override
+        public String toString() {
+          return "JsonAdapter(User)";
+        }
+      };
+
+  /** The shared instance; its adapters are built once and cached. */
+  public static final Moshi MOSHI =
+      new Moshi.Builder().add(Listing.class, LISTING).add(User.class, USER).build();
+
+  private static final Type MAP_STRING_OBJECT =
+      Types.newParameterizedType(Map.class, String.class, Object.class);
+  private static final JsonAdapter<Map<String, Object>> RESPONSE_ADAPTER =
+      MOSHI.adapter(MAP_STRING_OBJECT);
+
+  private static final ThreadLocal<Buffer> BUFFERS = ThreadLocal.withInitial(Buffer::new);
+
+  /**
+   * @param response a response map; values may be listings, users, lists and maps of them, strings,
+   *     numbers and booleans
+   * @return the response as JSON
+   */
+  public static String toJson(Map<String, Object> response) {
+    Buffer buffer = BUFFERS.get();
+    try {
+      RESPONSE_ADAPTER.toJson(JsonWriter.of(buffer), response);
+      return buffer.readUtf8();
+    } catch (IOException e) {
+      // a Buffer never fails to write; this is an adapter rejecting a value
+      throw new IllegalArgumentException(e.getMessage(), e);
+    } finally {
+      // left empty for the thread's next response, even after a failure part-way
+      buffer.clear();
+    }
+  }
+
+  /**
+   * @return the response as the maps, lists, strings, numbers and booleans its JSON would hold, for
+   *     encoding in another format
+   */
+  static Object toValue(Map<String, Object> response) {
+    return RESPONSE_ADAPTER.toJsonValue(response);
+  }
+
+  private static List<String> readStrings(JsonReader reader) throws IOException {
+    List<String> values = new ArrayList<>();
+    reader.beginArray();
+    while (reader.hasNext()) {
+      values.add(reader.nextString());
+    }
+    reader.endArray();
+    return values;
+  }
+
+  private static void writeStrings(JsonWriter writer, List<String> values) throws IOException {
+    if (values == null) {
+      writer.nullValue();
+      return;
+    }
+    writer.beginArray();
+    for (String value : values) {
+      writer.value(value);
+    }
+    writer.endArray();
+  }
+}
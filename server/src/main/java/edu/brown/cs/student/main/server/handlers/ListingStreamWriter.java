@@ -0,0 +1,71 @@
+package edu.brown.cs.student.main.server.handlers;
+
+import com.squareup.moshi.JsonWriter;
+import edu.brown.cs.student.main.server.storage.ListingSource;
+import java.io.IOException;
+import okio.Okio;
+import spark.Response;
+
+/**
+ * Writes a listings response straight to the servlet output stream as the storage layer produces
+ * rows, instead of building the result list and then the whole JSON string in memory. Used by the
+ * stream=true mode of get-listings and get-user-listings.
+ *
+ * <p>The envelope has the same keys as the buffered responses, but since rows go out before the
+ * query has finished, response_type is written last: a query that fails part-way still produces
+ * valid JSON, ending with response_type "failure" and the error.
+ */
+public class ListingStreamWriter {
+  /**
+   * Streams the listings produced by source into the response body.
+   *
+   * @param response - the response to write to; it is committed once this returns
+   * @param resultKey - the key holding the array of listings
+   * @param countKey - the key holding the number of listings written, or null to omit it
+   * @param emptyError - the error to report if no listings were found, or null if none is an
+   *     ordinary success
+   * @param source - the query producing the listings
+   * @return the empty string, as the body has already been written
+   * @throws IOException if the client went away
+   */
+  public static String stream(
+      Response response, String resultKey, String countKey, String emptyError, ListingSource source)
+      throws IOException {
+    response.status(200);
+    response.type("application/json");
+
+    try (JsonWriter writer =
+        JsonWriter.of(Okio.buffer(Okio.sink(response.raw().getOutputStream())))) {
+      writer.beginObject();
+      writer.name(resultKey).beginArray();
+
+      long[] count = {0};
+      String error = null;
+      try {
+        source.forEach(
+            listing -> {
+              Json.LISTING.toJson(writer, listing);
+              count[0]++;
+            });
+      } catch (Exception e) {
+        error = "Unexpected error: " + e.getMessage();
+      }
+      writer.endArray();
+
+      if (countKey != null) {
+        writer.name(countKey).value(count[0]);
+      }
+      if (error == null && count[0] == 0 && emptyError != null) {
+        error = emptyError;
+      }
+      if (error == null) {
+        writer.name("response_type").value("success");
+      } else {
+        writer.name("response_type").value("failure");
+        writer.name("error").value(error);
+      }
+      writer.endObject();
+    }
+    return "";
+  }
+}
@@ -1,18 +1,65 @@
 package edu.brown.cs.student.main.server.handlers;
 
-import com.squareup.moshi.JsonAdapter;
-import com.squareup.moshi.Moshi;
-import com.squareup.moshi.Types;
-import java.lang.reflect.Type;
 import java.util.Map;
+import spark.Request;
+import spark.Response;
 
 public class Utils {
 
   public static String toMoshiJson(Map<String, Object> map) {
-    Moshi moshi = new Moshi.Builder().build();
-    Type mapStringObject = Types.newParameterizedType(Map.class, String.class, Object.class);
-    JsonAdapter<Map<String, Object>> adapter = moshi.adapter(mapStringObject);
+    return Json.toJson(map);
+  }
+
+  /**
+   * Serializes a response map in the format the request asks for: CBOR if its Accept header prefers
+   * application/cbor to JSON, and JSON otherwise. Streamed responses are always JSON.
+   *
+   * @param request - the request, for its Accept header
+   * @param response - the response, whose type is set for CBOR
+   * @param map - the response map
+   * @return the body for the route to return: a String of JSON or the bytes of CBOR
+   */
+  public static Object serialize(Request request, Response response, Map<String, Object> map) {
+    // caches must keep the two formats apart
+    response.header("Vary", "Accept");
+    if (prefersCbor(request.headers("Accept"))) {
+      response.type(Cbor.MEDIA_TYPE);
+      return Cbor.encode(map);
+    }
+    return toMoshiJson(map);
+  }
 
-    return adapter.toJson(map);
+  /**
+   * @param accept the Accept header, or null if the request had none
+   * @return whether the client weighs application/cbor above application/json; a tie, or a client
+   *     that names neither, gets JSON
+   */
+  public static boolean prefersCbor(String accept) {
+    if (accept == null || !accept.contains("cbor")) {
+      return false;
+    }
+    double cbor = 0;
+    double json = 0;
+    for (String part : accept.split(",")) {
+      String[] params = part.split(";");
+      String mediaType = params[0].trim().toLowerCase();
+      double quality = 1;
+      for (int i = 1; i < params.length; i++) {
+        String param = params[i].trim();
+        if (param.startsWith("q=")) {
+          try {
+            quality = Double.parseDouble(param.substring(2).trim());
+          } catch (NumberFormatException e) {
+            quality = 0;
+          }
+        }
+      }
+      if (mediaType.equals(Cbor.MEDIA_TYPE)) {
+        cbor = Math.max(cbor, quality);
+      } else if (mediaType.equals("application/json")) {
+        json = Math.max(json, quality);
+      }
+    }
+    return cbor > json;
   }
 }
@@ -0,0 +1,214 @@
+package edu.brown.cs.student.main.server.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only file of records, used by {@link FileStorage} for its log and its snapshots.
+ *
+ * <p>Each record is its length, a CRC32 of its payload, then the payload. Reading stops at the
+ * first record that is cut short or fails its checksum: that is where a crash interrupted a write,
+ * and since such a write was never synced, it was never acknowledged either.
+ *
+ * <p>Appends only reach the operating system; {@link #sync(long)} makes them durable with group
+ * commit: while one thread runs fsync, others that appended meanwhile wait for it to finish and
+ * then share a single fsync for all of their records, rather than each paying for its own.
+ */
+class AppendLog implements Closeable {
+  private static final int HEADER_BYTES = 8;
+
+  /** Receives the payload of each record read back. */
+  @FunctionalInterface
+  interface RecordVisitor {
+    void visit(byte[] payload) throws IOException;
+  }
+
+  private final FileChannel channel;
+  // all guarded by this
+  private long end;
+  private long durable;
+  private boolean syncing;
+  private boolean closed;
+  private long records;
+  private long syncs;
+
+  private AppendLog(FileChannel channel, long end) {
+    this.channel = channel;
+    this.end = end;
+    this.durable = end;
+  }
+
+  /**
+   * Opens a log for appending, creating it if needed, after handing its records to the visitor. A
+   * torn record at the end is cut off so new records follow the last complete one.
+   *
+   * @param path the log file
+   * @param visitor receives the records already in the log
+   * @return the open log
+   * @throws IOException if the file cannot be read or written
+   */
+  static AppendLog open(Path path, RecordVisitor visitor) throws IOException {
+    FileChannel channel =
+        FileChannel.open(
+            path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      long end = read(channel, visitor);
+      channel.truncate(end);
+      channel.position(end);
+      return new AppendLog(channel, end);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Hands every complete record in the file to the visitor, reading it through a memory map.
+   *
+   * @param path an existing log or snapshot file
+   * @param visitor receives each record
+   * @throws IOException if the file cannot be read
+   */
+  static void read(Path path, RecordVisitor visitor) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      read(channel, visitor);
+    }
+  }
+
+  // returns the offset just past the last complete record
+  private static long read(FileChannel channel, RecordVisitor visitor) throws IOException {
+    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    CRC32 crc = new CRC32();
+    while (buffer.remaining() >= HEADER_BYTES) {
+      int start = buffer.position();
+      int length = buffer.getInt();
+      int checksum = buffer.getInt();
+      if (length < 0 || length > buffer.remaining()) {
+        return start;
+      }
+      byte[] payload = new byte[length];
+      buffer.get(payload);
+      crc.reset();
+      crc.update(payload);
+      if ((int) crc.getValue() != checksum) {
+        return start;
+      }
+      visitor.visit(payload);
+    }
+    return buffer.position();
+  }
+
+  /**
+   * Writes a record to the end of the log, without waiting for it to be durable.
+   *
+   * @param payload the record
+   * @return the offset just past the record, to pass to {@link #sync(long)}
+   * @throws IOException if the write fails
+   */
+  synchronized long append(byte[] payload) throws IOException {
+    CRC32 crc = new CRC32();
+    crc.update(payload);
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+    buffer.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+    while (buffer.hasRemaining()) {
+      this.channel.write(buffer);
+    }
+    this.end += buffer.limit();
+    this.records++;
+    return this.end;
+  }
+
+  /**
+   * Returns once everything up to the offset is on disk, running fsync unless another thread's
+   * fsync already covered it.
+   *
+   * @param offset an offset returned by {@link #append(byte[])}
+   * @throws IOException if fsync fails
+   */
+  void sync(long offset) throws IOException {
+    long target;
+    synchronized (this) {
+      while (this.durable < offset && this.syncing) {
+        try {
+          this.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Interrupted while waiting for the log to sync", e);
+        }
+      }
+      if (this.durable >= offset) {
+        return;
+      }
+      if (this.closed) {
+        throw new IOException("Log closed before records up to " + offset + " were synced");
+      }
+      this.syncing = true;
+      // everything appended so far rides along on this fsync
+      target = this.end;
+    }
+
+    boolean synced = false;
+    try {
+      this.channel.force(false);
+      synced = true;
+    } finally {
+      synchronized (this) {
+        this.syncing = false;
+        if (synced) {
+          this.durable = Math.max(this.durable, target);
+          this.syncs++;
+        }
+        this.notifyAll();
+      }
+    }
+  }
+
+  /**
+   * @return the offset just past the last record
+   */
+  synchronized long end() {
+    return this.end;
+  }
+
+  /**
+   * @return records appended since the log was opened
+   */
+  synchronized long records() {
+    return this.records;
+  }
+
+  /**
+   * @return fsyncs run since the log was opened
+   */
+  synchronized long syncs() {
+    return this.syncs;
+  }
+
+  /**
+   * Closes the file once no fsync is running on it, so a thread still syncing its records never
+   * sees the channel closed under it.
+   *
+   * @throws IOException if the file cannot be closed
+   */
+  @Override
+  public void close() throws IOException {
+    synchronized (this) {
+      while (this.syncing) {
+        try {
+          this.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Interrupted while waiting for the log to sync", e);
+        }
+      }
+      this.closed = true;
+    }
+    this.channel.close();
+  }
+}
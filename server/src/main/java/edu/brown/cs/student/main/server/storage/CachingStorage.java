@@ -0,0 +1,283 @@
+package edu.brown.cs.student.main.server.storage;
+
+import edu.brown.cs.student.main.server.classes.Listing;
+import edu.brown.cs.student.main.server.classes.ListingFacets;
+import edu.brown.cs.student.main.server.classes.ListingPage;
+import edu.brown.cs.student.main.server.classes.User;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A read-through cache in front of another storage backend.
+ *
+ * <p>Single-listing lookups through {@link #obtainListing(Long)} are served from a {@link
+ * FrequencyCache} keyed by listing id, so the hot listings on product pages skip the database round
+ * trip. Updates and deletes through this object invalidate the affected id; every other call is
+ * passed straight to the wrapped backend. Projected multi-gets are served from the cached full
+ * listings. Writes made by other server instances reach the cache through {@link
+ * #listenTo(ChangeBus)}.
+ */
+public class CachingStorage implements StorageInterface {
+  private static final int DEFAULT_MAX_SIZE = 10_000;
+  private static final long DEFAULT_TTL_MILLIS = 5 * 60 * 1000;
+
+  private final StorageInterface delegate;
+  private final FrequencyCache<Long, Listing> listingCache;
+
+  public CachingStorage(StorageInterface delegate) {
+    this(delegate, DEFAULT_MAX_SIZE, DEFAULT_TTL_MILLIS);
+  }
+
+  public CachingStorage(StorageInterface delegate, int maxSize, long ttlMillis) {
+    this.delegate = delegate;
+    this.listingCache = new FrequencyCache<>(maxSize, ttlMillis);
+  }
+
+  /**
+   * Drops the cached copy of every listing another instance changes, and the whole cache when the
+   * bus may have missed changes.
+   *
+   * @param bus the bus shared with the other instances
+   */
+  public void listenTo(ChangeBus bus) {
+    bus.subscribe(
+        new ChangeBus.Subscriber() {
+          @Override
+          public void changed(ChangeEvent event) {
+            if (event.getKind() == ChangeEvent.Kind.LISTING) {
+              listingCache.invalidate(event.getListingId());
+            }
+          }
+
+          @Override
+          public void resync() {
+            listingCache.invalidateAll();
+          }
+        });
+  }
+
+  @Override
+  public Listing obtainListing(Long listingId) {
+    Listing cached = this.listingCache.get(listingId);
+    if (cached != null) {
+      return cached;
+    }
+
+    long ticket = this.listingCache.ticket();
+    Listing listing = this.delegate.obtainListing(listingId);
+    this.listingCache.put(listingId, listing, ticket);
+    return listing;
+  }
+
+  // Serves what it can from the cache and fetches all the misses from the backend in one call
+  @Override
+  public Map<Long, Listing> obtainListings(Collection<Long> listingIds) throws SQLException {
+    Map<Long, Listing> listings = new HashMap<>();
+    List<Long> misses = new ArrayList<>();
+    for (Long listingId : listingIds) {
+      Listing cached = this.listingCache.get(listingId);
+      if (cached != null) {
+        listings.put(listingId, cached);
+      } else {
+        misses.add(listingId);
+      }
+    }
+    if (misses.isEmpty()) {
+      return listings;
+    }
+
+    long ticket = this.listingCache.ticket();
+    Map<Long, Listing> loaded = this.delegate.obtainListings(misses);
+    for (Map.Entry<Long, Listing> entry : loaded.entrySet()) {
+      this.listingCache.put(entry.getKey(), entry.getValue(), ticket);
+    }
+    listings.putAll(loaded);
+    return listings;
+  }
+
+  @Override
+  public boolean updateListing(Long listingId, Listing updatedListing) {
+    try {
+      return this.delegate.updateListing(listingId, updatedListing);
+    } finally {
+      this.listingCache.invalidate(listingId);
+    }
+  }
+
+  @Override
+  public boolean deleteListing(Long listingId) {
+    try {
+      return this.delegate.deleteListing(listingId);
+    } finally {
+      this.listingCache.invalidate(listingId);
+    }
+  }
+
+  @Override
+  public Map<String, Object> getStats() {
+    Map<String, Object> stats = new HashMap<>(this.delegate.getStats());
+    stats.put("listing_cache", this.listingCache.getStats());
+    return stats;
+  }
+
+  /* PASS-THROUGH FUNCTIONS */
+
+  @Override
+  public Long createUser(
+      String clerkId, String email, String name, String phoneNumber, String school)
+      throws IllegalArgumentException, SQLException {
+    return this.delegate.createUser(clerkId, email, name, phoneNumber, school);
+  }
+
+  @Override
+  public List<Listing> getListings(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter) {
+    return this.delegate.getListings(title, category, minPrice, maxPrice, tags, sorter);
+  }
+
+  @Override
+  public void forEachListing(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter,
+      ListingVisitor visitor)
+      throws Exception {
+    this.delegate.forEachListing(title, category, minPrice, maxPrice, tags, sorter, visitor);
+  }
+
+  @Override
+  public ListingPage getListingsPage(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter,
+      int limit,
+      String cursor) {
+    return this.delegate.getListingsPage(
+        title, category, minPrice, maxPrice, tags, sorter, limit, cursor);
+  }
+
+  @Override
+  public List<Listing> getListings(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter,
+      ListingFields fields) {
+    return this.delegate.getListings(title, category, minPrice, maxPrice, tags, sorter, fields);
+  }
+
+  @Override
+  public void forEachListing(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter,
+      ListingFields fields,
+      ListingVisitor visitor)
+      throws Exception {
+    this.delegate.forEachListing(
+        title, category, minPrice, maxPrice, tags, sorter, fields, visitor);
+  }
+
+  @Override
+  public ListingPage getListingsPage(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter,
+      int limit,
+      String cursor,
+      ListingFields fields) {
+    return this.delegate.getListingsPage(
+        title, category, minPrice, maxPrice, tags, sorter, limit, cursor, fields);
+  }
+
+  @Override
+  public ListingFacets getFacets(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      List<Float> priceBoundaries,
+      int topTags)
+      throws Exception {
+    return this.delegate.getFacets(
+        title, category, minPrice, maxPrice, tags, priceBoundaries, topTags);
+  }
+
+  @Override
+  public Long createListing(
+      String sellerId,
+      String title,
+      boolean isAvailable,
+      String description,
+      float price,
+      String category,
+      String condition,
+      String imageUrl,
+      List<String> tags)
+      throws IllegalArgumentException, SQLException {
+    return this.delegate.createListing(
+        sellerId, title, isAvailable, description, price, category, condition, imageUrl, tags);
+  }
+
+  @Override
+  public List<Long> createListings(List<Listing> listings)
+      throws IllegalArgumentException, SQLException {
+    return this.delegate.createListings(listings);
+  }
+
+  @Override
+  public Optional<Listing> getListingById(Long listingId) {
+    return this.delegate.getListingById(listingId);
+  }
+
+  @Override
+  public User getUser(String clerkId) throws Exception {
+    return this.delegate.getUser(clerkId);
+  }
+
+  @Override
+  public boolean updateUser(String userId, User updatedUser) {
+    return this.delegate.updateUser(userId, updatedUser);
+  }
+
+  @Override
+  public List<Listing> getListingsBySellerId(String sellerId) throws Exception {
+    return this.delegate.getListingsBySellerId(sellerId);
+  }
+
+  @Override
+  public void forEachListingBySellerId(String sellerId, ListingVisitor visitor) throws Exception {
+    this.delegate.forEachListingBySellerId(sellerId, visitor);
+  }
+
+  @Override
+  public void forEachListingBySellerId(
+      String sellerId, ListingFields fields, ListingVisitor visitor) throws Exception {
+    this.delegate.forEachListingBySellerId(sellerId, fields, visitor);
+  }
+}
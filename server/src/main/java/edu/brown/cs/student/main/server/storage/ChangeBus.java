@@ -0,0 +1,62 @@
+package edu.brown.cs.student.main.server.storage;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Carries {@link ChangeEvent}s between server instances that share a database, so each one can keep
+ * its in-process copies of listings (caches, indexes) in step with writes made by the others.
+ *
+ * <p>{@link RealStorage} publishes the events of every write inside the write's own transaction, so
+ * they are sent if and only if it commits; caches subscribe with their {@code listenTo} method. A
+ * bus does not hand an instance its own events back, since the instance already applied its writes
+ * locally. Delivery is best effort: when a bus may have missed events (say its database connection
+ * dropped), it calls {@link Subscriber#resync()} once it is listening again, and subscribers then
+ * rebuild whatever they hold.
+ */
+public interface ChangeBus extends AutoCloseable {
+
+  /** Receives the events published by other instances. Called from the bus's own thread. */
+  interface Subscriber {
+    void changed(ChangeEvent event);
+
+    /** Events may have been lost; everything derived from the database should be reloaded. */
+    void resync();
+  }
+
+  /**
+   * Sends an event to the other instances. Never throws: a write that already committed must not
+   * fail because its event could not be sent.
+   *
+   * @param event the change
+   */
+  void publish(ChangeEvent event);
+
+  /**
+   * Sends events as part of the transaction open on the connection: other instances hear of them
+   * when it commits and never if it rolls back, so no committed write goes unannounced. Unlike
+   * {@link #publish(ChangeEvent)} this can fail, and the write should then roll back with it.
+   *
+   * @param connection a connection to the shared database, not in auto-commit mode
+   * @param events the changes the transaction makes
+   * @throws SQLException if the events could not be queued on the connection
+   */
+  void publish(Connection connection, List<ChangeEvent> events) throws SQLException;
+
+  /**
+   * Registers a subscriber. Subscribers are called in the order they subscribed.
+   *
+   * @param subscriber receives later events
+   */
+  void subscribe(Subscriber subscriber);
+
+  /**
+   * @return counters for the stats endpoint
+   */
+  Map<String, Object> getStats();
+
+  @Override
+  void close();
+}
@@ -0,0 +1,109 @@
+package edu.brown.cs.student.main.server.storage;
+
+import java.util.Objects;
+
+/**
+ * Names a listing or user that a write changed, so other server instances can drop or reload their
+ * copy of it. An event carries no data: receivers read the current state from the database.
+ */
+public final class ChangeEvent {
+  /** What kind of row changed; each kind has a one-letter code in the encoded form. */
+  public enum Kind {
+    LISTING('L'),
+    USER('U');
+
+    private final char code;
+
+    Kind(char code) {
+      this.code = code;
+    }
+
+    private static Kind of(char code) {
+      for (Kind kind : values()) {
+        if (kind.code == code) {
+          return kind;
+        }
+      }
+      throw new IllegalArgumentException("Unknown change kind: " + code);
+    }
+  }
+
+  private final Kind kind;
+  private final String key;
+
+  private ChangeEvent(Kind kind, String key) {
+    this.kind = kind;
+    this.key = key;
+  }
+
+  /**
+   * @param listingId a listing that was created, updated or deleted
+   */
+  public static ChangeEvent listing(Long listingId) {
+    return new ChangeEvent(Kind.LISTING, String.valueOf(listingId));
+  }
+
+  /**
+   * @param clerkId a user that was created or updated
+   */
+  public static ChangeEvent user(String clerkId) {
+    return new ChangeEvent(Kind.USER, clerkId);
+  }
+
+  public Kind getKind() {
+    return this.kind;
+  }
+
+  /**
+   * @return the listing id for a LISTING event
+   */
+  public Long getListingId() {
+    return Long.valueOf(this.key);
+  }
+
+  /**
+   * @return the clerk id for a USER event
+   */
+  public String getClerkId() {
+    return this.key;
+  }
+
+  /**
+   * @return the compact text form, e.g. "L:42"
+   */
+  public String encode() {
+    return this.kind.code + ":" + this.key;
+  }
+
+  /**
+   * @param encoded a string produced by {@link #encode()}
+   * @return the event
+   * @throws IllegalArgumentException if the string is not an encoded event
+   */
+  public static ChangeEvent decode(String encoded) {
+    if (encoded == null || encoded.length() < 2 || encoded.charAt(1) != ':') {
+      throw new IllegalArgumentException("Malformed change event: " + encoded);
+    }
+    Kind kind = Kind.of(encoded.charAt(0));
+    String key = encoded.substring(2);
+    if (kind == Kind.LISTING) {
+      Long.parseLong(key);
+    }
+    return new ChangeEvent(kind, key);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof ChangeEvent other && other.kind == this.kind && other.key.equals(this.key);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(this.kind, this.key);
+  }
+
+  @Override
+  public String toString() {
+    return this.encode();
+  }
+}
@@ -0,0 +1,1036 @@
+package edu.brown.cs.student.main.server.storage;
+
+import edu.brown.cs.student.main.server.classes.Listing;
+import edu.brown.cs.student.main.server.classes.ListingPage;
+import edu.brown.cs.student.main.server.classes.User;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-memory listing engine that keeps listings as columns outside the Java heap, for catalogs
+ * too large to hold as {@link Listing} objects.
+ *
+ * <p>Each listing is a row number into a set of off-heap columns ({@link OffHeapArray}): ids and
+ * prices as primitives, seller, category, condition and tags as codes into a {@link
+ * StringDictionary}, and the free text (title, description, image url) as UTF-8 bytes in an
+ * off-heap arena. Searches run their filters directly over the columns, cheapest first, and Listing
+ * objects are only built for the rows a caller gets back, with only the fields it asked for. A row
+ * costs about 60 bytes plus its text, none of which the garbage collector has to scan.
+ *
+ * <p>Availability, each category and each tag also have a {@link RowBitmap} of their rows, kept up
+ * to date on every write. A search starts from those: the available rows, ANDed with the rows of
+ * its category and with the OR of the rows of its tags, so only the rows that survive have their
+ * price and title checked.
+ *
+ * <p>Like {@link IndexedStorage}, all listings are loaded from a backing store at startup, writes
+ * go to the backing store first and are applied to the columns once it succeeds, users go straight
+ * to the backing store, and searches only return listings that are available. Writes made by other
+ * server instances reach the columns through {@link #listenTo(ChangeBus)}.
+ *
+ * <p>An update only appends the text and tags that actually changed; the ones it replaces, and
+ * those of deleted rows, become dead space in the arenas. Once dead space is most of an arena, the
+ * live values are copied into a fresh one, so rewriting the same listings (say, on every resync)
+ * does not grow the arenas without bound.
+ */
+public class ColumnarStorage implements StorageInterface {
+  private static final int INITIAL_ROWS = 1024;
+  private static final int INITIAL_TEXT_BYTES = 64 * 1024;
+  // rows materialized per read lock hold when streaming results to a visitor
+  private static final int STREAM_CHUNK = 256;
+  // listings applied per write lock hold when reloading
+  private static final int RELOAD_CHUNK = 1024;
+
+  private static final byte AVAILABLE = 1;
+  private static final byte DELETED = 2;
+  // the length stored for a null string
+  private static final int NULL_LENGTH = -1;
+
+  private final StorageInterface backing;
+  private final ListingSource loader;
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+  // one element per row; text and tag columns hold (offset << 32 | length) into the arenas
+  private final OffHeapArray ids = new OffHeapArray(Long.BYTES, INITIAL_ROWS);
+  private final OffHeapArray prices = new OffHeapArray(Float.BYTES, INITIAL_ROWS);
+  private final OffHeapArray flags = new OffHeapArray(1, INITIAL_ROWS);
+  private final OffHeapArray sellers = new OffHeapArray(Integer.BYTES, INITIAL_ROWS);
+  private final OffHeapArray categories = new OffHeapArray(Integer.BYTES, INITIAL_ROWS);
+  private final OffHeapArray conditions = new OffHeapArray(Integer.BYTES, INITIAL_ROWS);
+  private final OffHeapArray titles = new OffHeapArray(Long.BYTES, INITIAL_ROWS);
+  private final OffHeapArray descriptions = new OffHeapArray(Long.BYTES, INITIAL_ROWS);
+  private final OffHeapArray imageUrls = new OffHeapArray(Long.BYTES, INITIAL_ROWS);
+  private final OffHeapArray tagRefs = new OffHeapArray(Long.BYTES, INITIAL_ROWS);
+  private final List<OffHeapArray> columns =
+      List.of(
+          ids,
+          prices,
+          flags,
+          sellers,
+          categories,
+          conditions,
+          titles,
+          descriptions,
+          imageUrls,
+          tagRefs);
+  private final List<OffHeapArray> textColumns = List.of(titles, descriptions, imageUrls);
+  private int rows;
+  private int deletedRows;
+
+  // the arenas the text and tag columns point into, and how much of each no row points at
+  private OffHeapArray text = new OffHeapArray(1, INITIAL_TEXT_BYTES);
+  private int textEnd;
+  private int deadText;
+  private OffHeapArray tagCodes = new OffHeapArray(Integer.BYTES, INITIAL_ROWS);
+  private int tagEnd;
+  private int deadTags;
+
+  private final StringDictionary sellerDictionary = new StringDictionary();
+  private final StringDictionary categoryDictionary = new StringDictionary();
+  private final StringDictionary conditionDictionary = new StringDictionary();
+  private final StringDictionary tagDictionary = new StringDictionary();
+
+  // live rows that are available, and the live rows of each category and tag code
+  private final RowBitmap availableRows = new RowBitmap();
+  private final List<RowBitmap> categoryRows = new ArrayList<>();
+  private final List<RowBitmap> tagRows = new ArrayList<>();
+
+  // open-addressing hash from listing id to row; a slot holds row + 1, so 0 marks an empty slot
+  private OffHeapArray slotIds = new OffHeapArray(Long.BYTES, 2 * INITIAL_ROWS);
+  private OffHeapArray slotRows = new OffHeapArray(Integer.BYTES, 2 * INITIAL_ROWS);
+  private int slots = 2 * INITIAL_ROWS;
+
+  /**
+   * Builds the columns from every listing in the backing store.
+   *
+   * @param backing the store that writes go to
+   * @param loader produces every stored listing, available or not
+   * @throws Exception if the listings could not be loaded
+   */
+  public ColumnarStorage(StorageInterface backing, ListingSource loader) throws Exception {
+    this.backing = backing;
+    this.loader = loader;
+    this.lock.writeLock().lock();
+    try {
+      loader.forEach(this::put);
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Follows the writes of other instances: a changed listing is re-read from the backing store, and
+   * everything is reloaded when the bus may have missed changes.
+   *
+   * @param bus the bus shared with the other instances
+   */
+  public void listenTo(ChangeBus bus) {
+    bus.subscribe(
+        new ChangeBus.Subscriber() {
+          @Override
+          public void changed(ChangeEvent event) {
+            if (event.getKind() == ChangeEvent.Kind.LISTING) {
+              refresh(event.getListingId());
+            }
+          }
+
+          @Override
+          public void resync() {
+            reload();
+          }
+        });
+  }
+
+  // Re-reads one listing from the backing store after another instance changed it
+  private void refresh(Long listingId) {
+    Listing listing;
+    try {
+      listing = this.backing.obtainListings(List.of(listingId)).get(listingId);
+    } catch (Exception e) {
+      System.err.println("Error refreshing listing " + listingId + ": " + e.getMessage());
+      return;
+    }
+    this.lock.writeLock().lock();
+    try {
+      if (listing == null) {
+        this.delete(listingId);
+      } else {
+        this.put(listing);
+      }
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+  }
+
+  // Reloads every listing from the loader, deleting the rows no longer stored. Listings are applied
+  // in chunks as they stream in, so the catalog is never on the heap all at once.
+  private void reload() {
+    int knownRows;
+    this.lock.readLock().lock();
+    try {
+      knownRows = this.rows;
+    } finally {
+      this.lock.readLock().unlock();
+    }
+    RowBitmap loadedRows = new RowBitmap();
+    List<Listing> chunk = new ArrayList<>(RELOAD_CHUNK);
+    try {
+      this.loader.forEach(
+          listing -> {
+            chunk.add(listing);
+            if (chunk.size() == RELOAD_CHUNK) {
+              this.putAll(chunk, loadedRows);
+              chunk.clear();
+            }
+          });
+      this.putAll(chunk, loadedRows);
+    } catch (Exception e) {
+      System.err.println("Error reloading listings: " + e.getMessage());
+      return;
+    }
+    this.lock.writeLock().lock();
+    try {
+      // rows added since the reload began were written meanwhile, so they are kept
+      for (int row = 0; row < knownRows; row++) {
+        if (this.isLive(row) && !loadedRows.contains(row)) {
+          this.delete(this.ids.getLong(row));
+        }
+      }
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+  }
+
+  private void putAll(List<Listing> listings, RowBitmap putRows) {
+    this.lock.writeLock().lock();
+    try {
+      for (Listing listing : listings) {
+        putRows.add(this.put(listing));
+      }
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+  }
+
+  /* COLUMN MAINTENANCE, under the write lock */
+
+  private static long ref(int offset, int length) {
+    return ((long) offset << 32) | (length & 0xFFFFFFFFL);
+  }
+
+  private static int offsetOf(long ref) {
+    return (int) (ref >>> 32);
+  }
+
+  private static int lengthOf(long ref) {
+    return (int) ref;
+  }
+
+  // Stores a row's text column value, keeping the old bytes when they are unchanged
+  private void setText(OffHeapArray column, int row, String value, boolean replacing) {
+    byte[] bytes = value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    if (replacing) {
+      long old = column.getLong(row);
+      if (this.textEquals(old, bytes)) {
+        return;
+      }
+      this.deadText += Math.max(lengthOf(old), 0);
+      // dropped first, so a compaction while the new value is stored does not copy the old one
+      column.putLong(row, ref(0, NULL_LENGTH));
+    }
+    column.putLong(row, this.putText(bytes));
+  }
+
+  private boolean textEquals(long ref, byte[] bytes) {
+    if (bytes == null || lengthOf(ref) == NULL_LENGTH) {
+      return bytes == null && lengthOf(ref) == NULL_LENGTH;
+    }
+    if (lengthOf(ref) != bytes.length) {
+      return false;
+    }
+    byte[] stored = new byte[bytes.length];
+    this.text.getBytes(offsetOf(ref), stored);
+    return Arrays.equals(stored, bytes);
+  }
+
+  private long putText(byte[] bytes) {
+    if (bytes == null) {
+      return ref(0, NULL_LENGTH);
+    }
+    if ((long) this.textEnd + bytes.length > Integer.MAX_VALUE && this.deadText > 0) {
+      this.compactText();
+    }
+    if ((long) this.textEnd + bytes.length > Integer.MAX_VALUE) {
+      throw new IllegalStateException("Listing text arena is full");
+    }
+    this.text.ensureCapacity(this.textEnd + bytes.length);
+    this.text.putBytes(this.textEnd, bytes);
+    long ref = ref(this.textEnd, bytes.length);
+    this.textEnd += bytes.length;
+    return ref;
+  }
+
+  // Stores a row's tags, keeping the old codes when they are unchanged
+  private void setTags(int row, List<String> tags, boolean replacing) {
+    int count = tags == null ? 0 : tags.size();
+    int[] codes = new int[count];
+    for (int i = 0; i < count; i++) {
+      codes[i] = this.tagDictionary.encode(tags.get(i));
+    }
+    if (replacing) {
+      long old = this.tagRefs.getLong(row);
+      if (this.tagsEqual(old, codes)) {
+        return;
+      }
+      this.deadTags += lengthOf(old);
+    }
+    this.tagCodes.ensureCapacity(this.tagEnd + count);
+    for (int i = 0; i < count; i++) {
+      this.tagCodes.putInt(this.tagEnd + i, codes[i]);
+    }
+    this.tagRefs.putLong(row, ref(this.tagEnd, count));
+    this.tagEnd += count;
+  }
+
+  private boolean tagsEqual(long ref, int[] codes) {
+    if (lengthOf(ref) != codes.length) {
+      return false;
+    }
+    for (int i = 0; i < codes.length; i++) {
+      if (this.tagCodes.getInt(offsetOf(ref) + i) != codes[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // Adds the listing as a new row, or overwrites its row if it is already stored
+  private int put(Listing listing) {
+    int row = this.rowOf(listing.getId());
+    // a live row's text and tags are compared and kept if unchanged; a deleted row's are dead
+    boolean replacing = row >= 0 && this.isLive(row);
+    if (row < 0) {
+      row = this.rows;
+      for (OffHeapArray column : this.columns) {
+        column.ensureCapacity(row + 1);
+      }
+      this.rows++;
+      this.addSlot(listing.getId(), row);
+    } else if (!replacing) {
+      this.deletedRows--;
+    } else {
+      this.unindex(row);
+    }
+
+    this.ids.putLong(row, listing.getId());
+    this.prices.putFloat(row, listing.getPrice() == null ? Float.NaN : listing.getPrice());
+    this.flags.putByte(row, Boolean.TRUE.equals(listing.getAvailable()) ? AVAILABLE : 0);
+    this.sellers.putInt(row, this.sellerDictionary.encode(listing.getSellerId()));
+    this.categories.putInt(row, this.categoryDictionary.encode(listing.getCategory()));
+    this.conditions.putInt(row, this.conditionDictionary.encode(listing.getCondition()));
+    this.setText(this.titles, row, listing.getTitle(), replacing);
+    this.setText(this.descriptions, row, listing.getDescription(), replacing);
+    this.setText(this.imageUrls, row, listing.getImageUrl(), replacing);
+    this.setTags(row, listing.getTags(), replacing);
+    this.index(row);
+    this.compactIfMostlyDead();
+    return row;
+  }
+
+  private void delete(Long listingId) {
+    int row = this.rowOf(listingId);
+    if (row >= 0 && (this.flags.getByte(row) & DELETED) == 0) {
+      this.unindex(row);
+      // the row and its id slot stay, so the id keeps pointing at a row that is skipped
+      this.flags.putByte(row, DELETED);
+      this.deletedRows++;
+      for (OffHeapArray column : this.textColumns) {
+        this.deadText += Math.max(lengthOf(column.getLong(row)), 0);
+      }
+      this.deadTags += lengthOf(this.tagRefs.getLong(row));
+      this.compactIfMostlyDead();
+    }
+  }
+
+  /* ARENA COMPACTION, under the write lock */
+
+  // Copies the live values into fresh arenas once dead ones are the majority of an arena. Each copy
+  // is O(live bytes) and only follows at least as many dead bytes, so it is amortized over the
+  // writes that made them.
+  private void compactIfMostlyDead() {
+    if (this.textEnd >= INITIAL_TEXT_BYTES && 2L * this.deadText > this.textEnd) {
+      this.compactText();
+    }
+    if (this.tagEnd >= INITIAL_ROWS && 2L * this.deadTags > this.tagEnd) {
+      this.compactTags();
+    }
+  }
+
+  private void compactText() {
+    OffHeapArray compacted =
+        new OffHeapArray(1, Math.max(INITIAL_TEXT_BYTES, this.textEnd - this.deadText));
+    int end = 0;
+    for (int row = 0; row < this.rows; row++) {
+      for (OffHeapArray column : this.textColumns) {
+        long ref = column.getLong(row);
+        if (!this.isLive(row) || lengthOf(ref) == NULL_LENGTH) {
+          // a deleted row's text is not copied, so it must not point into the new arena
+          column.putLong(row, ref(0, NULL_LENGTH));
+          continue;
+        }
+        byte[] bytes = new byte[lengthOf(ref)];
+        this.text.getBytes(offsetOf(ref), bytes);
+        compacted.ensureCapacity(end + bytes.length);
+        compacted.putBytes(end, bytes);
+        column.putLong(row, ref(end, bytes.length));
+        end += bytes.length;
+      }
+    }
+    this.text = compacted;
+    this.textEnd = end;
+    this.deadText = 0;
+  }
+
+  private void compactTags() {
+    OffHeapArray compacted =
+        new OffHeapArray(Integer.BYTES, Math.max(INITIAL_ROWS, this.tagEnd - this.deadTags));
+    int end = 0;
+    for (int row = 0; row < this.rows; row++) {
+      long ref = this.tagRefs.getLong(row);
+      int count = this.isLive(row) ? lengthOf(ref) : 0;
+      compacted.ensureCapacity(end + count);
+      for (int i = 0; i < count; i++) {
+        compacted.putInt(end + i, this.tagCodes.getInt(offsetOf(ref) + i));
+      }
+      this.tagRefs.putLong(row, ref(end, count));
+      end += count;
+    }
+    this.tagCodes = compacted;
+    this.tagEnd = end;
+    this.deadTags = 0;
+  }
+
+  // The bitmap of a dictionary code, created on first use
+  private static RowBitmap bitmapOf(List<RowBitmap> bitmaps, int code) {
+    while (bitmaps.size() <= code) {
+      bitmaps.add(new RowBitmap());
+    }
+    return bitmaps.get(code);
+  }
+
+  // Adds a live row to the bitmaps of its current column values
+  private void index(int row) {
+    if (this.flags.getByte(row) == AVAILABLE) {
+      this.availableRows.add(row);
+    }
+    int category = this.categories.getInt(row);
+    if (category != StringDictionary.NULL) {
+      bitmapOf(this.categoryRows, category).add(row);
+    }
+    long ref = this.tagRefs.getLong(row);
+    for (int i = 0; i < lengthOf(ref); i++) {
+      bitmapOf(this.tagRows, this.tagCodes.getInt(offsetOf(ref) + i)).add(row);
+    }
+  }
+
+  // Removes a live row from the bitmaps, before its column values change
+  private void unindex(int row) {
+    this.availableRows.remove(row);
+    int category = this.categories.getInt(row);
+    if (category != StringDictionary.NULL) {
+      bitmapOf(this.categoryRows, category).remove(row);
+    }
+    long ref = this.tagRefs.getLong(row);
+    for (int i = 0; i < lengthOf(ref); i++) {
+      bitmapOf(this.tagRows, this.tagCodes.getInt(offsetOf(ref) + i)).remove(row);
+    }
+  }
+
+  private static int slotHash(long id) {
+    return (int) ((id * 0x9E3779B97F4A7C15L) >>> 32);
+  }
+
+  // The row of a listing id (deleted or not), or -1
+  private int rowOf(long id) {
+    int mask = this.slots - 1;
+    for (int slot = slotHash(id) & mask; ; slot = (slot + 1) & mask) {
+      int stored = this.slotRows.getInt(slot);
+      if (stored == 0) {
+        return -1;
+      }
+      if (this.slotIds.getLong(slot) == id) {
+        return stored - 1;
+      }
+    }
+  }
+
+  private void addSlot(long id, int row) {
+    // keep the table at most half full so probe runs stay short
+    if (2 * this.rows > this.slots) {
+      this.slots *= 2;
+      this.slotIds = new OffHeapArray(Long.BYTES, this.slots);
+      this.slotRows = new OffHeapArray(Integer.BYTES, this.slots);
+      for (int r = 0; r < this.rows - 1; r++) {
+        this.fillSlot(this.ids.getLong(r), r);
+      }
+    }
+    this.fillSlot(id, row);
+  }
+
+  private void fillSlot(long id, int row) {
+    int mask = this.slots - 1;
+    int slot = slotHash(id) & mask;
+    while (this.slotRows.getInt(slot) != 0) {
+      slot = (slot + 1) & mask;
+    }
+    this.slotIds.putLong(slot, id);
+    this.slotRows.putInt(slot, row + 1);
+  }
+
+  /* READING ROWS, under the read lock */
+
+  private boolean isLive(int row) {
+    return (this.flags.getByte(row) & DELETED) == 0;
+  }
+
+  private String textAt(OffHeapArray column, int row) {
+    long ref = column.getLong(row);
+    if (lengthOf(ref) == NULL_LENGTH) {
+      return null;
+    }
+    byte[] bytes = new byte[lengthOf(ref)];
+    this.text.getBytes(offsetOf(ref), bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private List<String> tagsAt(int row) {
+    long ref = this.tagRefs.getLong(row);
+    List<String> tags = new ArrayList<>(lengthOf(ref));
+    for (int i = 0; i < lengthOf(ref); i++) {
+      tags.add(this.tagDictionary.decode(this.tagCodes.getInt(offsetOf(ref) + i)));
+    }
+    return tags;
+  }
+
+  private Float priceAt(int row) {
+    float price = this.prices.getFloat(row);
+    return Float.isNaN(price) ? null : price;
+  }
+
+  // Builds the Listing of a row, decoding only the requested fields
+  private Listing materialize(int row, ListingFields fields) {
+    return new Listing(
+        this.ids.getLong(row),
+        fields.contains("seller_id")
+            ? this.sellerDictionary.decode(this.sellers.getInt(row))
+            : null,
+        fields.contains("title") ? this.textAt(this.titles, row) : null,
+        fields.contains("description") ? this.textAt(this.descriptions, row) : null,
+        fields.contains("price") ? this.priceAt(row) : null,
+        fields.contains("category")
+            ? this.categoryDictionary.decode(this.categories.getInt(row))
+            : null,
+        fields.contains("condition")
+            ? this.conditionDictionary.decode(this.conditions.getInt(row))
+            : null,
+        fields.contains("image_url") ? this.textAt(this.imageUrls, row) : null,
+        fields.contains("tags") ? this.tagsAt(row) : null,
+        fields.contains("available") ? (this.flags.getByte(row) & AVAILABLE) != 0 : null);
+  }
+
+  // Compares a row to a (price, id) key in the keyset order of ListingCursor.comparator
+  private int compareTo(int row, float price, long id, Sorter sorter) {
+    long rowId = this.ids.getLong(row);
+    if (sorter == null) {
+      return Long.compare(rowId, id);
+    }
+    int compared = Float.compare(this.prices.getFloat(row), price);
+    if (compared == 0) {
+      compared = Long.compare(rowId, id);
+    }
+    return sorter == Sorter.PRICE_DESC ? -compared : compared;
+  }
+
+  /* QUERIES */
+
+  /**
+   * The filters of a search. Availability, category and tags are resolved up front into the bitmap
+   * of candidate rows; price and text (title or description) are checked per candidate.
+   */
+  private final class Filter {
+    private final String titleQuery;
+    private final Float minPrice;
+    private final Float maxPrice;
+    private final RowBitmap candidates;
+
+    Filter(String title, String category, Float minPrice, Float maxPrice, List<String> tags) {
+      this.titleQuery = title == null || title.trim().isEmpty() ? null : title.trim().toLowerCase();
+      this.minPrice = minPrice;
+      this.maxPrice = maxPrice;
+
+      RowBitmap candidates = availableRows;
+      if (category != null) {
+        int code = categoryDictionary.find(category);
+        candidates =
+            code == StringDictionary.NULL
+                ? new RowBitmap()
+                : RowBitmap.and(candidates, bitmapOf(categoryRows, code));
+      }
+      if (tags != null && !tags.isEmpty()) {
+        RowBitmap anyTag = new RowBitmap();
+        for (String tag : tags) {
+          int code = tagDictionary.find(tag);
+          if (code != StringDictionary.NULL) {
+            anyTag = RowBitmap.or(anyTag, bitmapOf(tagRows, code));
+          }
+        }
+        candidates = RowBitmap.and(candidates, anyTag);
+      }
+      this.candidates = candidates;
+    }
+
+    // checks the price column first and decodes the title and description last
+    boolean matches(int row) {
+      float price = prices.getFloat(row);
+      if ((this.minPrice != null && !(price >= this.minPrice))
+          || (this.maxPrice != null && !(price <= this.maxPrice))) {
+        return false;
+      }
+      if (this.titleQuery != null) {
+        String title = textAt(titles, row);
+        if (title != null && title.toLowerCase().contains(this.titleQuery)) {
+          return true;
+        }
+        String description = textAt(descriptions, row);
+        return description != null && description.toLowerCase().contains(this.titleQuery);
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Finds the matching rows after the cursor, in keyset order. Must be called under the read lock.
+   *
+   * @param limit at most this many rows are returned; only that many are ever held and sorted
+   * @return the rows
+   */
+  private List<Integer> select(Filter filter, Sorter sorter, ListingCursor after, int limit) {
+    List<Integer> selected = new ArrayList<>();
+    Comparator<Integer> order =
+        (a, b) -> this.compareTo(a, this.prices.getFloat(b), this.ids.getLong(b), sorter);
+    // for a page, keep only the best rows seen so far, worst on top
+    PriorityQueue<Integer> best =
+        limit == Integer.MAX_VALUE ? null : new PriorityQueue<>(order.reversed());
+
+    filter.candidates.forEach(
+        row -> {
+          if (!filter.matches(row)
+              || (after != null
+                  && this.compareTo(row, after.getPrice(), after.getId(), sorter) <= 0)) {
+            return;
+          }
+          if (best == null) {
+            selected.add(row);
+          } else {
+            best.add(row);
+            if (best.size() > limit) {
+              best.poll();
+            }
+          }
+        });
+    if (best != null) {
+      selected.addAll(best);
+    }
+    selected.sort(order);
+    return selected;
+  }
+
+  @Override
+  public List<Listing> getListings(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter) {
+    return this.getListings(title, category, minPrice, maxPrice, tags, sorter, ListingFields.ALL);
+  }
+
+  @Override
+  public List<Listing> getListings(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter,
+      ListingFields fields) {
+    this.lock.readLock().lock();
+    try {
+      Filter filter = new Filter(title, category, minPrice, maxPrice, tags);
+      List<Listing> listings = new ArrayList<>();
+      for (int row : this.select(filter, sorter, null, Integer.MAX_VALUE)) {
+        listings.add(this.materialize(row, fields));
+      }
+      return listings;
+    } finally {
+      this.lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void forEachListing(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter,
+      ListingVisitor visitor)
+      throws IOException {
+    this.forEachListing(
+        title, category, minPrice, maxPrice, tags, sorter, ListingFields.ALL, visitor);
+  }
+
+  @Override
+  public void forEachListing(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter,
+      ListingFields fields,
+      ListingVisitor visitor)
+      throws IOException {
+    List<Integer> rows;
+    this.lock.readLock().lock();
+    try {
+      rows =
+          this.select(
+              new Filter(title, category, minPrice, maxPrice, tags),
+              sorter,
+              null,
+              Integer.MAX_VALUE);
+    } finally {
+      this.lock.readLock().unlock();
+    }
+    this.visitRows(rows, fields, visitor);
+  }
+
+  // Materializes rows a chunk at a time, so the visitor (which may write to a slow client) never
+  // runs under the lock and only one chunk of Listing objects exists at once
+  private void visitRows(List<Integer> rows, ListingFields fields, ListingVisitor visitor)
+      throws IOException {
+    for (int start = 0; start < rows.size(); start += STREAM_CHUNK) {
+      List<Listing> chunk = new ArrayList<>(STREAM_CHUNK);
+      this.lock.readLock().lock();
+      try {
+        for (int row : rows.subList(start, Math.min(start + STREAM_CHUNK, rows.size()))) {
+          // skip rows deleted since they were selected
+          if (this.isLive(row)) {
+            chunk.add(this.materialize(row, fields));
+          }
+        }
+      } finally {
+        this.lock.readLock().unlock();
+      }
+      for (Listing listing : chunk) {
+        visitor.visit(listing);
+      }
+    }
+  }
+
+  @Override
+  public ListingPage getListingsPage(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter,
+      int limit,
+      String cursor) {
+    return this.getListingsPage(
+        title, category, minPrice, maxPrice, tags, sorter, limit, cursor, ListingFields.ALL);
+  }
+
+  @Override
+  public ListingPage getListingsPage(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter,
+      int limit,
+      String cursor,
+      ListingFields fields) {
+    if (limit <= 0) {
+      throw new IllegalArgumentException("Limit must be positive");
+    }
+    ListingCursor position = ListingCursor.decode(cursor, sorter);
+
+    this.lock.readLock().lock();
+    try {
+      // select one extra row to learn whether there is a next page
+      List<Integer> rows =
+          this.select(
+              new Filter(title, category, minPrice, maxPrice, tags), sorter, position, limit + 1);
+      String nextCursor = null;
+      if (rows.size() > limit) {
+        rows = rows.subList(0, limit);
+        int last = rows.get(limit - 1);
+        // built from the columns, since the projection may leave the price out
+        nextCursor =
+            new ListingCursor(sorter, this.prices.getFloat(last), this.ids.getLong(last)).encode();
+      }
+      List<Listing> listings = new ArrayList<>(rows.size());
+      for (int row : rows) {
+        listings.add(this.materialize(row, fields));
+      }
+      return new ListingPage(listings, nextCursor);
+    } finally {
+      this.lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public Optional<Listing> getListingById(Long listingId) {
+    return Optional.ofNullable(this.obtainListing(listingId));
+  }
+
+  @Override
+  public Listing obtainListing(Long listingId) {
+    this.lock.readLock().lock();
+    try {
+      int row = this.rowOf(listingId);
+      return row >= 0 && this.isLive(row) ? this.materialize(row, ListingFields.ALL) : null;
+    } finally {
+      this.lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public Map<Long, Listing> obtainListings(Collection<Long> listingIds) {
+    return this.obtainListings(listingIds, ListingFields.ALL);
+  }
+
+  @Override
+  public Map<Long, Listing> obtainListings(Collection<Long> listingIds, ListingFields fields) {
+    Map<Long, Listing> listings = new HashMap<>();
+    this.lock.readLock().lock();
+    try {
+      for (Long listingId : listingIds) {
+        int row = this.rowOf(listingId);
+        if (row >= 0 && this.isLive(row)) {
+          listings.put(listingId, this.materialize(row, fields));
+        }
+      }
+    } finally {
+      this.lock.readLock().unlock();
+    }
+    return listings;
+  }
+
+  // The live rows of a seller, available or not, in id order. Must be called under the read lock
+  private List<Integer> sellerRows(String sellerId) {
+    List<Integer> rows = new ArrayList<>();
+    int code = this.sellerDictionary.find(sellerId);
+    if (code == StringDictionary.NULL) {
+      return rows;
+    }
+    for (int row = 0; row < this.rows; row++) {
+      if (this.sellers.getInt(row) == code && this.isLive(row)) {
+        rows.add(row);
+      }
+    }
+    rows.sort(Comparator.comparingLong(this.ids::getLong));
+    return rows;
+  }
+
+  @Override
+  public List<Listing> getListingsBySellerId(String sellerId) {
+    this.lock.readLock().lock();
+    try {
+      List<Listing> listings = new ArrayList<>();
+      for (int row : this.sellerRows(sellerId)) {
+        listings.add(this.materialize(row, ListingFields.ALL));
+      }
+      return listings;
+    } finally {
+      this.lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void forEachListingBySellerId(String sellerId, ListingVisitor visitor) throws IOException {
+    this.forEachListingBySellerId(sellerId, ListingFields.ALL, visitor);
+  }
+
+  @Override
+  public void forEachListingBySellerId(
+      String sellerId, ListingFields fields, ListingVisitor visitor) throws IOException {
+    List<Integer> rows;
+    this.lock.readLock().lock();
+    try {
+      rows = this.sellerRows(sellerId);
+    } finally {
+      this.lock.readLock().unlock();
+    }
+    this.visitRows(rows, fields, visitor);
+  }
+
+  @Override
+  public Map<String, Object> getStats() {
+    Map<String, Object> stats = new HashMap<>(this.backing.getStats());
+    this.lock.readLock().lock();
+    try {
+      long offHeapBytes = this.text.bytes() + this.tagCodes.bytes();
+      offHeapBytes += this.slotIds.bytes() + this.slotRows.bytes();
+      for (OffHeapArray column : this.columns) {
+        offHeapBytes += column.bytes();
+      }
+      Map<String, Object> columnStats = new HashMap<>();
+      columnStats.put("rows", this.rows - this.deletedRows);
+      columnStats.put("deleted_rows", this.deletedRows);
+      columnStats.put("off_heap_bytes", offHeapBytes);
+      columnStats.put("text_bytes", this.textEnd);
+      columnStats.put("dead_text_bytes", this.deadText);
+      columnStats.put("categories", this.categoryDictionary.size());
+      columnStats.put("tags", this.tagDictionary.size());
+      columnStats.put("sellers", this.sellerDictionary.size());
+      columnStats.put("available_rows", this.availableRows.cardinality());
+      stats.put("listing_columns", columnStats);
+    } finally {
+      this.lock.readLock().unlock();
+    }
+    return stats;
+  }
+
+  /* WRITE-THROUGH FUNCTIONS */
+
+  @Override
+  public Long createListing(
+      String sellerId,
+      String title,
+      boolean isAvailable,
+      String description,
+      float price,
+      String category,
+      String condition,
+      String imageUrl,
+      List<String> tags)
+      throws IllegalArgumentException, SQLException {
+    Long listingId =
+        this.backing.createListing(
+            sellerId, title, isAvailable, description, price, category, condition, imageUrl, tags);
+    this.lock.writeLock().lock();
+    try {
+      this.put(
+          new Listing(
+              listingId,
+              sellerId,
+              title,
+              description,
+              price,
+              category,
+              condition,
+              imageUrl,
+              tags,
+              isAvailable));
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+    return listingId;
+  }
+
+  @Override
+  public List<Long> createListings(List<Listing> listings)
+      throws IllegalArgumentException, SQLException {
+    List<Long> listingIds = this.backing.createListings(listings);
+
+    this.lock.writeLock().lock();
+    try {
+      for (int i = 0; i < listings.size(); i++) {
+        Listing listing = listings.get(i);
+        this.put(
+            new Listing(
+                listingIds.get(i),
+                listing.getSellerId(),
+                listing.getTitle(),
+                listing.getDescription(),
+                listing.getPrice(),
+                listing.getCategory(),
+                listing.getCondition(),
+                listing.getImageUrl(),
+                listing.getTags(),
+                listing.getAvailable()));
+      }
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+    return listingIds;
+  }
+
+  @Override
+  public boolean updateListing(Long listingId, Listing updatedListing) {
+    if (!this.backing.updateListing(listingId, updatedListing)) {
+      return false;
+    }
+
+    this.lock.writeLock().lock();
+    try {
+      int row = this.rowOf(listingId);
+      if (row >= 0 && this.isLive(row)) {
+        this.put(MockStorage.merge(this.materialize(row, ListingFields.ALL), updatedListing));
+      }
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+    return true;
+  }
+
+  @Override
+  public boolean deleteListing(Long listingId) {
+    if (!this.backing.deleteListing(listingId)) {
+      return false;
+    }
+    this.lock.writeLock().lock();
+    try {
+      this.delete(listingId);
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+    return true;
+  }
+
+  /* USER FUNCTIONS */
+
+  @Override
+  public Long createUser(
+      String clerkId, String email, String name, String phoneNumber, String school)
+      throws IllegalArgumentException, SQLException {
+    return this.backing.createUser(clerkId, email, name, phoneNumber, school);
+  }
+
+  @Override
+  public User getUser(String clerkId) throws Exception {
+    return this.backing.getUser(clerkId);
+  }
+
+  @Override
+  public boolean updateUser(String userId, User updatedUser) {
+    return this.backing.updateUser(userId, updatedUser);
+  }
+}
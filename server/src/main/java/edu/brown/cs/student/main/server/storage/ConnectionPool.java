@@ -0,0 +1,311 @@
+package edu.brown.cs.student.main.server.storage;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of JDBC connections to a single database URL.
+ *
+ * <p>Connections handed out by {@link #getConnection()} are proxies: calling {@code close()} on
+ * them returns the underlying physical connection to the pool instead of closing it, so callers
+ * keep using try-with-resources exactly as they would with {@link DriverManager}. Idle connections
+ * are validated before reuse, acquiring blocks for at most the configured timeout, and connections
+ * held longer than the leak threshold are reported together with the stack trace that borrowed
+ * them.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+  /** Opens a new physical connection; {@link DriverManager} by default, swappable for tests. */
+  @FunctionalInterface
+  public interface ConnectionFactory {
+    Connection open() throws SQLException;
+  }
+
+  private final ConnectionFactory factory;
+  private final int maxSize;
+  private final long acquireTimeoutMillis;
+  private final long validationIntervalMillis;
+  private final long leakThresholdMillis;
+
+  private final LinkedBlockingDeque<PhysicalConnection> idle = new LinkedBlockingDeque<>();
+  private final Set<Lease> leased = ConcurrentHashMap.newKeySet();
+  private final Semaphore permits;
+  private final ScheduledExecutorService leakDetector;
+  private volatile boolean closed = false;
+
+  private final AtomicLong totalCreated = new AtomicLong();
+  private final AtomicLong totalAcquired = new AtomicLong();
+  private final AtomicLong totalTimeouts = new AtomicLong();
+  private final AtomicLong totalValidationFailures = new AtomicLong();
+  private final AtomicLong totalLeaks = new AtomicLong();
+  private final AtomicLong totalWaitNanos = new AtomicLong();
+
+  /**
+   * Creates a pool that opens connections with {@link DriverManager}.
+   *
+   * @param jdbcUrl the JDBC url, including credentials
+   * @param maxSize the maximum number of open connections
+   * @param acquireTimeoutMillis how long {@link #getConnection()} waits for a free connection
+   * @param leakThresholdMillis how long a connection may be held before it is reported as leaked; 0
+   *     disables leak detection
+   */
+  public ConnectionPool(
+      String jdbcUrl, int maxSize, long acquireTimeoutMillis, long leakThresholdMillis) {
+    this(
+        () -> DriverManager.getConnection(jdbcUrl),
+        maxSize,
+        acquireTimeoutMillis,
+        30_000,
+        leakThresholdMillis);
+  }
+
+  public ConnectionPool(
+      ConnectionFactory factory,
+      int maxSize,
+      long acquireTimeoutMillis,
+      long validationIntervalMillis,
+      long leakThresholdMillis) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("Pool size must be positive");
+    }
+    this.factory = factory;
+    this.maxSize = maxSize;
+    this.acquireTimeoutMillis = acquireTimeoutMillis;
+    this.validationIntervalMillis = validationIntervalMillis;
+    this.leakThresholdMillis = leakThresholdMillis;
+    this.permits = new Semaphore(maxSize, true);
+
+    if (leakThresholdMillis > 0) {
+      this.leakDetector =
+          Executors.newSingleThreadScheduledExecutor(
+              runnable -> {
+                Thread thread = new Thread(runnable, "connection-pool-leak-detector");
+                thread.setDaemon(true);
+                return thread;
+              });
+      long period = Math.max(leakThresholdMillis / 2, 1);
+      this.leakDetector.scheduleAtFixedRate(
+          this::detectLeaks, period, period, TimeUnit.MILLISECONDS);
+    } else {
+      this.leakDetector = null;
+    }
+  }
+
+  /**
+   * Borrows a connection from the pool, opening a new one if none is idle and the pool is below its
+   * maximum size. The returned connection must be closed to give it back.
+   *
+   * @return a pooled connection
+   * @throws SQLTimeoutException if no connection became free within the acquire timeout
+   * @throws SQLException if a new connection could not be opened
+   */
+  public Connection getConnection() throws SQLException {
+    if (this.closed) {
+      throw new SQLException("Connection pool is closed");
+    }
+
+    long start = System.nanoTime();
+    try {
+      if (!this.permits.tryAcquire(this.acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+        this.totalTimeouts.incrementAndGet();
+        throw new SQLTimeoutException(
+            "Timed out after " + this.acquireTimeoutMillis + "ms waiting for a connection");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted while waiting for a connection", e);
+    }
+    this.totalWaitNanos.addAndGet(System.nanoTime() - start);
+
+    try {
+      PhysicalConnection physical = this.takeValidIdle();
+      if (physical == null) {
+        physical = new PhysicalConnection(this.factory.open());
+        this.totalCreated.incrementAndGet();
+      }
+      this.totalAcquired.incrementAndGet();
+
+      Lease lease = new Lease(physical, this.leakThresholdMillis > 0 ? new Exception() : null);
+      this.leased.add(lease);
+      return (Connection)
+          Proxy.newProxyInstance(
+              Connection.class.getClassLoader(), new Class<?>[] {Connection.class}, lease);
+    } catch (SQLException | RuntimeException e) {
+      this.permits.release();
+      throw e;
+    }
+  }
+
+  // Pops idle connections until one passes validation; returns null if the idle queue runs dry
+  private PhysicalConnection takeValidIdle() {
+    PhysicalConnection candidate;
+    while ((candidate = this.idle.pollFirst()) != null) {
+      long idleFor = System.currentTimeMillis() - candidate.lastUsed;
+      if (idleFor < this.validationIntervalMillis || this.isValid(candidate)) {
+        return candidate;
+      }
+      this.totalValidationFailures.incrementAndGet();
+      candidate.closeQuietly();
+    }
+    return null;
+  }
+
+  private boolean isValid(PhysicalConnection candidate) {
+    try {
+      return candidate.connection.isValid(2);
+    } catch (SQLException e) {
+      return false;
+    }
+  }
+
+  private void release(Lease lease) {
+    if (!this.leased.remove(lease)) {
+      return;
+    }
+    PhysicalConnection physical = lease.physical;
+    try {
+      if (this.closed || physical.connection.isClosed()) {
+        physical.closeQuietly();
+      } else {
+        // Hand the connection back in the state a fresh one would be in
+        if (!physical.connection.getAutoCommit()) {
+          physical.connection.rollback();
+          physical.connection.setAutoCommit(true);
+        }
+        physical.lastUsed = System.currentTimeMillis();
+        this.idle.offerFirst(physical);
+      }
+    } catch (SQLException e) {
+      physical.closeQuietly();
+    } finally {
+      this.permits.release();
+    }
+  }
+
+  private void detectLeaks() {
+    long now = System.currentTimeMillis();
+    for (Lease lease : this.leased) {
+      if (now - lease.borrowedAt > this.leakThresholdMillis
+          && lease.reported.compareAndSet(false, true)) {
+        this.totalLeaks.incrementAndGet();
+        System.err.println(
+            "Possible connection leak: connection held for "
+                + (now - lease.borrowedAt)
+                + "ms, acquired at:");
+        lease.acquiredAt.printStackTrace();
+      }
+    }
+  }
+
+  /**
+   * Snapshot of the pool's counters, suitable for serializing into a stats response.
+   *
+   * @return a map from stat name to value
+   */
+  public Map<String, Object> getStats() {
+    Map<String, Object> stats = new LinkedHashMap<>();
+    long acquired = this.totalAcquired.get();
+    stats.put("max_size", this.maxSize);
+    stats.put("active", this.leased.size());
+    stats.put("idle", this.idle.size());
+    stats.put("waiting", this.permits.getQueueLength());
+    stats.put("total_created", this.totalCreated.get());
+    stats.put("total_acquired", acquired);
+    stats.put("total_timeouts", this.totalTimeouts.get());
+    stats.put("total_validation_failures", this.totalValidationFailures.get());
+    stats.put("total_leaks_detected", this.totalLeaks.get());
+    stats.put(
+        "avg_acquire_wait_micros",
+        acquired == 0 ? 0 : this.totalWaitNanos.get() / acquired / 1_000);
+    return stats;
+  }
+
+  /** Closes every idle connection; leased connections are closed as they are returned. */
+  @Override
+  public void close() {
+    this.closed = true;
+    if (this.leakDetector != null) {
+      this.leakDetector.shutdownNow();
+    }
+    PhysicalConnection physical;
+    while ((physical = this.idle.pollFirst()) != null) {
+      physical.closeQuietly();
+    }
+  }
+
+  private static class PhysicalConnection {
+    private final Connection connection;
+    private volatile long lastUsed = System.currentTimeMillis();
+
+    private PhysicalConnection(Connection connection) {
+      this.connection = connection;
+    }
+
+    private void closeQuietly() {
+      try {
+        this.connection.close();
+      } catch (SQLException ignored) {
+        // the connection is being discarded anyway
+      }
+    }
+  }
+
+  // One borrow of a physical connection; also the proxy's invocation handler
+  private class Lease implements InvocationHandler {
+    private final PhysicalConnection physical;
+    private final Exception acquiredAt;
+    private final long borrowedAt = System.currentTimeMillis();
+    private final AtomicBoolean returned = new AtomicBoolean(false);
+    private final AtomicBoolean reported = new AtomicBoolean(false);
+
+    private Lease(PhysicalConnection physical, Exception acquiredAt) {
+      this.physical = physical;
+      this.acquiredAt = acquiredAt;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "close":
+          if (this.returned.compareAndSet(false, true)) {
+            ConnectionPool.this.release(this);
+          }
+          return null;
+        case "isClosed":
+          return this.returned.get() || this.physical.connection.isClosed();
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "toString":
+          return "Pooled" + this.physical.connection;
+        default:
+          if (this.returned.get()) {
+            throw new SQLException("Connection has already been returned to the pool");
+          }
+          try {
+            return method.invoke(this.physical.connection, args);
+          } catch (InvocationTargetException e) {
+            throw e.getCause();
+          }
+      }
+    }
+  }
+}
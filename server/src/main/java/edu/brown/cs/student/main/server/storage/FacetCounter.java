@@ -0,0 +1,175 @@
+package edu.brown.cs.student.main.server.storage;
+
+import edu.brown.cs.student.main.server.classes.Listing;
+import edu.brown.cs.student.main.server.classes.ListingFacets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Accumulates the facet counts of a listing search in one pass, either one listing at a time or
+ * from counts that were already grouped (by the database, or by another shard).
+ *
+ * <p>The price histogram is described by its bucket boundaries: boundaries b1 < b2 < ... < bn give
+ * the buckets [0, b1), [b1, b2), ..., [bn, infinity), so bucket i holds the prices with exactly i
+ * boundaries at or below them (what Postgres' width_bucket computes).
+ *
+ * <p>Categories and tags are counted by their {@link ValueInterner#LISTING_VALUES} id, into an
+ * array: counting a listing then costs an id lookup and an increment, with no boxed count per
+ * value. Values the dictionary has no room for are counted by name instead.
+ */
+public class FacetCounter {
+  /** The fields a listing must be loaded with to be counted. */
+  public static final ListingFields FIELDS = ListingFields.parse("category,price,tags");
+
+  private final List<Float> priceBoundaries;
+  private long total;
+  private final Counts categories = new Counts();
+  private final Counts tags = new Counts();
+  private final long[] priceCounts;
+
+  /**
+   * @param priceBoundaries the ascending histogram bucket boundaries
+   * @throws IllegalArgumentException if the boundaries are not positive and ascending
+   */
+  public FacetCounter(List<Float> priceBoundaries) {
+    for (int i = 0; i < priceBoundaries.size(); i++) {
+      if (priceBoundaries.get(i) <= (i == 0 ? 0 : priceBoundaries.get(i - 1))) {
+        throw new IllegalArgumentException("Price buckets must be positive and ascending");
+      }
+    }
+    this.priceBoundaries = List.copyOf(priceBoundaries);
+    this.priceCounts = new long[priceBoundaries.size() + 1];
+  }
+
+  /**
+   * Counts one matching listing.
+   *
+   * @param listing a listing loaded with at least {@link #FIELDS}
+   */
+  public void add(Listing listing) {
+    this.total++;
+    this.addCategory(listing.getCategory(), 1);
+    if (listing.getTags() != null) {
+      for (String tag : listing.getTags()) {
+        this.addTag(tag, 1);
+      }
+    }
+    if (listing.getPrice() != null) {
+      this.addPriceBucket(this.bucketOf(listing.getPrice()), 1);
+    }
+  }
+
+  /**
+   * Adds counts computed elsewhere for the same price boundaries, e.g. another shard's.
+   *
+   * @param facets untrimmed facet counts
+   */
+  public void add(ListingFacets facets) {
+    this.addTotal(facets.getTotal());
+    facets.getCategories().forEach(this::addCategory);
+    facets.getTags().forEach(this::addTag);
+    for (int i = 0; i < facets.getPriceHistogram().size(); i++) {
+      this.addPriceBucket(i, facets.getPriceHistogram().get(i).getCount());
+    }
+  }
+
+  public void addTotal(long count) {
+    this.total += count;
+  }
+
+  public void addCategory(String category, long count) {
+    if (category != null) {
+      this.categories.add(category, count);
+    }
+  }
+
+  public void addTag(String tag, long count) {
+    if (tag != null) {
+      this.tags.add(tag, count);
+    }
+  }
+
+  /**
+   * @param bucket the bucket index, from 0 to the number of boundaries
+   * @param count listings in the bucket
+   */
+  public void addPriceBucket(int bucket, long count) {
+    this.priceCounts[bucket] += count;
+  }
+
+  // the number of boundaries at or below the price
+  private int bucketOf(float price) {
+    int index = Collections.binarySearch(this.priceBoundaries, price);
+    // a price on a boundary opens the bucket above it
+    return index < 0 ? -index - 1 : index + 1;
+  }
+
+  /**
+   * @param topTags how many of the most common tags to keep
+   * @return the counts so far
+   */
+  public ListingFacets build(int topTags) {
+    List<ListingFacets.PriceBucket> histogram = new ArrayList<>();
+    for (int i = 0; i < this.priceCounts.length; i++) {
+      histogram.add(
+          new ListingFacets.PriceBucket(
+              i == 0 ? 0 : this.priceBoundaries.get(i - 1),
+              i < this.priceBoundaries.size() ? this.priceBoundaries.get(i) : null,
+              this.priceCounts[i]));
+    }
+    return new ListingFacets(
+        this.total,
+        mostCommon(this.categories.toMap(), Integer.MAX_VALUE),
+        mostCommon(this.tags.toMap(), topTags),
+        histogram);
+  }
+
+  // Counts per value of one facet
+  private static final class Counts {
+    // indexed by dictionary id; grown to the largest id seen
+    private long[] byId = new long[16];
+    // the ids counted at all, even with a count of 0
+    private final BitSet seen = new BitSet();
+    private final Map<String, Long> byName = new HashMap<>();
+
+    void add(String value, long count) {
+      int id = ValueInterner.LISTING_VALUES.encode(value);
+      if (id == ValueInterner.NONE) {
+        this.byName.merge(value, count, Long::sum);
+        return;
+      }
+      if (id >= this.byId.length) {
+        this.byId = Arrays.copyOf(this.byId, Math.max(id + 1, this.byId.length * 2));
+      }
+      this.byId[id] += count;
+      this.seen.set(id);
+    }
+
+    Map<String, Long> toMap() {
+      Map<String, Long> counts = new HashMap<>(this.byName);
+      for (int id = this.seen.nextSetBit(0); id >= 0; id = this.seen.nextSetBit(id + 1)) {
+        counts.put(ValueInterner.LISTING_VALUES.decode(id), this.byId[id]);
+      }
+      return counts;
+    }
+  }
+
+  // the limit largest counts, largest first and ties by name so the output is stable
+  private static Map<String, Long> mostCommon(Map<String, Long> counts, int limit) {
+    Map<String, Long> ordered = new LinkedHashMap<>();
+    counts.entrySet().stream()
+        .sorted(
+            Map.Entry.<String, Long>comparingByValue()
+                .reversed()
+                .thenComparing(Map.Entry.comparingByKey()))
+        .limit(limit)
+        .forEach(entry -> ordered.put(entry.getKey(), entry.getValue()));
+    return ordered;
+  }
+}
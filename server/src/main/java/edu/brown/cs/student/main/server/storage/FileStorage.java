@@ -0,0 +1,585 @@
+package edu.brown.cs.student.main.server.storage;
+
+import com.squareup.moshi.JsonAdapter;
+import edu.brown.cs.student.main.server.classes.Listing;
+import edu.brown.cs.student.main.server.classes.ListingPage;
+import edu.brown.cs.student.main.server.classes.User;
+import edu.brown.cs.student.main.server.handlers.Json;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * A storage backend that keeps everything in memory and persists it to files in one directory, for
+ * running without Postgres.
+ *
+ * <p>Every write is appended to a log ({@code log-N.dat}) and is only acknowledged once the log is
+ * synced to disk, with concurrent writers sharing fsyncs (see {@link AppendLog}). After every
+ * {@code snapshotEvery} writes the full state is written to a compacted snapshot ({@code
+ * snapshot-N.dat}) in the background, a new log is started, and the files it replaces are deleted.
+ * At startup the newest snapshot is read through a memory map and the logs written after it are
+ * replayed, so a crash (even kill -9) loses no acknowledged write. If the log ever fails to write
+ * or sync, every later write is refused until the storage is reopened.
+ *
+ * <p>Reads are answered by a {@link MockStorage} holding the current state. Like MockStorage, its
+ * searches do not hide unavailable listings, so the server serves it through {@link
+ * IndexedStorage}.
+ */
+public class FileStorage implements StorageInterface, Closeable {
+  // writes between snapshots by default; a snapshot rewrites every row, so it should stay rare
+  private static final int DEFAULT_SNAPSHOT_EVERY = 10_000;
+  private static final Pattern FILE_NAME = Pattern.compile("(log|snapshot)-(\\d+)\\.dat");
+
+  // the handlers' shared instance, so listings and users go through its hand-written adapters
+  private static final JsonAdapter<Entry> ENTRY_ADAPTER = Json.MOSHI.adapter(Entry.class);
+
+  /**
+   * One record of the log or a snapshot; records are idempotent, so replaying one twice is safe.
+   */
+  private static final class Entry {
+    static final String LISTINGS = "listings";
+    static final String DELETE = "delete";
+    static final String USER = "user";
+    static final String COUNTERS = "counters";
+
+    String op;
+    // LISTINGS: full listings to store, replacing any with the same id
+    List<Listing> listings;
+    // DELETE: the listing to remove
+    Long id;
+    // USER: a full user to store
+    User user;
+    // COUNTERS: the next ids to hand out, so ids of deleted rows are never reused
+    Long nextListingId;
+    Long nextUserId;
+
+    static Entry of(String op) {
+      Entry entry = new Entry();
+      entry.op = op;
+      return entry;
+    }
+  }
+
+  /**
+   * Builds the entry for a write from the current state, or returns null if there is nothing to do.
+   */
+  @FunctionalInterface
+  private interface Change {
+    Entry entry();
+  }
+
+  private final Path directory;
+  private final int snapshotEvery;
+  private final MockStorage memory = new MockStorage();
+  private final ExecutorService snapshotter =
+      Executors.newSingleThreadExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "file-storage-snapshot");
+            thread.setDaemon(true);
+            return thread;
+          });
+  private final AtomicBoolean snapshotPending = new AtomicBoolean();
+
+  // orders writes, so the log replays them in the order they were applied to memory
+  private final ReentrantLock writeLock = new ReentrantLock();
+  // all guarded by writeLock
+  private AppendLog log;
+  private long generation;
+  private long nextListingId = 1;
+  private long nextUserId = 1;
+  private long writesSinceSnapshot;
+  // Set once the log fails to write or sync. Memory then holds writes the disk may not, and a later
+  // fsync can report success without the lost pages ever reaching disk, so from here on the
+  // storage only serves reads; reopening it recovers exactly what is on disk.
+  private volatile IOException failure;
+
+  /**
+   * Opens (or creates) the storage in a directory, recovering its contents.
+   *
+   * @param directory where the log and snapshots are kept
+   * @throws IOException if the files cannot be read or written
+   */
+  public FileStorage(Path directory) throws IOException {
+    this(directory, DEFAULT_SNAPSHOT_EVERY);
+  }
+
+  /**
+   * @param directory where the log and snapshots are kept
+   * @param snapshotEvery how many writes trigger a new snapshot
+   * @throws IOException if the files cannot be read or written
+   */
+  public FileStorage(Path directory, int snapshotEvery) throws IOException {
+    this.directory = directory;
+    this.snapshotEvery = snapshotEvery;
+    Files.createDirectories(directory);
+
+    TreeSet<Long> snapshots = this.generations("snapshot");
+    TreeSet<Long> logs = this.generations("log");
+    long start = snapshots.isEmpty() ? 0 : snapshots.last();
+    if (!snapshots.isEmpty()) {
+      AppendLog.read(this.snapshotPath(start), this::replay);
+    }
+    // a log older than the snapshot is already part of it (its deletion was interrupted)
+    TreeSet<Long> newer = new TreeSet<>(logs.tailSet(start, true));
+    this.generation = newer.isEmpty() ? start : newer.last();
+    newer.remove(this.generation);
+    for (long older : newer) {
+      AppendLog.read(this.logPath(older), this::replay);
+    }
+    this.log = AppendLog.open(this.logPath(this.generation), this::replay);
+    this.syncDirectory();
+  }
+
+  /* PERSISTENCE */
+
+  private Path logPath(long generation) {
+    return this.directory.resolve("log-" + generation + ".dat");
+  }
+
+  private Path snapshotPath(long generation) {
+    return this.directory.resolve("snapshot-" + generation + ".dat");
+  }
+
+  // The generations of the files of one kind in the directory
+  private TreeSet<Long> generations(String kind) throws IOException {
+    TreeSet<Long> generations = new TreeSet<>();
+    try (Stream<Path> files = Files.list(this.directory)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        Matcher matcher = FILE_NAME.matcher(file.getFileName().toString());
+        if (matcher.matches() && matcher.group(1).equals(kind)) {
+          generations.add(Long.parseLong(matcher.group(2)));
+        }
+      }
+    }
+    return generations;
+  }
+
+  // Makes file creations, renames and deletions in the directory durable
+  private void syncDirectory() throws IOException {
+    try (FileChannel channel = FileChannel.open(this.directory, StandardOpenOption.READ)) {
+      channel.force(true);
+    }
+  }
+
+  private void replay(byte[] payload) throws IOException {
+    Entry entry = ENTRY_ADAPTER.fromJson(new String(payload, StandardCharsets.UTF_8));
+    if (entry == null) {
+      throw new IOException("Empty storage log record");
+    }
+    this.apply(entry);
+  }
+
+  // Applies an entry to memory, whether it was just written or is being replayed
+  private void apply(Entry entry) {
+    switch (entry.op) {
+      case Entry.LISTINGS:
+        this.memory.store(entry.listings);
+        for (Listing listing : entry.listings) {
+          this.nextListingId = Math.max(this.nextListingId, listing.getId() + 1);
+        }
+        break;
+      case Entry.DELETE:
+        this.memory.deleteListing(entry.id);
+        break;
+      case Entry.USER:
+        this.memory.storeUser(entry.user);
+        this.nextUserId = Math.max(this.nextUserId, entry.user.getId() + 1);
+        break;
+      case Entry.COUNTERS:
+        this.nextListingId = Math.max(this.nextListingId, entry.nextListingId);
+        this.nextUserId = Math.max(this.nextUserId, entry.nextUserId);
+        break;
+      default:
+        throw new IllegalStateException("Unknown storage log record: " + entry.op);
+    }
+  }
+
+  /**
+   * Logs a write and applies it, returning once it is durable.
+   *
+   * <p>The write is applied to memory before its fsync, so later writes build on it while the fsync
+   * is shared. If the log cannot be written or synced, the storage turns read-only rather than keep
+   * serving and building on writes that may not be on disk.
+   *
+   * @param change builds the entry under the write lock, so it sees every earlier write
+   * @return false if the change had nothing to do
+   * @throws UncheckedIOException if the log cannot be written, or failed to be before
+   */
+  private boolean commit(Change change) {
+    AppendLog target;
+    long offset;
+    boolean snapshotDue;
+    this.writeLock.lock();
+    try {
+      this.checkWritable();
+      Entry entry = change.entry();
+      if (entry == null) {
+        return false;
+      }
+      target = this.log;
+      // logged before it is applied, so a failed write leaves memory untouched
+      offset = target.append(ENTRY_ADAPTER.toJson(entry).getBytes(StandardCharsets.UTF_8));
+      this.apply(entry);
+      snapshotDue = ++this.writesSinceSnapshot >= this.snapshotEvery;
+    } catch (IOException e) {
+      // the record may be partly written
+      this.failure = e;
+      throw new UncheckedIOException("Could not write the storage log", e);
+    } finally {
+      this.writeLock.unlock();
+    }
+
+    try {
+      target.sync(offset);
+    } catch (IOException e) {
+      this.failure = e;
+      throw new UncheckedIOException("Could not sync the storage log", e);
+    }
+    // another writer's fsync may have covered this write and failed
+    this.checkWritable();
+    if (snapshotDue && this.snapshotPending.compareAndSet(false, true)) {
+      this.snapshotter.execute(
+          () -> {
+            try {
+              this.snapshot();
+            } catch (IOException | RuntimeException e) {
+              System.err.println("Error writing storage snapshot: " + e.getMessage());
+            } finally {
+              this.snapshotPending.set(false);
+            }
+          });
+    }
+    return true;
+  }
+
+  private void checkWritable() {
+    IOException failed = this.failure;
+    if (failed != null) {
+      throw new UncheckedIOException("Storage is read-only after a failed log write", failed);
+    }
+  }
+
+  /**
+   * Writes the current state to a new snapshot and deletes the log and snapshot it replaces. Writes
+   * only wait while the state is copied and a new log is started, not for the snapshot to be
+   * written.
+   *
+   * @throws IOException if the snapshot cannot be written, or the log failed earlier: memory may
+   *     then hold writes that must not be made durable after they were reported as failed
+   */
+  public synchronized void snapshot() throws IOException {
+    if (this.failure != null) {
+      throw new IOException("Storage is read-only after a failed log write", this.failure);
+    }
+    List<Listing> listings;
+    List<User> users;
+    Entry counters = Entry.of(Entry.COUNTERS);
+    AppendLog previous;
+    long snapshotGeneration;
+
+    this.writeLock.lock();
+    try {
+      listings = this.memory.snapshot();
+      users = this.memory.users();
+      counters.nextListingId = this.nextListingId;
+      counters.nextUserId = this.nextUserId;
+      previous = this.log;
+      snapshotGeneration = this.generation + 1;
+      // writes from here on go to the new log, which replays on top of the snapshot
+      this.log = AppendLog.open(this.logPath(snapshotGeneration), payload -> {});
+      this.generation = snapshotGeneration;
+      this.writesSinceSnapshot = 0;
+    } finally {
+      this.writeLock.unlock();
+    }
+    this.syncDirectory();
+    previous.sync(previous.end());
+    // waits out a writer's fsync still running on the old log, whose failure would otherwise turn
+    // the storage read-only
+    previous.close();
+
+    Path temporary = this.directory.resolve("snapshot-" + snapshotGeneration + ".tmp");
+    Files.deleteIfExists(temporary);
+    try (AppendLog out = AppendLog.open(temporary, payload -> {})) {
+      out.append(this.encode(counters));
+      for (User user : users) {
+        Entry entry = Entry.of(Entry.USER);
+        entry.user = user;
+        out.append(this.encode(entry));
+      }
+      for (Listing listing : listings) {
+        Entry entry = Entry.of(Entry.LISTINGS);
+        entry.listings = List.of(listing);
+        out.append(this.encode(entry));
+      }
+      out.sync(out.end());
+    }
+    Files.move(temporary, this.snapshotPath(snapshotGeneration), StandardCopyOption.ATOMIC_MOVE);
+    this.syncDirectory();
+
+    for (long older : this.generations("snapshot").headSet(snapshotGeneration)) {
+      Files.deleteIfExists(this.snapshotPath(older));
+    }
+    for (long older : this.generations("log").headSet(snapshotGeneration)) {
+      Files.deleteIfExists(this.logPath(older));
+    }
+  }
+
+  private byte[] encode(Entry entry) {
+    return ENTRY_ADAPTER.toJson(entry).getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Streams every stored listing, available or not, e.g. to build an in-memory index at startup.
+   *
+   * @param visitor receives each listing
+   * @throws IOException if the visitor fails
+   */
+  public void forEachStoredListing(ListingVisitor visitor) throws IOException {
+    for (Listing listing : this.memory.snapshot()) {
+      visitor.visit(listing);
+    }
+  }
+
+  @Override
+  public Map<String, Object> getStats() {
+    Map<String, Object> stats = new HashMap<>();
+    this.writeLock.lock();
+    try {
+      stats.put("generation", this.generation);
+      stats.put("log_bytes", this.log.end());
+      stats.put("log_records", this.log.records());
+      // fewer syncs than records means writers shared fsyncs
+      stats.put("log_syncs", this.log.syncs());
+      stats.put("writes_since_snapshot", this.writesSinceSnapshot);
+      stats.put("read_only", this.failure != null);
+    } finally {
+      this.writeLock.unlock();
+    }
+    Map<String, Object> storageStats = new HashMap<>();
+    storageStats.put("file_storage", stats);
+    return storageStats;
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.snapshotter.shutdown();
+    // a snapshot in progress swaps and closes logs itself, so it has to finish first
+    try {
+      while (!this.snapshotter.awaitTermination(1, TimeUnit.SECONDS)) {
+        System.out.println("Waiting for the storage snapshot to finish before closing");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for the storage snapshot", e);
+    }
+    this.writeLock.lock();
+    try {
+      this.log.close();
+    } finally {
+      this.writeLock.unlock();
+    }
+  }
+
+  /* WRITES */
+
+  @Override
+  public Long createUser(
+      String clerkId, String email, String name, String phoneNumber, String school) {
+    Entry entry = Entry.of(Entry.USER);
+    this.commit(
+        () -> {
+          entry.user =
+              new User(
+                  this.nextUserId, clerkId, email, name, phoneNumber, school, new ArrayList<>());
+          return entry;
+        });
+    return entry.user.getId();
+  }
+
+  @Override
+  public boolean updateUser(String clerkId, User updatedUser) {
+    return this.commit(
+        () -> {
+          User user = this.memory.getUser(clerkId);
+          if (user == null) {
+            return null;
+          }
+          Entry entry = Entry.of(Entry.USER);
+          entry.user = MockStorage.merge(user, updatedUser);
+          return entry;
+        });
+  }
+
+  @Override
+  public Long createListing(
+      String sellerId,
+      String title,
+      boolean isAvailable,
+      String description,
+      float price,
+      String category,
+      String condition,
+      String imageUrl,
+      List<String> tags) {
+    List<Listing> listing =
+        List.of(
+            new Listing(
+                null,
+                sellerId,
+                title,
+                description,
+                price,
+                category,
+                condition,
+                imageUrl,
+                tags != null ? List.copyOf(tags) : List.of(),
+                isAvailable));
+    return this.createListings(listing).get(0);
+  }
+
+  @Override
+  public List<Long> createListings(List<Listing> listings) {
+    Entry entry = Entry.of(Entry.LISTINGS);
+    this.commit(
+        () -> {
+          // one record, so a crash keeps the whole batch or none of it
+          entry.listings = new ArrayList<>();
+          long listingId = this.nextListingId;
+          for (Listing listing : listings) {
+            entry.listings.add(
+                new Listing(
+                    listingId++,
+                    listing.getSellerId(),
+                    listing.getTitle(),
+                    listing.getDescription(),
+                    listing.getPrice(),
+                    listing.getCategory(),
+                    listing.getCondition(),
+                    listing.getImageUrl(),
+                    listing.getTags() != null ? List.copyOf(listing.getTags()) : List.of(),
+                    listing.getAvailable()));
+          }
+          return entry;
+        });
+    return entry.listings.stream().map(Listing::getId).toList();
+  }
+
+  @Override
+  public boolean updateListing(Long listingId, Listing updatedListing) {
+    return this.commit(
+        () -> {
+          Listing listing = this.memory.obtainListing(listingId);
+          if (listing == null) {
+            return null;
+          }
+          Entry entry = Entry.of(Entry.LISTINGS);
+          entry.listings = List.of(MockStorage.merge(listing, updatedListing));
+          return entry;
+        });
+  }
+
+  @Override
+  public boolean deleteListing(Long listingId) {
+    return this.commit(
+        () -> {
+          if (this.memory.obtainListing(listingId) == null) {
+            return null;
+          }
+          Entry entry = Entry.of(Entry.DELETE);
+          entry.id = listingId;
+          return entry;
+        });
+  }
+
+  /* READS, from memory */
+
+  @Override
+  public List<Listing> getListings(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter) {
+    return this.memory.getListings(title, category, minPrice, maxPrice, tags, sorter);
+  }
+
+  @Override
+  public void forEachListing(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter,
+      ListingVisitor visitor)
+      throws IOException {
+    this.memory.forEachListing(title, category, minPrice, maxPrice, tags, sorter, visitor);
+  }
+
+  @Override
+  public ListingPage getListingsPage(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter,
+      int limit,
+      String cursor) {
+    return this.memory.getListingsPage(
+        title, category, minPrice, maxPrice, tags, sorter, limit, cursor);
+  }
+
+  @Override
+  public Optional<Listing> getListingById(Long listingId) {
+    return this.memory.getListingById(listingId);
+  }
+
+  @Override
+  public Listing obtainListing(Long listingId) {
+    return this.memory.obtainListing(listingId);
+  }
+
+  @Override
+  public Map<Long, Listing> obtainListings(Collection<Long> listingIds) {
+    return this.memory.obtainListings(listingIds);
+  }
+
+  @Override
+  public User getUser(String clerkId) {
+    return this.memory.getUser(clerkId);
+  }
+
+  @Override
+  public List<Listing> getListingsBySellerId(String sellerId) {
+    return this.memory.getListingsBySellerId(sellerId);
+  }
+
+  @Override
+  public void forEachListingBySellerId(String sellerId, ListingVisitor visitor) throws IOException {
+    this.memory.forEachListingBySellerId(sellerId, visitor);
+  }
+}
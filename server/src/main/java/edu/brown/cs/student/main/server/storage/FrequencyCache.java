@@ -0,0 +1,208 @@
+package edu.brown.cs.student.main.server.storage;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded in-process cache with per-entry time-to-live and frequency-aware eviction.
+ *
+ * <p>Entries are kept in least-recently-used order, but a full cache only admits a new entry if the
+ * new key has been requested more often than the entry it would evict (TinyLFU admission). Request
+ * frequencies are tracked for every key, cached or not, in a small count-min sketch that is
+ * periodically halved so popularity ages out. This keeps a burst of one-off lookups from flushing
+ * the listings everybody is looking at.
+ *
+ * <p>Loads that race with invalidations are guarded by tickets: take a {@link #ticket()} before
+ * reading from the backing store and pass it to {@link #put(Object, Object, long)}, which drops the
+ * value if anything was invalidated in between.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class FrequencyCache<K, V> {
+  private final int maxSize;
+  private final long ttlNanos;
+  private final LinkedHashMap<K, Entry<V>> entries;
+  private final FrequencySketch sketch;
+  private long invalidations = 0;
+
+  private long hits = 0;
+  private long misses = 0;
+  private long evictions = 0;
+  private long expirations = 0;
+  private long rejections = 0;
+
+  /**
+   * @param maxSize the maximum number of entries
+   * @param ttlMillis how long an entry may be served after it was loaded
+   */
+  public FrequencyCache(int maxSize, long ttlMillis) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("Cache size must be positive");
+    }
+    this.maxSize = maxSize;
+    this.ttlNanos = ttlMillis * 1_000_000;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    this.sketch = new FrequencySketch(maxSize);
+  }
+
+  /**
+   * Looks up a key, counting the request towards the key's frequency.
+   *
+   * @param key the key
+   * @return the cached value, or null on a miss
+   */
+  public synchronized V get(K key) {
+    this.sketch.increment(key);
+    Entry<V> entry = this.entries.get(key);
+    if (entry == null) {
+      this.misses++;
+      return null;
+    }
+    if (System.nanoTime() - entry.loadedAt > this.ttlNanos) {
+      this.entries.remove(key);
+      this.expirations++;
+      this.misses++;
+      return null;
+    }
+    this.hits++;
+    return entry.value;
+  }
+
+  /**
+   * @return a ticket to pass to {@link #put(Object, Object, long)} for a value about to be loaded
+   */
+  public synchronized long ticket() {
+    return this.invalidations;
+  }
+
+  /**
+   * Caches a value loaded from the backing store, unless an invalidation happened since the ticket
+   * was taken or the key is not popular enough to displace the least recently used entry.
+   *
+   * @param key the key
+   * @param value the loaded value
+   * @param ticket the result of {@link #ticket()} taken before the value was loaded
+   */
+  public synchronized void put(K key, V value, long ticket) {
+    if (ticket != this.invalidations || value == null) {
+      return;
+    }
+    if (this.entries.containsKey(key) || this.entries.size() < this.maxSize) {
+      this.entries.put(key, new Entry<>(value));
+      return;
+    }
+
+    Iterator<Map.Entry<K, Entry<V>>> eldest = this.entries.entrySet().iterator();
+    K victim = eldest.next().getKey();
+    if (this.sketch.frequency(key) > this.sketch.frequency(victim)) {
+      eldest.remove();
+      this.evictions++;
+      this.entries.put(key, new Entry<>(value));
+    } else {
+      this.rejections++;
+    }
+  }
+
+  /** Drops a key so the next lookup goes to the backing store. */
+  public synchronized void invalidate(K key) {
+    this.invalidations++;
+    this.entries.remove(key);
+  }
+
+  /** Drops every entry. */
+  public synchronized void invalidateAll() {
+    this.invalidations++;
+    this.entries.clear();
+  }
+
+  public synchronized int size() {
+    return this.entries.size();
+  }
+
+  /**
+   * Snapshot of the cache's counters, suitable for serializing into a stats response.
+   *
+   * @return a map from stat name to value
+   */
+  public synchronized Map<String, Object> getStats() {
+    Map<String, Object> stats = new LinkedHashMap<>();
+    long requests = this.hits + this.misses;
+    stats.put("size", this.entries.size());
+    stats.put("max_size", this.maxSize);
+    stats.put("hits", this.hits);
+    stats.put("misses", this.misses);
+    stats.put("hit_rate", requests == 0 ? 0.0 : (double) this.hits / requests);
+    stats.put("evictions", this.evictions);
+    stats.put("expirations", this.expirations);
+    stats.put("admission_rejections", this.rejections);
+    return stats;
+  }
+
+  private static class Entry<V> {
+    private final V value;
+    private final long loadedAt = System.nanoTime();
+
+    private Entry(V value) {
+      this.value = value;
+    }
+  }
+
+  /**
+   * A count-min sketch of saturating counters (capped at 15) estimating how often each key was
+   * requested recently. After every {@code 10 * maxSize} increments all counters are halved, so old
+   * popularity decays.
+   */
+  private static class FrequencySketch {
+    private static final int DEPTH = 4;
+    private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+    private static final int MAX_COUNT = 15;
+
+    private final byte[][] counters;
+    private final int mask;
+    private final int resetAfter;
+    private int additions = 0;
+
+    private FrequencySketch(int maxSize) {
+      int width = Integer.highestOneBit(Math.max(maxSize, 8) * 2 - 1) * 2;
+      this.counters = new byte[DEPTH][width];
+      this.mask = width - 1;
+      this.resetAfter = maxSize * 10;
+    }
+
+    private int index(Object key, int row) {
+      int hash = key.hashCode() * SEEDS[row];
+      return (hash ^ (hash >>> 16)) & this.mask;
+    }
+
+    private void increment(Object key) {
+      for (int row = 0; row < DEPTH; row++) {
+        int i = this.index(key, row);
+        if (this.counters[row][i] < MAX_COUNT) {
+          this.counters[row][i]++;
+        }
+      }
+      if (++this.additions >= this.resetAfter) {
+        this.halve();
+      }
+    }
+
+    private int frequency(Object key) {
+      int min = MAX_COUNT;
+      for (int row = 0; row < DEPTH; row++) {
+        min = Math.min(min, this.counters[row][this.index(key, row)]);
+      }
+      return min;
+    }
+
+    private void halve() {
+      for (byte[] row : this.counters) {
+        for (int i = 0; i < row.length; i++) {
+          row[i] = (byte) (row[i] >> 1);
+        }
+      }
+      this.additions /= 2;
+    }
+  }
+}
@@ -0,0 +1,611 @@
+package edu.brown.cs.student.main.server.storage;
+
+import edu.brown.cs.student.main.server.classes.Listing;
+import edu.brown.cs.student.main.server.classes.ListingPage;
+import edu.brown.cs.student.main.server.classes.User;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-memory listing engine that answers every listing read from indexes.
+ *
+ * <p>All listings are loaded from a backing store at startup and kept in:
+ *
+ * <ul>
+ *   <li>an id-ordered map, for lookups by id and id-ordered pages;
+ *   <li>a (price, id)-ordered set, for price range filters and {@link Sorter} orderings;
+ *   <li>hash indexes from category, tag and seller id to listing ids;
+ *   <li>a {@link SearchIndex} over titles and descriptions for the substring title filter.
+ * </ul>
+ *
+ * <p>A query starts from the most selective structure that applies (the title, category or tag
+ * index if one is filtered on, otherwise the ordered price or id view) and checks the remaining
+ * filters on the surviving listings only. Writes go to the backing store first and are applied to
+ * the indexes once it succeeds; users are not indexed and go straight to the backing store. Writes
+ * made by other server instances reach the indexes through {@link #listenTo(ChangeBus)}.
+ *
+ * <p>Like {@link RealStorage}, searches only return listings that are available.
+ */
+public class IndexedStorage implements StorageInterface {
+  private final StorageInterface backing;
+  private final ListingSource loader;
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private final NavigableMap<Long, Listing> byId = new TreeMap<>();
+  private final NavigableSet<Listing> byPrice =
+      new TreeSet<>(ListingCursor.comparator(Sorter.PRICE_ASC));
+  private final Map<String, Set<Long>> byCategory = new HashMap<>();
+  private final Map<String, Set<Long>> byTag = new HashMap<>();
+  private final Map<String, Set<Long>> bySeller = new HashMap<>();
+  private final SearchIndex byText = new SearchIndex();
+
+  /**
+   * Builds the indexes from every listing in the backing store.
+   *
+   * @param backing the store that writes go to
+   * @param loader produces every stored listing, available or not
+   * @throws Exception if the listings could not be loaded
+   */
+  public IndexedStorage(StorageInterface backing, ListingSource loader) throws Exception {
+    this.backing = backing;
+    this.loader = loader;
+    // copied so that a backing store mutating its own objects cannot reorder our indexes
+    loader.forEach(listing -> this.index(copyOf(listing)));
+  }
+
+  private static Listing copyOf(Listing listing) {
+    return new Listing(
+        listing.getId(),
+        listing.getSellerId(),
+        listing.getTitle(),
+        listing.getDescription(),
+        listing.getPrice(),
+        listing.getCategory(),
+        listing.getCondition(),
+        listing.getImageUrl(),
+        listing.getTags() != null ? List.copyOf(listing.getTags()) : List.of(),
+        listing.getAvailable());
+  }
+
+  /* INDEX MAINTENANCE */
+
+  /**
+   * Follows the writes of other instances: a changed listing is re-read from the backing store, and
+   * everything is reloaded when the bus may have missed changes.
+   *
+   * @param bus the bus shared with the other instances
+   */
+  public void listenTo(ChangeBus bus) {
+    bus.subscribe(
+        new ChangeBus.Subscriber() {
+          @Override
+          public void changed(ChangeEvent event) {
+            if (event.getKind() == ChangeEvent.Kind.LISTING) {
+              refresh(event.getListingId());
+            }
+          }
+
+          @Override
+          public void resync() {
+            reload();
+          }
+        });
+  }
+
+  // Re-reads one listing from the backing store after another instance changed it
+  private void refresh(Long listingId) {
+    Listing listing;
+    try {
+      listing = this.backing.obtainListings(List.of(listingId)).get(listingId);
+    } catch (Exception e) {
+      System.err.println("Error refreshing listing " + listingId + ": " + e.getMessage());
+      return;
+    }
+    if (listing == null) {
+      this.unindex(listingId);
+    } else {
+      this.index(copyOf(listing));
+    }
+  }
+
+  // Reloads every listing from the loader, dropping the ones no longer stored
+  private void reload() {
+    Map<Long, Listing> loaded = new HashMap<>();
+    try {
+      this.loader.forEach(listing -> loaded.put(listing.getId(), copyOf(listing)));
+    } catch (Exception e) {
+      System.err.println("Error reloading listings: " + e.getMessage());
+      return;
+    }
+    this.lock.writeLock().lock();
+    try {
+      for (Long listingId : new ArrayList<>(this.byId.keySet())) {
+        if (!loaded.containsKey(listingId)) {
+          this.unindex(listingId);
+        }
+      }
+      for (Listing listing : loaded.values()) {
+        this.index(listing);
+      }
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+  }
+
+  private void index(Listing listing) {
+    this.lock.writeLock().lock();
+    try {
+      this.unindex(listing.getId());
+      this.byId.put(listing.getId(), listing);
+      this.byPrice.add(listing);
+      addPosting(this.byCategory, listing.getCategory(), listing.getId());
+      addPosting(this.bySeller, listing.getSellerId(), listing.getId());
+      this.byText.put(listing.getId(), listing.getTitle(), listing.getDescription());
+      if (listing.getTags() != null) {
+        for (String tag : listing.getTags()) {
+          addPosting(this.byTag, tag, listing.getId());
+        }
+      }
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+  }
+
+  private Listing unindex(Long listingId) {
+    this.lock.writeLock().lock();
+    try {
+      Listing listing = this.byId.remove(listingId);
+      if (listing != null) {
+        this.byPrice.remove(listing);
+        removePosting(this.byCategory, listing.getCategory(), listingId);
+        removePosting(this.bySeller, listing.getSellerId(), listingId);
+        this.byText.remove(listingId);
+        if (listing.getTags() != null) {
+          for (String tag : listing.getTags()) {
+            removePosting(this.byTag, tag, listingId);
+          }
+        }
+      }
+      return listing;
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+  }
+
+  private static void addPosting(Map<String, Set<Long>> index, String key, Long listingId) {
+    if (key != null) {
+      index.computeIfAbsent(key, k -> new HashSet<>()).add(listingId);
+    }
+  }
+
+  private static void removePosting(Map<String, Set<Long>> index, String key, Long listingId) {
+    if (key == null) {
+      return;
+    }
+    Set<Long> postings = index.get(key);
+    if (postings != null) {
+      postings.remove(listingId);
+      if (postings.isEmpty()) {
+        index.remove(key);
+      }
+    }
+  }
+
+  /* QUERIES */
+
+  // Returns up to limit matching listings that come after the cursor, in keyset order
+  private List<Listing> select(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter,
+      ListingCursor after,
+      int limit) {
+    String titleQuery = title == null || title.trim().isEmpty() ? null : title.trim();
+    Comparator<Listing> order = ListingCursor.comparator(sorter);
+    Listing afterKey =
+        after == null
+            ? null
+            : new Listing(
+                after.getId(), null, null, null, after.getPrice(), null, null, null, null, false);
+
+    this.lock.readLock().lock();
+    try {
+      Set<Long> candidates = this.indexCandidates(titleQuery, category, tags);
+      List<Listing> results = new ArrayList<>();
+
+      if (candidates != null) {
+        // an equality index narrowed things down: check the rest of the filters on its postings
+        for (Long id : candidates) {
+          Listing listing = this.byId.get(id);
+          if ((afterKey == null || order.compare(listing, afterKey) > 0)
+              && matches(listing, category, minPrice, maxPrice, tags)) {
+            results.add(listing);
+          }
+        }
+        results.sort(order);
+        return results.size() > limit ? new ArrayList<>(results.subList(0, limit)) : results;
+      }
+
+      // otherwise walk the structure that is already in the requested order
+      for (Listing listing : this.orderedView(sorter, afterKey, minPrice, maxPrice)) {
+        if (results.size() == limit) {
+          break;
+        }
+        if (matches(listing, category, minPrice, maxPrice, tags)) {
+          results.add(listing);
+        }
+      }
+      return results;
+    } finally {
+      this.lock.readLock().unlock();
+    }
+  }
+
+  // Ids allowed by the title, category and tag filters, or null if none of them is set
+  private Set<Long> indexCandidates(String titleQuery, String category, List<String> tags) {
+    List<Set<Long>> postings = new ArrayList<>();
+    if (titleQuery != null) {
+      postings.add(this.byText.search(titleQuery));
+    }
+    if (category != null) {
+      postings.add(this.byCategory.getOrDefault(category, Set.of()));
+    }
+    if (tags != null && !tags.isEmpty()) {
+      Set<Long> anyTag = new HashSet<>();
+      for (String tag : tags) {
+        anyTag.addAll(this.byTag.getOrDefault(tag, Set.of()));
+      }
+      postings.add(anyTag);
+    }
+
+    if (postings.isEmpty()) {
+      return null;
+    }
+    // intersect by walking the smallest set
+    postings.sort(Comparator.comparingInt(Set::size));
+    Set<Long> result = new HashSet<>();
+    candidates:
+    for (Long id : postings.get(0)) {
+      for (int i = 1; i < postings.size(); i++) {
+        if (!postings.get(i).contains(id)) {
+          continue candidates;
+        }
+      }
+      result.add(id);
+    }
+    return result;
+  }
+
+  // Every listing after the cursor in keyset order, narrowed to the price range when price-sorted
+  private Collection<Listing> orderedView(
+      Sorter sorter, Listing afterKey, Float minPrice, Float maxPrice) {
+    if (sorter == null) {
+      NavigableMap<Long, Listing> view = this.byId;
+      if (afterKey != null) {
+        view = view.tailMap(afterKey.getId(), false);
+      }
+      return view.values();
+    }
+
+    Listing low =
+        new Listing(
+            Long.MIN_VALUE,
+            null,
+            null,
+            null,
+            minPrice == null ? Float.NEGATIVE_INFINITY : minPrice,
+            null,
+            null,
+            null,
+            null,
+            false);
+    Listing high =
+        new Listing(
+            Long.MAX_VALUE,
+            null,
+            null,
+            null,
+            maxPrice == null ? Float.POSITIVE_INFINITY : maxPrice,
+            null,
+            null,
+            null,
+            null,
+            false);
+    if (low.getPrice() > high.getPrice()) {
+      return List.of();
+    }
+    NavigableSet<Listing> view = this.byPrice.subSet(low, true, high, true);
+    if (sorter == Sorter.PRICE_DESC) {
+      view = view.descendingSet();
+    }
+    if (afterKey != null) {
+      view = view.tailSet(afterKey, false);
+    }
+    return view;
+  }
+
+  // The title filter is not rechecked here: it only ever applies through indexCandidates
+  private static boolean matches(
+      Listing listing, String category, Float minPrice, Float maxPrice, List<String> tags) {
+    return Boolean.TRUE.equals(listing.getAvailable())
+        && (category == null || category.equals(listing.getCategory()))
+        && (minPrice == null || listing.getPrice() >= minPrice)
+        && (maxPrice == null || listing.getPrice() <= maxPrice)
+        && (tags == null
+            || tags.isEmpty()
+            || (listing.getTags() != null && tags.stream().anyMatch(listing.getTags()::contains)));
+  }
+
+  @Override
+  public List<Listing> getListings(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter) {
+    return this.select(title, category, minPrice, maxPrice, tags, sorter, null, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public void forEachListing(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter,
+      ListingVisitor visitor)
+      throws Exception {
+    for (Listing listing : this.getListings(title, category, minPrice, maxPrice, tags, sorter)) {
+      visitor.visit(listing);
+    }
+  }
+
+  @Override
+  public ListingPage getListingsPage(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter,
+      int limit,
+      String cursor) {
+    if (limit <= 0) {
+      throw new IllegalArgumentException("Limit must be positive");
+    }
+    ListingCursor position = ListingCursor.decode(cursor, sorter);
+
+    // fetch one extra row to learn whether there is a next page
+    List<Listing> listings =
+        this.select(title, category, minPrice, maxPrice, tags, sorter, position, limit + 1);
+    String nextCursor = null;
+    if (listings.size() > limit) {
+      listings = listings.subList(0, limit);
+      nextCursor = ListingCursor.after(sorter, listings.get(limit - 1)).encode();
+    }
+    return new ListingPage(listings, nextCursor);
+  }
+
+  @Override
+  public Optional<Listing> getListingById(Long listingId) {
+    return Optional.ofNullable(this.obtainListing(listingId));
+  }
+
+  @Override
+  public Listing obtainListing(Long listingId) {
+    this.lock.readLock().lock();
+    try {
+      return this.byId.get(listingId);
+    } finally {
+      this.lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public Map<Long, Listing> obtainListings(Collection<Long> listingIds) {
+    Map<Long, Listing> listings = new HashMap<>();
+    this.lock.readLock().lock();
+    try {
+      for (Long listingId : listingIds) {
+        Listing listing = this.byId.get(listingId);
+        if (listing != null) {
+          listings.put(listingId, listing);
+        }
+      }
+    } finally {
+      this.lock.readLock().unlock();
+    }
+    return listings;
+  }
+
+  // A seller's listings, in id order
+  private List<Listing> sellerListings(String sellerId) {
+    this.lock.readLock().lock();
+    try {
+      List<Listing> listings = new ArrayList<>();
+      for (Long id : new TreeSet<>(this.bySeller.getOrDefault(sellerId, Set.of()))) {
+        listings.add(this.byId.get(id));
+      }
+      return listings;
+    } finally {
+      this.lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public List<Listing> getListingsBySellerId(String sellerId) {
+    return this.sellerListings(sellerId);
+  }
+
+  @Override
+  public void forEachListingBySellerId(String sellerId, ListingVisitor visitor) throws Exception {
+    for (Listing listing : this.sellerListings(sellerId)) {
+      visitor.visit(listing);
+    }
+  }
+
+  @Override
+  public Map<String, Object> getStats() {
+    Map<String, Object> stats = new HashMap<>(this.backing.getStats());
+    this.lock.readLock().lock();
+    try {
+      Map<String, Object> indexStats = new HashMap<>();
+      indexStats.put("listings", this.byId.size());
+      indexStats.put("categories", this.byCategory.size());
+      indexStats.put("tags", this.byTag.size());
+      indexStats.put("sellers", this.bySeller.size());
+      stats.put("listing_index", indexStats);
+    } finally {
+      this.lock.readLock().unlock();
+    }
+    return stats;
+  }
+
+  /* WRITE-THROUGH FUNCTIONS */
+
+  @Override
+  public Long createListing(
+      String sellerId,
+      String title,
+      boolean isAvailable,
+      String description,
+      float price,
+      String category,
+      String condition,
+      String imageUrl,
+      List<String> tags)
+      throws IllegalArgumentException, SQLException {
+    Long listingId =
+        this.backing.createListing(
+            sellerId, title, isAvailable, description, price, category, condition, imageUrl, tags);
+    this.index(
+        new Listing(
+            listingId,
+            sellerId,
+            title,
+            description,
+            price,
+            category,
+            condition,
+            imageUrl,
+            tags != null ? List.copyOf(tags) : List.of(),
+            isAvailable));
+    return listingId;
+  }
+
+  @Override
+  public List<Long> createListings(List<Listing> listings)
+      throws IllegalArgumentException, SQLException {
+    List<Long> listingIds = this.backing.createListings(listings);
+
+    this.lock.writeLock().lock();
+    try {
+      for (int i = 0; i < listings.size(); i++) {
+        Listing listing = listings.get(i);
+        this.index(
+            new Listing(
+                listingIds.get(i),
+                listing.getSellerId(),
+                listing.getTitle(),
+                listing.getDescription(),
+                listing.getPrice(),
+                listing.getCategory(),
+                listing.getCondition(),
+                listing.getImageUrl(),
+                listing.getTags() != null ? List.copyOf(listing.getTags()) : List.of(),
+                listing.getAvailable()));
+      }
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+    return listingIds;
+  }
+
+  @Override
+  public boolean updateListing(Long listingId, Listing updatedListing) {
+    if (!this.backing.updateListing(listingId, updatedListing)) {
+      return false;
+    }
+
+    this.lock.writeLock().lock();
+    try {
+      Listing current = this.byId.get(listingId);
+      if (current != null) {
+        // indexed listings are never mutated in place, so readers holding one see a stable row
+        this.index(
+            new Listing(
+                listingId,
+                current.getSellerId(),
+                updatedListing.getTitle() != null ? updatedListing.getTitle() : current.getTitle(),
+                updatedListing.getDescription() != null
+                    ? updatedListing.getDescription()
+                    : current.getDescription(),
+                updatedListing.getPrice() != null ? updatedListing.getPrice() : current.getPrice(),
+                updatedListing.getCategory() != null
+                    ? updatedListing.getCategory()
+                    : current.getCategory(),
+                updatedListing.getCondition() != null
+                    ? updatedListing.getCondition()
+                    : current.getCondition(),
+                updatedListing.getImageUrl() != null
+                    ? updatedListing.getImageUrl()
+                    : current.getImageUrl(),
+                updatedListing.getTags() != null
+                    ? List.copyOf(updatedListing.getTags())
+                    : current.getTags(),
+                updatedListing.getAvailable() != null
+                    ? updatedListing.getAvailable()
+                    : current.getAvailable()));
+      }
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+    return true;
+  }
+
+  @Override
+  public boolean deleteListing(Long listingId) {
+    if (!this.backing.deleteListing(listingId)) {
+      return false;
+    }
+    this.unindex(listingId);
+    return true;
+  }
+
+  /* USER FUNCTIONS */
+
+  @Override
+  public Long createUser(
+      String clerkId, String email, String name, String phoneNumber, String school)
+      throws IllegalArgumentException, SQLException {
+    return this.backing.createUser(clerkId, email, name, phoneNumber, school);
+  }
+
+  @Override
+  public User getUser(String clerkId) throws Exception {
+    return this.backing.getUser(clerkId);
+  }
+
+  @Override
+  public boolean updateUser(String userId, User updatedUser) {
+    return this.backing.updateUser(userId, updatedUser);
+  }
+}
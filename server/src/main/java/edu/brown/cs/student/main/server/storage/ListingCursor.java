@@ -0,0 +1,148 @@
+package edu.brown.cs.student.main.server.storage;
+
+import edu.brown.cs.student.main.server.classes.Listing;
+import edu.brown.cs.student.main.server.classes.ListingPage;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The position of the last listing on a page, used for keyset pagination.
+ *
+ * <p>Listings are paged in (price, id) order when a {@link Sorter} is given and in id order
+ * otherwise, so a cursor records the sort key of the last row returned. Cursors are handed to
+ * clients as opaque url-safe strings; a cursor is only valid for the ordering it was issued for.
+ */
+public class ListingCursor {
+  private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+  private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+  private final Sorter sorter;
+  private final float price;
+  private final long id;
+
+  public ListingCursor(Sorter sorter, float price, long id) {
+    this.sorter = sorter;
+    this.price = price;
+    this.id = id;
+  }
+
+  /**
+   * Builds the cursor pointing just after the given listing.
+   *
+   * @param sorter the ordering of the page
+   * @param last the last listing on the page
+   * @return the cursor
+   */
+  public static ListingCursor after(Sorter sorter, Listing last) {
+    return new ListingCursor(sorter, last.getPrice() == null ? 0f : last.getPrice(), last.getId());
+  }
+
+  public Sorter getSorter() {
+    return this.sorter;
+  }
+
+  public float getPrice() {
+    return this.price;
+  }
+
+  public long getId() {
+    return this.id;
+  }
+
+  /**
+   * @return the opaque string form handed to clients
+   */
+  public String encode() {
+    String raw =
+        this.sorter == null ? "id:" + this.id : this.sorter + ":" + this.price + ":" + this.id;
+    return ENCODER.encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Parses a cursor previously produced by {@link #encode()}.
+   *
+   * @param encoded the cursor string, or null for the first page
+   * @param sorter the ordering of the requested page
+   * @return the decoded cursor, or null if encoded is null or empty
+   * @throws IllegalArgumentException if the cursor is malformed or was issued for another ordering
+   */
+  public static ListingCursor decode(String encoded, Sorter sorter) {
+    if (encoded == null || encoded.isEmpty()) {
+      return null;
+    }
+    try {
+      String[] parts = new String(DECODER.decode(encoded), StandardCharsets.UTF_8).split(":");
+      if (sorter == null && parts.length == 2 && parts[0].equals("id")) {
+        return new ListingCursor(null, 0f, Long.parseLong(parts[1]));
+      }
+      if (sorter != null && parts.length == 3 && parts[0].equals(sorter.name())) {
+        return new ListingCursor(sorter, Float.parseFloat(parts[1]), Long.parseLong(parts[2]));
+      }
+    } catch (IllegalArgumentException e) {
+      // falls through to the error below
+    }
+    throw new IllegalArgumentException("Invalid cursor");
+  }
+
+  /**
+   * The keyset ordering used for pages: (price, id) in the sorter's direction, or id ascending.
+   *
+   * @param sorter the ordering of the page
+   * @return a total order on listings
+   */
+  public static Comparator<Listing> comparator(Sorter sorter) {
+    Comparator<Listing> byId = Comparator.comparing(Listing::getId);
+    if (sorter == null) {
+      return byId;
+    }
+    Comparator<Listing> byPriceThenId =
+        Comparator.comparing((Listing listing) -> listing.getPrice()).thenComparing(byId);
+    return sorter == Sorter.PRICE_DESC ? byPriceThenId.reversed() : byPriceThenId;
+  }
+
+  /**
+   * Pages an in-memory result list: sorts it in keyset order and returns the rows after the cursor.
+   * Used by storage implementations that do not page in the database.
+   *
+   * @param listings every listing matching the filters
+   * @param sorter the ordering of the page
+   * @param limit the maximum number of listings on the page
+   * @param cursor the cursor string from the previous page, or null for the first page
+   * @return the page
+   */
+  public static ListingPage paginate(
+      List<Listing> listings, Sorter sorter, int limit, String cursor) {
+    if (limit <= 0) {
+      throw new IllegalArgumentException("Limit must be positive");
+    }
+    ListingCursor position = decode(cursor, sorter);
+    Comparator<Listing> order = comparator(sorter);
+
+    List<Listing> sorted = new ArrayList<>(listings);
+    sorted.sort(order);
+
+    List<Listing> page = new ArrayList<>(Math.min(limit, sorted.size()));
+    boolean hasMore = false;
+    for (Listing listing : sorted) {
+      if (position != null && order.compare(listing, position.asListing()) <= 0) {
+        continue;
+      }
+      if (page.size() == limit) {
+        hasMore = true;
+        break;
+      }
+      page.add(listing);
+    }
+
+    String nextCursor = hasMore ? after(sorter, page.get(page.size() - 1)).encode() : null;
+    return new ListingPage(page, nextCursor);
+  }
+
+  // a listing carrying only the sort key, so the cursor can be compared with real rows
+  private Listing asListing() {
+    return new Listing(this.id, null, null, null, this.price, null, null, null, null, false);
+  }
+}
@@ -0,0 +1,135 @@
+package edu.brown.cs.student.main.server.storage;
+
+import edu.brown.cs.student.main.server.classes.Listing;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The columns of a listing a caller actually needs (a projection).
+ *
+ * <p>List views only show a few fields of each listing, so searches can ask for less than the full
+ * row: the database then reads and sends only those columns, and the fields left out stay null on
+ * the returned {@link Listing}, which drops them from the JSON. The id is always included so every
+ * result can still be linked to its listing.
+ */
+public class ListingFields {
+  /** Every column, in table order. */
+  private static final List<String> COLUMNS =
+      List.of(
+          "id",
+          "seller_id",
+          "title",
+          "description",
+          "price",
+          "category",
+          "condition",
+          "image_url",
+          "tags",
+          "available");
+
+  public static final ListingFields ALL = new ListingFields(COLUMNS);
+
+  /** What a listing card on the home page shows. */
+  public static final ListingFields CARD =
+      new ListingFields(List.of("id", "title", "price", "image_url", "tags"));
+
+  private final Set<String> columns;
+
+  private ListingFields(List<String> columns) {
+    Set<String> ordered = new LinkedHashSet<>();
+    // keep table order, so equal projections produce the same SQL
+    for (String column : COLUMNS) {
+      if (column.equals("id") || columns.contains(column)) {
+        ordered.add(column);
+      }
+    }
+    this.columns = Collections.unmodifiableSet(ordered);
+  }
+
+  /**
+   * Parses the fields request parameter: "card", "all", or a comma-separated list of column names.
+   *
+   * @param fieldsParam the parameter, or null for every field
+   * @return the projection
+   * @throws IllegalArgumentException if a field name is not a listing column
+   */
+  public static ListingFields parse(String fieldsParam) {
+    if (fieldsParam == null || fieldsParam.trim().isEmpty()) {
+      return ALL;
+    }
+    String trimmed = fieldsParam.trim().toLowerCase();
+    if (trimmed.equals("all")) {
+      return ALL;
+    }
+    if (trimmed.equals("card")) {
+      return CARD;
+    }
+
+    List<String> requested = new ArrayList<>();
+    for (String field : trimmed.split(",")) {
+      String column = field.trim();
+      if (column.isEmpty()) {
+        continue;
+      }
+      if (!COLUMNS.contains(column)) {
+        throw new IllegalArgumentException("Unknown listing field: " + column);
+      }
+      requested.add(column);
+    }
+    return new ListingFields(requested);
+  }
+
+  public boolean isAll() {
+    return this.columns.size() == COLUMNS.size();
+  }
+
+  public boolean contains(String column) {
+    return this.columns.contains(column);
+  }
+
+  /**
+   * @param column another column this projection must include, e.g. a sort key
+   * @return this projection widened by the column
+   */
+  public ListingFields with(String column) {
+    if (this.contains(column)) {
+      return this;
+    }
+    List<String> widened = new ArrayList<>(this.columns);
+    widened.add(column);
+    return new ListingFields(widened);
+  }
+
+  /**
+   * @return the select list for these columns
+   */
+  public String sqlColumns() {
+    return this.isAll() ? "*" : String.join(", ", this.columns);
+  }
+
+  /**
+   * Copies a full listing with the fields outside this projection set to null.
+   *
+   * @param listing a listing with every field loaded
+   * @return the projected listing; the listing itself if every field is included
+   */
+  public Listing project(Listing listing) {
+    if (listing == null || this.isAll()) {
+      return listing;
+    }
+    return new Listing(
+        listing.getId(),
+        this.contains("seller_id") ? listing.getSellerId() : null,
+        this.contains("title") ? listing.getTitle() : null,
+        this.contains("description") ? listing.getDescription() : null,
+        this.contains("price") ? listing.getPrice() : null,
+        this.contains("category") ? listing.getCategory() : null,
+        this.contains("condition") ? listing.getCondition() : null,
+        this.contains("image_url") ? listing.getImageUrl() : null,
+        this.contains("tags") ? listing.getTags() : null,
+        this.contains("available") ? listing.getAvailable() : null);
+  }
+}
@@ -0,0 +1,7 @@
+package edu.brown.cs.student.main.server.storage;
+
+/** A query that hands its rows to a visitor, e.g. a call to StorageInterface.forEachListing. */
+@FunctionalInterface
+public interface ListingSource {
+  void forEach(ListingVisitor visitor) throws Exception;
+}
@@ -0,0 +1,10 @@
+package edu.brown.cs.student.main.server.storage;
+
+import edu.brown.cs.student.main.server.classes.Listing;
+import java.io.IOException;
+
+/** Receives listings one at a time as a storage backend streams them out of a query. */
+@FunctionalInterface
+public interface ListingVisitor {
+  void visit(Listing listing) throws IOException;
+}
@@ -0,0 +1,98 @@
+package edu.brown.cs.student.main.server.storage;
+
+import java.sql.Connection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An in-process stand-in for {@link PostgresChangeBus}, for tests and single-machine setups that
+ * run several storage stacks side by side.
+ *
+ * <p>Each {@link #connect()} returns the bus of one simulated instance. An event published on one
+ * of them is delivered to the subscribers of all the others, synchronously on the publishing
+ * thread.
+ */
+public class LocalChangeBus {
+  private final List<Node> nodes = new CopyOnWriteArrayList<>();
+
+  /**
+   * @return the bus of a new instance
+   */
+  public ChangeBus connect() {
+    Node node = new Node();
+    this.nodes.add(node);
+    return node;
+  }
+
+  /** Has every instance resync, as if all of them had just reconnected after missing events. */
+  public void resync() {
+    for (Node node : this.nodes) {
+      node.resync();
+    }
+  }
+
+  private final class Node implements ChangeBus {
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong resyncs = new AtomicLong();
+
+    @Override
+    public void publish(ChangeEvent event) {
+      this.published.incrementAndGet();
+      for (Node node : nodes) {
+        if (node != this) {
+          node.deliver(event);
+        }
+      }
+    }
+
+    // there is no shared database here, so the events go out right away
+    @Override
+    public void publish(Connection connection, List<ChangeEvent> events) {
+      for (ChangeEvent event : events) {
+        this.publish(event);
+      }
+    }
+
+    private void deliver(ChangeEvent event) {
+      this.received.incrementAndGet();
+      for (Subscriber subscriber : this.subscribers) {
+        try {
+          subscriber.changed(event);
+        } catch (RuntimeException e) {
+          System.err.println("Error applying change " + event + ": " + e.getMessage());
+        }
+      }
+    }
+
+    private void resync() {
+      this.resyncs.incrementAndGet();
+      for (Subscriber subscriber : this.subscribers) {
+        subscriber.resync();
+      }
+    }
+
+    @Override
+    public void subscribe(Subscriber subscriber) {
+      this.subscribers.add(subscriber);
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+      Map<String, Object> stats = new LinkedHashMap<>();
+      stats.put("published", this.published.get());
+      stats.put("received", this.received.get());
+      stats.put("resyncs", this.resyncs.get());
+      return stats;
+    }
+
+    @Override
+    public void close() {
+      nodes.remove(this);
+    }
+  }
+}
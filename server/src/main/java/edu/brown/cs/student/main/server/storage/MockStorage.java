@@ -1,38 +1,134 @@
 package edu.brown.cs.student.main.server.storage;
 
 import edu.brown.cs.student.main.server.classes.Listing;
+import edu.brown.cs.student.main.server.classes.ListingPage;
 import edu.brown.cs.student.main.server.classes.User;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
 
-/** Mocked storage */
+/**
+ * Mocked storage, kept in memory.
+ *
+ * <p>Safe to share between request threads, so it can stand in for the database under load. Point
+ * reads and writes go straight to concurrent maps, and ids come from atomic counters. A stored
+ * listing or user is never modified: an update swaps in a new object, so a reader holding one never
+ * sees it half-updated. Searches filter a snapshot of all listings taken at one instant (see {@link
+ * #snapshot()}).
+ *
+ * <p>Writes of one listing are single map operations and take no lock. Only a batch of listings is
+ * stored under a lock, so that a snapshot sees all of it or none of it.
+ */
 public class MockStorage implements StorageInterface {
-  private final Map<String, User> userStorage = new HashMap<>();
-  private final Map<Long, Listing> listingStorage = new HashMap<>();
-  private Long nextListingId = 1L;
+  private final Map<String, User> userStorage = new ConcurrentHashMap<>();
+  private final Map<Long, Listing> listingStorage = new ConcurrentHashMap<>();
+  private final AtomicLong nextUserId = new AtomicLong(1);
+  private final AtomicLong nextListingId = new AtomicLong(1);
+  // shared by snapshots, taken exclusively to store a batch of listings
+  private final ReadWriteLock batchLock = new ReentrantReadWriteLock();
 
   @Override
   public Long createUser(
       String clerkId, String email, String name, String phoneNumber, String school) {
-    User user = new User(clerkId, name, phoneNumber, school);
+    long userId = nextUserId.getAndIncrement();
+    User user = new User(userId, clerkId, email, name, phoneNumber, school, new ArrayList<>());
     userStorage.put(clerkId, user);
-    return (long) userStorage.size();
+    return userId;
   }
 
   @Override
   public boolean updateUser(String clerkId, User updatedUser) {
-    if (userStorage.containsKey(clerkId)) {
-      User user = userStorage.get(clerkId);
-      if (updatedUser.getName() != null) user.setName(updatedUser.getName());
-      if (updatedUser.getPhoneNumber() != null) user.setPhoneNumber(updatedUser.getPhoneNumber());
-      if (updatedUser.getSchool() != null) user.setSchool(updatedUser.getSchool());
-      return true;
+    return userStorage.computeIfPresent(clerkId, (id, user) -> merge(user, updatedUser)) != null;
+  }
+
+  /**
+   * @param user a stored user
+   * @param update the fields to change; null fields are left as they are
+   * @return a new user with the update applied
+   */
+  static User merge(User user, User update) {
+    return new User(
+        user.getId(),
+        user.getClerkId(),
+        user.getEmail(),
+        orElse(update.getName(), user.getName()),
+        orElse(update.getPhoneNumber(), user.getPhoneNumber()),
+        orElse(update.getSchool(), user.getSchool()),
+        user.getInterests());
+  }
+
+  /**
+   * @param listing a stored listing
+   * @param update the fields to change; null fields are left as they are
+   * @return a new listing with the update applied
+   */
+  static Listing merge(Listing listing, Listing update) {
+    return new Listing(
+        listing.getId(),
+        listing.getSellerId(),
+        orElse(update.getTitle(), listing.getTitle()),
+        orElse(update.getDescription(), listing.getDescription()),
+        orElse(update.getPrice(), listing.getPrice()),
+        orElse(update.getCategory(), listing.getCategory()),
+        orElse(update.getCondition(), listing.getCondition()),
+        orElse(update.getImageUrl(), listing.getImageUrl()),
+        orElse(update.getTags(), listing.getTags()),
+        orElse(update.getAvailable(), listing.getAvailable()));
+  }
+
+  private static <T> T orElse(T value, T otherwise) {
+    return value != null ? value : otherwise;
+  }
+
+  // Every stored user
+  List<User> users() {
+    return new ArrayList<>(userStorage.values());
+  }
+
+  // Stores a user as given, replacing any with the same clerk id
+  void storeUser(User user) {
+    userStorage.put(user.getClerkId(), user);
+  }
+
+  /**
+   * Copies every stored listing. Each listing is copied whole, and a batch stored by {@link
+   * #store(List)} is copied entirely or not at all.
+   *
+   * @return the listings
+   */
+  List<Listing> snapshot() {
+    batchLock.readLock().lock();
+    try {
+      return new ArrayList<>(listingStorage.values());
+    } finally {
+      batchLock.readLock().unlock();
+    }
+  }
+
+  // Stores listings as given, replacing any with the same ids; a snapshot sees all or none of them
+  void store(List<Listing> listings) {
+    if (listings.size() == 1) {
+      listingStorage.put(listings.get(0).getId(), listings.get(0));
+      return;
+    }
+    batchLock.writeLock().lock();
+    try {
+      for (Listing listing : listings) {
+        listingStorage.put(listing.getId(), listing);
+      }
+    } finally {
+      batchLock.writeLock().unlock();
     }
-    return false;
   }
 
   @Override
@@ -43,10 +139,10 @@ public class MockStorage implements StorageInterface {
       Float maxPrice,
       List<String> tags,
       Sorter sorter) {
-    return listingStorage.values().stream()
+    return this.snapshot().stream()
         .filter(
             listing ->
-                (title == null || listing.getTitle().toLowerCase().contains(title.toLowerCase()))
+                (title == null || matchesText(listing, title))
                     && (category == null || category.equals(listing.getCategory()))
                     && (minPrice == null || listing.getPrice() >= minPrice)
                     && (maxPrice == null || listing.getPrice() <= maxPrice)
@@ -68,6 +164,43 @@ public class MockStorage implements StorageInterface {
         .collect(Collectors.toList());
   }
 
+  // Whether the listing's title or description contains the text, ignoring case
+  private static boolean matchesText(Listing listing, String text) {
+    String query = text.toLowerCase();
+    return listing.getTitle().toLowerCase().contains(query)
+        || (listing.getDescription() != null
+            && listing.getDescription().toLowerCase().contains(query));
+  }
+
+  @Override
+  public void forEachListing(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter,
+      ListingVisitor visitor)
+      throws IOException {
+    for (Listing listing : this.getListings(title, category, minPrice, maxPrice, tags, sorter)) {
+      visitor.visit(listing);
+    }
+  }
+
+  @Override
+  public ListingPage getListingsPage(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter,
+      int limit,
+      String cursor) {
+    return ListingCursor.paginate(
+        this.getListings(title, category, minPrice, maxPrice, tags, sorter), sorter, limit, cursor);
+  }
+
   @Override
   public Long createListing(
       String sellerId,
@@ -79,23 +212,58 @@ public class MockStorage implements StorageInterface {
       String condition,
       String imageUrl,
       List<String> tags) {
-    List<String> tagList = tags != null ? tags : Collections.emptyList();
     Listing listing =
-        new Listing(
-            nextListingId++,
-            sellerId,
-            title,
-            description,
-            price,
-            category,
-            condition,
-            imageUrl,
-            tagList,
-            isAvailable);
-    this.listingStorage.put(listing.getId(), listing);
+        this.newListing(
+            sellerId, title, isAvailable, description, price, category, condition, imageUrl, tags);
+    this.store(List.of(listing));
     return listing.getId();
   }
 
+  @Override
+  public List<Long> createListings(List<Listing> listings) {
+    List<Listing> created = new ArrayList<>();
+    for (Listing listing : listings) {
+      created.add(
+          this.newListing(
+              listing.getSellerId(),
+              listing.getTitle(),
+              listing.getAvailable(),
+              listing.getDescription(),
+              listing.getPrice(),
+              listing.getCategory(),
+              listing.getCondition(),
+              listing.getImageUrl(),
+              listing.getTags()));
+    }
+    // one store, so a snapshot sees either the whole batch or none of it
+    this.store(created);
+    return created.stream().map(Listing::getId).collect(Collectors.toList());
+  }
+
+  private Listing newListing(
+      String sellerId,
+      String title,
+      boolean isAvailable,
+      String description,
+      float price,
+      String category,
+      String condition,
+      String imageUrl,
+      List<String> tags) {
+    List<String> tagList = tags != null ? tags : Collections.emptyList();
+    return new Listing(
+        nextListingId.getAndIncrement(),
+        sellerId,
+        title,
+        description,
+        price,
+        category,
+        condition,
+        imageUrl,
+        tagList,
+        isAvailable);
+  }
+
   @Override
   public Optional<Listing> getListingById(Long listingId) {
     return Optional.ofNullable(listingStorage.get(listingId));
@@ -107,68 +275,52 @@ public class MockStorage implements StorageInterface {
   }
 
   @Override
-  public boolean updateListing(Long listingId, Listing updatedListing) {
-    if (listingStorage.containsKey(listingId)) {
-      Listing listing = listingStorage.get(listingId);
-      if (updatedListing.getTitle() != null) listing.setTitle(updatedListing.getTitle());
-      if (updatedListing.getDescription() != null)
-        listing.setDescription(updatedListing.getDescription());
-      if (updatedListing.getPrice() != null) listing.setPrice(updatedListing.getPrice());
-      if (updatedListing.getCategory() != null) listing.setCategory(updatedListing.getCategory());
-      if (updatedListing.getCondition() != null)
-        listing.setCondition(updatedListing.getCondition());
-      if (updatedListing.getImageUrl() != null) listing.setImageUrl(updatedListing.getImageUrl());
-      if (updatedListing.getTags() != null) listing.setTags(updatedListing.getTags());
-      listing.setAvailable(updatedListing.getAvailable());
-      return true;
+  public Map<Long, Listing> obtainListings(Collection<Long> listingIds) {
+    Map<Long, Listing> listings = new HashMap<>();
+    for (Long listingId : listingIds) {
+      Listing listing = this.listingStorage.get(listingId);
+      if (listing != null) {
+        listings.put(listingId, listing);
+      }
     }
-    return false;
+    return listings;
+  }
+
+  @Override
+  public boolean updateListing(Long listingId, Listing updatedListing) {
+    // computeIfPresent keeps two updates of one listing from losing either's fields
+    return listingStorage.computeIfPresent(
+            listingId, (id, listing) -> merge(listing, updatedListing))
+        != null;
   }
 
   @Override
   public boolean deleteListing(Long listingId) {
-    if (listingStorage.remove(listingId) != null) {
-      return true;
-    }
-    return false;
+    return listingStorage.remove(listingId) != null;
   }
 
   @Override
-  public Map<String, Object> getUser(String clerkId) throws Exception {
-    User user = userStorage.get(clerkId);
-    if (user != null) {
-      Map<String, Object> userMap = new HashMap<>();
-      userMap.put("clerkId", user.getClerkId());
-      userMap.put("name", user.getName());
-      userMap.put("phoneNumber", user.getPhoneNumber());
-      userMap.put("school", user.getSchool());
-      return userMap;
-    }
-    return Collections.emptyMap();
+  public User getUser(String clerkId) {
+    return userStorage.get(clerkId);
   }
 
   @Override
-  public List<Map<String, Object>> getListingsBySellerId(String sellerId) throws Exception {
-    return listingStorage.values().stream()
+  public List<Listing> getListingsBySellerId(String sellerId) {
+    return this.snapshot().stream()
         .filter(listing -> sellerId.equals(listing.getSellerId()))
-        .map(
-            listing -> {
-              Map<String, Object> listingMap = new HashMap<>();
-              listingMap.put("id", listing.getId());
-              listingMap.put("title", listing.getTitle());
-              listingMap.put("description", listing.getDescription());
-              listingMap.put("price", listing.getPrice());
-              listingMap.put("available", listing.getAvailable());
-              listingMap.put("category", listing.getCategory());
-              listingMap.put("condition", listing.getCondition());
-              listingMap.put("imageUrl", listing.getImageUrl());
-              listingMap.put("tags", listing.getTags());
-              return listingMap;
-            })
         .collect(Collectors.toList());
   }
 
+  @Override
+  public void forEachListingBySellerId(String sellerId, ListingVisitor visitor) throws IOException {
+    for (Listing listing : this.snapshot()) {
+      if (sellerId.equals(listing.getSellerId())) {
+        visitor.visit(listing);
+      }
+    }
+  }
+
   public boolean contains(String title) {
-    return listingStorage.values().stream().anyMatch(listing -> listing.getTitle().equals(title));
+    return this.snapshot().stream().anyMatch(listing -> listing.getTitle().equals(title));
   }
 }
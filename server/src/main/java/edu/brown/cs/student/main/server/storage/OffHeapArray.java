@@ -0,0 +1,93 @@
+package edu.brown.cs.student.main.server.storage;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A growable array of fixed-width primitives (or raw bytes) kept outside the Java heap, so the
+ * garbage collector never has to trace or copy it. Not thread-safe; {@link ColumnarStorage} guards
+ * its arrays with its own lock.
+ */
+final class OffHeapArray {
+  private final int width;
+  private ByteBuffer buffer;
+
+  /**
+   * @param width bytes per element
+   * @param capacity initial capacity in elements
+   */
+  OffHeapArray(int width, int capacity) {
+    this.width = width;
+    this.buffer = ByteBuffer.allocateDirect(width * Math.max(capacity, 1));
+  }
+
+  /**
+   * Grows the array (doubling) until it holds at least the given number of elements; new elements
+   * are zero.
+   *
+   * @param elements the capacity needed
+   */
+  void ensureCapacity(int elements) {
+    long needed = (long) elements * this.width;
+    if (needed <= this.buffer.capacity()) {
+      return;
+    }
+    long capacity = this.buffer.capacity();
+    while (capacity < needed) {
+      capacity *= 2;
+    }
+    if (capacity > Integer.MAX_VALUE) {
+      throw new IllegalStateException("Off-heap column is full");
+    }
+    ByteBuffer grown = ByteBuffer.allocateDirect((int) capacity);
+    grown.put(this.buffer.duplicate().clear());
+    this.buffer = grown;
+  }
+
+  int getInt(int index) {
+    return this.buffer.getInt(index * this.width);
+  }
+
+  void putInt(int index, int value) {
+    this.buffer.putInt(index * this.width, value);
+  }
+
+  long getLong(int index) {
+    return this.buffer.getLong(index * this.width);
+  }
+
+  void putLong(int index, long value) {
+    this.buffer.putLong(index * this.width, value);
+  }
+
+  float getFloat(int index) {
+    return this.buffer.getFloat(index * this.width);
+  }
+
+  void putFloat(int index, float value) {
+    this.buffer.putFloat(index * this.width, value);
+  }
+
+  byte getByte(int index) {
+    return this.buffer.get(index * this.width);
+  }
+
+  void putByte(int index, byte value) {
+    this.buffer.put(index * this.width, value);
+  }
+
+  // copies raw bytes in or out, for a width-1 array
+  void getBytes(int index, byte[] bytes) {
+    this.buffer.get(index, bytes);
+  }
+
+  void putBytes(int index, byte[] bytes) {
+    this.buffer.put(index, bytes);
+  }
+
+  /**
+   * @return the off-heap bytes reserved by the array
+   */
+  long bytes() {
+    return this.buffer.capacity();
+  }
+}
@@ -0,0 +1,252 @@
+package edu.brown.cs.student.main.server.storage;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+/**
+ * A {@link ChangeBus} over Postgres LISTEN/NOTIFY, for server instances that share one database.
+ *
+ * <p>Events are sent with pg_notify on the {@value #CHANNEL} channel as "instance|events", one
+ * event per line, where the instance id lets each instance skip its own events. Writes queue their
+ * events on their own connection, inside their transaction, and Postgres delivers them only on
+ * commit; a bulk write's events are packed into as few notifications as the payload limit allows. A
+ * daemon thread holds a dedicated connection that LISTENs on the channel and hands each
+ * notification to the subscribers as soon as it arrives, so the lag is one round trip through the
+ * database.
+ *
+ * <p>Notifications sent while the listener is disconnected are lost. When the connection drops, the
+ * listener reconnects with exponential backoff and, once it is LISTENing again, has every
+ * subscriber resync.
+ */
+public class PostgresChangeBus implements ChangeBus {
+  static final String CHANNEL = "listing_changes";
+  // how long the listener blocks waiting for notifications before checking whether it was closed
+  private static final int POLL_MILLIS = 250;
+  private static final long MIN_BACKOFF_MILLIS = 500;
+  private static final long MAX_BACKOFF_MILLIS = 30_000;
+  // Postgres rejects NOTIFY payloads of 8000 bytes or more
+  private static final int MAX_PAYLOAD_BYTES = 7_900;
+
+  private final ConnectionPool.ConnectionFactory factory;
+  private final String instanceId = UUID.randomUUID().toString().substring(0, 8);
+  private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+  private final Thread listener;
+  private volatile boolean closed = false;
+  private volatile boolean listening = false;
+
+  // guarded by this
+  private Connection publishConnection;
+
+  private final AtomicLong published = new AtomicLong();
+  private final AtomicLong publishFailures = new AtomicLong();
+  private final AtomicLong received = new AtomicLong();
+  private final AtomicLong malformed = new AtomicLong();
+  private final AtomicLong reconnects = new AtomicLong();
+
+  /**
+   * @param jdbcUrl the JDBC url of the shared primary, including credentials
+   */
+  public PostgresChangeBus(String jdbcUrl) {
+    this(() -> DriverManager.getConnection(jdbcUrl));
+  }
+
+  /**
+   * Starts listening right away.
+   *
+   * @param factory opens connections to the shared primary; the bus keeps two open, one to publish
+   *     on and one to listen on
+   */
+  public PostgresChangeBus(ConnectionPool.ConnectionFactory factory) {
+    this.factory = factory;
+    this.listener = new Thread(this::listen, "change-bus-listener");
+    this.listener.setDaemon(true);
+    this.listener.start();
+  }
+
+  @Override
+  public synchronized void publish(ChangeEvent event) {
+    try {
+      if (this.publishConnection == null || this.publishConnection.isClosed()) {
+        this.publishConnection = this.factory.open();
+      }
+      try (PreparedStatement statement =
+          this.publishConnection.prepareStatement("SELECT pg_notify(?, ?)")) {
+        statement.setString(1, CHANNEL);
+        statement.setString(2, this.instanceId + "|" + event.encode());
+        statement.execute();
+      }
+      this.published.incrementAndGet();
+    } catch (SQLException e) {
+      // the write itself committed; other instances catch up at their next resync
+      this.publishFailures.incrementAndGet();
+      System.err.println("Error publishing change " + event + ": " + e.getMessage());
+      this.closePublishConnection();
+    }
+  }
+
+  @Override
+  public void publish(Connection connection, List<ChangeEvent> events) throws SQLException {
+    if (events.isEmpty()) {
+      return;
+    }
+    try (PreparedStatement statement = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+      // the instance id and its separator, then the events one per line
+      int headerBytes = this.instanceId.length() + 1;
+      StringBuilder batch = new StringBuilder();
+      int batchBytes = 0;
+      for (ChangeEvent event : events) {
+        String encoded = event.encode();
+        int encodedBytes = encoded.getBytes(StandardCharsets.UTF_8).length;
+        if (batchBytes > 0 && headerBytes + batchBytes + 1 + encodedBytes > MAX_PAYLOAD_BYTES) {
+          this.sendNotification(statement, batch);
+          batch.setLength(0);
+          batchBytes = 0;
+        }
+        if (batchBytes > 0) {
+          batch.append('\n');
+          batchBytes++;
+        }
+        batch.append(encoded);
+        batchBytes += encodedBytes;
+      }
+      this.sendNotification(statement, batch);
+    }
+    this.published.addAndGet(events.size());
+  }
+
+  private void sendNotification(PreparedStatement statement, CharSequence batch)
+      throws SQLException {
+    statement.setString(1, CHANNEL);
+    statement.setString(2, this.instanceId + "|" + batch);
+    statement.execute();
+  }
+
+  private synchronized void closePublishConnection() {
+    if (this.publishConnection != null) {
+      try {
+        this.publishConnection.close();
+      } catch (SQLException ignored) {
+        // already broken
+      }
+      this.publishConnection = null;
+    }
+  }
+
+  @Override
+  public void subscribe(Subscriber subscriber) {
+    this.subscribers.add(subscriber);
+  }
+
+  // The listener thread: LISTEN, deliver until the connection fails, back off, reconnect, resync
+  private void listen() {
+    boolean connectedBefore = false;
+    long backoff = MIN_BACKOFF_MILLIS;
+    while (!this.closed) {
+      try (Connection connection = this.factory.open();
+          Statement statement = connection.createStatement()) {
+        statement.execute("LISTEN " + CHANNEL);
+        this.listening = true;
+        if (connectedBefore) {
+          // anything published while we were away is gone; only a full reload is safe
+          this.reconnects.incrementAndGet();
+          for (Subscriber subscriber : this.subscribers) {
+            subscriber.resync();
+          }
+        }
+        connectedBefore = true;
+        backoff = MIN_BACKOFF_MILLIS;
+
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        while (!this.closed) {
+          PGNotification[] notifications = pgConnection.getNotifications(POLL_MILLIS);
+          if (notifications != null) {
+            for (PGNotification notification : notifications) {
+              this.deliver(notification.getParameter());
+            }
+          }
+        }
+      } catch (SQLException | RuntimeException e) {
+        this.listening = false;
+        if (this.closed) {
+          return;
+        }
+        System.err.println(
+            "Change listener disconnected, retrying in " + backoff + " ms: " + e.getMessage());
+        try {
+          Thread.sleep(backoff);
+        } catch (InterruptedException interrupted) {
+          return;
+        }
+        backoff = Math.min(2 * backoff, MAX_BACKOFF_MILLIS);
+      }
+    }
+  }
+
+  private void deliver(String payload) {
+    int separator = payload.indexOf('|');
+    List<ChangeEvent> events = new ArrayList<>();
+    try {
+      if (separator < 0) {
+        throw new IllegalArgumentException("Missing instance id");
+      }
+      if (payload.substring(0, separator).equals(this.instanceId)) {
+        return;
+      }
+      for (String encoded : payload.substring(separator + 1).split("\n")) {
+        events.add(ChangeEvent.decode(encoded));
+      }
+    } catch (IllegalArgumentException e) {
+      this.malformed.incrementAndGet();
+      System.err.println("Ignoring malformed change notification: " + payload);
+      return;
+    }
+    for (ChangeEvent event : events) {
+      this.received.incrementAndGet();
+      for (Subscriber subscriber : this.subscribers) {
+        try {
+          subscriber.changed(event);
+        } catch (RuntimeException e) {
+          System.err.println("Error applying change " + event + ": " + e.getMessage());
+        }
+      }
+    }
+  }
+
+  @Override
+  public Map<String, Object> getStats() {
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("instance", this.instanceId);
+    stats.put("listening", this.listening);
+    stats.put("published", this.published.get());
+    stats.put("publish_failures", this.publishFailures.get());
+    stats.put("received", this.received.get());
+    stats.put("malformed", this.malformed.get());
+    stats.put("reconnects", this.reconnects.get());
+    return stats;
+  }
+
+  @Override
+  public void close() {
+    this.closed = true;
+    this.listener.interrupt();
+    try {
+      this.listener.join(2 * POLL_MILLIS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    this.closePublishConnection();
+  }
+}
@@ -1,29 +1,177 @@
 package edu.brown.cs.student.main.server.storage;
 
 import edu.brown.cs.student.main.server.classes.Listing;
+import edu.brown.cs.student.main.server.classes.ListingFacets;
+import edu.brown.cs.student.main.server.classes.ListingPage;
 import edu.brown.cs.student.main.server.classes.User;
 import io.github.cdimascio.dotenv.Dotenv;
+import java.io.IOException;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 /** A handler for the Postgres database */
 public class RealStorage implements StorageInterface {
-  private String JDBC;
+  // rows per round trip when streaming listings through a server-side cursor
+  private static final int STREAM_FETCH_SIZE = 256;
+  // rows per multi-row INSERT in createListings; 9 parameters each stays well under the driver's
+  // 32767 bind parameter limit
+  private static final int INSERT_BATCH_SIZE = 1000;
+  // text searches shorter than this go to the database: the text index needs a trigram
+  private static final int MIN_INDEXED_TEXT_QUERY = 3;
+  // past this many text matches, LIKE on the trigram indexes beats binding every id as an array
+  private static final int MAX_TEXT_MATCH_IDS = 10_000;
+
+  // how long a writer's own reads stay on the primary after a write; JDBC_READ_YOUR_WRITES_MS
+  // overrides it
+  private static final long DEFAULT_READ_YOUR_WRITES_MILLIS = 5_000;
+
+  private final ReplicaRouter router;
+  // the titles and descriptions of every listing, for the title filter
+  private volatile SearchIndex textIndex;
+  private volatile ChangeBus changes;
 
   public RealStorage() {
-    Dotenv dotenv = Dotenv.load();
-    this.JDBC = dotenv.get("JDBC");
+    this(Dotenv.load());
+  }
+
+  private RealStorage(Dotenv dotenv) {
+    this(dotenv.get("JDBC"), dotenv.get("JDBC_REPLICAS", ""), dotenv);
+  }
+
+  /**
+   * Connects to the database in JDBC and the replicas in JDBC_REPLICAS, and migrates its schema.
+   *
+   * @param dotenv the .env settings, already loaded
+   * @return the storage
+   */
+  public static RealStorage fromEnv(Dotenv dotenv) {
+    return new RealStorage(dotenv);
+  }
+
+  /**
+   * Connects to one database, taking the pool settings from .env, and migrates its schema.
+   *
+   * @param jdbcUrl the primary's JDBC url
+   * @param replicaUrls a comma-separated list of read replica JDBC urls; may be empty
+   */
+  public RealStorage(String jdbcUrl, String replicaUrls) {
+    this(jdbcUrl, replicaUrls, Dotenv.configure().ignoreIfMissing().load());
+  }
+
+  /**
+   * Connects to one database and migrates its schema.
+   *
+   * @param jdbcUrl the primary's JDBC url
+   * @param replicaUrls a comma-separated list of read replica JDBC urls; may be empty
+   * @param dotenv the .env settings, already loaded, for the pool settings
+   */
+  public RealStorage(String jdbcUrl, String replicaUrls, Dotenv dotenv) {
+    int poolSize = Integer.parseInt(dotenv.get("JDBC_POOL_SIZE", "10"));
+    long timeout = Long.parseLong(dotenv.get("JDBC_POOL_TIMEOUT_MS", "5000"));
+    long leakThreshold = Long.parseLong(dotenv.get("JDBC_POOL_LEAK_THRESHOLD_MS", "60000"));
+
+    List<ConnectionPool> replicas = new ArrayList<>();
+    for (String url : replicaUrls.split(",")) {
+      if (!url.isBlank()) {
+        replicas.add(new ConnectionPool(url.trim(), poolSize, timeout, leakThreshold));
+      }
+    }
+    this.router =
+        new ReplicaRouter(
+            new ConnectionPool(jdbcUrl, poolSize, timeout, leakThreshold),
+            replicas,
+            readYourWritesMillis(dotenv));
+    try {
+      new SchemaMigrator(this.router.primaryPool()).migrate();
+    } catch (SQLException e) {
+      throw new IllegalStateException("Could not migrate the database schema", e);
+    }
+  }
+
+  private static long readYourWritesMillis(Dotenv dotenv) {
+    return Long.parseLong(
+        dotenv.get("JDBC_READ_YOUR_WRITES_MS", String.valueOf(DEFAULT_READ_YOUR_WRITES_MILLIS)));
+  }
+
+  /**
+   * @param dotenv the .env settings
+   * @return how far behind the primary a replica read may be: the read-your-writes window if
+   *     JDBC_REPLICAS lists any replica, and 0 otherwise
+   */
+  public static long replicaLagMillis(Dotenv dotenv) {
+    if (dotenv.get("JDBC_REPLICAS", "").isBlank()) {
+      return 0;
+    }
+    return readYourWritesMillis(dotenv);
+  }
+
+  public RealStorage(ConnectionPool pool) {
+    this(new ReplicaRouter(pool, List.of(), 0));
+  }
+
+  public RealStorage(ReplicaRouter router) {
+    this.router = router;
+  }
+
+  /**
+   * Publishes a {@link ChangeEvent} on the bus in the transaction of every write, and follows the
+   * events of other instances: a changed listing's text is re-read into the text index, and reads
+   * of a changed listing or seller go to the primary for the read-your-writes window. Caches that
+   * subscribe after this call therefore reload changed listings without replica lag.
+   *
+   * @param bus the bus shared with the other instances
+   */
+  public void useChangeBus(ChangeBus bus) {
+    this.changes = bus;
+    bus.subscribe(
+        new ChangeBus.Subscriber() {
+          @Override
+          public void changed(ChangeEvent event) {
+            if (event.getKind() == ChangeEvent.Kind.LISTING) {
+              router.recordWrite(listingKey(event.getListingId()));
+              refreshText(event.getListingId());
+            } else {
+              router.recordWrite(sellerKey(event.getClerkId()));
+            }
+          }
+
+          @Override
+          public void resync() {
+            // rebuilt from the primary on next use
+            synchronized (RealStorage.this) {
+              textIndex = null;
+            }
+          }
+        });
+  }
+
+  // Queues a write's events in its transaction, so the other instances hear of it exactly when it
+  // commits
+  private void publish(Connection connection, List<ChangeEvent> events) throws SQLException {
+    ChangeBus bus = this.changes;
+    if (bus != null) {
+      bus.publish(connection, events);
+    }
+  }
+
+  // routing keys for read-your-writes: a seller's own rows, and a single listing
+  private static String sellerKey(String clerkId) {
+    return "seller:" + clerkId;
+  }
+
+  private static String listingKey(Long listingId) {
+    return "listing:" + listingId;
   }
 
   // Validate email
@@ -53,9 +201,9 @@ public class RealStorage implements StorageInterface {
     String sql =
         "INSERT INTO users (email, name, phone_number, school, clerk_id) VALUES (?, ?, ?, ?, ?) RETURNING id";
 
-    try {
-      Connection connection = DriverManager.getConnection(this.JDBC);
-      PreparedStatement statement = connection.prepareStatement(sql);
+    try (Connection connection = this.router.write();
+        PreparedStatement statement = connection.prepareStatement(sql)) {
+      connection.setAutoCommit(false);
 
       statement.setString(1, email);
       statement.setString(2, name);
@@ -66,6 +214,9 @@ public class RealStorage implements StorageInterface {
       try (ResultSet result = statement.executeQuery()) {
         if (result.next()) {
           Long userId = result.getLong(1);
+          this.publish(connection, List.of(ChangeEvent.user(clerkId)));
+          connection.commit();
+          this.router.recordWrite(sellerKey(clerkId));
           System.out.println("User created successfully with clerk ID: " + clerkId);
           return userId;
         } else {
@@ -84,7 +235,8 @@ public class RealStorage implements StorageInterface {
     StringBuilder sqlBuilder = new StringBuilder("UPDATE users SET ");
     boolean hasUpdates = false;
 
-    try (Connection connection = DriverManager.getConnection(this.JDBC)) {
+    try (Connection connection = this.router.write()) {
+      connection.setAutoCommit(false);
       // Create a list to hold parameters
       List<Object> params = new ArrayList<>();
 
@@ -122,6 +274,9 @@ public class RealStorage implements StorageInterface {
         int rowsAffected = statement.executeUpdate();
 
         if (rowsAffected > 0) {
+          this.publish(connection, List.of(ChangeEvent.user(clerkId)));
+          connection.commit();
+          this.router.recordWrite(sellerKey(clerkId));
           System.out.println("User updated successfully: " + clerkId);
           return true;
         } else {
@@ -144,99 +299,453 @@ public class RealStorage implements StorageInterface {
       Float maxPrice,
       List<String> tags,
       Sorter sorter) {
+    return this.getListings(title, category, minPrice, maxPrice, tags, sorter, ListingFields.ALL);
+  }
 
-    try {
-      List<Listing> listings = new ArrayList<>();
+  @Override
+  public List<Listing> getListings(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter,
+      ListingFields fields) {
 
-      // "Where 1=1" is the same as WHERE TRUE so it lets us append additional filters with AND
-      StringBuilder sqlBuilder =
-          new StringBuilder("SELECT * FROM listings WHERE 1=1 AND available = TRUE");
+    try {
       List<Object> params = new ArrayList<>();
+      StringBuilder sqlBuilder =
+          this.listingFilterSql(fields, title, category, minPrice, maxPrice, tags, params);
+
+      this.appendOrderBy(sqlBuilder, sorter);
+
+      try {
+        return this.queryListings(this.router::read, fields, sqlBuilder.toString(), params);
+      } catch (SQLException e) {
+        throw new RuntimeException("Error fetching listings: " + e.getMessage());
+      }
+    } catch (Exception e) {
+      throw new RuntimeException("unknown error: " + e.getMessage());
+    }
+  }
+
+  @Override
+  public void forEachListing(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter,
+      ListingVisitor visitor)
+      throws Exception {
+    this.forEachListing(
+        title, category, minPrice, maxPrice, tags, sorter, ListingFields.ALL, visitor);
+  }
+
+  @Override
+  public void forEachListing(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter,
+      ListingFields fields,
+      ListingVisitor visitor)
+      throws Exception {
+    List<Object> params = new ArrayList<>();
+    StringBuilder sqlBuilder =
+        this.listingFilterSql(fields, title, category, minPrice, maxPrice, tags, params);
+    this.appendOrderBy(sqlBuilder, sorter);
+
+    this.streamListings(this.router::read, fields, sqlBuilder.toString(), params, visitor);
+  }
+
+  @Override
+  public ListingPage getListingsPage(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter,
+      int limit,
+      String cursor) {
+    return this.getListingsPage(
+        title, category, minPrice, maxPrice, tags, sorter, limit, cursor, ListingFields.ALL);
+  }
+
+  @Override
+  public ListingPage getListingsPage(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter,
+      int limit,
+      String cursor,
+      ListingFields fields) {
+    if (limit <= 0) {
+      throw new IllegalArgumentException("Limit must be positive");
+    }
+    ListingCursor position = ListingCursor.decode(cursor, sorter);
+    // the next cursor is built from the last row's sort key, so it has to be loaded
+    ListingFields pageFields = sorter == null ? fields : fields.with("price");
+
+    try {
+      ListingPage page =
+          this.queryPage(
+              pageFields, title, category, minPrice, maxPrice, tags, sorter, limit, position);
+      if (pageFields == fields) {
+        return page;
+      }
+      // drop the price again if only the cursor needed it, like the other backends
+      return new ListingPage(
+          page.getListings().stream().map(fields::project).toList(), page.getNextCursor());
+    } catch (SQLException e) {
+      throw new RuntimeException("Error fetching listings: " + e.getMessage());
+    }
+  }
+
+  private ListingPage queryPage(
+      ListingFields fields,
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter,
+      int limit,
+      ListingCursor position)
+      throws SQLException {
+    List<Object> params = new ArrayList<>();
+    StringBuilder sqlBuilder =
+        this.listingFilterSql(fields, title, category, minPrice, maxPrice, tags, params);
+
+    // keyset pagination: continue strictly after the last row of the previous page, in an order
+    // that is total thanks to the id tiebreaker
+    if (sorter == null) {
+      if (position != null) {
+        sqlBuilder.append(" AND id > ?");
+        params.add(position.getId());
+      }
+      sqlBuilder.append(" ORDER BY id ASC");
+    } else {
+      String direction = sorter == Sorter.PRICE_DESC ? "DESC" : "ASC";
+      if (position != null) {
+        sqlBuilder.append(
+            sorter == Sorter.PRICE_DESC
+                ? " AND (price, id) < (?, ?)"
+                : " AND (price, id) > (?, ?)");
+        params.add(position.getPrice());
+        params.add(position.getId());
+      }
+      sqlBuilder.append(" ORDER BY price ").append(direction).append(", id ").append(direction);
+    }
+
+    // fetch one extra row to learn whether there is a next page
+    sqlBuilder.append(" LIMIT ?");
+    params.add(limit + 1);
 
-      // Apply filters dynamically
-      if (title != null && !title.trim().isEmpty()) {
-        sqlBuilder.append(" AND LOWER(title) LIKE ?");
-        params.add("%" + title.trim().toLowerCase() + "%");
+    List<Listing> listings =
+        this.queryListings(this.router::read, fields, sqlBuilder.toString(), params);
+    String nextCursor = null;
+    if (listings.size() > limit) {
+      listings = listings.subList(0, limit);
+      nextCursor = ListingCursor.after(sorter, listings.get(limit - 1)).encode();
+    }
+    return new ListingPage(listings, nextCursor);
+  }
+
+  @Override
+  public ListingFacets getFacets(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      List<Float> priceBoundaries,
+      int topTags)
+      throws SQLException {
+    FacetCounter counter = new FacetCounter(priceBoundaries);
+    List<Object> params = new ArrayList<>();
+    StringBuilder matching =
+        this.listingFilterSql(
+            FacetCounter.FIELDS, title, category, minPrice, maxPrice, tags, params);
+
+    String bucket = "0";
+    if (!priceBoundaries.isEmpty()) {
+      bucket = "width_bucket(price::float8, ?::float8[])";
+      params.add(priceBoundaries.stream().map(Float::doubleValue).toArray(Double[]::new));
+    }
+    // every facet in one statement: the matching rows are scanned once into the CTE and each
+    // branch groups over them
+    String sql =
+        "WITH matching AS ("
+            + matching
+            + ") SELECT 'total' AS facet, NULL AS value, COUNT(*) AS count FROM matching"
+            + " UNION ALL SELECT 'category', category, COUNT(*) FROM matching GROUP BY category"
+            + " UNION ALL SELECT 'tag', tag, COUNT(*) FROM matching, unnest(matching.tags) AS tag"
+            + " GROUP BY tag"
+            + " UNION ALL SELECT 'price', "
+            + bucket
+            + "::text, COUNT(*) FROM matching GROUP BY 2";
+
+    try (Connection connection = this.router.read();
+        PreparedStatement statement = connection.prepareStatement(sql)) {
+      this.bindParams(connection, statement, params);
+      try (ResultSet rs = statement.executeQuery()) {
+        while (rs.next()) {
+          String value = rs.getString("value");
+          long count = rs.getLong("count");
+          switch (rs.getString("facet")) {
+            case "total":
+              counter.addTotal(count);
+              break;
+            case "category":
+              counter.addCategory(value, count);
+              break;
+            case "tag":
+              counter.addTag(value, count);
+              break;
+            default:
+              counter.addPriceBucket(Integer.parseInt(value), count);
+          }
+        }
       }
+    }
+    return counter.build(topTags);
+  }
 
-      if (category != null) {
-        sqlBuilder.append(" AND category = ?");
-        params.add(category);
+  // Builds the SELECT and WHERE clause shared by the listing searches, collecting its parameters
+  private StringBuilder listingFilterSql(
+      ListingFields fields,
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      List<Object> params)
+      throws SQLException {
+    // "Where 1=1" is the same as WHERE TRUE so it lets us append additional filters with AND
+    StringBuilder sqlBuilder =
+        new StringBuilder(
+            "SELECT " + fields.sqlColumns() + " FROM listings WHERE 1=1 AND available = TRUE");
+
+    // Apply filters dynamically
+    if (title != null && !title.trim().isEmpty()) {
+      String query = title.trim();
+      SearchIndex index = this.textIndex(query);
+      Set<Long> matches = index != null ? index.search(query) : null;
+      if (matches != null && matches.size() <= MAX_TEXT_MATCH_IDS) {
+        // the in-memory index found the few matching ids, so the database only fetches those
+        sqlBuilder.append(" AND id = ANY(?)");
+        params.add(matches.toArray(new Long[0]));
+      } else {
+        // served by the trigram indexes of migrations 2 and 4 if they could be created, else a
+        // scan
+        String pattern = "%" + escapeLike(query.toLowerCase()) + "%";
+        sqlBuilder.append(
+            " AND (lower(title) LIKE ? ESCAPE '\\' OR lower(description) LIKE ? ESCAPE '\\')");
+        params.add(pattern);
+        params.add(pattern);
       }
+    }
+
+    if (category != null) {
+      sqlBuilder.append(" AND category = ?");
+      params.add(category);
+    }
+
+    if (minPrice != null) {
+      sqlBuilder.append(" AND price >= ?");
+      params.add(minPrice);
+    }
+
+    if (maxPrice != null) {
+      sqlBuilder.append(" AND price <= ?");
+      params.add(maxPrice);
+    }
+
+    // check tags: a listing matches if it has any of them. One array parameter keeps the SQL the
+    // same for every tag count, and the overlap operator can use the GIN index on tags
+    if (tags != null && !tags.isEmpty()) {
+      sqlBuilder.append(" AND tags && ?");
+      params.add(tags.toArray(new String[0]));
+    }
 
-      if (minPrice != null) {
-        sqlBuilder.append(" AND price >= ?");
-        params.add(minPrice);
+    return sqlBuilder;
+  }
+
+  private void appendOrderBy(StringBuilder sqlBuilder, Sorter sorter) {
+    if (sorter != null) {
+      sqlBuilder.append(" ORDER BY ");
+      switch (sorter) {
+        case PRICE_ASC:
+          sqlBuilder.append("price ASC");
+          break;
+        case PRICE_DESC:
+          sqlBuilder.append("price DESC");
+          break;
+        default:
+          throw new IllegalArgumentException("Unsupported sorter");
       }
+    }
+  }
 
-      if (maxPrice != null) {
-        sqlBuilder.append(" AND price <= ?");
-        params.add(maxPrice);
+  // Sets query parameters, turning Java arrays into SQL arrays
+  private void bindParams(Connection connection, PreparedStatement statement, List<Object> params)
+      throws SQLException {
+    for (int i = 0; i < params.size(); i++) {
+      Object param = params.get(i);
+      if (param instanceof Long[]) {
+        statement.setArray(i + 1, connection.createArrayOf("bigint", (Long[]) param));
+      } else if (param instanceof String[]) {
+        statement.setArray(i + 1, connection.createArrayOf("text", (String[]) param));
+      } else if (param instanceof Double[]) {
+        statement.setArray(i + 1, connection.createArrayOf("float8", (Double[]) param));
+      } else {
+        statement.setObject(i + 1, param);
       }
+    }
+  }
 
-      // check tags
-      if (tags != null && !tags.isEmpty()) {
-        sqlBuilder.append(" AND (");
-        for (int i = 0; i < tags.size(); i++) {
-          if (i > 0) {
-            sqlBuilder.append(" OR ");
+  // The text index for a search, or null when the database should do the matching instead. The
+  // index only sees other instances' writes through the change bus, so without one it could miss
+  // their listings; and a query under three characters has no trigrams, so the index would scan
+  // every text and bind nearly the whole table.
+  private SearchIndex textIndex(String query) throws SQLException {
+    if (this.changes == null || query.length() < MIN_INDEXED_TEXT_QUERY) {
+      return null;
+    }
+    return this.textIndex();
+  }
+
+  // Escapes LIKE's wildcards (and the escape character itself) so they match literally
+  private static String escapeLike(String text) {
+    return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+  }
+
+  // The text search index, built from every stored listing the first time it is needed
+  private SearchIndex textIndex() throws SQLException {
+    SearchIndex index = this.textIndex;
+    if (index != null) {
+      return index;
+    }
+    synchronized (this) {
+      if (this.textIndex == null) {
+        SearchIndex built = new SearchIndex();
+        // loaded from the primary: later writes update the index directly, so it must not start
+        // out behind them
+        try (Connection connection = this.router.write();
+            PreparedStatement statement =
+                connection.prepareStatement("SELECT id, title, description FROM listings");
+            ResultSet resultSet = statement.executeQuery()) {
+          while (resultSet.next()) {
+            built.put(
+                resultSet.getLong("id"),
+                resultSet.getString("title"),
+                resultSet.getString("description"));
           }
-          sqlBuilder.append("? = ANY(tags)");
-          params.add(tags.get(i));
         }
-        sqlBuilder.append(")");
-      }
-
-      if (sorter != null) {
-        sqlBuilder.append(" ORDER BY ");
-        switch (sorter) {
-          case PRICE_ASC:
-            sqlBuilder.append("price ASC");
-            break;
-          case PRICE_DESC:
-            sqlBuilder.append("price DESC");
-            break;
-          default:
-            throw new IllegalArgumentException("Unsupported sorter");
+        this.textIndex = built;
+      }
+      return this.textIndex;
+    }
+  }
+
+  // Applies a write to the text index if it has been built. Holding the lock used while building
+  // means a write can't slip in between the index's initial load and it being published. A null
+  // title removes the listing.
+  private synchronized void indexText(long listingId, String title, String description) {
+    if (this.textIndex != null) {
+      if (title == null) {
+        this.textIndex.remove(listingId);
+      } else {
+        this.textIndex.put(listingId, title, description);
+      }
+    }
+  }
+
+  // Re-reads a listing's title and description from the primary after it changed
+  private void refreshText(Long listingId) {
+    if (this.textIndex == null) {
+      return;
+    }
+    try (Connection connection = this.router.write();
+        PreparedStatement statement =
+            connection.prepareStatement("SELECT title, description FROM listings WHERE id = ?")) {
+      statement.setLong(1, listingId);
+      try (ResultSet resultSet = statement.executeQuery()) {
+        if (resultSet.next()) {
+          this.indexText(listingId, resultSet.getString(1), resultSet.getString(2));
+        } else {
+          this.indexText(listingId, null, null);
         }
       }
+    } catch (SQLException e) {
+      System.err.println("Error refreshing listing text: " + e.getMessage());
+      synchronized (this) {
+        this.textIndex = null;
+      }
+    }
+  }
 
-      try (Connection connection = DriverManager.getConnection(this.JDBC);
-          PreparedStatement statement = connection.prepareStatement(sqlBuilder.toString())) {
+  // Runs a listing query on a connection from source and maps every row to a Listing
+  private List<Listing> queryListings(
+      ConnectionPool.ConnectionFactory source,
+      ListingFields fields,
+      String sql,
+      List<Object> params)
+      throws SQLException {
+    List<Listing> listings = new ArrayList<>();
+    RowMapper<Listing> mapper = RowMapper.listing(fields);
 
-        System.out.println("SQL QUERY: " + sqlBuilder.toString());
+    try (Connection connection = source.open();
+        PreparedStatement statement = connection.prepareStatement(sql)) {
 
-        // Set query parameters
-        for (int i = 0; i < params.size(); i++) {
-          statement.setObject(i + 1, params.get(i));
+      System.out.println("SQL QUERY: " + sql);
+
+      this.bindParams(connection, statement, params);
+
+      try (ResultSet resultSet = statement.executeQuery()) {
+        while (resultSet.next()) {
+          listings.add(mapper.map(resultSet));
         }
+      }
+    }
+
+    return listings;
+  }
+
+  // Runs a listing query through a server-side cursor, handing each row to the visitor as it is
+  // read so the full result set is never held in memory
+  private void streamListings(
+      ConnectionPool.ConnectionFactory source,
+      ListingFields fields,
+      String sql,
+      List<Object> params,
+      ListingVisitor visitor)
+      throws SQLException, IOException {
+    RowMapper<Listing> mapper = RowMapper.listing(fields);
+    try (Connection connection = source.open()) {
+      // the driver only fetches in batches (instead of buffering every row) outside autocommit;
+      // the pool restores autocommit when the connection is returned
+      connection.setAutoCommit(false);
+
+      try (PreparedStatement statement = connection.prepareStatement(sql)) {
+        statement.setFetchSize(STREAM_FETCH_SIZE);
+        this.bindParams(connection, statement, params);
 
         try (ResultSet resultSet = statement.executeQuery()) {
           while (resultSet.next()) {
-            // Map ResultSet to Listing object
-            Listing listing =
-                new Listing(
-                    resultSet.getLong("id"),
-                    resultSet.getString("seller_id"),
-                    resultSet.getString("title"),
-                    resultSet.getString("description"),
-                    resultSet.getFloat("price"),
-                    resultSet.getString("category"),
-                    resultSet.getString("condition"),
-                    resultSet.getString("image_url"),
-                    Arrays.asList((String[]) resultSet.getArray("tags").getArray()),
-                    resultSet.getBoolean("available"));
-            listings.add(listing);
+            visitor.visit(mapper.map(resultSet));
           }
         }
-
-      } catch (SQLException e) {
-        throw new RuntimeException("Error fetching listings: " + e.getMessage());
       }
-
-      return listings;
-    } catch (Exception e) {
-      throw new RuntimeException("unknown error: " + e.getMessage());
+      connection.commit();
     }
   }
 
@@ -262,9 +771,9 @@ public class RealStorage implements StorageInterface {
 
     System.out.println(sql);
 
-    try {
-      Connection connection = DriverManager.getConnection(this.JDBC);
-      PreparedStatement statement = connection.prepareStatement(sql);
+    try (Connection connection = this.router.write();
+        PreparedStatement statement = connection.prepareStatement(sql)) {
+      connection.setAutoCommit(false);
 
       statement.setString(1, sellerId);
       statement.setString(2, title);
@@ -284,6 +793,11 @@ public class RealStorage implements StorageInterface {
       try (ResultSet result = statement.executeQuery()) {
         if (result.next()) {
           Long listingId = result.getLong(1);
+          this.publish(connection, List.of(ChangeEvent.listing(listingId)));
+          connection.commit();
+          this.indexText(listingId, title, description);
+          this.router.recordWrite(sellerKey(sellerId));
+          this.router.recordWrite(listingKey(listingId));
           System.out.println("Listing created successfully with ID: " + listingId);
           return listingId;
         } else {
@@ -297,71 +811,141 @@ public class RealStorage implements StorageInterface {
     }
   }
 
+  // Inserts the listings with multi-row INSERTs of up to INSERT_BATCH_SIZE rows, all in one
+  // transaction. COPY would be faster still, but it cannot hand back the generated ids.
   @Override
-  public Map<String, Object> getUser(String clerkId) throws Exception {
-    Map<String, Object> userData = new HashMap<>();
-    String sql = "SELECT * FROM users WHERE clerk_id = ?";
+  public List<Long> createListings(List<Listing> listings)
+      throws IllegalArgumentException, SQLException {
+    for (Listing listing : listings) {
+      validatePrice(listing.getPrice());
+    }
 
-    try (Connection connection = DriverManager.getConnection(this.JDBC);
-        PreparedStatement statement = connection.prepareStatement(sql)) {
-      statement.setString(1, clerkId);
-      try (ResultSet rs = statement.executeQuery()) {
-        if (rs.next()) {
-          userData.put("id", rs.getLong("id"));
-          userData.put("clerk_id", rs.getString("clerk_id"));
-          userData.put("email", rs.getString("email"));
-          userData.put("name", rs.getString("name"));
-          userData.put("phone_number", rs.getString("phone_number"));
-          userData.put("school", rs.getString("school"));
-          userData.put("tags", cleanTags(rs.getString("interests")));
+    List<Long> listingIds = new ArrayList<>(listings.size());
+    try (Connection connection = this.router.write()) {
+      connection.setAutoCommit(false);
+      for (int start = 0; start < listings.size(); start += INSERT_BATCH_SIZE) {
+        List<Listing> batch =
+            listings.subList(start, Math.min(start + INSERT_BATCH_SIZE, listings.size()));
+        this.insertBatch(connection, batch, listingIds);
+      }
+      List<ChangeEvent> events = new ArrayList<>(listingIds.size());
+      for (Long listingId : listingIds) {
+        events.add(ChangeEvent.listing(listingId));
+      }
+      this.publish(connection, events);
+      connection.commit();
+    } catch (SQLException e) {
+      System.err.println("Error bulk inserting listings: " + e.getMessage());
+      throw e;
+    }
+
+    for (int i = 0; i < listings.size(); i++) {
+      this.indexText(
+          listingIds.get(i), listings.get(i).getTitle(), listings.get(i).getDescription());
+      this.router.recordWrite(sellerKey(listings.get(i).getSellerId()));
+      this.router.recordWrite(listingKey(listingIds.get(i)));
+    }
+    return listingIds;
+  }
+
+  private void insertBatch(Connection connection, List<Listing> batch, List<Long> listingIds)
+      throws SQLException {
+    // RETURNING rows come back in no guaranteed order, so the ids are reserved up front and
+    // inserted explicitly; each listing then has its id before the row exists
+    List<Long> batchIds = new ArrayList<>(batch.size());
+    try (PreparedStatement reserve =
+        connection.prepareStatement(
+            "SELECT nextval(pg_get_serial_sequence('listings', 'id'))"
+                + " FROM generate_series(1, ?)")) {
+      reserve.setInt(1, batch.size());
+      try (ResultSet result = reserve.executeQuery()) {
+        while (result.next()) {
+          batchIds.add(result.getLong(1));
         }
       }
     }
-    return userData;
+    if (batchIds.size() != batch.size()) {
+      throw new SQLException("Reserved " + batchIds.size() + " ids for " + batch.size() + " rows");
+    }
+
+    StringBuilder sqlBuilder =
+        new StringBuilder(
+            "INSERT INTO listings "
+                + "(id, seller_id, title, available, description, price, category, condition, image_url, tags) "
+                + "OVERRIDING SYSTEM VALUE VALUES ");
+    for (int i = 0; i < batch.size(); i++) {
+      sqlBuilder.append(i > 0 ? ", " : "").append("(?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+    }
+
+    try (PreparedStatement statement = connection.prepareStatement(sqlBuilder.toString())) {
+      int param = 1;
+      for (int i = 0; i < batch.size(); i++) {
+        Listing listing = batch.get(i);
+        List<String> tags = listing.getTags() != null ? listing.getTags() : List.of();
+        statement.setLong(param++, batchIds.get(i));
+        statement.setString(param++, listing.getSellerId());
+        statement.setString(param++, listing.getTitle());
+        statement.setBoolean(param++, listing.getAvailable());
+        statement.setString(param++, listing.getDescription());
+        statement.setFloat(param++, listing.getPrice());
+        statement.setString(param++, listing.getCategory());
+        statement.setString(param++, listing.getCondition());
+        statement.setString(param++, listing.getImageUrl());
+        statement.setArray(param++, connection.createArrayOf("text", tags.toArray()));
+      }
+      statement.executeUpdate();
+    }
+    listingIds.addAll(batchIds);
   }
 
   @Override
-  public List<Map<String, Object>> getListingsBySellerId(String sellerId) throws Exception {
-    List<Map<String, Object>> listings = new ArrayList<>();
-    String sql = "SELECT * FROM listings WHERE seller_id = ?";
+  public User getUser(String clerkId) throws Exception {
+    String sql = "SELECT * FROM users WHERE clerk_id = ?";
 
-    try (Connection connection = DriverManager.getConnection(this.JDBC);
+    try (Connection connection = this.router.read(sellerKey(clerkId));
         PreparedStatement statement = connection.prepareStatement(sql)) {
-
-      statement.setString(1, sellerId);
-
+      statement.setString(1, clerkId);
       try (ResultSet rs = statement.executeQuery()) {
-        while (rs.next()) {
-          Map<String, Object> listing = new HashMap<>();
-          listing.put("id", rs.getLong("id"));
-          listing.put("title", rs.getString("title"));
-          listing.put("description", rs.getString("description"));
-          listing.put("price", rs.getDouble("price"));
-          listing.put("available", rs.getBoolean("available"));
-          listing.put("category", rs.getString("category"));
-          listing.put("condition", rs.getString("condition"));
-          listing.put("image_url", rs.getString("image_url"));
-
-          String tagsJson = rs.getString("tags");
-          listing.put("tags", cleanTags(tagsJson));
-          listings.add(listing);
-        }
+        return rs.next() ? RowMapper.user().map(rs) : null;
       }
     }
+  }
 
-    return listings;
+  @Override
+  public List<Listing> getListingsBySellerId(String sellerId) throws Exception {
+    return this.queryListings(
+        () -> this.router.read(sellerKey(sellerId)),
+        ListingFields.ALL,
+        "SELECT * FROM listings WHERE seller_id = ?",
+        List.of(sellerId));
   }
 
-  private List<String> cleanTags(String tagsJson) {
-    if (tagsJson == null || tagsJson.trim().isEmpty()) {
-      return new ArrayList<>();
-    }
+  @Override
+  public void forEachListingBySellerId(String sellerId, ListingVisitor visitor) throws Exception {
+    this.forEachListingBySellerId(sellerId, ListingFields.ALL, visitor);
+  }
 
-    String cleanedTags = tagsJson.replaceAll("[\\{\\}\\[\\]\\\"]", "").replace("\\", "");
-    return Arrays.stream(cleanedTags.split(","))
-        .map(String::trim)
-        .filter(tag -> !tag.isEmpty())
-        .collect(Collectors.toList());
+  @Override
+  public void forEachListingBySellerId(
+      String sellerId, ListingFields fields, ListingVisitor visitor) throws Exception {
+    this.streamListings(
+        () -> this.router.read(sellerKey(sellerId)),
+        fields,
+        "SELECT " + fields.sqlColumns() + " FROM listings WHERE seller_id = ?",
+        List.of(sellerId),
+        visitor);
+  }
+
+  /**
+   * Streams every stored listing, available or not, e.g. to build an in-memory index at startup.
+   *
+   * @param visitor receives each listing
+   * @throws Exception if the query fails
+   */
+  public void forEachStoredListing(ListingVisitor visitor) throws Exception {
+    // from the primary, so an index built from it misses no recent write
+    this.streamListings(
+        this.router::write, ListingFields.ALL, "SELECT * FROM listings", List.of(), visitor);
   }
 
   @Override
@@ -374,7 +958,7 @@ public class RealStorage implements StorageInterface {
     Listing listing = null;
     String sql = "SELECT * FROM listings WHERE id = ?";
 
-    try (Connection connection = DriverManager.getConnection(this.JDBC);
+    try (Connection connection = this.router.read(listingKey(listingId));
         PreparedStatement statement = connection.prepareStatement(sql)) {
 
       statement.setLong(1, listingId);
@@ -382,20 +966,7 @@ public class RealStorage implements StorageInterface {
         while (resultSet.next()) {
 
           // create Listing object from ResultSet
-          listing =
-              new Listing(
-                  resultSet.getLong("id"),
-                  resultSet.getString("seller_id"),
-                  resultSet.getString("title"),
-                  resultSet.getString("description"),
-                  resultSet.getFloat("price"),
-                  resultSet.getString("category"),
-                  resultSet.getString("condition"),
-                  resultSet.getString("image_url"),
-
-                  // base64Image,
-                  Arrays.asList((String[]) resultSet.getArray("tags").getArray()),
-                  resultSet.getBoolean("available"));
+          listing = RowMapper.listing(ListingFields.ALL).map(resultSet);
         }
       }
       return listing;
@@ -406,6 +977,33 @@ public class RealStorage implements StorageInterface {
     }
   }
 
+  @Override
+  public Map<Long, Listing> obtainListings(Collection<Long> listingIds) throws SQLException {
+    return this.obtainListings(listingIds, ListingFields.ALL);
+  }
+
+  @Override
+  public Map<Long, Listing> obtainListings(Collection<Long> listingIds, ListingFields fields)
+      throws SQLException {
+    Map<Long, Listing> listings = new HashMap<>();
+    if (listingIds.isEmpty()) {
+      return listings;
+    }
+
+    List<Object> params = new ArrayList<>();
+    params.add(listingIds.toArray(new Long[0]));
+    String[] keys = listingIds.stream().map(RealStorage::listingKey).toArray(String[]::new);
+    for (Listing listing :
+        this.queryListings(
+            () -> this.router.read(keys),
+            fields,
+            "SELECT " + fields.sqlColumns() + " FROM listings WHERE id = ANY(?)",
+            params)) {
+      listings.put(listing.getId(), listing);
+    }
+    return listings;
+  }
+
   @Override
   public boolean updateListing(Long listingId, Listing updatedListing) {
     // Validate price if price is being updated
@@ -417,7 +1015,8 @@ public class RealStorage implements StorageInterface {
     StringBuilder sqlBuilder = new StringBuilder("UPDATE listings SET ");
     boolean hasUpdates = false;
 
-    try (Connection connection = DriverManager.getConnection(this.JDBC)) {
+    try (Connection connection = this.router.write()) {
+      connection.setAutoCommit(false);
       // Create a list to hold parameters
       List<Object> params = new ArrayList<>();
 
@@ -475,7 +1074,8 @@ public class RealStorage implements StorageInterface {
         return false;
       }
 
-      sqlBuilder.append(" WHERE id = ?");
+      // the seller comes back too: their listings changed, so their reads are pinned as well
+      sqlBuilder.append(" WHERE id = ? RETURNING seller_id");
       params.add(listingId);
 
       try (PreparedStatement statement = connection.prepareStatement(sqlBuilder.toString())) {
@@ -483,9 +1083,17 @@ public class RealStorage implements StorageInterface {
           statement.setObject(i + 1, params.get(i));
         }
 
-        int rowsAffected = statement.executeUpdate();
+        Optional<String> sellerId = returnedSellerId(statement);
 
-        if (rowsAffected > 0) {
+        if (sellerId.isPresent()) {
+          this.publish(connection, List.of(ChangeEvent.listing(listingId)));
+          connection.commit();
+          this.router.recordWrite(sellerKey(sellerId.get()));
+          this.router.recordWrite(listingKey(listingId));
+          if (updatedListing.getTitle() != null || updatedListing.getDescription() != null) {
+            // the update may have changed only one of the two
+            this.refreshText(listingId);
+          }
           System.out.println("Listing updated successfully: " + listingId);
           return true;
         } else {
@@ -499,18 +1107,32 @@ public class RealStorage implements StorageInterface {
     }
   }
 
+  // Runs an UPDATE or DELETE ... RETURNING seller_id, empty if it matched no listing
+  private static Optional<String> returnedSellerId(PreparedStatement statement)
+      throws SQLException {
+    try (ResultSet resultSet = statement.executeQuery()) {
+      return resultSet.next() ? Optional.of(resultSet.getString(1)) : Optional.empty();
+    }
+  }
+
   @Override
   public boolean deleteListing(Long listingId) {
-    String sql = "DELETE FROM listings WHERE id = ?";
+    String sql = "DELETE FROM listings WHERE id = ? RETURNING seller_id";
 
-    try (Connection connection = DriverManager.getConnection(this.JDBC);
+    try (Connection connection = this.router.write();
         PreparedStatement statement = connection.prepareStatement(sql)) {
 
+      connection.setAutoCommit(false);
       statement.setLong(1, listingId);
 
-      int rowsAffected = statement.executeUpdate();
+      Optional<String> sellerId = returnedSellerId(statement);
 
-      if (rowsAffected > 0) {
+      if (sellerId.isPresent()) {
+        this.publish(connection, List.of(ChangeEvent.listing(listingId)));
+        connection.commit();
+        this.indexText(listingId, null, null);
+        this.router.recordWrite(sellerKey(sellerId.get()));
+        this.router.recordWrite(listingKey(listingId));
         System.out.println("Listing deleted successfully: " + listingId);
         return true;
       } else {
@@ -522,4 +1144,58 @@ public class RealStorage implements StorageInterface {
       return false;
     }
   }
+
+  /**
+   * Records this database's place in a {@link ShardedStorage} the first time it is used as a shard,
+   * and refuses a different place afterwards: listing ids and seller placement both depend on the
+   * shard count and position, so a changed layout would misroute every existing row.
+   *
+   * @param shardIndex this database's position in the shard list
+   * @param shardCount the number of shards
+   * @throws IllegalStateException if the database was recorded with another layout
+   * @throws SQLException if the layout could not be read or recorded
+   */
+  public void checkShardLayout(int shardIndex, int shardCount) throws SQLException {
+    try (Connection connection = this.router.write()) {
+      try (PreparedStatement statement =
+          connection.prepareStatement(
+              "INSERT INTO shard_layout (shard_index, shard_count) VALUES (?, ?)"
+                  + " ON CONFLICT DO NOTHING")) {
+        statement.setInt(1, shardIndex);
+        statement.setInt(2, shardCount);
+        statement.executeUpdate();
+      }
+      try (PreparedStatement statement =
+              connection.prepareStatement("SELECT shard_index, shard_count FROM shard_layout");
+          ResultSet resultSet = statement.executeQuery()) {
+        resultSet.next();
+        int recordedIndex = resultSet.getInt("shard_index");
+        int recordedCount = resultSet.getInt("shard_count");
+        if (recordedIndex != shardIndex || recordedCount != shardCount) {
+          throw new IllegalStateException(
+              "Database is shard "
+                  + recordedIndex
+                  + " of "
+                  + recordedCount
+                  + ", but was configured as shard "
+                  + shardIndex
+                  + " of "
+                  + shardCount
+                  + "; shards cannot be added, removed or reordered once they hold data");
+        }
+      }
+    }
+  }
+
+  @Override
+  public Map<String, Object> getStats() {
+    Map<String, Object> stats = new HashMap<>();
+    stats.put("pool", this.router.primaryPool().getStats());
+    stats.put("replication", this.router.getStats());
+    stats.put("interned_values", ValueInterner.LISTING_VALUES.getStats());
+    if (this.changes != null) {
+      stats.put("changes", this.changes.getStats());
+    }
+    return stats;
+  }
 }
@@ -0,0 +1,190 @@
+package edu.brown.cs.student.main.server.storage;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chooses which database a query runs on: writes always go to the primary, reads are spread
+ * round-robin over the read replicas.
+ *
+ * <p>Replicas lag the primary, so whoever just wrote something should not read it back from a
+ * replica. Writers record the keys they touched (e.g. {@code seller:<clerk id>} or {@code
+ * listing:<id>}) with {@link #recordWrite(String)}, and reads naming one of those keys go to the
+ * primary for the read-your-writes window afterwards. A replica that fails to hand out a connection
+ * is skipped for a short cool-down, and reads fall back to the primary when no replica is usable.
+ */
+public class ReplicaRouter implements AutoCloseable {
+  private static final long UNHEALTHY_COOLDOWN_MILLIS = 5_000;
+
+  private final ConnectionPool primary;
+  private final List<Replica> replicas = new ArrayList<>();
+  private final long readYourWritesMillis;
+  private final Map<String, Long> recentWrites = new ConcurrentHashMap<>();
+  private final Queue<Pin> expiries = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger nextReplica = new AtomicInteger();
+
+  private final AtomicLong primaryReads = new AtomicLong();
+  private final AtomicLong replicaReads = new AtomicLong();
+  private final AtomicLong replicaFailures = new AtomicLong();
+
+  /**
+   * @param primary the pool for the primary database
+   * @param replicas pools for the read replicas; may be empty
+   * @param readYourWritesMillis how long reads of a written key stay on the primary
+   */
+  public ReplicaRouter(
+      ConnectionPool primary, List<ConnectionPool> replicas, long readYourWritesMillis) {
+    this.primary = primary;
+    for (ConnectionPool replica : replicas) {
+      this.replicas.add(new Replica(replica));
+    }
+    this.readYourWritesMillis = readYourWritesMillis;
+  }
+
+  /**
+   * @return the pool for the primary, e.g. to run schema migrations
+   */
+  public ConnectionPool primaryPool() {
+    return this.primary;
+  }
+
+  /**
+   * @return a connection to the primary, for writes and reads that must see every write
+   * @throws SQLException if no connection could be acquired
+   */
+  public Connection write() throws SQLException {
+    return this.primary.getConnection();
+  }
+
+  /**
+   * Borrows a connection for a read, from a replica unless one of the keys was written recently.
+   *
+   * @param keys the keys the read depends on; none means any replica will do
+   * @return a pooled connection
+   * @throws SQLException if neither a replica nor the primary could provide a connection
+   */
+  public Connection read(String... keys) throws SQLException {
+    if (this.replicas.isEmpty() || this.recentlyWritten(keys)) {
+      this.primaryReads.incrementAndGet();
+      return this.primary.getConnection();
+    }
+
+    long now = System.currentTimeMillis();
+    int start = Math.floorMod(this.nextReplica.getAndIncrement(), this.replicas.size());
+    for (int i = 0; i < this.replicas.size(); i++) {
+      Replica replica = this.replicas.get((start + i) % this.replicas.size());
+      if (replica.unhealthyUntil > now) {
+        continue;
+      }
+      try {
+        Connection connection = replica.pool.getConnection();
+        this.replicaReads.incrementAndGet();
+        return connection;
+      } catch (SQLException e) {
+        System.err.println("Read replica unavailable, skipping it: " + e.getMessage());
+        this.replicaFailures.incrementAndGet();
+        replica.unhealthyUntil = now + UNHEALTHY_COOLDOWN_MILLIS;
+      }
+    }
+
+    this.primaryReads.incrementAndGet();
+    return this.primary.getConnection();
+  }
+
+  /**
+   * Pins reads of a key to the primary for the read-your-writes window.
+   *
+   * @param key the key that was written
+   */
+  public void recordWrite(String key) {
+    if (this.replicas.isEmpty() || this.readYourWritesMillis <= 0) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    long expiresAt = now + this.readYourWritesMillis;
+    this.recentWrites.put(key, expiresAt);
+    this.expiries.add(new Pin(key, expiresAt));
+    this.prune(now);
+  }
+
+  // Every pin lasts the same window, so the queue is in expiry order and only its expired head is
+  // looked at: pruning costs O(1) per write however many keys are pinned. A key written again has
+  // a later expiry in the map, which the conditional remove leaves alone.
+  private void prune(long now) {
+    Pin oldest;
+    while ((oldest = this.expiries.peek()) != null && oldest.expiresAt <= now) {
+      if (this.expiries.remove(oldest)) {
+        this.recentWrites.remove(oldest.key, oldest.expiresAt);
+      }
+    }
+  }
+
+  private boolean recentlyWritten(String... keys) {
+    long now = System.currentTimeMillis();
+    for (String key : keys) {
+      Long expiresAt = this.recentWrites.get(key);
+      if (expiresAt != null && expiresAt > now) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Snapshot of the routing counters and the replica pools' stats.
+   *
+   * @return a map from stat name to value
+   */
+  public Map<String, Object> getStats() {
+    Map<String, Object> stats = new LinkedHashMap<>();
+    List<Map<String, Object>> replicaStats = new ArrayList<>();
+    long now = System.currentTimeMillis();
+    for (Replica replica : this.replicas) {
+      Map<String, Object> entry = new LinkedHashMap<>(replica.pool.getStats());
+      entry.put("healthy", replica.unhealthyUntil <= now);
+      replicaStats.add(entry);
+    }
+    stats.put("replicas", replicaStats);
+    stats.put("primary_reads", this.primaryReads.get());
+    stats.put("replica_reads", this.replicaReads.get());
+    stats.put("replica_failures", this.replicaFailures.get());
+    stats.put("pinned_keys", this.recentWrites.size());
+    return stats;
+  }
+
+  @Override
+  public void close() {
+    this.primary.close();
+    for (Replica replica : this.replicas) {
+      replica.pool.close();
+    }
+  }
+
+  private static class Pin {
+    private final String key;
+    private final long expiresAt;
+
+    private Pin(String key, long expiresAt) {
+      this.key = key;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+  private static class Replica {
+    private final ConnectionPool pool;
+    private volatile long unhealthyUntil = 0;
+
+    private Replica(ConnectionPool pool) {
+      this.pool = pool;
+    }
+  }
+}
@@ -0,0 +1,184 @@
+package edu.brown.cs.student.main.server.storage;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * In-memory version numbers for the things read handlers serve, used to build HTTP ETags without
+ * touching the database.
+ *
+ * <p>Every write stamps the keys it affects (see {@link VersionedStorage}) with the next value of a
+ * single counter, so a key's version only ever goes up. Keys are a single listing, a single user,
+ * and {@link #LISTINGS} for results that any listing write can change (searches, a seller's
+ * listings). Only the most recently written keys are remembered; a key that is not, whether it was
+ * forgotten or never written, reports the floor: the highest version ever forgotten. That may be
+ * newer than the key's real last write, which costs a client one unnecessary full response but
+ * never serves it stale data.
+ *
+ * <p>With read replicas, a read that follows a write may still be served by a replica that has not
+ * replayed it, and tagging that response with the new version would have the client keep the stale
+ * body for as long as the tag stays current. So for the settle window after a key is written (the
+ * replica lag the read router already assumes, see {@link ReplicaRouter}), {@link #etag} hands out
+ * no tag for it at all: the response is served in full and untagged, and tags resume once every
+ * replica has the write.
+ *
+ * <p>Versions start over when the server restarts, so tags include a random epoch that is new each
+ * time, and tags from before the restart never match.
+ */
+public class ResourceVersions {
+  /** The key of everything derived from the whole listings table. */
+  public static final String LISTINGS = "listings";
+
+  private static final int DEFAULT_MAX_KEYS = 100_000;
+
+  private final String epoch = UUID.randomUUID().toString().substring(0, 8);
+  private final int maxKeys;
+  private final long settleMillis;
+  // guarded by this; in the order they were last written, so the eldest is forgotten first
+  private final LinkedHashMap<String, Stamp> versions = new LinkedHashMap<>();
+  private long clock = 0;
+  private long floor = 0;
+  // when the newest forgotten key was written, which is when the floor was last raised
+  private long floorWrittenAt = 0;
+
+  // a key's version and when it was written, in System.currentTimeMillis() time
+  private record Stamp(long version, long writtenAt) {}
+
+  public ResourceVersions() {
+    this(DEFAULT_MAX_KEYS, 0);
+  }
+
+  /**
+   * @param maxKeys how many written keys to remember
+   */
+  public ResourceVersions(int maxKeys) {
+    this(maxKeys, 0);
+  }
+
+  /**
+   * @param maxKeys how many written keys to remember
+   * @param settleMillis how long after a write its keys go untagged; 0 without read replicas
+   */
+  public ResourceVersions(int maxKeys, long settleMillis) {
+    if (maxKeys <= 0) {
+      throw new IllegalArgumentException("Version map size must be positive");
+    }
+    if (settleMillis < 0) {
+      throw new IllegalArgumentException("Settle window cannot be negative");
+    }
+    this.maxKeys = maxKeys;
+    this.settleMillis = settleMillis;
+  }
+
+  /**
+   * @param settleMillis how long after a write its keys go untagged; 0 without read replicas
+   * @return versions remembering the default number of keys
+   */
+  public static ResourceVersions withSettleWindow(long settleMillis) {
+    return new ResourceVersions(DEFAULT_MAX_KEYS, settleMillis);
+  }
+
+  public static String listingKey(Long listingId) {
+    return "listing:" + listingId;
+  }
+
+  public static String userKey(String clerkId) {
+    return "user:" + clerkId;
+  }
+
+  /**
+   * Records a write to each key.
+   *
+   * @param keys the keys the write affected
+   */
+  public synchronized void bump(String... keys) {
+    long now = System.currentTimeMillis();
+    for (String key : keys) {
+      // re-inserted so the key moves to the young end
+      this.versions.remove(key);
+      this.versions.put(key, new Stamp(++this.clock, now));
+    }
+    Iterator<Map.Entry<String, Stamp>> eldest = this.versions.entrySet().iterator();
+    while (this.versions.size() > this.maxKeys) {
+      Stamp forgotten = eldest.next().getValue();
+      this.floor = Math.max(this.floor, forgotten.version());
+      this.floorWrittenAt = Math.max(this.floorWrittenAt, forgotten.writtenAt());
+      eldest.remove();
+    }
+  }
+
+  /** Records a write to every key, for when writes may have been missed. */
+  public synchronized void bumpAll() {
+    this.versions.clear();
+    this.floor = ++this.clock;
+    this.floorWrittenAt = System.currentTimeMillis();
+  }
+
+  /**
+   * @param key a key
+   * @return its current version
+   */
+  public synchronized long version(String key) {
+    Stamp stamp = this.versions.get(key);
+    return stamp != null ? stamp.version() : this.floor;
+  }
+
+  /**
+   * @param keys the keys a response depends on
+   * @return a quoted entity tag that changes whenever any of them is written, or null while any of
+   *     them is inside the settle window of its last write
+   */
+  public synchronized String etag(String... keys) {
+    long settledBefore = System.currentTimeMillis() - this.settleMillis;
+    long version = 0;
+    for (String key : keys) {
+      Stamp stamp = this.versions.get(key);
+      long writtenAt = stamp != null ? stamp.writtenAt() : this.floorWrittenAt;
+      if (this.settleMillis > 0 && writtenAt > settledBefore) {
+        return null;
+      }
+      version = Math.max(version, stamp != null ? stamp.version() : this.floor);
+    }
+    return "\"" + this.epoch + "-" + version + "\"";
+  }
+
+  /**
+   * Bumps the keys that writes on other instances affect, and everything on a resync. Subscribe
+   * after the caches and indexes, so a new version is never handed out before they follow the
+   * write.
+   *
+   * @param bus the bus shared with the other instances
+   */
+  public void listenTo(ChangeBus bus) {
+    bus.subscribe(
+        new ChangeBus.Subscriber() {
+          @Override
+          public void changed(ChangeEvent event) {
+            if (event.getKind() == ChangeEvent.Kind.LISTING) {
+              bump(listingKey(event.getListingId()), LISTINGS);
+            } else {
+              bump(userKey(event.getClerkId()));
+            }
+          }
+
+          @Override
+          public void resync() {
+            bumpAll();
+          }
+        });
+  }
+
+  /**
+   * @return how many keys are remembered, and the current clock and floor
+   */
+  public synchronized Map<String, Object> getStats() {
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("keys", this.versions.size());
+    stats.put("clock", this.clock);
+    stats.put("floor", this.floor);
+    stats.put("settle_ms", this.settleMillis);
+    return stats;
+  }
+}
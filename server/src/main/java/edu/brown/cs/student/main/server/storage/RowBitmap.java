@@ -0,0 +1,346 @@
+package edu.brown.cs.student.main.server.storage;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A compressed set of row numbers in the style of a roaring bitmap.
+ *
+ * <p>Rows are split by their high 16 bits into chunks of 65536. A chunk with few rows stores them
+ * as a sorted array of their low 16 bits (2 bytes per row); once it passes {@value #ARRAY_MAX} rows
+ * it switches to a plain 8 KB bitmap, which is smaller from that point on. Intersections and unions
+ * work chunk by chunk, so a chunk missing from either side costs nothing, and two bitmap chunks
+ * combine 64 rows per machine word.
+ *
+ * <p>Not thread-safe; {@link ColumnarStorage} guards its bitmaps with its own lock.
+ */
+final class RowBitmap {
+  // an array chunk above this many rows becomes a bitmap chunk, and a bitmap chunk at or below it
+  // goes back to an array
+  private static final int ARRAY_MAX = 4096;
+  private static final int BITMAP_WORDS = 1 << 16 >>> 6;
+
+  /** The rows of one chunk, as a sorted array or as a bitmap. */
+  private static final class Chunk {
+    // exactly one of these is set
+    private char[] array;
+    private long[] bits;
+    private int cardinality;
+
+    static Chunk ofArray(char[] array, int cardinality) {
+      Chunk chunk = new Chunk();
+      chunk.array = array;
+      chunk.cardinality = cardinality;
+      return chunk;
+    }
+
+    static Chunk ofBits(long[] bits) {
+      Chunk chunk = new Chunk();
+      chunk.bits = bits;
+      for (long word : bits) {
+        chunk.cardinality += Long.bitCount(word);
+      }
+      return chunk.compacted();
+    }
+
+    boolean contains(char low) {
+      if (this.bits != null) {
+        return (this.bits[low >>> 6] & (1L << low)) != 0;
+      }
+      return Arrays.binarySearch(this.array, 0, this.cardinality, low) >= 0;
+    }
+
+    void add(char low) {
+      if (this.bits != null) {
+        long word = this.bits[low >>> 6];
+        if ((word & (1L << low)) == 0) {
+          this.bits[low >>> 6] = word | (1L << low);
+          this.cardinality++;
+        }
+        return;
+      }
+      int index = Arrays.binarySearch(this.array, 0, this.cardinality, low);
+      if (index >= 0) {
+        return;
+      }
+      if (this.cardinality == ARRAY_MAX) {
+        this.bits = this.toBits();
+        this.array = null;
+        this.add(low);
+        return;
+      }
+      index = -index - 1;
+      if (this.cardinality == this.array.length) {
+        this.array = Arrays.copyOf(this.array, Math.min(ARRAY_MAX, 2 * this.array.length));
+      }
+      System.arraycopy(this.array, index, this.array, index + 1, this.cardinality - index);
+      this.array[index] = low;
+      this.cardinality++;
+    }
+
+    void remove(char low) {
+      if (this.bits != null) {
+        long word = this.bits[low >>> 6];
+        if ((word & (1L << low)) != 0) {
+          this.bits[low >>> 6] = word & ~(1L << low);
+          this.cardinality--;
+          if (this.cardinality <= ARRAY_MAX) {
+            this.array = this.toArray();
+            this.bits = null;
+          }
+        }
+        return;
+      }
+      int index = Arrays.binarySearch(this.array, 0, this.cardinality, low);
+      if (index >= 0) {
+        System.arraycopy(this.array, index + 1, this.array, index, this.cardinality - index - 1);
+        this.cardinality--;
+      }
+    }
+
+    private long[] toBits() {
+      if (this.bits != null) {
+        return this.bits.clone();
+      }
+      long[] bits = new long[BITMAP_WORDS];
+      for (int i = 0; i < this.cardinality; i++) {
+        bits[this.array[i] >>> 6] |= 1L << this.array[i];
+      }
+      return bits;
+    }
+
+    private char[] toArray() {
+      char[] array = new char[Math.max(this.cardinality, 1)];
+      int size = 0;
+      for (int word = 0; word < BITMAP_WORDS; word++) {
+        long remaining = this.bits[word];
+        while (remaining != 0) {
+          array[size++] = (char) ((word << 6) + Long.numberOfTrailingZeros(remaining));
+          remaining &= remaining - 1;
+        }
+      }
+      return array;
+    }
+
+    // switches a sparse bitmap chunk to an array
+    private Chunk compacted() {
+      if (this.bits != null && this.cardinality <= ARRAY_MAX) {
+        this.array = this.toArray();
+        this.bits = null;
+      }
+      return this;
+    }
+
+    Chunk and(Chunk other) {
+      if (this.bits != null && other.bits != null) {
+        long[] bits = new long[BITMAP_WORDS];
+        for (int i = 0; i < BITMAP_WORDS; i++) {
+          bits[i] = this.bits[i] & other.bits[i];
+        }
+        return ofBits(bits);
+      }
+      // at least one side is an array: keep its rows that the other side holds
+      Chunk small = this.array != null ? this : other;
+      Chunk large = small == this ? other : this;
+      char[] array = new char[Math.max(small.cardinality, 1)];
+      int size = 0;
+      for (int i = 0; i < small.cardinality; i++) {
+        if (large.contains(small.array[i])) {
+          array[size++] = small.array[i];
+        }
+      }
+      return ofArray(array, size);
+    }
+
+    Chunk or(Chunk other) {
+      if (this.array != null && other.array != null) {
+        if (this.cardinality + other.cardinality <= ARRAY_MAX) {
+          // merge the two sorted arrays
+          char[] array = new char[Math.max(this.cardinality + other.cardinality, 1)];
+          int i = 0;
+          int j = 0;
+          int size = 0;
+          while (i < this.cardinality || j < other.cardinality) {
+            if (j == other.cardinality
+                || (i < this.cardinality && this.array[i] < other.array[j])) {
+              array[size++] = this.array[i++];
+            } else if (i == this.cardinality || other.array[j] < this.array[i]) {
+              array[size++] = other.array[j++];
+            } else {
+              array[size++] = this.array[i++];
+              j++;
+            }
+          }
+          return ofArray(array, size);
+        }
+      }
+      long[] bits = this.toBits();
+      if (other.bits != null) {
+        for (int i = 0; i < BITMAP_WORDS; i++) {
+          bits[i] |= other.bits[i];
+        }
+      } else {
+        for (int i = 0; i < other.cardinality; i++) {
+          bits[other.array[i] >>> 6] |= 1L << other.array[i];
+        }
+      }
+      return ofBits(bits);
+    }
+
+    Chunk copy() {
+      Chunk copy = new Chunk();
+      copy.array =
+          this.array == null ? null : Arrays.copyOf(this.array, Math.max(this.cardinality, 1));
+      copy.bits = this.bits == null ? null : this.bits.clone();
+      copy.cardinality = this.cardinality;
+      return copy;
+    }
+
+    void forEach(int high, IntConsumer consumer) {
+      int base = high << 16;
+      if (this.bits == null) {
+        for (int i = 0; i < this.cardinality; i++) {
+          consumer.accept(base | this.array[i]);
+        }
+        return;
+      }
+      for (int word = 0; word < BITMAP_WORDS; word++) {
+        long remaining = this.bits[word];
+        while (remaining != 0) {
+          consumer.accept(base | ((word << 6) + Long.numberOfTrailingZeros(remaining)));
+          remaining &= remaining - 1;
+        }
+      }
+    }
+  }
+
+  // chunks in ascending order of their high bits
+  private char[] keys = new char[0];
+  private Chunk[] chunks = new Chunk[0];
+  private int size;
+
+  private int indexOf(char high) {
+    return Arrays.binarySearch(this.keys, 0, this.size, high);
+  }
+
+  /**
+   * @param row a row number, at least 0
+   */
+  void add(int row) {
+    char high = (char) (row >>> 16);
+    int index = this.indexOf(high);
+    if (index >= 0) {
+      this.chunks[index].add((char) row);
+      return;
+    }
+    index = -index - 1;
+    if (this.size == this.keys.length) {
+      this.keys = Arrays.copyOf(this.keys, Math.max(4, 2 * this.size));
+      this.chunks = Arrays.copyOf(this.chunks, this.keys.length);
+    }
+    System.arraycopy(this.keys, index, this.keys, index + 1, this.size - index);
+    System.arraycopy(this.chunks, index, this.chunks, index + 1, this.size - index);
+    this.keys[index] = high;
+    this.chunks[index] = Chunk.ofArray(new char[] {(char) row}, 1);
+    this.size++;
+  }
+
+  void remove(int row) {
+    int index = this.indexOf((char) (row >>> 16));
+    if (index < 0) {
+      return;
+    }
+    this.chunks[index].remove((char) row);
+    if (this.chunks[index].cardinality == 0) {
+      System.arraycopy(this.keys, index + 1, this.keys, index, this.size - index - 1);
+      System.arraycopy(this.chunks, index + 1, this.chunks, index, this.size - index - 1);
+      this.size--;
+      this.chunks[this.size] = null;
+    }
+  }
+
+  boolean contains(int row) {
+    int index = this.indexOf((char) (row >>> 16));
+    return index >= 0 && this.chunks[index].contains((char) row);
+  }
+
+  /**
+   * @return the number of rows in the set
+   */
+  long cardinality() {
+    long cardinality = 0;
+    for (int i = 0; i < this.size; i++) {
+      cardinality += this.chunks[i].cardinality;
+    }
+    return cardinality;
+  }
+
+  // adds a chunk at the end; chunks must be appended in key order
+  private void append(char high, Chunk chunk) {
+    if (chunk.cardinality == 0) {
+      return;
+    }
+    if (this.size == this.keys.length) {
+      this.keys = Arrays.copyOf(this.keys, Math.max(4, 2 * this.size));
+      this.chunks = Arrays.copyOf(this.chunks, this.keys.length);
+    }
+    this.keys[this.size] = high;
+    this.chunks[this.size] = chunk;
+    this.size++;
+  }
+
+  /**
+   * @return a new bitmap of the rows in both bitmaps
+   */
+  static RowBitmap and(RowBitmap a, RowBitmap b) {
+    RowBitmap result = new RowBitmap();
+    int i = 0;
+    int j = 0;
+    while (i < a.size && j < b.size) {
+      if (a.keys[i] < b.keys[j]) {
+        i++;
+      } else if (b.keys[j] < a.keys[i]) {
+        j++;
+      } else {
+        result.append(a.keys[i], a.chunks[i].and(b.chunks[j]));
+        i++;
+        j++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return a new bitmap of the rows in either bitmap
+   */
+  static RowBitmap or(RowBitmap a, RowBitmap b) {
+    RowBitmap result = new RowBitmap();
+    int i = 0;
+    int j = 0;
+    while (i < a.size || j < b.size) {
+      if (j == b.size || (i < a.size && a.keys[i] < b.keys[j])) {
+        result.append(a.keys[i], a.chunks[i].copy());
+        i++;
+      } else if (i == a.size || b.keys[j] < a.keys[i]) {
+        result.append(b.keys[j], b.chunks[j].copy());
+        j++;
+      } else {
+        result.append(a.keys[i], a.chunks[i].or(b.chunks[j]));
+        i++;
+        j++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Hands every row to the consumer in ascending order.
+   *
+   * @param consumer receives the rows
+   */
+  void forEach(IntConsumer consumer) {
+    for (int i = 0; i < this.size; i++) {
+      this.chunks[i].forEach(this.keys[i], consumer);
+    }
+  }
+}
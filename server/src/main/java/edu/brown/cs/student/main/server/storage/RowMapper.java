@@ -0,0 +1,151 @@
+package edu.brown.cs.student.main.server.storage;
+
+import edu.brown.cs.student.main.server.classes.Listing;
+import edu.brown.cs.student.main.server.classes.User;
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Maps the current row of a query result to an object.
+ *
+ * <p>Every RealStorage query goes through one of the mappers below, so a row becomes a typed object
+ * directly: no intermediate map per row, and array columns are decoded by the driver through {@link
+ * ResultSet#getArray} rather than by parsing their text form. Categories, conditions and tags are
+ * interned through {@link ValueInterner#LISTING_VALUES}, so listings share one String per value.
+ *
+ * @param <T> the type a row maps to
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+
+  T map(ResultSet resultSet) throws SQLException;
+
+  /**
+   * @param fields the columns the query selected; the others stay null on the listing
+   * @return a mapper from a listings row to a Listing
+   */
+  static RowMapper<Listing> listing(ListingFields fields) {
+    if (fields.isAll()) {
+      return RowMapper::fullListing;
+    }
+    return resultSet ->
+        new Listing(
+            resultSet.getLong("id"),
+            fields.contains("seller_id") ? resultSet.getString("seller_id") : null,
+            fields.contains("title") ? resultSet.getString("title") : null,
+            fields.contains("description") ? resultSet.getString("description") : null,
+            fields.contains("price") ? resultSet.getFloat("price") : null,
+            fields.contains("category") ? interned(resultSet, "category") : null,
+            fields.contains("condition") ? interned(resultSet, "condition") : null,
+            fields.contains("image_url") ? resultSet.getString("image_url") : null,
+            fields.contains("tags")
+                ? textArray(resultSet, "tags", ValueInterner.LISTING_VALUES::intern)
+                : null,
+            fields.contains("available") ? resultSet.getBoolean("available") : null);
+  }
+
+  /**
+   * @return a mapper from a users row to a User
+   */
+  static RowMapper<User> user() {
+    return resultSet ->
+        new User(
+            resultSet.getLong("id"),
+            resultSet.getString("clerk_id"),
+            resultSet.getString("email"),
+            resultSet.getString("name"),
+            resultSet.getString("phone_number"),
+            resultSet.getString("school"),
+            textList(resultSet, "interests"));
+  }
+
+  // the common case, without a projection check per column
+  private static Listing fullListing(ResultSet resultSet) throws SQLException {
+    return new Listing(
+        resultSet.getLong("id"),
+        resultSet.getString("seller_id"),
+        resultSet.getString("title"),
+        resultSet.getString("description"),
+        resultSet.getFloat("price"),
+        interned(resultSet, "category"),
+        interned(resultSet, "condition"),
+        resultSet.getString("image_url"),
+        textArray(resultSet, "tags", ValueInterner.LISTING_VALUES::intern),
+        resultSet.getBoolean("available"));
+  }
+
+  private static String interned(ResultSet resultSet, String column) throws SQLException {
+    return ValueInterner.LISTING_VALUES.intern(resultSet.getString(column));
+  }
+
+  /**
+   * Decodes a text[] column; a SQL NULL becomes an empty list.
+   *
+   * @param resultSet positioned on a row
+   * @param column the array column
+   * @param element applied to each element in the driver's array, e.g. to intern it
+   * @return the elements, wrapping the driver's array without copying it
+   * @throws SQLException if the column is not an array
+   */
+  static List<String> textArray(ResultSet resultSet, String column, UnaryOperator<String> element)
+      throws SQLException {
+    Array array = resultSet.getArray(column);
+    if (array == null) {
+      return List.of();
+    }
+    try {
+      String[] values = (String[]) array.getArray();
+      for (int i = 0; i < values.length; i++) {
+        values[i] = element.apply(values[i]);
+      }
+      return Arrays.asList(values);
+    } finally {
+      array.free();
+    }
+  }
+
+  /**
+   * Decodes a column that should be a text[], but that older databases may hold as json or plain
+   * text, e.g. {@code ["cats","pink"]}. Those are split on commas with the brackets, braces and
+   * quotes stripped, as RealStorage read every tags column before {@link #textArray} existed. A SQL
+   * NULL becomes an empty list either way.
+   *
+   * @param resultSet positioned on a row
+   * @param column the array, json or text column
+   * @return the elements
+   * @throws SQLException if the column cannot be read
+   */
+  static List<String> textList(ResultSet resultSet, String column) throws SQLException {
+    int index = resultSet.findColumn(column);
+    if (resultSet.getMetaData().getColumnType(index) == Types.ARRAY) {
+      return textArray(resultSet, column, UnaryOperator.identity());
+    }
+    String text = resultSet.getString(index);
+    if (text == null) {
+      return List.of();
+    }
+    List<String> values = new ArrayList<>();
+    StringBuilder value = new StringBuilder();
+    for (int i = 0; i <= text.length(); i++) {
+      char c = i < text.length() ? text.charAt(i) : ',';
+      switch (c) {
+        case '{', '}', '[', ']', '"', '\\' -> {}
+        case ',' -> {
+          String trimmed = value.toString().trim();
+          if (!trimmed.isEmpty()) {
+            values.add(trimmed);
+          }
+          value.setLength(0);
+        }
+        default -> value.append(c);
+      }
+    }
+    return values;
+  }
+}
@@ -0,0 +1,215 @@
+package edu.brown.cs.student.main.server.storage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Brings the Postgres schema up to the version this server expects.
+ *
+ * <p>Migrations are numbered and applied in order, each in its own transaction, and every applied
+ * version is recorded in {@code schema_migrations} so a migration runs exactly once per database. A
+ * transaction-scoped advisory lock, taken before anything else including creating {@code
+ * schema_migrations}, keeps two servers starting at the same time from racing on the same DDL. New
+ * schema changes are added to the end of {@link #MIGRATIONS}; applied migrations are never edited.
+ *
+ * <p>An optional migration only speeds things up, and needs something the database may not offer
+ * (such as an extension the server's role cannot create). If its requirement does not hold, or its
+ * statements fail, it is rolled back and left unrecorded, so it is tried again at the next start,
+ * and the server starts without it.
+ */
+public class SchemaMigrator {
+  // arbitrary key for pg_advisory_xact_lock, shared by every server migrating this database
+  private static final long LOCK_KEY = 0x4265_6172_6C79L;
+
+  // whether pg_trgm is installed, or may be created: it is available, and this role is a superuser
+  // or (for a trusted extension) may create objects in the database
+  private static final String TRIGRAMS_AVAILABLE =
+      "SELECT EXISTS (SELECT 1 FROM pg_extension WHERE extname = 'pg_trgm')"
+          + " OR (EXISTS (SELECT 1 FROM pg_available_extensions WHERE name = 'pg_trgm')"
+          + " AND ((SELECT rolsuper FROM pg_roles WHERE rolname = current_user)"
+          + " OR has_database_privilege(current_database(), 'CREATE')))";
+
+  private static final List<Migration> MIGRATIONS =
+      List.of(
+          new Migration(
+              1,
+              "index tag and availability filters",
+              // tag filters use the array overlap operator (tags && ?), which a GIN index serves
+              "CREATE INDEX IF NOT EXISTS listings_tags_gin ON listings USING GIN (tags)",
+              // every search filters on available = TRUE, so partial indexes skip sold listings
+              "CREATE INDEX IF NOT EXISTS listings_available_price_idx"
+                  + " ON listings (price, id) WHERE available = TRUE",
+              "CREATE INDEX IF NOT EXISTS listings_available_category_idx"
+                  + " ON listings (category) WHERE available = TRUE"),
+          Migration.optional(
+              2,
+              "index title substrings",
+              TRIGRAMS_AVAILABLE,
+              // title searches are lower(title) LIKE '%q%'; a trigram GIN index serves those
+              // without a scan once the query has a trigram (three characters or more). Without
+              // it the same query scans the table, as it did before this migration.
+              "CREATE EXTENSION IF NOT EXISTS pg_trgm",
+              "CREATE INDEX IF NOT EXISTS listings_title_trgm"
+                  + " ON listings USING GIN (lower(title) gin_trgm_ops)"),
+          new Migration(
+              3,
+              "record the shard layout",
+              // one row at most, written by the first sharded server to use this database
+              "CREATE TABLE IF NOT EXISTS shard_layout ("
+                  + "singleton BOOLEAN PRIMARY KEY DEFAULT TRUE CHECK (singleton), "
+                  + "shard_index INTEGER NOT NULL, "
+                  + "shard_count INTEGER NOT NULL)"),
+          Migration.optional(
+              4,
+              "index description substrings",
+              TRIGRAMS_AVAILABLE,
+              // the title filter also matches descriptions, as lower(description) LIKE '%q%'
+              "CREATE EXTENSION IF NOT EXISTS pg_trgm",
+              "CREATE INDEX IF NOT EXISTS listings_description_trgm"
+                  + " ON listings USING GIN (lower(description) gin_trgm_ops)"));
+
+  private final ConnectionPool pool;
+
+  public SchemaMigrator(ConnectionPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * Applies every migration the database has not seen yet.
+   *
+   * @return the number of migrations applied
+   * @throws SQLException if a migration fails; that migration is rolled back
+   */
+  public int migrate() throws SQLException {
+    try (Connection connection = this.pool.getConnection()) {
+      int applied = 0;
+      for (Migration migration : MIGRATIONS) {
+        if (this.apply(connection, migration)) {
+          applied++;
+        }
+      }
+      return applied;
+    }
+  }
+
+  // Runs one migration in a transaction unless it has already been recorded
+  private boolean apply(Connection connection, Migration migration) throws SQLException {
+    connection.setAutoCommit(false);
+    try {
+      try (PreparedStatement lock =
+          connection.prepareStatement("SELECT pg_advisory_xact_lock(?)")) {
+        lock.setLong(1, LOCK_KEY);
+        lock.execute();
+      }
+      // only under the lock: IF NOT EXISTS is not safe against a concurrent CREATE TABLE
+      try (Statement statement = connection.createStatement()) {
+        statement.execute(
+            "CREATE TABLE IF NOT EXISTS schema_migrations ("
+                + "version INTEGER PRIMARY KEY, "
+                + "description TEXT NOT NULL, "
+                + "applied_at TIMESTAMPTZ NOT NULL DEFAULT now())");
+      }
+      if (this.appliedVersions(connection).contains(migration.version)) {
+        connection.rollback();
+        return false;
+      }
+
+      if (migration.requirement != null && !this.holds(connection, migration.requirement)) {
+        connection.rollback();
+        System.out.println(
+            "Skipped optional schema migration "
+                + migration.version
+                + " ("
+                + migration.description
+                + "): its requirement does not hold");
+        return false;
+      }
+
+      try (Statement statement = connection.createStatement()) {
+        for (String sql : migration.statements) {
+          statement.execute(sql);
+        }
+      } catch (SQLException e) {
+        if (migration.requirement == null) {
+          throw e;
+        }
+        connection.rollback();
+        System.err.println(
+            "Skipped optional schema migration "
+                + migration.version
+                + " ("
+                + migration.description
+                + "): "
+                + e.getMessage());
+        return false;
+      }
+      try (PreparedStatement record =
+          connection.prepareStatement(
+              "INSERT INTO schema_migrations (version, description) VALUES (?, ?)")) {
+        record.setInt(1, migration.version);
+        record.setString(2, migration.description);
+        record.executeUpdate();
+      }
+      connection.commit();
+      System.out.println(
+          "Applied schema migration " + migration.version + ": " + migration.description);
+      return true;
+    } catch (SQLException e) {
+      connection.rollback();
+      throw new SQLException(
+          "Schema migration " + migration.version + " failed: " + e.getMessage(), e);
+    } finally {
+      connection.setAutoCommit(true);
+    }
+  }
+
+  // Runs a query returning one boolean
+  private boolean holds(Connection connection, String requirement) throws SQLException {
+    try (Statement statement = connection.createStatement();
+        ResultSet resultSet = statement.executeQuery(requirement)) {
+      return resultSet.next() && resultSet.getBoolean(1);
+    }
+  }
+
+  private Set<Integer> appliedVersions(Connection connection) throws SQLException {
+    Set<Integer> versions = new HashSet<>();
+    try (Statement statement = connection.createStatement();
+        ResultSet resultSet = statement.executeQuery("SELECT version FROM schema_migrations")) {
+      while (resultSet.next()) {
+        versions.add(resultSet.getInt("version"));
+      }
+    }
+    return versions;
+  }
+
+  private static class Migration {
+    private final int version;
+    private final String description;
+    private final List<String> statements;
+    // a query returning whether an optional migration can be applied; null if it is required
+    private final String requirement;
+
+    private Migration(int version, String description, String... statements) {
+      this(version, description, null, List.of(statements));
+    }
+
+    private Migration(
+        int version, String description, String requirement, List<String> statements) {
+      this.version = version;
+      this.description = description;
+      this.requirement = requirement;
+      this.statements = statements;
+    }
+
+    private static Migration optional(
+        int version, String description, String requirement, String... statements) {
+      return new Migration(version, description, requirement, List.of(statements));
+    }
+  }
+}
@@ -0,0 +1,208 @@
+package edu.brown.cs.student.main.server.storage;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An inverted index answering case-insensitive substring queries over text fields of the listings
+ * (the title and description), so a search never has to scan every row the way {@code LIKE '%q%'}
+ * does. A listing matches if any one of its fields contains the query.
+ *
+ * <p>Each text is indexed two ways: by every trigram (three-character window) it contains, and by
+ * every whole word. Any text containing the query must contain all of the query's trigrams, and any
+ * word in the middle of the query must appear in the text as a whole word, so intersecting those
+ * posting lists (smallest first) leaves a small candidate set. Candidates are then checked against
+ * the stored text to drop trigram false positives. Queries shorter than three characters have no
+ * trigrams and fall back to checking every stored text.
+ *
+ * <p>Safe for concurrent use.
+ */
+public class SearchIndex {
+  private static final int GRAM = 3;
+  // joins a listing's fields into one stored text; never part of a query, so no match spans two
+  private static final char FIELD_SEPARATOR = '\0';
+
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<Long, String> texts = new HashMap<>();
+  private final Map<String, Set<Long>> trigrams = new HashMap<>();
+  private final Map<String, Set<Long>> words = new HashMap<>();
+
+  /**
+   * Indexes (or re-indexes) the text fields of a listing.
+   *
+   * @param id the listing id
+   * @param fields the texts to index, e.g. the title and description; null fields are skipped, and
+   *     a single null removes the listing
+   */
+  public void put(long id, String... fields) {
+    this.lock.writeLock().lock();
+    try {
+      this.remove(id);
+      StringBuilder joined = new StringBuilder();
+      for (String field : fields) {
+        if (field != null) {
+          if (joined.length() > 0) {
+            joined.append(FIELD_SEPARATOR);
+          }
+          joined.append(field);
+        }
+      }
+      if (joined.length() == 0) {
+        return;
+      }
+      String normalized = joined.toString().toLowerCase();
+      this.texts.put(id, normalized);
+      for (String gram : trigramsOf(normalized)) {
+        this.trigrams.computeIfAbsent(gram, g -> new HashSet<>()).add(id);
+      }
+      for (String word : wordsOf(normalized)) {
+        this.words.computeIfAbsent(word, w -> new HashSet<>()).add(id);
+      }
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes a listing from the index.
+   *
+   * @param id the listing id
+   */
+  public void remove(long id) {
+    this.lock.writeLock().lock();
+    try {
+      String normalized = this.texts.remove(id);
+      if (normalized == null) {
+        return;
+      }
+      for (String gram : trigramsOf(normalized)) {
+        removePosting(this.trigrams, gram, id);
+      }
+      for (String word : wordsOf(normalized)) {
+        removePosting(this.words, word, id);
+      }
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+  }
+
+  /** Drops every indexed text. */
+  public void clear() {
+    this.lock.writeLock().lock();
+    try {
+      this.texts.clear();
+      this.trigrams.clear();
+      this.words.clear();
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Finds the listings whose text contains the query, ignoring case.
+   *
+   * @param query the substring to look for
+   * @return the ids of the matching listings
+   */
+  public Set<Long> search(String query) {
+    String normalized = query.toLowerCase();
+    if (normalized.indexOf(FIELD_SEPARATOR) >= 0) {
+      return new HashSet<>();
+    }
+
+    this.lock.readLock().lock();
+    try {
+      List<Set<Long>> postings = new ArrayList<>();
+      for (String gram : trigramsOf(normalized)) {
+        postings.add(this.trigrams.getOrDefault(gram, Set.of()));
+      }
+      for (String word : interiorWordsOf(normalized)) {
+        postings.add(this.words.getOrDefault(word, Set.of()));
+      }
+
+      Set<Long> matches = new HashSet<>();
+      if (postings.isEmpty()) {
+        // too short to have trigrams: check every text
+        for (Map.Entry<Long, String> entry : this.texts.entrySet()) {
+          if (entry.getValue().contains(normalized)) {
+            matches.add(entry.getKey());
+          }
+        }
+        return matches;
+      }
+
+      postings.sort(Comparator.comparingInt(Set::size));
+      Set<Long> smallest = postings.get(0);
+      candidates:
+      for (Long id : smallest) {
+        for (int i = 1; i < postings.size(); i++) {
+          if (!postings.get(i).contains(id)) {
+            continue candidates;
+          }
+        }
+        if (this.texts.get(id).contains(normalized)) {
+          matches.add(id);
+        }
+      }
+      return matches;
+    } finally {
+      this.lock.readLock().unlock();
+    }
+  }
+
+  public int size() {
+    this.lock.readLock().lock();
+    try {
+      return this.texts.size();
+    } finally {
+      this.lock.readLock().unlock();
+    }
+  }
+
+  private static void removePosting(Map<String, Set<Long>> index, String key, long id) {
+    Set<Long> postings = index.get(key);
+    if (postings != null) {
+      postings.remove(id);
+      if (postings.isEmpty()) {
+        index.remove(key);
+      }
+    }
+  }
+
+  private static Set<String> trigramsOf(String text) {
+    Set<String> grams = new HashSet<>();
+    for (int i = 0; i + GRAM <= text.length(); i++) {
+      grams.add(text.substring(i, i + GRAM));
+    }
+    return grams;
+  }
+
+  private static Set<String> wordsOf(String text) {
+    Set<String> result = new HashSet<>();
+    for (String word : text.split("[^\\p{L}\\p{N}]+")) {
+      if (!word.isEmpty()) {
+        result.add(word);
+      }
+    }
+    return result;
+  }
+
+  // Words of the query that are delimited on both sides, and so must be whole words in a match.
+  // The first and last word may be cut off mid-word by the substring, so they are left out.
+  private static List<String> interiorWordsOf(String query) {
+    String[] parts = query.split("[^\\p{L}\\p{N}]+", -1);
+    List<String> interior = new ArrayList<>();
+    for (int i = 1; i < parts.length - 1; i++) {
+      if (!parts[i].isEmpty()) {
+        interior.add(parts[i]);
+      }
+    }
+    return interior;
+  }
+}
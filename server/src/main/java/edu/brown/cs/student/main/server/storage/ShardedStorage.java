@@ -0,0 +1,609 @@
+package edu.brown.cs.student.main.server.storage;
+
+import edu.brown.cs.student.main.server.classes.Listing;
+import edu.brown.cs.student.main.server.classes.ListingFacets;
+import edu.brown.cs.student.main.server.classes.ListingPage;
+import edu.brown.cs.student.main.server.classes.User;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Spreads users and listings over several backing stores (shards), partitioned by seller.
+ *
+ * <p>Each seller is placed on a shard by consistent hashing of their clerk id, so a seller's user
+ * row and all their listings live together and seller-scoped calls touch one shard. Searches over
+ * every listing are sent to all shards in parallel and the per-shard results, each in the requested
+ * order, are combined with a k-way merge.
+ *
+ * <p>Shards number their listings independently, so the ids handed out by this class encode the
+ * shard: {@code globalId = localId * MAX_SHARDS + shardIndex}. Any call taking a listing id decodes
+ * it and goes straight to that shard.
+ *
+ * <p>The shard list is fixed once any shard holds data. Shard indexes are positions in the
+ * constructor's list, and the hash ring depends on the shard count, so adding, removing or
+ * reordering shards would strand existing sellers and listings on shards that no longer own them;
+ * nothing rebalances them. {@link RealStorage#checkShardLayout} records each database's layout so
+ * the server refuses to start with a changed one.
+ */
+public class ShardedStorage implements StorageInterface {
+  private static final int MAX_SHARDS = 256;
+  private static final int VIRTUAL_NODES_PER_SHARD = 128;
+
+  private final List<StorageInterface> shards;
+  private final TreeMap<Long, Integer> ring = new TreeMap<>();
+  private final ExecutorService executor;
+
+  public ShardedStorage(List<StorageInterface> shards) {
+    if (shards.isEmpty() || shards.size() > MAX_SHARDS) {
+      throw new IllegalArgumentException("Between 1 and " + MAX_SHARDS + " shards are required");
+    }
+    this.shards = List.copyOf(shards);
+    for (int shard = 0; shard < shards.size(); shard++) {
+      for (int node = 0; node < VIRTUAL_NODES_PER_SHARD; node++) {
+        this.ring.put(hash("shard-" + shard + "#" + node), shard);
+      }
+    }
+    this.executor =
+        Executors.newFixedThreadPool(
+            shards.size(),
+            runnable -> {
+              Thread thread = new Thread(runnable, "shard-query");
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  /* ROUTING */
+
+  /**
+   * @param sellerId a seller's clerk id
+   * @return the index of the shard holding that seller's user row and listings
+   */
+  public int shardFor(String sellerId) {
+    Map.Entry<Long, Integer> owner = this.ring.ceilingEntry(hash(sellerId));
+    return owner != null ? owner.getValue() : this.ring.firstEntry().getValue();
+  }
+
+  private static long globalId(long localId, int shard) {
+    return localId * MAX_SHARDS + shard;
+  }
+
+  private static int shardOf(long globalId) {
+    return Math.floorMod(globalId, MAX_SHARDS);
+  }
+
+  private static long localId(long globalId) {
+    return Math.floorDiv(globalId, MAX_SHARDS);
+  }
+
+  // 64-bit FNV-1a, stable across JVMs unlike hashCode, followed by the MurmurHash3 finalizer:
+  // keys that differ only in their last character (clerk1, clerk2, ...) would otherwise hash to
+  // neighbouring ring positions and land on the same shard
+  private static long hash(String key) {
+    long hash = 0xcbf29ce484222325L;
+    for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+      hash ^= b;
+      hash *= 0x100000001b3L;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+
+  private int shardOfListing(Long listingId) {
+    int shard = shardOf(listingId);
+    if (shard >= this.shards.size()) {
+      throw new IllegalArgumentException("Listing ID " + listingId + " belongs to no shard");
+    }
+    return shard;
+  }
+
+  // The shard's listing with its id rewritten to the global id; the shard's object is not touched
+  private static Listing globalize(Listing listing, int shard) {
+    if (listing == null) {
+      return null;
+    }
+    return new Listing(
+        globalId(listing.getId(), shard),
+        listing.getSellerId(),
+        listing.getTitle(),
+        listing.getDescription(),
+        listing.getPrice(),
+        listing.getCategory(),
+        listing.getCondition(),
+        listing.getImageUrl(),
+        listing.getTags(),
+        listing.getAvailable());
+  }
+
+  /* SCATTER-GATHER */
+
+  @FunctionalInterface
+  private interface ShardCall<T> {
+    T call(StorageInterface shard, int index) throws Exception;
+  }
+
+  // Runs the call on every shard in parallel and returns the results in shard order
+  private <T> List<T> scatter(ShardCall<T> call) throws Exception {
+    List<Future<T>> futures = new ArrayList<>();
+    for (int i = 0; i < this.shards.size(); i++) {
+      int index = i;
+      futures.add(this.executor.submit(() -> call.call(this.shards.get(index), index)));
+    }
+    List<T> results = new ArrayList<>();
+    for (Future<T> future : futures) {
+      try {
+        results.add(future.get());
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof Exception) {
+          throw (Exception) e.getCause();
+        }
+        throw e;
+      }
+    }
+    return results;
+  }
+
+  // The projection to request from the shards: merging compares sort keys, so they must be loaded
+  private static ListingFields mergeFields(ListingFields fields, Sorter sorter) {
+    return sorter == null ? fields : fields.with("price");
+  }
+
+  // Drops the sort keys mergeFields added but the caller did not ask for
+  private static List<Listing> trim(List<Listing> listings, ListingFields fields, Sorter sorter) {
+    if (mergeFields(fields, sorter) == fields) {
+      return listings;
+    }
+    return listings.stream().map(fields::project).toList();
+  }
+
+  // Listings from every shard, each run sorted in keyset order with global ids
+  private List<List<Listing>> gather(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter,
+      ListingFields fields)
+      throws Exception {
+    Comparator<Listing> order = ListingCursor.comparator(sorter);
+    return this.scatter(
+        (shard, index) -> {
+          List<Listing> run = new ArrayList<>();
+          for (Listing listing :
+              shard.getListings(
+                  title, category, minPrice, maxPrice, tags, sorter, mergeFields(fields, sorter))) {
+            run.add(globalize(listing, index));
+          }
+          // linear for a shard that already sorted; needed when sorter is null and the shard
+          // returns rows in storage order
+          run.sort(order);
+          return run;
+        });
+  }
+
+  /**
+   * Merges runs that are each sorted by order into one sorted list.
+   *
+   * @param runs the sorted runs
+   * @param order the order of every run
+   * @param limit the maximum number of listings to take
+   * @return the first limit listings across all runs
+   */
+  private static List<Listing> merge(
+      List<List<Listing>> runs, Comparator<Listing> order, int limit) {
+    // heap entries are {run, position in run}, ordered by the listing they point at
+    PriorityQueue<int[]> heads =
+        new PriorityQueue<>(
+            Math.max(runs.size(), 1),
+            (a, b) -> order.compare(runs.get(a[0]).get(a[1]), runs.get(b[0]).get(b[1])));
+    for (int run = 0; run < runs.size(); run++) {
+      if (!runs.get(run).isEmpty()) {
+        heads.add(new int[] {run, 0});
+      }
+    }
+
+    List<Listing> merged = new ArrayList<>();
+    while (!heads.isEmpty() && merged.size() < limit) {
+      int[] head = heads.poll();
+      List<Listing> run = runs.get(head[0]);
+      merged.add(run.get(head[1]));
+      if (head[1] + 1 < run.size()) {
+        heads.add(new int[] {head[0], head[1] + 1});
+      }
+    }
+    return merged;
+  }
+
+  /* GLOBAL QUERIES */
+
+  @Override
+  public List<Listing> getListings(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter) {
+    return this.getListings(title, category, minPrice, maxPrice, tags, sorter, ListingFields.ALL);
+  }
+
+  @Override
+  public List<Listing> getListings(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter,
+      ListingFields fields) {
+    try {
+      List<Listing> merged =
+          merge(
+              this.gather(title, category, minPrice, maxPrice, tags, sorter, fields),
+              ListingCursor.comparator(sorter),
+              Integer.MAX_VALUE);
+      return trim(merged, fields, sorter);
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new RuntimeException("Error fetching listings from shards: " + e.getMessage());
+    }
+  }
+
+  @Override
+  public void forEachListing(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter,
+      ListingVisitor visitor)
+      throws Exception {
+    this.forEachListing(
+        title, category, minPrice, maxPrice, tags, sorter, ListingFields.ALL, visitor);
+  }
+
+  @Override
+  public void forEachListing(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter,
+      ListingFields fields,
+      ListingVisitor visitor)
+      throws Exception {
+    if (sorter == null) {
+      // no ordering to honour, so stream one shard after another without buffering
+      for (int i = 0; i < this.shards.size(); i++) {
+        int shard = i;
+        this.shards
+            .get(i)
+            .forEachListing(
+                title,
+                category,
+                minPrice,
+                maxPrice,
+                tags,
+                null,
+                fields,
+                listing -> visitor.visit(globalize(listing, shard)));
+      }
+      return;
+    }
+
+    List<Listing> merged =
+        merge(
+            this.gather(title, category, minPrice, maxPrice, tags, sorter, fields),
+            ListingCursor.comparator(sorter),
+            Integer.MAX_VALUE);
+    for (Listing listing : trim(merged, fields, sorter)) {
+      visitor.visit(listing);
+    }
+  }
+
+  // Each shard returns its own next page after the cursor, and the pages are merged. The cursor
+  // holds a global id, so it is translated into the equivalent position among the shard's local
+  // ids first.
+  @Override
+  public ListingPage getListingsPage(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter,
+      int limit,
+      String cursor) {
+    return this.getListingsPage(
+        title, category, minPrice, maxPrice, tags, sorter, limit, cursor, ListingFields.ALL);
+  }
+
+  @Override
+  public ListingPage getListingsPage(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter,
+      int limit,
+      String cursor,
+      ListingFields fields) {
+    if (limit <= 0) {
+      throw new IllegalArgumentException("Limit must be positive");
+    }
+    ListingCursor position = ListingCursor.decode(cursor, sorter);
+    Comparator<Listing> order = ListingCursor.comparator(sorter);
+
+    List<ListingPage> pages;
+    try {
+      pages =
+          this.scatter(
+              (shard, index) ->
+                  shard.getListingsPage(
+                      title,
+                      category,
+                      minPrice,
+                      maxPrice,
+                      tags,
+                      sorter,
+                      limit,
+                      position == null ? null : localCursor(position, index).encode(),
+                      mergeFields(fields, sorter)));
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new RuntimeException("Error fetching listings from shards: " + e.getMessage());
+    }
+
+    List<List<Listing>> runs = new ArrayList<>();
+    boolean shardHasMore = false;
+    for (int i = 0; i < pages.size(); i++) {
+      List<Listing> run = new ArrayList<>();
+      for (Listing listing : pages.get(i).getListings()) {
+        run.add(globalize(listing, i));
+      }
+      runs.add(run);
+      shardHasMore |= pages.get(i).getNextCursor() != null;
+    }
+
+    List<Listing> merged = merge(runs, order, limit + 1);
+    boolean hasMore = merged.size() > limit || shardHasMore;
+    List<Listing> page = merged.size() > limit ? merged.subList(0, limit) : merged;
+    String nextCursor =
+        hasMore && !page.isEmpty()
+            ? ListingCursor.after(sorter, page.get(page.size() - 1)).encode()
+            : null;
+    return new ListingPage(trim(page, fields, sorter), nextCursor);
+  }
+
+  // The cursor that selects, among one shard's local ids, exactly the rows the global cursor
+  // selects. Ascending: localId * M + shard > globalId, i.e. localId > floor((globalId - shard) /
+  // M). Descending: localId * M + shard < globalId, i.e. localId < ceil((globalId - shard) / M).
+  private static ListingCursor localCursor(ListingCursor position, int shard) {
+    long offset = position.getId() - shard;
+    long localId =
+        position.getSorter() == Sorter.PRICE_DESC
+            ? -Math.floorDiv(-offset, MAX_SHARDS)
+            : Math.floorDiv(offset, MAX_SHARDS);
+    return new ListingCursor(position.getSorter(), position.getPrice(), localId);
+  }
+
+  /* SELLER-SCOPED CALLS */
+
+  @Override
+  public Long createUser(
+      String clerkId, String email, String name, String phoneNumber, String school)
+      throws IllegalArgumentException, SQLException {
+    return this.shards
+        .get(this.shardFor(clerkId))
+        .createUser(clerkId, email, name, phoneNumber, school);
+  }
+
+  @Override
+  public User getUser(String clerkId) throws Exception {
+    return this.shards.get(this.shardFor(clerkId)).getUser(clerkId);
+  }
+
+  @Override
+  public boolean updateUser(String userId, User updatedUser) {
+    return this.shards.get(this.shardFor(userId)).updateUser(userId, updatedUser);
+  }
+
+  @Override
+  public ListingFacets getFacets(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      List<Float> priceBoundaries,
+      int topTags)
+      throws Exception {
+    // every shard's full tag counts, since a tag outside one shard's top tags can still be among
+    // the most common overall
+    FacetCounter counter = new FacetCounter(priceBoundaries);
+    for (ListingFacets facets :
+        this.scatter(
+            (shard, index) ->
+                shard.getFacets(
+                    title,
+                    category,
+                    minPrice,
+                    maxPrice,
+                    tags,
+                    priceBoundaries,
+                    Integer.MAX_VALUE))) {
+      counter.add(facets);
+    }
+    return counter.build(topTags);
+  }
+
+  @Override
+  public Long createListing(
+      String sellerId,
+      String title,
+      boolean isAvailable,
+      String description,
+      float price,
+      String category,
+      String condition,
+      String imageUrl,
+      List<String> tags)
+      throws IllegalArgumentException, SQLException {
+    int shard = this.shardFor(sellerId);
+    Long localId =
+        this.shards
+            .get(shard)
+            .createListing(
+                sellerId,
+                title,
+                isAvailable,
+                description,
+                price,
+                category,
+                condition,
+                imageUrl,
+                tags);
+    return globalId(localId, shard);
+  }
+
+  // Groups the listings by shard, inserts each group as one batch, and returns the global ids in
+  // input order. Each shard's batch is atomic, but a failure on one shard does not undo the others.
+  @Override
+  public List<Long> createListings(List<Listing> listings)
+      throws IllegalArgumentException, SQLException {
+    Map<Integer, List<Integer>> positionsByShard = new LinkedHashMap<>();
+    for (int i = 0; i < listings.size(); i++) {
+      positionsByShard
+          .computeIfAbsent(this.shardFor(listings.get(i).getSellerId()), s -> new ArrayList<>())
+          .add(i);
+    }
+
+    Long[] listingIds = new Long[listings.size()];
+    for (Map.Entry<Integer, List<Integer>> entry : positionsByShard.entrySet()) {
+      List<Listing> batch = new ArrayList<>();
+      for (int position : entry.getValue()) {
+        batch.add(listings.get(position));
+      }
+      List<Long> localIds = this.shards.get(entry.getKey()).createListings(batch);
+      for (int i = 0; i < localIds.size(); i++) {
+        listingIds[entry.getValue().get(i)] = globalId(localIds.get(i), entry.getKey());
+      }
+    }
+    return List.of(listingIds);
+  }
+
+  @Override
+  public List<Listing> getListingsBySellerId(String sellerId) throws Exception {
+    int shard = this.shardFor(sellerId);
+    List<Listing> listings = new ArrayList<>();
+    for (Listing listing : this.shards.get(shard).getListingsBySellerId(sellerId)) {
+      listings.add(globalize(listing, shard));
+    }
+    return listings;
+  }
+
+  @Override
+  public void forEachListingBySellerId(String sellerId, ListingVisitor visitor) throws Exception {
+    this.forEachListingBySellerId(sellerId, ListingFields.ALL, visitor);
+  }
+
+  @Override
+  public void forEachListingBySellerId(
+      String sellerId, ListingFields fields, ListingVisitor visitor) throws Exception {
+    int shard = this.shardFor(sellerId);
+    this.shards
+        .get(shard)
+        .forEachListingBySellerId(
+            sellerId, fields, listing -> visitor.visit(globalize(listing, shard)));
+  }
+
+  /* LISTING-ID CALLS */
+
+  @Override
+  public Optional<Listing> getListingById(Long listingId) {
+    int shard = this.shardOfListing(listingId);
+    return this.shards
+        .get(shard)
+        .getListingById(localId(listingId))
+        .map(listing -> globalize(listing, shard));
+  }
+
+  @Override
+  public Listing obtainListing(Long listingId) {
+    int shard = this.shardOfListing(listingId);
+    return globalize(this.shards.get(shard).obtainListing(localId(listingId)), shard);
+  }
+
+  @Override
+  public Map<Long, Listing> obtainListings(Collection<Long> listingIds) throws SQLException {
+    return this.obtainListings(listingIds, ListingFields.ALL);
+  }
+
+  @Override
+  public Map<Long, Listing> obtainListings(Collection<Long> listingIds, ListingFields fields)
+      throws SQLException {
+    Map<Integer, List<Long>> localIdsByShard = new HashMap<>();
+    for (Long listingId : listingIds) {
+      localIdsByShard
+          .computeIfAbsent(this.shardOfListing(listingId), s -> new ArrayList<>())
+          .add(localId(listingId));
+    }
+
+    Map<Long, Listing> listings = new HashMap<>();
+    for (Map.Entry<Integer, List<Long>> entry : localIdsByShard.entrySet()) {
+      for (Listing listing :
+          this.shards.get(entry.getKey()).obtainListings(entry.getValue(), fields).values()) {
+        Listing global = globalize(listing, entry.getKey());
+        listings.put(global.getId(), global);
+      }
+    }
+    return listings;
+  }
+
+  @Override
+  public boolean updateListing(Long listingId, Listing updatedListing) {
+    return this.shards
+        .get(this.shardOfListing(listingId))
+        .updateListing(localId(listingId), updatedListing);
+  }
+
+  @Override
+  public boolean deleteListing(Long listingId) {
+    return this.shards.get(this.shardOfListing(listingId)).deleteListing(localId(listingId));
+  }
+
+  @Override
+  public Map<String, Object> getStats() {
+    List<Map<String, Object>> shardStats = new ArrayList<>();
+    for (StorageInterface shard : this.shards) {
+      shardStats.add(shard.getStats());
+    }
+    Map<String, Object> stats = new HashMap<>();
+    stats.put("shards", shardStats);
+    return stats;
+  }
+}
@@ -1,8 +1,12 @@
 package edu.brown.cs.student.main.server.storage;
 
 import edu.brown.cs.student.main.server.classes.Listing;
+import edu.brown.cs.student.main.server.classes.ListingFacets;
+import edu.brown.cs.student.main.server.classes.ListingPage;
 import edu.brown.cs.student.main.server.classes.User;
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -12,7 +16,8 @@ public interface StorageInterface {
   Long createUser(String clerkId, String email, String name, String phoneNumber, String school)
       throws IllegalArgumentException, SQLException;
 
-  // all-purpose to get either all listings or filtered listings
+  // all-purpose to get either all listings or filtered listings; title matches a listing whose
+  // title or description contains it, ignoring case
   List<Listing> getListings(
       String title,
       String category,
@@ -21,6 +26,28 @@ public interface StorageInterface {
       List<String> tags,
       Sorter sorter);
 
+  // streams the results of getListings to the visitor one listing at a time
+  void forEachListing(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter,
+      ListingVisitor visitor)
+      throws Exception;
+
+  // one keyset-paginated page of getListings; cursor is the previous page's next cursor or null
+  ListingPage getListingsPage(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter,
+      int limit,
+      String cursor);
+
   Long createListing(
       String sellerId,
       String title,
@@ -33,17 +60,113 @@ public interface StorageInterface {
       List<String> tags)
       throws IllegalArgumentException, SQLException;
 
+  // inserts every listing in one all-or-nothing batch, ignoring their ids; returns the new ids in
+  // the same order
+  List<Long> createListings(List<Listing> listings) throws IllegalArgumentException, SQLException;
+
   Optional<Listing> getListingById(Long listingId);
 
   Listing obtainListing(Long listingId);
 
+  // looks up many listings in one round trip; ids with no listing are absent from the result
+  Map<Long, Listing> obtainListings(Collection<Long> listingIds) throws SQLException;
+
   boolean updateListing(Long listingId, Listing updatedListing);
 
   boolean deleteListing(Long listingId);
 
-  Map<String, Object> getUser(String clerkId) throws Exception;
+  // the user with this clerk id, or null if there is none
+  User getUser(String clerkId) throws Exception;
 
   boolean updateUser(String userId, User updatedUser);
 
-  List<Map<String, Object>> getListingsBySellerId(String sellerId) throws Exception;
+  List<Listing> getListingsBySellerId(String sellerId) throws Exception;
+
+  // streams every listing posted by the seller to the visitor one listing at a time
+  void forEachListingBySellerId(String sellerId, ListingVisitor visitor) throws Exception;
+
+  /* PROJECTED READS: only the requested fields are loaded; the defaults project in memory */
+
+  default List<Listing> getListings(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter,
+      ListingFields fields) {
+    return this.getListings(title, category, minPrice, maxPrice, tags, sorter).stream()
+        .map(fields::project)
+        .toList();
+  }
+
+  default void forEachListing(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter,
+      ListingFields fields,
+      ListingVisitor visitor)
+      throws Exception {
+    this.forEachListing(
+        title,
+        category,
+        minPrice,
+        maxPrice,
+        tags,
+        sorter,
+        listing -> visitor.visit(fields.project(listing)));
+  }
+
+  default ListingPage getListingsPage(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter,
+      int limit,
+      String cursor,
+      ListingFields fields) {
+    ListingPage page =
+        this.getListingsPage(title, category, minPrice, maxPrice, tags, sorter, limit, cursor);
+    return new ListingPage(
+        page.getListings().stream().map(fields::project).toList(), page.getNextCursor());
+  }
+
+  default Map<Long, Listing> obtainListings(Collection<Long> listingIds, ListingFields fields)
+      throws SQLException {
+    Map<Long, Listing> listings = new HashMap<>(this.obtainListings(listingIds));
+    listings.replaceAll((id, listing) -> fields.project(listing));
+    return listings;
+  }
+
+  default void forEachListingBySellerId(
+      String sellerId, ListingFields fields, ListingVisitor visitor) throws Exception {
+    this.forEachListingBySellerId(sellerId, listing -> visitor.visit(fields.project(listing)));
+  }
+
+  // counts the listings matching the getListings filters per category, tag (only the topTags most
+  // common) and price bucket, in one pass; see FacetCounter for how the boundaries form buckets
+  default ListingFacets getFacets(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      List<Float> priceBoundaries,
+      int topTags)
+      throws Exception {
+    FacetCounter counter = new FacetCounter(priceBoundaries);
+    this.forEachListing(
+        title, category, minPrice, maxPrice, tags, null, FacetCounter.FIELDS, counter::add);
+    return counter.build(topTags);
+  }
+
+  // runtime counters for the storage layer (connection pool, caches, ...); empty if none are kept
+  default Map<String, Object> getStats() {
+    return Map.of();
+  }
 }
@@ -0,0 +1,54 @@
+package edu.brown.cs.student.main.server.storage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes the values of a low-cardinality string column (categories, conditions, tags, sellers) as
+ * small ints, so each row stores four bytes and filters compare ints instead of strings. Codes are
+ * handed out in first-seen order and never reused. Not thread-safe; {@link ColumnarStorage} guards
+ * its dictionaries with its own lock.
+ */
+final class StringDictionary {
+  /** The code of a null value. */
+  static final int NULL = -1;
+
+  private final Map<String, Integer> codes = new HashMap<>();
+  private final List<String> values = new ArrayList<>();
+
+  /**
+   * @param value a value, possibly null
+   * @return its code, adding it to the dictionary if it is new
+   */
+  int encode(String value) {
+    if (value == null) {
+      return NULL;
+    }
+    Integer code = this.codes.get(value);
+    if (code == null) {
+      code = this.values.size();
+      this.codes.put(value, code);
+      this.values.add(value);
+    }
+    return code;
+  }
+
+  /**
+   * @param value a value
+   * @return its code, or NULL if the value was never encoded (so no row holds it)
+   */
+  int find(String value) {
+    Integer code = value == null ? null : this.codes.get(value);
+    return code == null ? NULL : code;
+  }
+
+  String decode(int code) {
+    return code == NULL ? null : this.values.get(code);
+  }
+
+  int size() {
+    return this.values.size();
+  }
+}
@@ -0,0 +1,142 @@
+package edu.brown.cs.student.main.server.storage;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, thread-safe dictionary of canonical strings for low-cardinality listing values
+ * (categories, conditions, tags).
+ *
+ * <p>Rows read from the database carry a fresh String for every such value, although there are only
+ * a few dozen distinct ones; {@link RowMapper} passes them through {@link #LISTING_VALUES} so every
+ * listing holding "Furniture" shares one instance, and equal values compare equal by identity. Each
+ * value also gets a small int id, handed out in first-seen order and never reused, for caches and
+ * indexes that would rather key on an int ({@link FacetCounter} counts by id into an array).
+ *
+ * <p>Tags are user input, so the dictionary stops growing at its capacity: past that, values that
+ * are not already in it are returned as given and get no id.
+ */
+public final class ValueInterner {
+  /** The id of a value that is not in the dictionary. */
+  public static final int NONE = -1;
+
+  /** The dictionary used when mapping listing rows. */
+  public static final ValueInterner LISTING_VALUES = new ValueInterner(16_384);
+
+  private record Entry(String value, int id) {}
+
+  private final int capacity;
+  private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+  // the value of each id handed out
+  private final AtomicReferenceArray<String> values;
+  private final AtomicInteger size = new AtomicInteger();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder overflows = new LongAdder();
+
+  /**
+   * @param capacity the most distinct values the dictionary will hold
+   */
+  public ValueInterner(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Interner capacity must be positive");
+    }
+    this.capacity = capacity;
+    this.values = new AtomicReferenceArray<>(capacity);
+  }
+
+  // The entry of a value, adding it if there is room; null once the dictionary is full
+  private Entry entry(String value) {
+    Entry entry = this.entries.get(value);
+    if (entry != null) {
+      this.hits.increment();
+      return entry;
+    }
+    if (this.size.get() >= this.capacity) {
+      this.overflows.increment();
+      return null;
+    }
+    entry =
+        this.entries.computeIfAbsent(
+            value,
+            v -> {
+              int id = this.size.getAndIncrement();
+              if (id >= this.capacity) {
+                // lost the race for the last slot
+                this.size.decrementAndGet();
+                return null;
+              }
+              this.values.set(id, v);
+              return new Entry(v, id);
+            });
+    if (entry == null) {
+      this.overflows.increment();
+    }
+    return entry;
+  }
+
+  /**
+   * @param value a value, possibly null
+   * @return the canonical instance equal to the value, or the value itself if the dictionary is
+   *     full
+   */
+  public String intern(String value) {
+    if (value == null) {
+      return null;
+    }
+    Entry entry = this.entry(value);
+    return entry == null ? value : entry.value();
+  }
+
+  /**
+   * @param value a value, possibly null
+   * @return its id, adding it if it is new, or NONE if it is null or the dictionary is full
+   */
+  public int encode(String value) {
+    if (value == null) {
+      return NONE;
+    }
+    Entry entry = this.entry(value);
+    return entry == null ? NONE : entry.id();
+  }
+
+  /**
+   * @param value a value, possibly null
+   * @return its id, or NONE if it was never added; never adds the value
+   */
+  public int find(String value) {
+    Entry entry = value == null ? null : this.entries.get(value);
+    return entry == null ? NONE : entry.id();
+  }
+
+  /**
+   * @param id an id returned by {@link #encode(String)}, or NONE
+   * @return the canonical value with that id, or null for NONE
+   */
+  public String decode(int id) {
+    return id == NONE ? null : this.values.get(id);
+  }
+
+  /**
+   * @return the number of distinct values held
+   */
+  public int size() {
+    return Math.min(this.size.get(), this.capacity);
+  }
+
+  /**
+   * @return the dictionary size, how many lookups found an existing value, and how many values were
+   *     turned away because the dictionary was full
+   */
+  public Map<String, Object> getStats() {
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("size", this.size());
+    stats.put("capacity", this.capacity);
+    stats.put("hits", this.hits.sum());
+    stats.put("overflows", this.overflows.sum());
+    return stats;
+  }
+}
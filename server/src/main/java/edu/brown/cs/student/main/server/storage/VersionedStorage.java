@@ -0,0 +1,277 @@
+package edu.brown.cs.student.main.server.storage;
+
+import edu.brown.cs.student.main.server.classes.Listing;
+import edu.brown.cs.student.main.server.classes.ListingFacets;
+import edu.brown.cs.student.main.server.classes.ListingPage;
+import edu.brown.cs.student.main.server.classes.User;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Bumps {@link ResourceVersions} for every write passed through to another storage backend, so read
+ * handlers can tell a client its copy is still current without asking the backend.
+ *
+ * <p>Versions are bumped after the write returns (or fails, in case it partly applied), so a
+ * version is never handed out for data the backend does not serve yet.
+ */
+public class VersionedStorage implements StorageInterface {
+  private final StorageInterface delegate;
+  private final ResourceVersions versions;
+
+  public VersionedStorage(StorageInterface delegate, ResourceVersions versions) {
+    this.delegate = delegate;
+    this.versions = versions;
+  }
+
+  /**
+   * @return the versions this backend bumps
+   */
+  public ResourceVersions getVersions() {
+    return this.versions;
+  }
+
+  /* WRITES */
+
+  @Override
+  public Long createUser(
+      String clerkId, String email, String name, String phoneNumber, String school)
+      throws IllegalArgumentException, SQLException {
+    try {
+      return this.delegate.createUser(clerkId, email, name, phoneNumber, school);
+    } finally {
+      this.versions.bump(ResourceVersions.userKey(clerkId));
+    }
+  }
+
+  @Override
+  public boolean updateUser(String userId, User updatedUser) {
+    try {
+      return this.delegate.updateUser(userId, updatedUser);
+    } finally {
+      this.versions.bump(ResourceVersions.userKey(userId));
+    }
+  }
+
+  @Override
+  public Long createListing(
+      String sellerId,
+      String title,
+      boolean isAvailable,
+      String description,
+      float price,
+      String category,
+      String condition,
+      String imageUrl,
+      List<String> tags)
+      throws IllegalArgumentException, SQLException {
+    Long listingId = null;
+    try {
+      listingId =
+          this.delegate.createListing(
+              sellerId,
+              title,
+              isAvailable,
+              description,
+              price,
+              category,
+              condition,
+              imageUrl,
+              tags);
+      return listingId;
+    } finally {
+      if (listingId != null) {
+        this.versions.bump(ResourceVersions.listingKey(listingId), ResourceVersions.LISTINGS);
+      } else {
+        this.versions.bump(ResourceVersions.LISTINGS);
+      }
+    }
+  }
+
+  @Override
+  public List<Long> createListings(List<Listing> listings)
+      throws IllegalArgumentException, SQLException {
+    List<Long> listingIds = null;
+    try {
+      listingIds = this.delegate.createListings(listings);
+      return listingIds;
+    } finally {
+      if (listingIds != null) {
+        String[] keys = new String[listingIds.size() + 1];
+        for (int i = 0; i < listingIds.size(); i++) {
+          keys[i] = ResourceVersions.listingKey(listingIds.get(i));
+        }
+        keys[listingIds.size()] = ResourceVersions.LISTINGS;
+        this.versions.bump(keys);
+      } else {
+        this.versions.bump(ResourceVersions.LISTINGS);
+      }
+    }
+  }
+
+  @Override
+  public boolean updateListing(Long listingId, Listing updatedListing) {
+    try {
+      return this.delegate.updateListing(listingId, updatedListing);
+    } finally {
+      this.versions.bump(ResourceVersions.listingKey(listingId), ResourceVersions.LISTINGS);
+    }
+  }
+
+  @Override
+  public boolean deleteListing(Long listingId) {
+    try {
+      return this.delegate.deleteListing(listingId);
+    } finally {
+      this.versions.bump(ResourceVersions.listingKey(listingId), ResourceVersions.LISTINGS);
+    }
+  }
+
+  @Override
+  public Map<String, Object> getStats() {
+    Map<String, Object> stats = new HashMap<>(this.delegate.getStats());
+    stats.put("resource_versions", this.versions.getStats());
+    return stats;
+  }
+
+  /* PASS-THROUGH FUNCTIONS */
+
+  @Override
+  public List<Listing> getListings(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter) {
+    return this.delegate.getListings(title, category, minPrice, maxPrice, tags, sorter);
+  }
+
+  @Override
+  public void forEachListing(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter,
+      ListingVisitor visitor)
+      throws Exception {
+    this.delegate.forEachListing(title, category, minPrice, maxPrice, tags, sorter, visitor);
+  }
+
+  @Override
+  public ListingPage getListingsPage(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter,
+      int limit,
+      String cursor) {
+    return this.delegate.getListingsPage(
+        title, category, minPrice, maxPrice, tags, sorter, limit, cursor);
+  }
+
+  @Override
+  public List<Listing> getListings(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter,
+      ListingFields fields) {
+    return this.delegate.getListings(title, category, minPrice, maxPrice, tags, sorter, fields);
+  }
+
+  @Override
+  public void forEachListing(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter,
+      ListingFields fields,
+      ListingVisitor visitor)
+      throws Exception {
+    this.delegate.forEachListing(
+        title, category, minPrice, maxPrice, tags, sorter, fields, visitor);
+  }
+
+  @Override
+  public ListingPage getListingsPage(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      Sorter sorter,
+      int limit,
+      String cursor,
+      ListingFields fields) {
+    return this.delegate.getListingsPage(
+        title, category, minPrice, maxPrice, tags, sorter, limit, cursor, fields);
+  }
+
+  @Override
+  public ListingFacets getFacets(
+      String title,
+      String category,
+      Float minPrice,
+      Float maxPrice,
+      List<String> tags,
+      List<Float> priceBoundaries,
+      int topTags)
+      throws Exception {
+    return this.delegate.getFacets(
+        title, category, minPrice, maxPrice, tags, priceBoundaries, topTags);
+  }
+
+  @Override
+  public Optional<Listing> getListingById(Long listingId) {
+    return this.delegate.getListingById(listingId);
+  }
+
+  @Override
+  public Listing obtainListing(Long listingId) {
+    return this.delegate.obtainListing(listingId);
+  }
+
+  @Override
+  public Map<Long, Listing> obtainListings(Collection<Long> listingIds) throws SQLException {
+    return this.delegate.obtainListings(listingIds);
+  }
+
+  @Override
+  public Map<Long, Listing> obtainListings(Collection<Long> listingIds, ListingFields fields)
+      throws SQLException {
+    return this.delegate.obtainListings(listingIds, fields);
+  }
+
+  @Override
+  public User getUser(String clerkId) throws Exception {
+    return this.delegate.getUser(clerkId);
+  }
+
+  @Override
+  public List<Listing> getListingsBySellerId(String sellerId) throws Exception {
+    return this.delegate.getListingsBySellerId(sellerId);
+  }
+
+  @Override
+  public void forEachListingBySellerId(String sellerId, ListingVisitor visitor) throws Exception {
+    this.delegate.forEachListingBySellerId(sellerId, visitor);
+  }
+
+  @Override
+  public void forEachListingBySellerId(
+      String sellerId, ListingFields fields, ListingVisitor visitor) throws Exception {
+    this.delegate.forEachListingBySellerId(sellerId, fields, visitor);
+  }
+}
@@ -0,0 +1,117 @@
+package edu.brown.cs.student;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.brown.cs.student.main.server.classes.Listing;
+import edu.brown.cs.student.main.server.storage.CachingStorage;
+import edu.brown.cs.student.main.server.storage.FrequencyCache;
+import edu.brown.cs.student.main.server.storage.MockStorage;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class CachingStorageTests {
+  private final AtomicInteger backendReads = new AtomicInteger();
+  private CachingStorage storage;
+
+  @BeforeEach
+  void setUp() {
+    // counts the lookups that reach the backing store
+    MockStorage backend =
+        new MockStorage() {
+          @Override
+          public Listing obtainListing(Long listingId) {
+            backendReads.incrementAndGet();
+            return super.obtainListing(listingId);
+          }
+
+          @Override
+          public Map<Long, Listing> obtainListings(Collection<Long> listingIds) {
+            backendReads.addAndGet(listingIds.size());
+            return super.obtainListings(listingIds);
+          }
+        };
+    storage = new CachingStorage(backend, 100, 60_000);
+  }
+
+  private Long createBike() throws Exception {
+    return storage.createListing(
+        "clerk1", "Bike", true, "Sexy bike", 100.0f, "Other", "New", "bike.jpg", List.of());
+  }
+
+  @Test
+  void testRepeatedLookupsHitCache() throws Exception {
+    Long id = createBike();
+    for (int i = 0; i < 5; i++) {
+      assertEquals("Bike", storage.obtainListing(id).getTitle());
+    }
+    assertEquals(1, backendReads.get());
+
+    @SuppressWarnings("unchecked")
+    Map<String, Object> cacheStats = (Map<String, Object>) storage.getStats().get("listing_cache");
+    assertEquals(4L, cacheStats.get("hits"));
+    assertEquals(1L, cacheStats.get("misses"));
+  }
+
+  @Test
+  void testUpdateAndDeleteInvalidate() throws Exception {
+    Long id = createBike();
+    storage.obtainListing(id);
+
+    Listing update =
+        new Listing(id, "clerk1", "Road Bike", null, null, null, null, null, null, true);
+    storage.updateListing(id, update);
+    assertEquals("Road Bike", storage.obtainListing(id).getTitle());
+    assertEquals(2, backendReads.get());
+
+    storage.deleteListing(id);
+    assertNull(storage.obtainListing(id));
+  }
+
+  @Test
+  void testFrequentKeysSurviveOneOffLookups() {
+    FrequencyCache<Long, String> cache = new FrequencyCache<>(2, 60_000);
+    for (long key = 1; key <= 2; key++) {
+      for (int i = 0; i < 5; i++) {
+        cache.get(key);
+      }
+      cache.put(key, "hot" + key, cache.ticket());
+    }
+
+    // a key seen once may not displace keys seen many times
+    cache.get(3L);
+    cache.put(3L, "cold", cache.ticket());
+    assertNull(cache.get(3L));
+    assertEquals("hot1", cache.get(1L));
+    assertEquals("hot2", cache.get(2L));
+    assertEquals(1L, cache.getStats().get("admission_rejections"));
+  }
+
+  @Test
+  void testStaleLoadIsDropped() {
+    FrequencyCache<Long, String> cache = new FrequencyCache<>(2, 60_000);
+    long ticket = cache.ticket();
+    cache.invalidate(1L);
+    cache.put(1L, "stale", ticket);
+    assertNull(cache.get(1L));
+  }
+
+  @Test
+  void testMultiGetOnlyFetchesMisses() throws Exception {
+    Long first = createBike();
+    Long second = createBike();
+    storage.obtainListing(first);
+
+    Map<Long, Listing> listings = storage.obtainListings(List.of(first, second, 999L));
+    assertEquals(2, listings.size());
+    assertFalse(listings.containsKey(999L));
+    // one read for the single lookup, then only the two misses
+    assertEquals(3, backendReads.get());
+
+    storage.obtainListings(List.of(first, second));
+    assertEquals(3, backendReads.get());
+  }
+}
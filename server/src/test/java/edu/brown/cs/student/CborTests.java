@@ -0,0 +1,100 @@
+package edu.brown.cs.student;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.brown.cs.student.main.server.classes.Listing;
+import edu.brown.cs.student.main.server.classes.User;
+import edu.brown.cs.student.main.server.handlers.Cbor;
+import edu.brown.cs.student.main.server.handlers.Utils;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class CborTests {
+
+  @Test
+  void testEncodesShortestForms() {
+    Map<String, Object> response = new LinkedHashMap<>();
+    response.put("n", 500L);
+    assertArrayEquals(
+        new byte[] {(byte) 0xa1, 0x61, 'n', 0x19, 0x01, (byte) 0xf4}, Cbor.encode(response));
+
+    response.clear();
+    response.put("p", 12.5f);
+    response.put("m", -1L);
+    assertArrayEquals(
+        new byte[] {(byte) 0xa2, 0x61, 'p', (byte) 0xfa, 0x41, 0x48, 0, 0, 0x61, 'm', 0x20},
+        Cbor.encode(response));
+  }
+
+  @Test
+  void testListingsKeepTheirJsonShape() {
+    Map<String, Object> response = new LinkedHashMap<>();
+    response.put("response_type", "success");
+    response.put(
+        "listings",
+        List.of(
+            new Listing(
+                3L,
+                "clerk1",
+                "Lamp",
+                null,
+                12.5f,
+                "Other",
+                "New",
+                "lamp.jpg",
+                Arrays.asList("light", null),
+                true)));
+    response.put("user", new User(7L, "clerk1", null, "Ada", "555", "Brown", List.of("lamps")));
+
+    @SuppressWarnings("unchecked")
+    Map<String, Object> decoded = (Map<String, Object>) Cbor.decode(Cbor.encode(response));
+    assertEquals(List.of("response_type", "listings", "user"), new ArrayList<>(decoded.keySet()));
+
+    @SuppressWarnings("unchecked")
+    Map<String, Object> lamp = ((List<Map<String, Object>>) decoded.get("listings")).get(0);
+    assertEquals(
+        List.of(
+            "id",
+            "seller_id",
+            "title",
+            "price",
+            "category",
+            "condition",
+            "image_url",
+            "tags",
+            "available"),
+        new ArrayList<>(lamp.keySet()));
+    assertEquals(3L, lamp.get("id"));
+    assertEquals(12.5, lamp.get("price"));
+    assertEquals(Arrays.asList("light", null), lamp.get("tags"));
+    assertEquals(true, lamp.get("available"));
+
+    @SuppressWarnings("unchecked")
+    Map<String, Object> user = (Map<String, Object>) decoded.get("user");
+    assertEquals("clerk1", user.get("clerk_id"));
+    assertEquals(List.of("lamps"), user.get("tags"));
+    assertFalse(user.containsKey("email"));
+  }
+
+  @Test
+  void testNegotiation() {
+    assertFalse(Utils.prefersCbor(null));
+    assertFalse(Utils.prefersCbor("*/*"));
+    assertFalse(Utils.prefersCbor("application/json, application/cbor"));
+    assertFalse(Utils.prefersCbor("application/cbor;q=0"));
+    assertTrue(Utils.prefersCbor("application/cbor"));
+    assertTrue(Utils.prefersCbor("application/cbor, */*"));
+    assertTrue(Utils.prefersCbor("application/json;q=0.5, application/cbor"));
+  }
+
+  @Test
+  void testRejectsMalformedInput() {
+    assertThrows(IllegalArgumentException.class, () -> Cbor.decode(new byte[] {0x62, 'a'}));
+    assertThrows(IllegalArgumentException.class, () -> Cbor.decode(new byte[] {0x01, 0x02}));
+    assertThrows(IllegalArgumentException.class, () -> Cbor.decode(new byte[] {(byte) 0x9f}));
+  }
+}
@@ -0,0 +1,158 @@
+package edu.brown.cs.student;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.brown.cs.student.main.server.classes.Listing;
+import edu.brown.cs.student.main.server.storage.CachingStorage;
+import edu.brown.cs.student.main.server.storage.ChangeBus;
+import edu.brown.cs.student.main.server.storage.ChangeEvent;
+import edu.brown.cs.student.main.server.storage.ColumnarStorage;
+import edu.brown.cs.student.main.server.storage.IndexedStorage;
+import edu.brown.cs.student.main.server.storage.LocalChangeBus;
+import edu.brown.cs.student.main.server.storage.MockStorage;
+import edu.brown.cs.student.main.server.storage.PostgresChangeBus;
+import edu.brown.cs.student.main.server.storage.StorageInterface;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ChangeBusTests {
+  // plays the shared database both instances read and write
+  private MockStorage database;
+  private LocalChangeBus hub;
+  private ChangeBus busA;
+  private ChangeBus busB;
+  private Long lampId;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    database = new MockStorage();
+    lampId =
+        database.createListing(
+            "clerk1", "Lamp", true, "Bright", 12f, "Other", "New", "lamp.jpg", List.of("light"));
+    hub = new LocalChangeBus();
+    busA = hub.connect();
+    busB = hub.connect();
+  }
+
+  private static Listing titleUpdate(String title) {
+    return new Listing(null, null, title, null, null, null, null, null, null, null);
+  }
+
+  @Test
+  void testEventsRoundTrip() {
+    assertEquals(ChangeEvent.listing(42L), ChangeEvent.decode(ChangeEvent.listing(42L).encode()));
+    assertEquals("U:user_1", ChangeEvent.user("user_1").encode());
+    assertEquals(ChangeEvent.Kind.USER, ChangeEvent.decode("U:user_1").getKind());
+    assertThrows(IllegalArgumentException.class, () -> ChangeEvent.decode("X:1"));
+    assertThrows(IllegalArgumentException.class, () -> ChangeEvent.decode("L:lamp"));
+  }
+
+  @Test
+  void testBulkEventsArePackedIntoFewNotifications() throws Exception {
+    // records the payload of every pg_notify run on the write's connection
+    List<String> payloads = new ArrayList<>();
+    PreparedStatement statement =
+        (PreparedStatement)
+            Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[] {PreparedStatement.class},
+                (proxy, method, args) -> {
+                  if (method.getName().equals("setString") && (int) args[0] == 2) {
+                    payloads.add((String) args[1]);
+                  }
+                  return method.getName().equals("execute") ? true : null;
+                });
+    Connection connection =
+        (Connection)
+            Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class},
+                (proxy, method, args) ->
+                    method.getName().equals("prepareStatement") ? statement : null);
+
+    List<ChangeEvent> events = new ArrayList<>();
+    for (long id = 1; id <= 2_000; id++) {
+      events.add(ChangeEvent.listing(id));
+    }
+    try (PostgresChangeBus bus =
+        new PostgresChangeBus(
+            () -> {
+              throw new SQLException("no listener in this test");
+            })) {
+      bus.publish(connection, events);
+    }
+
+    assertTrue(payloads.size() > 1 && payloads.size() < 10);
+    List<ChangeEvent> sent = new ArrayList<>();
+    for (String payload : payloads) {
+      assertTrue(payload.getBytes(StandardCharsets.UTF_8).length < 8000);
+      for (String encoded : payload.substring(payload.indexOf('|') + 1).split("\n")) {
+        sent.add(ChangeEvent.decode(encoded));
+      }
+    }
+    assertEquals(events, sent);
+  }
+
+  @Test
+  void testOtherInstancesCachesAreInvalidated() {
+    CachingStorage nodeA = new CachingStorage(database);
+    CachingStorage nodeB = new CachingStorage(database);
+    nodeB.listenTo(busB);
+    assertEquals("Lamp", nodeB.obtainListing(lampId).getTitle());
+
+    // what RealStorage does on instance A: write, then publish
+    assertTrue(nodeA.updateListing(lampId, titleUpdate("Desk lamp")));
+    busA.publish(ChangeEvent.listing(lampId));
+    assertEquals("Desk lamp", nodeB.obtainListing(lampId).getTitle());
+    assertEquals(1L, busB.getStats().get("received"));
+    assertEquals(0L, busA.getStats().get("received"));
+  }
+
+  @Test
+  void testIndexesRefreshAndResync() throws Exception {
+    IndexedStorage indexed =
+        new IndexedStorage(
+            database,
+            visitor -> database.forEachListing(null, null, null, null, null, null, visitor));
+    ColumnarStorage columnar =
+        new ColumnarStorage(
+            database,
+            visitor -> database.forEachListing(null, null, null, null, null, null, visitor));
+    indexed.listenTo(busB);
+    columnar.listenTo(busB);
+
+    database.updateListing(lampId, titleUpdate("Desk lamp"));
+    Long chairId =
+        database.createListing(
+            "clerk2", "Chair", true, null, 30f, "Furniture", "Used", null, List.of());
+    busA.publish(ChangeEvent.listing(lampId));
+    busA.publish(ChangeEvent.listing(chairId));
+    for (StorageInterface storage : List.<StorageInterface>of(indexed, columnar)) {
+      assertEquals(
+          List.of(lampId),
+          storage.getListings("desk", null, null, null, null, null).stream()
+              .map(Listing::getId)
+              .toList());
+      assertEquals("Chair", storage.obtainListing(chairId).getTitle());
+    }
+
+    database.deleteListing(lampId);
+    busA.publish(ChangeEvent.listing(lampId));
+    assertNull(indexed.obtainListing(lampId));
+    assertNull(columnar.obtainListing(lampId));
+
+    // changes whose events were lost only show up after a resync
+    database.deleteListing(chairId);
+    assertNotNull(indexed.obtainListing(chairId));
+    hub.resync();
+    assertNull(indexed.obtainListing(chairId));
+    assertNull(columnar.obtainListing(chairId));
+  }
+}
@@ -0,0 +1,245 @@
+package edu.brown.cs.student;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.brown.cs.student.main.server.classes.Listing;
+import edu.brown.cs.student.main.server.classes.ListingPage;
+import edu.brown.cs.student.main.server.storage.ColumnarStorage;
+import edu.brown.cs.student.main.server.storage.IndexedStorage;
+import edu.brown.cs.student.main.server.storage.ListingFields;
+import edu.brown.cs.student.main.server.storage.LocalChangeBus;
+import edu.brown.cs.student.main.server.storage.MockStorage;
+import edu.brown.cs.student.main.server.storage.Sorter;
+import edu.brown.cs.student.main.server.storage.StorageInterface;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ColumnarStorageTests {
+  private MockStorage backing;
+  private ColumnarStorage columns;
+  // answers the same queries from Listing objects, as the reference
+  private IndexedStorage indexed;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    backing = new MockStorage();
+    String[] categories = {"Furniture", "Books", "Clothing"};
+    // enough rows to grow every column and the id table past their initial sizes
+    for (int i = 0; i < 3000; i++) {
+      backing.createListing(
+          "clerk" + (i % 40),
+          (i % 5 == 0 ? "Wooden chair " : "Textbook ") + i,
+          i % 9 != 0,
+          i % 2 == 0 ? null : "Gently used",
+          (i * 7) % 200,
+          categories[i % 3],
+          "Used",
+          "item" + i + ".jpg",
+          i % 4 == 0 ? List.of("dorm", "wood") : List.of("study"));
+    }
+    columns =
+        new ColumnarStorage(
+            backing,
+            visitor -> backing.forEachListing(null, null, null, null, null, null, visitor));
+    indexed =
+        new IndexedStorage(
+            backing,
+            visitor -> backing.forEachListing(null, null, null, null, null, null, visitor));
+  }
+
+  private static List<Long> ids(List<Listing> listings) {
+    return listings.stream().map(Listing::getId).toList();
+  }
+
+  private static void assertSameListings(List<Listing> expected, List<Listing> actual) {
+    assertEquals(ids(expected), ids(actual));
+    for (int i = 0; i < expected.size(); i++) {
+      Listing e = expected.get(i);
+      Listing a = actual.get(i);
+      assertEquals(e.getTitle(), a.getTitle());
+      assertEquals(e.getDescription(), a.getDescription());
+      assertEquals(e.getPrice(), a.getPrice());
+      assertEquals(e.getCategory(), a.getCategory());
+      assertEquals(e.getSellerId(), a.getSellerId());
+      assertEquals(e.getTags(), a.getTags());
+      assertEquals(e.getAvailable(), a.getAvailable());
+    }
+  }
+
+  @Test
+  void testFiltersMatchTheIndexedEngine() {
+    List<List<Object>> queries =
+        List.of(
+            Arrays.asList(null, null, null, null, null),
+            Arrays.asList("chair", null, null, null, null),
+            Arrays.asList(null, "Books", 20f, 80f, null),
+            Arrays.asList("WOODEN", "Furniture", null, 150f, List.of("wood")),
+            Arrays.asList(null, "Garden", null, null, null),
+            Arrays.asList(null, null, null, null, List.of("unknown")));
+    for (List<Object> q : queries) {
+      for (Sorter sorter : new Sorter[] {null, Sorter.PRICE_ASC, Sorter.PRICE_DESC}) {
+        @SuppressWarnings("unchecked")
+        List<String> tags = (List<String>) q.get(4);
+        assertSameListings(
+            indexed.getListings(
+                (String) q.get(0),
+                (String) q.get(1),
+                (Float) q.get(2),
+                (Float) q.get(3),
+                tags,
+                sorter),
+            columns.getListings(
+                (String) q.get(0),
+                (String) q.get(1),
+                (Float) q.get(2),
+                (Float) q.get(3),
+                tags,
+                sorter));
+      }
+    }
+  }
+
+  @Test
+  void testPagesAndProjections() {
+    for (Sorter sorter : new Sorter[] {null, Sorter.PRICE_ASC, Sorter.PRICE_DESC}) {
+      List<Listing> paged = new ArrayList<>();
+      String cursor = null;
+      do {
+        // the projection leaves the sort key out, yet the cursor must still work
+        ListingPage page =
+            columns.getListingsPage(
+                null, "Books", null, null, null, sorter, 97, cursor, ListingFields.parse("title"));
+        paged.addAll(page.getListings());
+        cursor = page.getNextCursor();
+      } while (cursor != null);
+      assertEquals(ids(indexed.getListings(null, "Books", null, null, null, sorter)), ids(paged));
+      assertNull(paged.get(0).getPrice());
+      assertNotNull(paged.get(0).getTitle());
+    }
+  }
+
+  @Test
+  void testWritesAreApplied() throws Exception {
+    StorageInterface storage = columns;
+    Long id =
+        storage.createListing(
+            "clerk99", "Lamp", true, "Bright", 12.5f, "Other", "New", "lamp.jpg", List.of("light"));
+    assertEquals("Lamp", storage.obtainListing(id).getTitle());
+    assertEquals(List.of(id), ids(storage.getListings(null, "Other", null, null, null, null)));
+
+    Listing update =
+        new Listing(null, null, "Desk lamp", null, null, null, null, null, List.of("desk"), null);
+    assertTrue(storage.updateListing(id, update));
+    Listing updated = storage.obtainListing(id);
+    assertEquals("Desk lamp", updated.getTitle());
+    assertEquals(12.5f, updated.getPrice());
+    assertEquals(List.of("desk"), updated.getTags());
+    assertTrue(storage.getListings(null, null, null, null, List.of("light"), null).isEmpty());
+
+    assertTrue(storage.deleteListing(id));
+    assertNull(storage.obtainListing(id));
+    assertTrue(storage.getListingsBySellerId("clerk99").isEmpty());
+    assertEquals(75, storage.getListingsBySellerId("clerk3").size());
+  }
+
+  @SuppressWarnings("unchecked")
+  private int textStat(String name) {
+    return (int) ((Map<String, Object>) columns.getStats().get("listing_columns")).get(name);
+  }
+
+  @Test
+  void testArenasDoNotGrowWithRewrites() throws Exception {
+    LocalChangeBus hub = new LocalChangeBus();
+    columns.listenTo(hub.connect());
+    int textBytes = textStat("text_bytes");
+
+    // a resync rewrites every row; unchanged text is kept where it is
+    hub.resync();
+    hub.resync();
+    assertEquals(textBytes, textStat("text_bytes"));
+    assertEquals(0, textStat("dead_text_bytes"));
+
+    // changed text is appended, and the arena is compacted once most of it is dead
+    List<Long> all = ids(columns.getListings(null, null, null, null, null, null));
+    for (int round = 0; round < 5; round++) {
+      for (Long id : all) {
+        Listing update =
+            new Listing(
+                null,
+                null,
+                "Renamed " + round + " " + id,
+                null,
+                null,
+                null,
+                null,
+                null,
+                List.of("round" + round),
+                null);
+        assertTrue(columns.updateListing(id, update));
+      }
+    }
+    assertTrue(textStat("text_bytes") < 2 * textBytes);
+    indexed =
+        new IndexedStorage(
+            backing,
+            visitor -> backing.forEachListing(null, null, null, null, null, null, visitor));
+    assertSameListings(
+        indexed.getListings("renamed 4", null, null, null, List.of("round4"), Sorter.PRICE_ASC),
+        columns.getListings("renamed 4", null, null, null, List.of("round4"), Sorter.PRICE_ASC));
+  }
+
+  @Test
+  void testFilterBitmapsFollowBulkWrites() throws Exception {
+    // enough rows in one category and tag to span several bitmap chunks, some of them dense
+    List<Listing> bulk = new ArrayList<>();
+    for (int i = 0; i < 70000; i++) {
+      bulk.add(
+          new Listing(
+              null,
+              "bulk",
+              "Crate " + i,
+              null,
+              (float) (i % 300),
+              "Storage",
+              "Used",
+              null,
+              List.of(i % 2 == 0 ? "even" : "odd"),
+              true));
+    }
+    List<Long> bulkIds = columns.createListings(bulk);
+    indexed =
+        new IndexedStorage(
+            backing,
+            visitor -> backing.forEachListing(null, null, null, null, null, null, visitor));
+    assertSameListings(
+        indexed.getListings(null, "Storage", 10f, 20f, List.of("odd"), Sorter.PRICE_ASC),
+        columns.getListings(null, "Storage", 10f, 20f, List.of("odd"), Sorter.PRICE_ASC));
+
+    // thin the rows back out, and move some to another category and out of availability
+    for (int i = 0; i < bulkIds.size(); i++) {
+      if (i % 50 != 0) {
+        assertTrue(columns.deleteListing(bulkIds.get(i)));
+      } else if (i % 100 == 0) {
+        Listing update =
+            new Listing(null, null, null, null, null, "Books", null, null, null, i % 200 == 0);
+        assertTrue(columns.updateListing(bulkIds.get(i), update));
+      }
+    }
+    assertEquals(1400, columns.getListingsBySellerId("bulk").size());
+    assertEquals(700, columns.getListings(null, "Storage", null, null, null, null).size());
+    // every row left is even, and half of those moved to Books are no longer available
+    assertEquals(1050, columns.getListings(null, null, null, null, List.of("even"), null).size());
+    assertTrue(columns.getListings(null, null, null, null, List.of("odd"), null).isEmpty());
+    indexed =
+        new IndexedStorage(
+            backing,
+            visitor -> backing.forEachListing(null, null, null, null, null, null, visitor));
+    assertSameListings(
+        indexed.getListings(null, "Books", null, null, List.of("even", "study"), null),
+        columns.getListings(null, "Books", null, null, List.of("even", "study"), null));
+  }
+}
@@ -0,0 +1,85 @@
+package edu.brown.cs.student;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.brown.cs.student.main.server.handlers.CompressionFilter;
+import edu.brown.cs.student.main.server.handlers.CompressionFilter.Encoding;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+import org.junit.jupiter.api.Test;
+
+public class CompressionFilterTests {
+
+  private static byte[] listingsJson(int count) {
+    StringBuilder json = new StringBuilder("{\"listings\":[");
+    for (int i = 0; i < count; i++) {
+      if (i > 0) {
+        json.append(',');
+      }
+      json.append("{\"id\":")
+          .append(i)
+          .append(",\"title\":\"Lamp ")
+          .append(i)
+          .append("\",\"category\":\"Furniture\",\"condition\":\"Used\",")
+          .append("\"imageUrl\":\"https://images.example.edu/listings/")
+          .append(i)
+          .append(".jpg\",\"isAvailable\":true}");
+    }
+    return json.append("],\"response_type\":\"success\"}")
+        .toString()
+        .getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  void testNegotiation() {
+    assertNull(CompressionFilter.negotiate(null));
+    assertNull(CompressionFilter.negotiate("identity"));
+    assertNull(CompressionFilter.negotiate("br"));
+    assertEquals(Encoding.GZIP, CompressionFilter.negotiate("gzip, deflate, br"));
+    assertEquals(Encoding.DEFLATE, CompressionFilter.negotiate("gzip;q=0.5, deflate"));
+    assertEquals(Encoding.DEFLATE, CompressionFilter.negotiate("gzip;q=0, *"));
+    assertEquals(Encoding.GZIP, CompressionFilter.negotiate("*;q=0.3"));
+    assertNull(CompressionFilter.negotiate("gzip;q=0, deflate;q=0"));
+  }
+
+  @Test
+  void testRoundTripsAndReusesDeflaters() throws Exception {
+    CompressionFilter filter = new CompressionFilter();
+    byte[] body = listingsJson(500);
+    for (int i = 0; i < 20; i++) {
+      byte[] gzip = filter.compress(body, Encoding.GZIP);
+      byte[] deflate = filter.compress(body, Encoding.DEFLATE);
+      try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+        assertArrayEquals(body, in.readAllBytes());
+      }
+      try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(deflate))) {
+        assertArrayEquals(body, in.readAllBytes());
+      }
+      assertTrue(gzip.length * 5 < body.length);
+    }
+    // one of each, reset and reused for every later response
+    assertEquals(2L, filter.getStats().get("deflaters_created"));
+  }
+
+  @Test
+  void testCachedBodiesAreCompressedOnce() throws Exception {
+    CompressionFilter filter = new CompressionFilter();
+    byte[] body = listingsJson(100);
+    byte[] first = filter.compressCached("get-listings \"a-1\" GZIP", body, Encoding.GZIP);
+    byte[] second = filter.compressCached("get-listings \"a-1\" GZIP", body, Encoding.GZIP);
+    assertSame(first, second);
+    // a new tag is a new key, so the new body is compressed again
+    byte[] changed = listingsJson(101);
+    byte[] third = filter.compressCached("get-listings \"a-2\" GZIP", changed, Encoding.GZIP);
+    try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(third))) {
+      assertArrayEquals(changed, in.readAllBytes());
+    }
+    @SuppressWarnings("unchecked")
+    Map<String, Object> cache = (Map<String, Object>) filter.getStats().get("cache");
+    assertEquals(1L, ((Number) cache.get("hits")).longValue());
+  }
+}
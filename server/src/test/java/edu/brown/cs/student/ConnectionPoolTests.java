@@ -0,0 +1,91 @@
+package edu.brown.cs.student;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.brown.cs.student.main.server.storage.ConnectionPool;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class ConnectionPoolTests {
+  private final AtomicInteger opened = new AtomicInteger();
+  private final AtomicInteger closed = new AtomicInteger();
+  private final AtomicBoolean valid = new AtomicBoolean(true);
+
+  // a fake physical connection that only understands the calls the pool makes
+  private Connection fakeConnection() {
+    opened.incrementAndGet();
+    AtomicBoolean isClosed = new AtomicBoolean(false);
+    return (Connection)
+        Proxy.newProxyInstance(
+            Connection.class.getClassLoader(),
+            new Class<?>[] {Connection.class},
+            (proxy, method, args) -> {
+              switch (method.getName()) {
+                case "close":
+                  isClosed.set(true);
+                  closed.incrementAndGet();
+                  return null;
+                case "isClosed":
+                  return isClosed.get();
+                case "isValid":
+                  return valid.get();
+                case "getAutoCommit":
+                  return true;
+                default:
+                  return null;
+              }
+            });
+  }
+
+  @Test
+  void testConnectionsAreReused() throws Exception {
+    ConnectionPool pool = new ConnectionPool(this::fakeConnection, 2, 100, 30_000, 0);
+    for (int i = 0; i < 5; i++) {
+      try (Connection connection = pool.getConnection()) {
+        assertFalse(connection.isClosed());
+      }
+    }
+    assertEquals(1, opened.get());
+    assertEquals(0, closed.get());
+    assertEquals(5L, pool.getStats().get("total_acquired"));
+  }
+
+  @Test
+  void testAcquireTimesOutWhenExhausted() throws Exception {
+    ConnectionPool pool = new ConnectionPool(this::fakeConnection, 1, 50, 30_000, 0);
+    Connection held = pool.getConnection();
+    assertThrows(SQLTimeoutException.class, pool::getConnection);
+    assertEquals(1L, pool.getStats().get("total_timeouts"));
+
+    held.close();
+    try (Connection connection = pool.getConnection()) {
+      assertNotNull(connection);
+    }
+  }
+
+  @Test
+  void testInvalidIdleConnectionIsReplaced() throws Exception {
+    ConnectionPool pool = new ConnectionPool(this::fakeConnection, 1, 50, 0, 0);
+    pool.getConnection().close();
+    valid.set(false);
+    pool.getConnection().close();
+
+    assertEquals(2, opened.get());
+    assertEquals(1, closed.get());
+    assertEquals(1L, pool.getStats().get("total_validation_failures"));
+  }
+
+  @Test
+  void testLeakIsReported() throws Exception {
+    ConnectionPool pool = new ConnectionPool(this::fakeConnection, 1, 50, 30_000, 20);
+    Connection leaked = pool.getConnection();
+    Thread.sleep(200);
+    assertEquals(1L, pool.getStats().get("total_leaks_detected"));
+    leaked.close();
+    pool.close();
+  }
+}
@@ -0,0 +1,79 @@
+package edu.brown.cs.student;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.brown.cs.student.main.server.classes.ListingFacets;
+import edu.brown.cs.student.main.server.storage.FacetCounter;
+import edu.brown.cs.student.main.server.storage.MockStorage;
+import edu.brown.cs.student.main.server.storage.ShardedStorage;
+import edu.brown.cs.student.main.server.storage.StorageInterface;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class FacetsTests {
+
+  private static void fill(StorageInterface storage) throws Exception {
+    String[] categories = {"Furniture", "Books", "Clothing"};
+    for (int i = 0; i < 12; i++) {
+      storage.createListing(
+          "clerk" + i,
+          "Item " + i,
+          true,
+          "Thing",
+          i * 10,
+          categories[i % 3],
+          "Used",
+          "item.jpg",
+          i % 2 == 0 ? List.of("even", "dorm") : List.of("odd"));
+    }
+  }
+
+  @Test
+  void testCountsMatchingListings() throws Exception {
+    StorageInterface storage = new MockStorage();
+    fill(storage);
+
+    // prices 0 to 110, boundaries 25 and 50
+    ListingFacets facets = storage.getFacets(null, null, null, null, null, List.of(25f, 50f), 1);
+    assertEquals(12, facets.getTotal());
+    assertEquals(Map.of("Furniture", 4L, "Books", 4L, "Clothing", 4L), facets.getCategories());
+    // only the most common tag; all three tie, so the name decides
+    assertEquals(Map.of("dorm", 6L), facets.getTags());
+    List<ListingFacets.PriceBucket> histogram = facets.getPriceHistogram();
+    assertEquals(List.of(3L, 2L, 7L), histogram.stream().map(b -> b.getCount()).toList());
+    assertEquals(50f, histogram.get(2).getMin());
+    assertNull(histogram.get(2).getMax());
+
+    // the filters apply as in get-listings
+    ListingFacets books = storage.getFacets(null, "Books", 20f, null, null, List.of(), 10);
+    assertEquals(3, books.getTotal());
+    assertEquals(Map.of("Books", 3L), books.getCategories());
+    assertEquals(List.of(3L), books.getPriceHistogram().stream().map(b -> b.getCount()).toList());
+  }
+
+  @Test
+  void testShardsMergeToTheSameCounts() throws Exception {
+    StorageInterface single = new MockStorage();
+    StorageInterface sharded =
+        new ShardedStorage(
+            List.<StorageInterface>of(new MockStorage(), new MockStorage(), new MockStorage()));
+    fill(single);
+    fill(sharded);
+
+    ListingFacets expected = single.getFacets(null, null, null, null, null, List.of(30f), 2);
+    ListingFacets merged = sharded.getFacets(null, null, null, null, null, List.of(30f), 2);
+    assertEquals(expected.getTotal(), merged.getTotal());
+    assertEquals(expected.getCategories(), merged.getCategories());
+    assertEquals(expected.getTags(), merged.getTags());
+    assertEquals(
+        expected.getPriceHistogram().stream().map(b -> b.getCount()).toList(),
+        merged.getPriceHistogram().stream().map(b -> b.getCount()).toList());
+  }
+
+  @Test
+  void testRejectsUnorderedBoundaries() {
+    assertThrows(IllegalArgumentException.class, () -> new FacetCounter(List.of(50f, 25f)));
+    assertThrows(IllegalArgumentException.class, () -> new FacetCounter(List.of(0f)));
+  }
+}
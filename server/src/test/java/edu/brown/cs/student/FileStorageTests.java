@@ -0,0 +1,174 @@
+package edu.brown.cs.student;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.brown.cs.student.main.server.classes.Listing;
+import edu.brown.cs.student.main.server.classes.User;
+import edu.brown.cs.student.main.server.storage.FileStorage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class FileStorageTests {
+  @TempDir Path directory;
+
+  private static Long addLamp(FileStorage storage, String title) {
+    return storage.createListing(
+        "clerk1", title, true, "Bright", 12.0f, "Other", "New", "lamp.jpg", List.of("light"));
+  }
+
+  private List<String> files() throws Exception {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.map(file -> file.getFileName().toString()).sorted().toList();
+    }
+  }
+
+  @Test
+  void testWritesSurviveAReopen() throws Exception {
+    FileStorage storage = new FileStorage(directory);
+    storage.createUser("clerk1", "user@example.com", "Bob", "1234567890", "Brown");
+    storage.updateUser("clerk1", new User("clerk1", "John", null, null));
+    Long lamp = addLamp(storage, "Lamp");
+    Long desk = addLamp(storage, "Desk");
+    storage.updateListing(
+        lamp, new Listing(null, null, "Desk lamp", null, 9.0f, null, null, null, null, false));
+    assertTrue(storage.deleteListing(desk));
+    // no close: reopening only sees what a crash would have left on disk
+
+    FileStorage reopened = new FileStorage(directory);
+    assertEquals("John", reopened.getUser("clerk1").getName());
+    assertEquals("user@example.com", reopened.getUser("clerk1").getEmail());
+    Listing listing = reopened.obtainListing(lamp);
+    assertEquals("Desk lamp", listing.getTitle());
+    assertEquals(9.0f, listing.getPrice());
+    assertEquals(List.of("light"), listing.getTags());
+    assertFalse(listing.getAvailable());
+    assertNull(reopened.obtainListing(desk));
+    // the deleted listing's id is not handed out again
+    assertEquals(desk + 1, addLamp(reopened, "Shelf"));
+  }
+
+  @Test
+  void testFailedLogWriteMakesStorageReadOnly() throws Exception {
+    FileStorage storage = new FileStorage(directory);
+    Long lamp = addLamp(storage, "Lamp");
+    // a closed log fails the next append the way a full or failing disk would
+    storage.close();
+    assertThrows(UncheckedIOException.class, () -> addLamp(storage, "Desk"));
+
+    UncheckedIOException refused =
+        assertThrows(UncheckedIOException.class, () -> storage.deleteListing(lamp));
+    assertTrue(refused.getMessage().contains("read-only"));
+    assertEquals("Lamp", storage.obtainListing(lamp).getTitle());
+    assertThrows(IOException.class, storage::snapshot);
+
+    FileStorage reopened = new FileStorage(directory);
+    assertEquals("Lamp", reopened.obtainListing(lamp).getTitle());
+    assertEquals(1, reopened.getListings(null, null, null, null, null, null).size());
+  }
+
+  @Test
+  void testTornRecordIsDropped() throws Exception {
+    FileStorage storage = new FileStorage(directory);
+    Long lamp = addLamp(storage, "Lamp");
+    storage.close();
+
+    // a crash in the middle of an append leaves part of a record at the end of the log
+    Files.write(
+        directory.resolve("log-0.dat"), new byte[] {0, 0, 1, 0, 42, 7}, StandardOpenOption.APPEND);
+
+    FileStorage reopened = new FileStorage(directory);
+    assertEquals("Lamp", reopened.obtainListing(lamp).getTitle());
+    Long shelf = addLamp(reopened, "Shelf");
+    reopened.close();
+    assertEquals("Shelf", new FileStorage(directory).obtainListing(shelf).getTitle());
+  }
+
+  @Test
+  void testSnapshotReplacesTheLog() throws Exception {
+    FileStorage storage = new FileStorage(directory);
+    List<Long> ids = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      ids.add(addLamp(storage, "Lamp " + i));
+    }
+    storage.deleteListing(ids.get(0));
+    storage.snapshot();
+    Long after = addLamp(storage, "After");
+    assertEquals(List.of("log-1.dat", "snapshot-1.dat"), files());
+
+    FileStorage reopened = new FileStorage(directory);
+    assertEquals(20, reopened.getListings(null, null, null, null, null, null).size());
+    assertNull(reopened.obtainListing(ids.get(0)));
+    assertEquals("Lamp 19", reopened.obtainListing(ids.get(19)).getTitle());
+    assertEquals("After", reopened.obtainListing(after).getTitle());
+  }
+
+  @Test
+  void testConcurrentWritesAreAllKept() throws Exception {
+    FileStorage storage = new FileStorage(directory);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> writers = new ArrayList<>();
+      for (int w = 0; w < 8; w++) {
+        writers.add(
+            executor.submit(
+                () -> {
+                  for (int i = 0; i < 25; i++) {
+                    addLamp(storage, "Lamp");
+                  }
+                  return null;
+                }));
+      }
+      for (Future<?> writer : writers) {
+        writer.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(
+        200, new FileStorage(directory).getListings(null, null, null, null, null, null).size());
+  }
+
+  @Test
+  void testSnapshotsDuringWritesKeepStorageWritable() throws Exception {
+    // a snapshot every 5 writes closes old logs while other writers are still syncing them
+    FileStorage storage = new FileStorage(directory, 5);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> writers = new ArrayList<>();
+      for (int w = 0; w < 8; w++) {
+        writers.add(
+            executor.submit(
+                () -> {
+                  for (int i = 0; i < 25; i++) {
+                    addLamp(storage, "Lamp");
+                    if (i % 10 == 0) {
+                      storage.snapshot();
+                    }
+                  }
+                  return null;
+                }));
+      }
+      for (Future<?> writer : writers) {
+        writer.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    // still accepts writes
+    addLamp(storage, "Lamp");
+    storage.close();
+    assertEquals(
+        201, new FileStorage(directory).getListings(null, null, null, null, null, null).size());
+  }
+}
@@ -0,0 +1,130 @@
+package edu.brown.cs.student;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.brown.cs.student.main.server.classes.Listing;
+import edu.brown.cs.student.main.server.classes.ListingPage;
+import edu.brown.cs.student.main.server.storage.IndexedStorage;
+import edu.brown.cs.student.main.server.storage.MockStorage;
+import edu.brown.cs.student.main.server.storage.Sorter;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class IndexedStorageTests {
+  private MockStorage backing;
+  private IndexedStorage storage;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    backing = new MockStorage();
+    // one listing exists before the index is built, the rest are written through it
+    backing.createListing(
+        "clerk1",
+        "Bike",
+        true,
+        "Red bike",
+        100.0f,
+        "Other",
+        "Used",
+        "bike.jpg",
+        List.of("outdoor"));
+    storage =
+        new IndexedStorage(
+            backing,
+            visitor -> backing.forEachListing(null, null, null, null, null, null, visitor));
+
+    storage.createListing(
+        "clerk2", "Helmet", true, "Safe", 50.0f, "Other", "New", "helmet.jpg", List.of("safety"));
+    storage.createListing(
+        "clerk1", "Desk", true, "Oak desk", 80.0f, "Furniture", "Used", "desk.jpg", List.of());
+    storage.createListing(
+        "clerk2", "Lamp", false, "Sold", 10.0f, "Furniture", "New", "lamp.jpg", List.of("safety"));
+  }
+
+  private static List<String> titles(List<Listing> listings) {
+    return listings.stream().map(Listing::getTitle).toList();
+  }
+
+  @Test
+  void testFiltersUseIndexes() {
+    assertEquals(
+        List.of("Helmet", "Bike"),
+        titles(storage.getListings(null, "Other", null, null, null, Sorter.PRICE_ASC)));
+    assertEquals(
+        List.of("Helmet"),
+        titles(storage.getListings(null, null, null, null, List.of("safety"), null)));
+    assertEquals(
+        List.of("Desk", "Helmet"),
+        titles(storage.getListings(null, null, 40.0f, 90.0f, null, Sorter.PRICE_DESC)));
+    assertEquals(List.of("Bike"), titles(storage.getListings("BIK", null, null, null, null, null)));
+    assertEquals(2, storage.getListingsBySellerId("clerk1").size());
+  }
+
+  @Test
+  void testWritesKeepIndexesCurrent() {
+    Long deskId = storage.getListings("Desk", null, null, null, null, null).get(0).getId();
+    Listing update =
+        new Listing(deskId, null, null, null, 20.0f, "Other", null, null, List.of("outdoor"), true);
+    assertTrue(storage.updateListing(deskId, update));
+
+    assertEquals(
+        List.of("Desk", "Bike"),
+        titles(
+            storage.getListings(null, "Other", null, null, List.of("outdoor"), Sorter.PRICE_ASC)));
+    assertTrue(storage.getListings(null, "Furniture", null, null, null, null).isEmpty());
+
+    assertTrue(storage.deleteListing(deskId));
+    assertNull(storage.obtainListing(deskId));
+    assertNull(backing.obtainListing(deskId));
+  }
+
+  @Test
+  void testPagesWalkPriceOrder() {
+    ListingPage page =
+        storage.getListingsPage(null, null, null, null, null, Sorter.PRICE_DESC, 2, null);
+    assertEquals(List.of("Bike", "Desk"), titles(page.getListings()));
+    page =
+        storage.getListingsPage(
+            null, null, null, null, null, Sorter.PRICE_DESC, 2, page.getNextCursor());
+    assertEquals(List.of("Helmet"), titles(page.getListings()));
+    assertNull(page.getNextCursor());
+  }
+
+  @Test
+  void testBulkCreateIsIndexed() throws Exception {
+    List<Long> ids =
+        storage.createListings(
+            List.of(
+                new Listing(
+                    null,
+                    "clerk3",
+                    "Couch",
+                    "Grey",
+                    120.0f,
+                    "Furniture",
+                    "Used",
+                    "c.jpg",
+                    List.of("living"),
+                    true),
+                new Listing(
+                    null,
+                    "clerk3",
+                    "Rug",
+                    "Wool",
+                    30.0f,
+                    "Furniture",
+                    "Used",
+                    "r.jpg",
+                    List.of("living"),
+                    true)));
+
+    assertEquals(2, ids.size());
+    assertEquals("Rug", backing.obtainListing(ids.get(1)).getTitle());
+    assertEquals(
+        List.of("Rug", "Couch"),
+        titles(storage.getListings(null, null, null, null, List.of("living"), Sorter.PRICE_ASC)));
+    assertEquals(
+        List.of("Couch"), titles(storage.getListings("couc", null, null, null, null, null)));
+  }
+}
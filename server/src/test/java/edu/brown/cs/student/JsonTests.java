@@ -0,0 +1,91 @@
+package edu.brown.cs.student;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import com.squareup.moshi.Types;
+import edu.brown.cs.student.main.server.classes.Listing;
+import edu.brown.cs.student.main.server.classes.User;
+import edu.brown.cs.student.main.server.handlers.Json;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class JsonTests {
+  private static final JsonAdapter<Map<String, Object>> REFLECTIVE =
+      new Moshi.Builder()
+          .build()
+          .adapter(Types.newParameterizedType(Map.class, String.class, Object.class));
+
+  private static Map<String, Object> response() {
+    Map<String, Object> response = new HashMap<>();
+    response.put("response_type", "success");
+    response.put(
+        "listings",
+        List.of(
+            new Listing(
+                3L,
+                "clerk1",
+                "Lamp \"vintage\"",
+                "Bright\nand warm",
+                12.5f,
+                "Other",
+                "New",
+                "lamp.jpg",
+                Arrays.asList("light", null),
+                true),
+            // as loaded with only some fields
+            new Listing(4L, null, "Chair", null, 30f, null, null, null, null, null)));
+    response.put(
+        "user",
+        new User(7L, "clerk1", "a@b.edu", "Ada", "555", "Brown", List.of("lamps", "chairs")));
+    response.put("count", 2L);
+    return response;
+  }
+
+  @Test
+  void testMatchesReflectiveMoshi() throws Exception {
+    Map<String, Object> response = response();
+    // same fields and values; only the key order may differ
+    assertEquals(
+        REFLECTIVE.fromJson(REFLECTIVE.toJson(response)),
+        REFLECTIVE.fromJson(Json.toJson(response)));
+    String json = Json.toJson(response);
+    assertTrue(json.contains("\"clerk_id\":\"clerk1\""));
+    assertTrue(json.contains("\"tags\":[\"lamps\",\"chairs\"]"));
+    assertFalse(json.contains("\"description\":null"));
+  }
+
+  @Test
+  void testAdaptersRoundTrip() throws Exception {
+    Listing lamp =
+        new Listing(3L, "clerk1", "Lamp", null, 12.5f, "Other", "New", null, List.of("a"), false);
+    Listing read = Json.LISTING.fromJson(Json.LISTING.toJson(lamp));
+    assertEquals(lamp.getId(), read.getId());
+    assertEquals(lamp.getPrice(), read.getPrice());
+    assertEquals(lamp.getTags(), read.getTags());
+    assertEquals(false, read.getAvailable());
+    assertNull(read.getDescription());
+
+    User ada = new User(7L, "clerk1", "a@b.edu", "Ada", "555", "Brown", List.of("lamps"));
+    User readUser = Json.USER.fromJson("{\"extra\":1," + Json.USER.toJson(ada).substring(1));
+    assertEquals(ada.getClerkId(), readUser.getClerkId());
+    assertEquals(ada.getPhoneNumber(), readUser.getPhoneNumber());
+    assertEquals(ada.getInterests(), readUser.getInterests());
+  }
+
+  @Test
+  void testBufferIsEmptyAfterAFailure() {
+    Map<String, Object> bad = new HashMap<>();
+    List<Object> values = new ArrayList<>();
+    values.add(Double.NaN);
+    bad.put("values", values);
+    assertThrows(IllegalArgumentException.class, () -> Json.toJson(bad));
+    assertEquals(
+        "{\"response_type\":\"success\"}", Json.toJson(Map.of("response_type", "success")));
+  }
+}
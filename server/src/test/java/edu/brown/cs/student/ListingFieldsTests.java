@@ -0,0 +1,54 @@
+package edu.brown.cs.student;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.brown.cs.student.main.server.classes.Listing;
+import edu.brown.cs.student.main.server.classes.ListingPage;
+import edu.brown.cs.student.main.server.storage.ListingFields;
+import edu.brown.cs.student.main.server.storage.MockStorage;
+import edu.brown.cs.student.main.server.storage.ShardedStorage;
+import edu.brown.cs.student.main.server.storage.Sorter;
+import edu.brown.cs.student.main.server.storage.StorageInterface;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class ListingFieldsTests {
+
+  @Test
+  void testParse() {
+    assertSame(ListingFields.ALL, ListingFields.parse(null));
+    assertSame(ListingFields.CARD, ListingFields.parse("card"));
+    assertEquals("*", ListingFields.ALL.sqlColumns());
+    // the id is always selected, and columns come out in table order
+    assertEquals("id, title, price", ListingFields.parse("price, title").sqlColumns());
+    assertThrows(IllegalArgumentException.class, () -> ListingFields.parse("title,password"));
+  }
+
+  @Test
+  void testProjectionDropsFields() throws Exception {
+    StorageInterface storage =
+        new ShardedStorage(List.<StorageInterface>of(new MockStorage(), new MockStorage()));
+    for (int i = 0; i < 5; i++) {
+      storage.createListing(
+          "clerk" + i, "Item " + i, true, "Long text", i, "Other", "Used", "i.jpg", List.of("x"));
+    }
+
+    ListingFields titles = ListingFields.parse("title");
+    ListingPage page =
+        storage.getListingsPage(null, null, null, null, null, Sorter.PRICE_DESC, 3, null, titles);
+    assertEquals(
+        List.of("Item 4", "Item 3", "Item 2"),
+        page.getListings().stream().map(Listing::getTitle).toList());
+    // price was only loaded to merge the shards' pages, so it is dropped again
+    Listing first = page.getListings().get(0);
+    assertNotNull(first.getId());
+    assertNull(first.getPrice());
+    assertNull(first.getDescription());
+    assertNull(first.getAvailable());
+
+    Listing card = ListingFields.CARD.project(storage.obtainListing(first.getId()));
+    assertEquals(4.0f, card.getPrice());
+    assertEquals(List.of("x"), card.getTags());
+    assertNull(card.getSellerId());
+  }
+}
@@ -0,0 +1,138 @@
+package edu.brown.cs.student;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.brown.cs.student.main.server.classes.Listing;
+import edu.brown.cs.student.main.server.handlers.ListingStreamWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import spark.Response;
+
+public class ListingStreamWriterTests {
+
+  // a response whose servlet output stream only collects the bytes written to it
+  private static class CapturedResponse extends Response {
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    private int status;
+    private String type;
+
+    @Override
+    public void status(int statusCode) {
+      this.status = statusCode;
+    }
+
+    @Override
+    public void type(String contentType) {
+      this.type = contentType;
+    }
+
+    @Override
+    public HttpServletResponse raw() {
+      ServletOutputStream out =
+          new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+              body.write(b);
+            }
+
+            @Override
+            public boolean isReady() {
+              return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener listener) {}
+          };
+      return (HttpServletResponse)
+          Proxy.newProxyInstance(
+              HttpServletResponse.class.getClassLoader(),
+              new Class<?>[] {HttpServletResponse.class},
+              (proxy, method, args) -> {
+                if (method.getName().equals("getOutputStream")) {
+                  return out;
+                }
+                throw new UnsupportedOperationException(method.getName());
+              });
+    }
+
+    String written() {
+      return this.body.toString(StandardCharsets.UTF_8);
+    }
+  }
+
+  private static Listing listing(long id, String title) {
+    return new Listing(id, "clerk1", title, null, 10f, null, null, null, null, true);
+  }
+
+  @Test
+  void testListingsAreFramedAndResponseTypeComesLast() throws IOException {
+    CapturedResponse response = new CapturedResponse();
+    String returned =
+        ListingStreamWriter.stream(
+            response,
+            "listings",
+            "count",
+            null,
+            visitor -> {
+              visitor.visit(listing(1L, "Lamp"));
+              visitor.visit(listing(2L, "Desk"));
+            });
+
+    assertEquals("", returned);
+    assertEquals(200, response.status);
+    assertEquals("application/json", response.type);
+    assertEquals(
+        "{\"listings\":["
+            + "{\"id\":1,\"seller_id\":\"clerk1\",\"title\":\"Lamp\",\"price\":10.0,\"available\":true},"
+            + "{\"id\":2,\"seller_id\":\"clerk1\",\"title\":\"Desk\",\"price\":10.0,\"available\":true}"
+            + "],\"count\":2,\"response_type\":\"success\"}",
+        response.written());
+  }
+
+  @Test
+  void testNoRowsIsAnEmptyArray() throws IOException {
+    CapturedResponse response = new CapturedResponse();
+    ListingStreamWriter.stream(response, "listings", null, null, visitor -> {});
+    assertEquals("{\"listings\":[],\"response_type\":\"success\"}", response.written());
+  }
+
+  @Test
+  void testNoRowsReportsTheEmptyError() throws IOException {
+    CapturedResponse response = new CapturedResponse();
+    ListingStreamWriter.stream(response, "listings", "count", "No listings found", visitor -> {});
+    assertEquals(
+        "{\"listings\":[],\"count\":0,\"response_type\":\"failure\","
+            + "\"error\":\"No listings found\"}",
+        response.written());
+  }
+
+  @Test
+  void testFailurePartWayStillEndsInValidJson() throws IOException {
+    CapturedResponse response = new CapturedResponse();
+    ListingStreamWriter.stream(
+        response,
+        "listings",
+        "count",
+        "No listings found",
+        visitor -> {
+          visitor.visit(listing(1L, "Lamp"));
+          throw new SQLException("connection reset");
+        });
+
+    // the row sent before the failure stays in the array, and the status is already committed
+    assertEquals(200, response.status);
+    assertEquals(
+        "{\"listings\":["
+            + "{\"id\":1,\"seller_id\":\"clerk1\",\"title\":\"Lamp\",\"price\":10.0,\"available\":true}"
+            + "],\"count\":1,\"response_type\":\"failure\","
+            + "\"error\":\"Unexpected error: connection reset\"}",
+        response.written());
+  }
+}
@@ -3,12 +3,20 @@ package edu.brown.cs.student;
 import static org.junit.jupiter.api.Assertions.*;
 
 import edu.brown.cs.student.main.server.classes.Listing;
+import edu.brown.cs.student.main.server.classes.ListingPage;
 import edu.brown.cs.student.main.server.classes.User;
+import edu.brown.cs.student.main.server.handlers.Utils;
 import edu.brown.cs.student.main.server.storage.MockStorage;
 import edu.brown.cs.student.main.server.storage.Sorter;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -25,9 +33,20 @@ public class MockTests {
     Long userId = storage.createUser("clerk1", "user@example.com", "Bob", "1234567890", "Brown");
     assertEquals(1L, userId);
 
-    Map<String, Object> user = storage.getUser("clerk1");
-    assertEquals("Bob", user.get("name"));
-    assertEquals("Brown", user.get("school"));
+    User user = storage.getUser("clerk1");
+    assertEquals("Bob", user.getName());
+    assertEquals("Brown", user.getSchool());
+    assertEquals("user@example.com", user.getEmail());
+  }
+
+  @Test
+  void testUserJsonUsesColumnNames() throws Exception {
+    storage.createUser("clerk1", "user@example.com", "Bob", "1234567890", "Brown");
+
+    String json = Utils.toMoshiJson(Map.of("user_data", storage.getUser("clerk1")));
+    assertTrue(json.contains("\"clerk_id\":\"clerk1\""));
+    assertTrue(json.contains("\"phone_number\":\"1234567890\""));
+    assertTrue(json.contains("\"tags\":[]"));
   }
 
   @Test
@@ -39,9 +58,9 @@ public class MockTests {
 
     assertTrue(updated);
 
-    Map<String, Object> user = storage.getUser("clerk1");
-    assertEquals("John", user.get("name"));
-    assertEquals("RISD", user.get("school"));
+    User user = storage.getUser("clerk1");
+    assertEquals("John", user.getName());
+    assertEquals("RISD", user.getSchool());
   }
 
   @Test
@@ -151,6 +170,10 @@ public class MockTests {
     assertEquals(1, filteredListings.size());
     assertEquals("Bike", filteredListings.get(0).getTitle());
 
+    // the title filter also searches descriptions
+    filteredListings = storage.getListings("sexy", null, null, null, null, null);
+    assertEquals(2, filteredListings.size());
+
     filteredListings = storage.getListings(null, "Other", 30.0f, 60.0f, null, null);
     assertEquals(1, filteredListings.size());
     assertEquals("Helmet", filteredListings.get(0).getTitle());
@@ -193,4 +216,80 @@ public class MockTests {
     assertEquals(2, sortedListings.size());
     assertEquals("Bike", sortedListings.get(0).getTitle());
   }
+
+  @Test
+  void testGetListingsPaged() {
+    float[] prices = {30.0f, 10.0f, 20.0f, 10.0f, 40.0f};
+    for (float price : prices) {
+      storage.createListing(
+          "clerk1", "Item", true, "An item", price, "Other", "New", "item.jpg", List.of());
+    }
+
+    // id order, two at a time
+    ListingPage page = storage.getListingsPage(null, null, null, null, null, null, 2, null);
+    assertEquals(List.of(1L, 2L), page.getListings().stream().map(Listing::getId).toList());
+    page = storage.getListingsPage(null, null, null, null, null, null, 2, page.getNextCursor());
+    assertEquals(List.of(3L, 4L), page.getListings().stream().map(Listing::getId).toList());
+    page = storage.getListingsPage(null, null, null, null, null, null, 2, page.getNextCursor());
+    assertEquals(List.of(5L), page.getListings().stream().map(Listing::getId).toList());
+    assertNull(page.getNextCursor());
+
+    // price order breaks ties by id, so equal prices never repeat or go missing across pages
+    page = storage.getListingsPage(null, null, null, null, null, Sorter.PRICE_ASC, 1, null);
+    assertEquals(2L, page.getListings().get(0).getId());
+    page =
+        storage.getListingsPage(
+            null, null, null, null, null, Sorter.PRICE_ASC, 3, page.getNextCursor());
+    assertEquals(List.of(4L, 3L, 1L), page.getListings().stream().map(Listing::getId).toList());
+
+    // a cursor only makes sense for the ordering it came from
+    String priceCursor = page.getNextCursor();
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> storage.getListingsPage(null, null, null, null, null, null, 2, priceCursor));
+  }
+
+  @Test
+  void testConcurrentWritesAndSnapshots() throws Exception {
+    int writers = 8;
+    int batches = 250;
+    Listing item =
+        new Listing(
+            null, "clerk1", "Item", "Thing", 5.0f, "Other", "Used", "i.jpg", List.of(), true);
+    ExecutorService executor = Executors.newFixedThreadPool(writers + 1);
+    try {
+      List<Future<List<Long>>> created = new ArrayList<>();
+      for (int w = 0; w < writers; w++) {
+        created.add(
+            executor.submit(
+                () -> {
+                  List<Long> ids = new ArrayList<>();
+                  for (int b = 0; b < batches; b++) {
+                    ids.addAll(storage.createListings(List.of(item, item)));
+                  }
+                  return ids;
+                }));
+      }
+      // listings only ever arrive in pairs, so a consistent snapshot never holds an odd count
+      Future<?> reader =
+          executor.submit(
+              () -> {
+                for (int i = 0; i < 200; i++) {
+                  assertEquals(
+                      0, storage.getListings(null, null, null, null, null, null).size() % 2);
+                }
+              });
+
+      Set<Long> ids = new HashSet<>();
+      for (Future<List<Long>> future : created) {
+        ids.addAll(future.get());
+      }
+      reader.get();
+      // no id was handed out twice
+      assertEquals(writers * batches * 2, ids.size());
+      assertEquals(ids.size(), storage.getListings(null, null, null, null, null, null).size());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
 }
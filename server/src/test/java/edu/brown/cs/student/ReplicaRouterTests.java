@@ -0,0 +1,123 @@
+package edu.brown.cs.student;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.brown.cs.student.main.server.storage.ConnectionPool;
+import edu.brown.cs.student.main.server.storage.ReplicaRouter;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+
+public class ReplicaRouterTests {
+
+  // a fake connection that only understands the calls the pool makes
+  private static Connection fakeConnection() {
+    return (Connection)
+        Proxy.newProxyInstance(
+            Connection.class.getClassLoader(),
+            new Class<?>[] {Connection.class},
+            (proxy, method, args) -> {
+              switch (method.getName()) {
+                case "isClosed":
+                  return false;
+                case "isValid":
+                case "getAutoCommit":
+                  return true;
+                default:
+                  return null;
+              }
+            });
+  }
+
+  private static ConnectionPool pool(AtomicBoolean up) {
+    return new ConnectionPool(
+        () -> {
+          if (!up.get()) {
+            throw new SQLException("connection refused");
+          }
+          return fakeConnection();
+        },
+        2,
+        50,
+        30_000,
+        0);
+  }
+
+  private static long acquired(ConnectionPool pool) {
+    return (Long) pool.getStats().get("total_acquired");
+  }
+
+  @Test
+  void testReadsAreSpreadOverReplicas() throws Exception {
+    ConnectionPool primary = pool(new AtomicBoolean(true));
+    ConnectionPool first = pool(new AtomicBoolean(true));
+    ConnectionPool second = pool(new AtomicBoolean(true));
+    ReplicaRouter router = new ReplicaRouter(primary, List.of(first, second), 1_000);
+
+    for (int i = 0; i < 4; i++) {
+      router.read().close();
+    }
+    router.write().close();
+
+    assertEquals(2, acquired(first));
+    assertEquals(2, acquired(second));
+    assertEquals(1, acquired(primary));
+  }
+
+  @Test
+  void testRecentWritersReadFromPrimary() throws Exception {
+    ConnectionPool primary = pool(new AtomicBoolean(true));
+    ConnectionPool replica = pool(new AtomicBoolean(true));
+    ReplicaRouter router = new ReplicaRouter(primary, List.of(replica), 60_000);
+
+    router.recordWrite("seller:clerk1");
+    router.read("seller:clerk1").close();
+    router.read("seller:clerk2").close();
+    router.read().close();
+
+    assertEquals(1, acquired(primary));
+    assertEquals(2, acquired(replica));
+  }
+
+  @Test
+  void testExpiredPinsArePrunedButRewrittenKeysStay() throws Exception {
+    ConnectionPool primary = pool(new AtomicBoolean(true));
+    ConnectionPool replica = pool(new AtomicBoolean(true));
+    ReplicaRouter router = new ReplicaRouter(primary, List.of(replica), 500);
+
+    for (int i = 0; i < 1_000; i++) {
+      router.recordWrite("listing:" + i);
+    }
+    Thread.sleep(400);
+    router.recordWrite("listing:7");
+    Thread.sleep(150);
+    // the first batch expired and is pruned on this write; listing:7 was pinned again meanwhile
+    router.recordWrite("listing:1000");
+
+    assertEquals(2, router.getStats().get("pinned_keys"));
+    router.read("listing:7").close();
+    router.read("listing:8").close();
+    assertEquals(1, acquired(primary));
+    assertEquals(1, acquired(replica));
+  }
+
+  @Test
+  void testUnhealthyReplicaFallsBackToPrimary() throws Exception {
+    AtomicBoolean replicaUp = new AtomicBoolean(false);
+    ConnectionPool primary = pool(new AtomicBoolean(true));
+    ConnectionPool replica = pool(replicaUp);
+    ReplicaRouter router = new ReplicaRouter(primary, List.of(replica), 1_000);
+
+    router.read().close();
+    // the failed replica is not retried until its cool-down is over
+    replicaUp.set(true);
+    router.read().close();
+
+    assertEquals(2, acquired(primary));
+    assertEquals(0, acquired(replica));
+    assertEquals(1L, router.getStats().get("replica_failures"));
+  }
+}
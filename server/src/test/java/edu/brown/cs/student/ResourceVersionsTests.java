@@ -0,0 +1,97 @@
+package edu.brown.cs.student;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.brown.cs.student.main.server.classes.Listing;
+import edu.brown.cs.student.main.server.classes.User;
+import edu.brown.cs.student.main.server.storage.ChangeBus;
+import edu.brown.cs.student.main.server.storage.ChangeEvent;
+import edu.brown.cs.student.main.server.storage.LocalChangeBus;
+import edu.brown.cs.student.main.server.storage.MockStorage;
+import edu.brown.cs.student.main.server.storage.ResourceVersions;
+import edu.brown.cs.student.main.server.storage.VersionedStorage;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class ResourceVersionsTests {
+
+  @Test
+  void testWritesChangeOnlyTheirTags() throws Exception {
+    ResourceVersions versions = new ResourceVersions();
+    VersionedStorage storage = new VersionedStorage(new MockStorage(), versions);
+    Long lampId =
+        storage.createListing("clerk1", "Lamp", true, null, 12f, "Other", "New", null, List.of());
+    Long chairId =
+        storage.createListing("clerk1", "Chair", true, null, 30f, "Other", "New", null, List.of());
+    storage.createUser("clerk1", "a@b.edu", "Ada", "555", "Brown");
+
+    String lampTag = versions.etag(ResourceVersions.listingKey(lampId));
+    String chairTag = versions.etag(ResourceVersions.listingKey(chairId));
+    String searchTag = versions.etag(ResourceVersions.LISTINGS);
+    String userTag = versions.etag(ResourceVersions.userKey("clerk1"));
+    // reads leave every tag alone
+    storage.obtainListing(lampId);
+    storage.getListings(null, null, null, null, null, null);
+    assertEquals(lampTag, versions.etag(ResourceVersions.listingKey(lampId)));
+
+    storage.updateListing(
+        lampId, new Listing(null, null, "Desk lamp", null, null, null, null, null, null, null));
+    assertNotEquals(lampTag, versions.etag(ResourceVersions.listingKey(lampId)));
+    assertEquals(chairTag, versions.etag(ResourceVersions.listingKey(chairId)));
+    assertNotEquals(searchTag, versions.etag(ResourceVersions.LISTINGS));
+    assertEquals(userTag, versions.etag(ResourceVersions.userKey("clerk1")));
+
+    storage.updateUser("clerk1", new User("clerk1", "Ada L", null, null));
+    assertNotEquals(userTag, versions.etag(ResourceVersions.userKey("clerk1")));
+  }
+
+  @Test
+  void testForgottenKeysNeverGoBack() {
+    ResourceVersions versions = new ResourceVersions(2);
+    versions.bump("a");
+    long a = versions.version("a");
+    versions.bump("b");
+    versions.bump("c");
+    // "a" was forgotten, so it reports a version at least as new as its last write
+    assertTrue(versions.version("a") >= a);
+    assertEquals(a, versions.version("never-written"));
+    assertEquals(2, versions.getStats().get("keys"));
+  }
+
+  @Test
+  void testKeysGoUntaggedWhileReplicasCatchUp() throws Exception {
+    ResourceVersions versions = new ResourceVersions(2, 300);
+    String untouched = versions.etag("listing:1");
+    assertNotNull(untouched);
+
+    versions.bump("listing:2", ResourceVersions.LISTINGS);
+    // a replica may not have the write yet, so neither it nor a search is tagged
+    assertNull(versions.etag("listing:2"));
+    assertNull(versions.etag(ResourceVersions.LISTINGS));
+    assertEquals(untouched, versions.etag("listing:1"));
+
+    Thread.sleep(400);
+    assertNotNull(versions.etag("listing:2", ResourceVersions.LISTINGS));
+    // forgetting a key does not cut its window short
+    versions.bump("a", "b", "c");
+    assertNull(versions.etag("listing:2"));
+  }
+
+  @Test
+  void testOtherInstancesWritesChangeTags() {
+    LocalChangeBus hub = new LocalChangeBus();
+    ChangeBus busA = hub.connect();
+    ChangeBus busB = hub.connect();
+    ResourceVersions versions = new ResourceVersions();
+    versions.listenTo(busB);
+
+    String lampTag = versions.etag(ResourceVersions.listingKey(7L));
+    String userTag = versions.etag(ResourceVersions.userKey("clerk1"));
+    busA.publish(ChangeEvent.listing(7L));
+    assertNotEquals(lampTag, versions.etag(ResourceVersions.listingKey(7L)));
+    assertEquals(userTag, versions.etag(ResourceVersions.userKey("clerk1")));
+
+    hub.resync();
+    assertNotEquals(userTag, versions.etag(ResourceVersions.userKey("clerk1")));
+  }
+}
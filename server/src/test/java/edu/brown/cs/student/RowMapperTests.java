@@ -0,0 +1,137 @@
+package edu.brown.cs.student;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.brown.cs.student.main.server.classes.Listing;
+import edu.brown.cs.student.main.server.classes.User;
+import edu.brown.cs.student.main.server.storage.ListingFields;
+import edu.brown.cs.student.main.server.storage.RowMapper;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class RowMapperTests {
+
+  @SuppressWarnings("unchecked")
+  private static <T> T fake(Class<T> type, InvocationHandler handler) {
+    return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, handler);
+  }
+
+  private static Array sqlArray(String... values) {
+    return fake(
+        Array.class,
+        (proxy, method, args) ->
+            switch (method.getName()) {
+              case "getArray" -> values.clone();
+              case "free" -> null;
+              default -> throw new UnsupportedOperationException(method.getName());
+            });
+  }
+
+  // a fake result set positioned on one row; String[] values are text[] columns, and a column
+  // listed in types reports that SQL type instead
+  private static ResultSet row(Map<String, Object> values, Map<String, Integer> types) {
+    List<String> columns = new ArrayList<>(values.keySet());
+    ResultSetMetaData metaData =
+        fake(
+            ResultSetMetaData.class,
+            (proxy, method, args) -> {
+              if (!method.getName().equals("getColumnType")) {
+                throw new UnsupportedOperationException(method.getName());
+              }
+              String column = columns.get((Integer) args[0] - 1);
+              Object value = values.get(column);
+              return types.getOrDefault(
+                  column, value instanceof String[] ? Types.ARRAY : Types.VARCHAR);
+            });
+    return fake(
+        ResultSet.class,
+        (proxy, method, args) -> {
+          Object key = args == null ? null : args[0];
+          String column = key instanceof Integer index ? columns.get(index - 1) : (String) key;
+          Object value = values.get(column);
+          return switch (method.getName()) {
+            case "findColumn" -> columns.indexOf(column) + 1;
+            case "getMetaData" -> metaData;
+            case "getArray" -> value == null ? null : sqlArray((String[]) value);
+            case "getString" -> value;
+            case "getLong" -> ((Number) value).longValue();
+            case "getFloat" -> ((Number) value).floatValue();
+            case "getBoolean" -> value;
+            default -> throw new UnsupportedOperationException(method.getName());
+          };
+        });
+  }
+
+  private static ResultSet userRow(Object interests, int interestsType) {
+    Map<String, Object> values = new LinkedHashMap<>();
+    values.put("id", 7L);
+    values.put("clerk_id", "clerk1");
+    values.put("email", "user@example.com");
+    values.put("name", "Bob");
+    values.put("phone_number", "1234567890");
+    values.put("school", "Brown");
+    values.put("interests", interests);
+    return row(values, Map.of("interests", interestsType));
+  }
+
+  @Test
+  void testListingRows() throws Exception {
+    Map<String, Object> values = new LinkedHashMap<>();
+    values.put("id", 3L);
+    values.put("seller_id", "clerk1");
+    values.put("title", "Lamp");
+    values.put("description", "Bright");
+    values.put("price", 12.5f);
+    values.put("category", "Other");
+    values.put("condition", "New");
+    values.put("image_url", "lamp.jpg");
+    values.put("tags", new String[] {"light", "desk"});
+    values.put("available", true);
+    ResultSet resultSet = row(values, Map.of());
+
+    Listing full = RowMapper.listing(ListingFields.ALL).map(resultSet);
+    assertEquals(3L, full.getId());
+    assertEquals("Lamp", full.getTitle());
+    assertEquals(12.5f, full.getPrice());
+    assertEquals(List.of("light", "desk"), full.getTags());
+    assertTrue(full.getAvailable());
+
+    Listing projected = RowMapper.listing(ListingFields.parse("title,tags")).map(resultSet);
+    assertEquals("Lamp", projected.getTitle());
+    assertEquals(List.of("light", "desk"), projected.getTags());
+    assertNull(projected.getPrice());
+    assertNull(projected.getDescription());
+  }
+
+  @Test
+  void testInterestsFromAnArrayColumn() throws Exception {
+    User user = RowMapper.user().map(userRow(new String[] {"cats", "pink"}, Types.ARRAY));
+    assertEquals("clerk1", user.getClerkId());
+    assertEquals(List.of("cats", "pink"), user.getInterests());
+    assertEquals(List.of(), RowMapper.user().map(userRow(null, Types.ARRAY)).getInterests());
+  }
+
+  @Test
+  void testInterestsFromAJsonOrTextColumn() throws Exception {
+    assertEquals(
+        List.of("cats", "pink", "couches"),
+        RowMapper.user()
+            .map(userRow("[\"cats\", \"pink\",\"couches\"]", Types.OTHER))
+            .getInterests());
+    // the text form of a Postgres array, as a text column would hold it
+    assertEquals(
+        List.of("lamps", "ramen"),
+        RowMapper.user().map(userRow("{lamps,\"ramen\",}", Types.VARCHAR)).getInterests());
+    assertEquals(List.of(), RowMapper.user().map(userRow("[]", Types.OTHER)).getInterests());
+    assertEquals(List.of(), RowMapper.user().map(userRow(null, Types.VARCHAR)).getInterests());
+  }
+}
@@ -0,0 +1,62 @@
+package edu.brown.cs.student;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.brown.cs.student.main.server.storage.SearchIndex;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class SearchIndexTests {
+  private SearchIndex index;
+
+  @BeforeEach
+  void setUp() {
+    index = new SearchIndex();
+    index.put(1, "Red Mountain Bike");
+    index.put(2, "Bike helmet");
+    index.put(3, "Desk lamp");
+  }
+
+  @Test
+  void testSubstringMatches() {
+    assertEquals(Set.of(1L, 2L), index.search("bik"));
+    assertEquals(Set.of(1L), index.search("RED MOUNTAIN B"));
+    assertEquals(Set.of(1L), index.search("d mountain bike"));
+    assertEquals(Set.of(), index.search("mountain lamp"));
+  }
+
+  @Test
+  void testShortQueriesScan() {
+    assertEquals(Set.of(3L), index.search("la"));
+    assertEquals(Set.of(1L, 2L, 3L), index.search("e"));
+  }
+
+  @Test
+  void testTrigramFalsePositivesAreDropped() {
+    // contains every trigram of "abcabd" ("abc", "bca", "cab", "abd") but not the substring
+    index.put(4, "abcab abd");
+    assertEquals(Set.of(), index.search("abcabd"));
+  }
+
+  @Test
+  void testAnyFieldMatchesButNoMatchSpansTwo() {
+    index.put(5, "Study desk", "Solid oak, seats two");
+    assertEquals(Set.of(5L), index.search("oak"));
+    assertEquals(Set.of(3L, 5L), index.search("desk"));
+    // the end of the title and the start of the description are not one text
+    assertEquals(Set.of(), index.search("desk solid"));
+    assertEquals(Set.of(), index.search("desksolid"));
+  }
+
+  @Test
+  void testUpdatesAndRemovals() {
+    index.put(3, "Floor lamp");
+    assertEquals(Set.of(), index.search("desk"));
+    assertEquals(Set.of(3L), index.search("floor"));
+
+    index.remove(1);
+    assertEquals(Set.of(2L), index.search("bike"));
+    assertEquals(2, index.size());
+  }
+}
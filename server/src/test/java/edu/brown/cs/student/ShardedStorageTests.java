@@ -0,0 +1,100 @@
+package edu.brown.cs.student;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.brown.cs.student.main.server.classes.Listing;
+import edu.brown.cs.student.main.server.classes.ListingPage;
+import edu.brown.cs.student.main.server.storage.MockStorage;
+import edu.brown.cs.student.main.server.storage.ShardedStorage;
+import edu.brown.cs.student.main.server.storage.Sorter;
+import edu.brown.cs.student.main.server.storage.StorageInterface;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ShardedStorageTests {
+  private List<MockStorage> shards;
+  private ShardedStorage storage;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    shards = List.of(new MockStorage(), new MockStorage(), new MockStorage());
+    storage = new ShardedStorage(new ArrayList<StorageInterface>(shards));
+    // 30 listings from 10 sellers, with repeated prices so ties are broken by id
+    for (int i = 0; i < 30; i++) {
+      storage.createListing(
+          "clerk" + (i % 10),
+          "Item " + i,
+          true,
+          "Thing",
+          (float) (i % 7),
+          "Other",
+          "Used",
+          "item.jpg",
+          List.of());
+    }
+  }
+
+  private static List<Long> ids(List<Listing> listings) {
+    return listings.stream().map(Listing::getId).toList();
+  }
+
+  @Test
+  void testSellersStayOnOneShard() throws Exception {
+    int home = storage.shardFor("clerk3");
+    for (int i = 0; i < shards.size(); i++) {
+      assertEquals(i == home ? 3 : 0, shards.get(i).getListingsBySellerId("clerk3").size());
+    }
+    assertEquals(3, storage.getListingsBySellerId("clerk3").size());
+
+    // and the ten sellers are spread over all three shards
+    for (MockStorage shard : shards) {
+      assertFalse(shard.getListings(null, null, null, null, null, null).isEmpty());
+    }
+  }
+
+  @Test
+  void testGlobalQueriesAreMergedInOrder() {
+    List<Listing> all = storage.getListings(null, null, null, null, null, Sorter.PRICE_DESC);
+    assertEquals(30, all.size());
+    for (int i = 1; i < all.size(); i++) {
+      Listing before = all.get(i - 1);
+      Listing after = all.get(i);
+      assertTrue(
+          before.getPrice() > after.getPrice()
+              || (before.getPrice().equals(after.getPrice()) && before.getId() > after.getId()));
+    }
+  }
+
+  @Test
+  void testPagesCoverEveryListingOnce() {
+    for (Sorter sorter : new Sorter[] {null, Sorter.PRICE_ASC, Sorter.PRICE_DESC}) {
+      List<Listing> expected = storage.getListings(null, null, null, null, null, sorter);
+      List<Listing> paged = new ArrayList<>();
+      String cursor = null;
+      do {
+        ListingPage page = storage.getListingsPage(null, null, null, null, null, sorter, 4, cursor);
+        paged.addAll(page.getListings());
+        cursor = page.getNextCursor();
+      } while (cursor != null);
+      assertEquals(ids(expected), ids(paged));
+    }
+  }
+
+  @Test
+  void testListingIdsFindTheirShard() throws Exception {
+    Long id =
+        storage.createListing(
+            "clerk42", "Lamp", true, "Bright", 12.0f, "Other", "New", "lamp.jpg", List.of());
+    assertEquals("Lamp", storage.obtainListing(id).getTitle());
+    assertEquals(id, storage.obtainListing(id).getId());
+
+    Listing update = new Listing(null, null, "Desk lamp", null, null, null, null, null, null, true);
+    assertTrue(storage.updateListing(id, update));
+    assertEquals("Desk lamp", storage.obtainListings(List.of(id)).get(id).getTitle());
+
+    assertTrue(storage.deleteListing(id));
+    assertNull(storage.obtainListing(id));
+  }
+}
@@ -0,0 +1,89 @@
+package edu.brown.cs.student;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.brown.cs.student.main.server.storage.ValueInterner;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+public class ValueInternerTests {
+
+  @Test
+  void testEqualValuesShareOneInstance() {
+    ValueInterner interner = new ValueInterner(10);
+    String first = interner.intern(new String("Furniture"));
+    String second = interner.intern(new String("Furniture"));
+    assertSame(first, second);
+    assertNull(interner.intern(null));
+
+    interner.intern(new String("dorm"));
+    assertEquals(2, interner.size());
+  }
+
+  @Test
+  void testIdsAreStable() {
+    ValueInterner interner = new ValueInterner(10);
+    int books = interner.encode("Books");
+    int lamps = interner.encode("Lamps");
+    assertNotEquals(books, lamps);
+    assertEquals(books, interner.encode(new String("Books")));
+    assertEquals(books, interner.find("Books"));
+    assertEquals("Lamps", interner.decode(lamps));
+    assertSame(interner.intern(new String("Lamps")), interner.decode(lamps));
+    assertEquals(ValueInterner.NONE, interner.find("Shoes"));
+    assertNull(interner.decode(ValueInterner.NONE));
+  }
+
+  @Test
+  void testStopsGrowingAtCapacity() {
+    ValueInterner interner = new ValueInterner(2);
+    interner.intern("a");
+    interner.intern("b");
+    String c = new String("c");
+    assertSame(c, interner.intern(c));
+    assertEquals(ValueInterner.NONE, interner.encode("c"));
+    assertEquals(2, interner.size());
+    // values already held are still interned
+    assertSame(interner.intern("a"), interner.intern(new String("a")));
+    assertEquals(2L, interner.getStats().get("overflows"));
+  }
+
+  @Test
+  void testConcurrentCallersGetTheSameInstance() throws Exception {
+    ValueInterner interner = new ValueInterner(50);
+    ExecutorService pool = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<String[]>> results = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        results.add(
+            pool.submit(
+                () -> {
+                  String[] seen = new String[100];
+                  for (int i = 0; i < seen.length; i++) {
+                    seen[i] = interner.intern(new String("value" + i));
+                  }
+                  return seen;
+                }));
+      }
+      String[] expected = results.get(0).get();
+      for (Future<String[]> result : results) {
+        String[] seen = result.get();
+        for (int i = 0; i < 100; i++) {
+          // a value the dictionary holds comes back as its canonical instance
+          String probe = new String("value" + i);
+          if (interner.intern(probe) != probe) {
+            assertSame(expected[i], seen[i]);
+          }
+        }
+      }
+      // only 50 of the 100 values fit, however the threads raced for them
+      assertEquals(50, interner.size());
+    } finally {
+      pool.shutdown();
+    }
+  }
+}